@@ -0,0 +1,81 @@
+package com.webank.wecross.p2p;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webank.wecross.p2p.netty.message.proto.Message;
+import com.webank.wecross.p2p.netty.message.serialize.MessageSerializer;
+import com.webank.wecross.restserver.Versions;
+import com.webank.wecross.stub.Request;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// copying vs buffer view decode of transaction requests, gc.alloc.rate.norm is bytes per decode
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MessageDecodeBenchmark {
+    @Param({"1024", "65536", "1048576"})
+    public int payloadSize;
+
+    private static final TypeReference<P2PMessage<Request>> typeReference =
+            new TypeReference<P2PMessage<Request>>() {};
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+    private MessageSerializer serializer = new MessageSerializer();
+    private ByteBuf frame;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] payload = new byte[payloadSize];
+        new Random(0).nextBytes(payload);
+
+        Request request = new Request();
+        request.setData(payload);
+
+        P2PMessage<Request> p2pMessage = new P2PMessage<Request>();
+        p2pMessage.newSeq();
+        p2pMessage.setVersion(Versions.currentVersion);
+        p2pMessage.setMethod("payment/bcos/HelloWorld/transaction");
+        p2pMessage.setData(request);
+
+        Message message =
+                Message.builder(
+                        MessageType.RESOURCE_REQUEST, objectMapper.writeValueAsString(p2pMessage));
+        frame = PooledByteBufAllocator.DEFAULT.buffer();
+        serializer.serialize(message, frame, Message.VERSION_2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        frame.release();
+    }
+
+    @Benchmark
+    public P2PMessage<Request> copyDecode() throws Exception {
+        Message message = serializer.deserialize(frame.duplicate());
+        String content = new String(message.getData(), "utf-8");
+        return objectMapper.readValue(content, typeReference);
+    }
+
+    @Benchmark
+    public P2PMessage<Request> viewDecode() throws Exception {
+        Message message = serializer.deserializeView(frame.duplicate());
+        try {
+            return objectMapper.readValue(message.getDataStream(), typeReference);
+        } finally {
+            message.release();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.webank.wecross.p2p;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webank.wecross.p2p.codec.P2PCodec;
+import com.webank.wecross.p2p.codec.P2PCodecs;
+import com.webank.wecross.restserver.Versions;
+import com.webank.wecross.stub.Request;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// parse cost of a remote transaction request before dispatch, tree: the old readTree and three
+// bindings of the tree, stream: one pass of P2PMessageReader
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RequestDispatchBenchmark {
+    @Param({"256", "4096", "65536"})
+    public int payloadSize;
+
+    @Param({"json", "smile"})
+    public String codecName;
+
+    private static final TypeReference<P2PMessage<Request>> typeReference =
+            new TypeReference<P2PMessage<Request>>() {};
+
+    private ObjectMapper objectMapper = new ObjectMapper();
+    private P2PMessageReader p2pMessageReader = new P2PMessageReader();
+    private P2PCodec codec;
+    private byte[] content;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] payload = new byte[payloadSize];
+        new Random(0).nextBytes(payload);
+
+        Request request = new Request();
+        request.setData(payload);
+
+        P2PMessage<Request> p2pMessage = new P2PMessage<Request>();
+        p2pMessage.newSeq();
+        p2pMessage.setVersion(Versions.currentVersion);
+        p2pMessage.setMethod("payment/bcos/HelloWorld/transaction");
+        p2pMessage.setData(request);
+
+        codec = P2PCodecs.negotiate(codecName);
+        content = codec.encode(p2pMessage);
+        p2pMessageReader.addResourceRoute("transaction", Request.class);
+    }
+
+    @Benchmark
+    public Request treeDispatch() throws Exception {
+        JsonNode tree;
+        try (JsonParser parser = codec.createParser(new ByteArrayInputStream(content))) {
+            tree = objectMapper.readTree(parser);
+        }
+
+        objectMapper.treeToValue(tree, P2PMessage.class).getMethod();
+        P2PMessage<Request> p2pRequest =
+                objectMapper.readValue(objectMapper.treeAsTokens(tree), typeReference);
+        p2pRequest.checkP2PMessage("transaction");
+        P2PMessage<Request> request =
+                objectMapper.readValue(objectMapper.treeAsTokens(tree), typeReference);
+        return request.getData();
+    }
+
+    @Benchmark
+    public Request streamDispatch() throws Exception {
+        P2PMessage<Object> p2pRequest;
+        try (JsonParser parser = codec.createParser(new ByteArrayInputStream(content))) {
+            p2pRequest = p2pMessageReader.read(parser);
+        }
+
+        p2pRequest.getMethod().split("/");
+        p2pRequest.checkP2PMessage("transaction");
+        return (Request) p2pRequest.getData();
+    }
+}
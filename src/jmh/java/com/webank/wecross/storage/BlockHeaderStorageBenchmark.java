@@ -0,0 +1,103 @@
+package com.webank.wecross.storage;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// RocksDB vs mapped segment log, run with ./gradlew jmh
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BlockHeaderStorageBenchmark {
+    @Param({"rocksdb", "mmap"})
+    public String backend;
+
+    @Param({"512"})
+    public int headerSize;
+
+    public int blockNum = 100000;
+
+    private File dir;
+    private BlockHeaderStorage blockHeaderStorage;
+    private byte[] blockHeader;
+    private long nextBlockNumber;
+    private Random random = new Random(0);
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("block-header-benchmark").toFile();
+
+        if ("mmap".equals(backend)) {
+            MappedBlockHeaderStorageFactory factory = new MappedBlockHeaderStorageFactory();
+            factory.setBasePath(dir.getAbsolutePath());
+            blockHeaderStorage = factory.newBlockHeaderStorage("payment.bcos");
+        } else {
+            RocksDBBlockHeaderStorageFactory factory = new RocksDBBlockHeaderStorageFactory();
+            factory.setBasePath(dir.getAbsolutePath());
+            blockHeaderStorage = factory.newBlockHeaderStorage("payment.bcos");
+        }
+
+        blockHeader = new byte[headerSize];
+        random.nextBytes(blockHeader);
+
+        List<byte[]> batch = new ArrayList<byte[]>();
+        for (long blockNumber = 0; blockNumber < blockNum; ++blockNumber) {
+            batch.add(blockHeader);
+            if (batch.size() == 1000) {
+                blockHeaderStorage.writeBlockHeaders(blockNumber - batch.size() + 1, batch);
+                batch.clear();
+            }
+        }
+        nextBlockNumber = blockNum;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        blockHeaderStorage.close();
+        deleteAll(dir);
+    }
+
+    private void deleteAll(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteAll(child);
+            }
+        }
+        file.delete();
+    }
+
+    @Benchmark
+    public byte[] readRandom() {
+        return blockHeaderStorage.readBlockHeader(random.nextInt(blockNum));
+    }
+
+    @Benchmark
+    public byte[] readLatest() {
+        return blockHeaderStorage.readBlockHeader(blockNum - 1);
+    }
+
+    @Benchmark
+    public List<byte[]> readRange() {
+        long from = random.nextInt(blockNum - 100);
+        return blockHeaderStorage.readBlockHeaders(from, from + 99);
+    }
+
+    @Benchmark
+    public void append() {
+        blockHeaderStorage.writeBlockHeader(nextBlockNumber++, blockHeader);
+    }
+}
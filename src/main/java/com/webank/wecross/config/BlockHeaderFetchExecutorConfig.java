@@ -0,0 +1,27 @@
+package com.webank.wecross.config;
+
+import com.moandjiezana.toml.Toml;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Resource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+@Configuration
+public class BlockHeaderFetchExecutorConfig {
+    @Resource(name = "newToml")
+    Toml toml;
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService newBlockHeaderFetchExecutor() {
+        System.out.println("Initializing BlockHeaderFetchExecutor ...");
+
+        // shared by all chains, each chain keeps at most chains.syncWindowSize fetches in it
+        Long threadNum = toml.getLong("chains.syncThreadNum", 8L);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("block-fetch-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(threadNum.intValue(), threadFactory);
+    }
+}
@@ -0,0 +1,53 @@
+package com.webank.wecross.config;
+
+import com.moandjiezana.toml.Toml;
+import com.webank.wecross.zone.BlockHeaderPruner;
+import com.webank.wecross.zone.BlockHeaderRetentionPolicy;
+import com.webank.wecross.zone.ZoneManager;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class BlockHeaderPrunerConfig {
+    private Logger logger = LoggerFactory.getLogger(BlockHeaderPrunerConfig.class);
+
+    @Resource(name = "newToml")
+    Toml toml;
+
+    @Resource private ZoneManager zoneManager;
+
+    @Bean(destroyMethod = "stop")
+    public BlockHeaderPruner newBlockHeaderPruner() {
+        System.out.println("Initializing BlockHeaderPruner ...");
+
+        Map<String, BlockHeaderRetentionPolicy> policies =
+                new HashMap<String, BlockHeaderRetentionPolicy>();
+        List<Toml> retentions = toml.getTables("retention");
+        if (retentions != null) {
+            for (Toml retention : retentions) {
+                BlockHeaderRetentionPolicy policy = new BlockHeaderRetentionPolicy();
+                policy.setKeepBlocks(retention.getLong("keepBlocks", 0L));
+                policy.setKeepSeconds(retention.getLong("keepSeconds", 0L));
+                policy.setCheckpointInterval(retention.getLong("checkpointInterval", 0L));
+
+                String path = retention.getString("path", BlockHeaderPruner.DEFAULT_POLICY);
+                policies.put(path, policy);
+                logger.info("Block header retention of {}: {}", path, policy);
+            }
+        }
+
+        BlockHeaderPruner blockHeaderPruner = new BlockHeaderPruner();
+        blockHeaderPruner.setZoneManager(zoneManager);
+        blockHeaderPruner.setPolicies(policies);
+        blockHeaderPruner.setPruneInterval(toml.getLong("chains.pruneInterval", 60000L));
+        blockHeaderPruner.start();
+        zoneManager.setBlockHeaderPruner(blockHeaderPruner);
+        return blockHeaderPruner;
+    }
+}
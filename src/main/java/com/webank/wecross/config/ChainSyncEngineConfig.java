@@ -0,0 +1,25 @@
+package com.webank.wecross.config;
+
+import com.moandjiezana.toml.Toml;
+import com.webank.wecross.zone.ChainSyncEngine;
+import javax.annotation.Resource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ChainSyncEngineConfig {
+    @Resource(name = "newToml")
+    Toml toml;
+
+    @Bean(destroyMethod = "stop")
+    public ChainSyncEngine newChainSyncEngine() {
+        System.out.println("Initializing ChainSyncEngine ...");
+
+        ChainSyncEngine chainSyncEngine = new ChainSyncEngine();
+        chainSyncEngine.setSyncWorkerNum(toml.getLong("chains.syncWorkerNum", 4L).intValue());
+        chainSyncEngine.setLocalSyncInterval(toml.getLong("chains.localSyncInterval", 1000L));
+        chainSyncEngine.setRemoteSyncInterval(toml.getLong("chains.remoteSyncInterval", 30000L));
+        chainSyncEngine.setMaxBackoff(toml.getLong("chains.maxSyncBackoff", 60000L));
+        return chainSyncEngine;
+    }
+}
@@ -39,6 +39,7 @@ public class ConfigReaderConfig {
                 throw new WeCrossException(WeCrossException.ErrorCode.FIELD_MISSING, errorMessage);
             }
             p2PConfig = parseP2PConfig(p2pMap);
+            parseTransportConfig(p2PConfig);
 
         } catch (WeCrossException e) {
             logger.error(e.getMessage());
@@ -119,4 +120,28 @@ public class ConfigReaderConfig {
 
         return p2PConfig;
     }
+
+    // optional transport and tls tuning of [p2p]
+    public void parseTransportConfig(P2PConfig p2PConfig) {
+        p2PConfig.setNativeTransport(toml.getBoolean("p2p.nativeTransport", true));
+        p2PConfig.setWorkerThreadNum(toml.getLong("p2p.workerThreadNum", 0L).intValue());
+        p2PConfig.setBacklog(toml.getLong("p2p.backlog", 100L).intValue());
+        p2PConfig.setTcpNoDelay(toml.getBoolean("p2p.tcpNoDelay", true));
+        p2PConfig.setKeepAlive(toml.getBoolean("p2p.keepAlive", true));
+        p2PConfig.setSendBufferSize(toml.getLong("p2p.sendBufferSize", 0L).intValue());
+        p2PConfig.setReceiveBufferSize(toml.getLong("p2p.receiveBufferSize", 0L).intValue());
+        p2PConfig.setWriteBufferLowWaterMark(
+                toml.getLong("p2p.writeBufferLowWaterMark", 512L * 1024).intValue());
+        p2PConfig.setWriteBufferHighWaterMark(
+                toml.getLong("p2p.writeBufferHighWaterMark", 1024L * 1024).intValue());
+        p2PConfig.setFlushConsolidation(toml.getLong("p2p.flushConsolidation", 256L).intValue());
+        p2PConfig.setDirectBuffers(toml.getBoolean("p2p.directBuffers", true));
+        p2PConfig.setAllocatorArenas(toml.getLong("p2p.allocatorArenas", 0L).intValue());
+        p2PConfig.setAllocatorMaxOrder(toml.getLong("p2p.allocatorMaxOrder", 0L).intValue());
+
+        p2PConfig.setSslProvider(toml.getString("p2p.sslProvider", "jdk"));
+        p2PConfig.setSslSessionCacheSize(toml.getLong("p2p.sslSessionCacheSize", 0L));
+        p2PConfig.setSslSessionTimeout(toml.getLong("p2p.sslSessionTimeout", 0L));
+        p2PConfig.setSslSessionTickets(toml.getBoolean("p2p.sslSessionTickets", true));
+    }
 }
@@ -0,0 +1,50 @@
+package com.webank.wecross.config;
+
+import com.moandjiezana.toml.Toml;
+import com.webank.wecross.p2p.MessageType;
+import com.webank.wecross.p2p.netty.InboundExecutor;
+import com.webank.wecross.p2p.netty.message.MessageCallBack;
+import javax.annotation.Resource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class InboundExecutorConfig {
+
+    @Resource Toml toml;
+
+    @Bean(destroyMethod = "stop")
+    public InboundExecutor newInboundExecutor() {
+        System.out.println("Initializing InboundExecutor ...");
+
+        int queueCapacity = toml.getLong("p2p.queueCapacity", 1000L).intValue();
+
+        // connect, disconnect and block numbers of a peer stay in order on any number of threads
+        InboundExecutor.Lane control =
+                new InboundExecutor.Lane(
+                        "p2p-control",
+                        toml.getLong("p2p.controlThreadNum", 4L).intValue(),
+                        queueCapacity);
+        InboundExecutor.Lane response =
+                new InboundExecutor.Lane(
+                        "p2p-response",
+                        toml.getLong("p2p.responseThreadNum", 32L).intValue(),
+                        queueCapacity);
+        InboundExecutor.Lane request =
+                new InboundExecutor.Lane(
+                        "p2p-request",
+                        toml.getLong("p2p.threadNum", 500L).intValue(),
+                        queueCapacity);
+
+        InboundExecutor inboundExecutor = new InboundExecutor();
+        inboundExecutor.setLane(MessageCallBack.ON_CONNECT, control);
+        inboundExecutor.setLane(MessageCallBack.ON_DISCONNECT, control);
+        inboundExecutor.setLane(MessageType.HEARTBEAT, control);
+        inboundExecutor.setLane(MessageType.HELLO, control);
+        inboundExecutor.setLane(MessageType.CHAIN_BLOCK_NUMBER, control);
+        inboundExecutor.setLane(MessageType.RESOURCE_RESPONSE, response);
+        inboundExecutor.setLane(MessageType.RESOURCE_REQUEST, request);
+        inboundExecutor.setDefaultLane(request);
+        return inboundExecutor;
+    }
+}
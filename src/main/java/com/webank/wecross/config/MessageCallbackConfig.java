@@ -1,8 +1,10 @@
 package com.webank.wecross.config;
 
+import com.webank.wecross.p2p.BlockNumberProcessor;
 import com.webank.wecross.p2p.ConnectProcessor;
 import com.webank.wecross.p2p.DisconnectProcessor;
 import com.webank.wecross.p2p.HeartBeatProcessor;
+import com.webank.wecross.p2p.HelloProcessor;
 import com.webank.wecross.p2p.MessageType;
 import com.webank.wecross.p2p.RequestProcessor;
 import com.webank.wecross.p2p.ResponseProcessor;
@@ -16,10 +18,14 @@ import org.springframework.context.annotation.Configuration;
 public class MessageCallbackConfig {
     @Resource HeartBeatProcessor heartBeatProcessor;
 
+    @Resource HelloProcessor helloProcessor;
+
     @Resource ResponseProcessor resourceResponseProcessor;
 
     @Resource RequestProcessor resourceRequestProcessor;
 
+    @Resource BlockNumberProcessor blockNumberProcessor;
+
     @Resource ConnectProcessor connectProcessor;
 
     @Resource DisconnectProcessor disconnectProcessor;
@@ -34,8 +40,10 @@ public class MessageCallbackConfig {
         callback.setSeqMapper(seqMapper);
 
         callback.setProcessor(MessageType.HEARTBEAT, heartBeatProcessor);
+        callback.setProcessor(MessageType.HELLO, helloProcessor);
         callback.setProcessor(MessageType.RESOURCE_REQUEST, resourceRequestProcessor);
         callback.setProcessor(MessageType.RESOURCE_RESPONSE, resourceResponseProcessor);
+        callback.setProcessor(MessageType.CHAIN_BLOCK_NUMBER, blockNumberProcessor);
         callback.setProcessor(MessageCallBack.ON_CONNECT, connectProcessor);
         callback.setProcessor(MessageCallBack.ON_DISCONNECT, disconnectProcessor);
 
@@ -1,12 +1,12 @@
 package com.webank.wecross.config;
 
+import com.webank.wecross.p2p.netty.InboundExecutor;
 import com.webank.wecross.p2p.netty.NettyBootstrap;
 import com.webank.wecross.p2p.netty.channel.handler.ChannelHandlerCallBack;
 import com.webank.wecross.p2p.netty.message.MessageCallBack;
 import javax.annotation.Resource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 public class NettyBootstrapConfig {
@@ -14,14 +14,14 @@ public class NettyBootstrapConfig {
 
     @Resource MessageCallBack messageCallBack;
 
-    @Resource ThreadPoolTaskExecutor threadPool;
+    @Resource InboundExecutor inboundExecutor;
 
-    @Bean
+    @Bean(destroyMethod = "stop")
     public NettyBootstrap newNettyBootstrap() {
         System.out.println("Initializing NettyBootstrap ...");
 
         ChannelHandlerCallBack channelHandlerCallBack = new ChannelHandlerCallBack();
-        channelHandlerCallBack.setThreadPool(threadPool);
+        channelHandlerCallBack.setInboundExecutor(inboundExecutor);
 
         NettyBootstrap bootstrap = new NettyBootstrap();
         bootstrap.setConfig(p2pConfig);
@@ -23,6 +23,27 @@ public class P2PConfig {
 
     private List<String> peers;
 
+    // transport, sizes of 0 keep the netty or OS default
+    private boolean nativeTransport = true; // epoll on linux, nio elsewhere
+    private int workerThreadNum = 0;
+    private int backlog = 100;
+    private boolean tcpNoDelay = true;
+    private boolean keepAlive = true;
+    private int sendBufferSize = 0;
+    private int receiveBufferSize = 0;
+    private int writeBufferLowWaterMark = 512 * 1024;
+    private int writeBufferHighWaterMark = 1024 * 1024;
+    private int flushConsolidation = 256; // flushes merged at most, 0: flush every message
+    private boolean directBuffers = true;
+    private int allocatorArenas = 0;
+    private int allocatorMaxOrder = 0;
+
+    // tls, "jdk" or "openssl", sizes of 0 keep the provider default
+    private String sslProvider = "jdk";
+    private long sslSessionCacheSize = 0;
+    private long sslSessionTimeout = 0; // s
+    private boolean sslSessionTickets = true;
+
     public List<String> getPeers() {
         return peers;
     }
@@ -71,6 +92,142 @@ public class P2PConfig {
         this.listenPort = listenPort;
     }
 
+    public boolean isNativeTransport() {
+        return nativeTransport;
+    }
+
+    public void setNativeTransport(boolean nativeTransport) {
+        this.nativeTransport = nativeTransport;
+    }
+
+    public int getWorkerThreadNum() {
+        return workerThreadNum;
+    }
+
+    public void setWorkerThreadNum(int workerThreadNum) {
+        this.workerThreadNum = workerThreadNum;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public void setBacklog(int backlog) {
+        this.backlog = backlog;
+    }
+
+    public boolean isTcpNoDelay() {
+        return tcpNoDelay;
+    }
+
+    public void setTcpNoDelay(boolean tcpNoDelay) {
+        this.tcpNoDelay = tcpNoDelay;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public int getSendBufferSize() {
+        return sendBufferSize;
+    }
+
+    public void setSendBufferSize(int sendBufferSize) {
+        this.sendBufferSize = sendBufferSize;
+    }
+
+    public int getReceiveBufferSize() {
+        return receiveBufferSize;
+    }
+
+    public void setReceiveBufferSize(int receiveBufferSize) {
+        this.receiveBufferSize = receiveBufferSize;
+    }
+
+    public int getWriteBufferLowWaterMark() {
+        return writeBufferLowWaterMark;
+    }
+
+    public void setWriteBufferLowWaterMark(int writeBufferLowWaterMark) {
+        this.writeBufferLowWaterMark = writeBufferLowWaterMark;
+    }
+
+    public int getWriteBufferHighWaterMark() {
+        return writeBufferHighWaterMark;
+    }
+
+    public void setWriteBufferHighWaterMark(int writeBufferHighWaterMark) {
+        this.writeBufferHighWaterMark = writeBufferHighWaterMark;
+    }
+
+    public int getFlushConsolidation() {
+        return flushConsolidation;
+    }
+
+    public void setFlushConsolidation(int flushConsolidation) {
+        this.flushConsolidation = flushConsolidation;
+    }
+
+    public boolean isDirectBuffers() {
+        return directBuffers;
+    }
+
+    public void setDirectBuffers(boolean directBuffers) {
+        this.directBuffers = directBuffers;
+    }
+
+    public int getAllocatorArenas() {
+        return allocatorArenas;
+    }
+
+    public void setAllocatorArenas(int allocatorArenas) {
+        this.allocatorArenas = allocatorArenas;
+    }
+
+    public int getAllocatorMaxOrder() {
+        return allocatorMaxOrder;
+    }
+
+    public void setAllocatorMaxOrder(int allocatorMaxOrder) {
+        this.allocatorMaxOrder = allocatorMaxOrder;
+    }
+
+    public String getSslProvider() {
+        return sslProvider;
+    }
+
+    public void setSslProvider(String sslProvider) {
+        this.sslProvider = sslProvider;
+    }
+
+    public long getSslSessionCacheSize() {
+        return sslSessionCacheSize;
+    }
+
+    public void setSslSessionCacheSize(long sslSessionCacheSize) {
+        this.sslSessionCacheSize = sslSessionCacheSize;
+    }
+
+    public long getSslSessionTimeout() {
+        return sslSessionTimeout;
+    }
+
+    public void setSslSessionTimeout(long sslSessionTimeout) {
+        this.sslSessionTimeout = sslSessionTimeout;
+    }
+
+    public boolean isSslSessionTickets() {
+        return sslSessionTickets;
+    }
+
+    public void setSslSessionTickets(boolean sslSessionTickets) {
+        this.sslSessionTickets = sslSessionTickets;
+    }
+
     @Override
     public String toString() {
         return "P2PConfig{"
@@ -87,6 +244,19 @@ public class P2PConfig {
                 + sslKey
                 + ", peers="
                 + peers
+                + ", nativeTransport="
+                + nativeTransport
+                + ", workerThreadNum="
+                + workerThreadNum
+                + ", tcpNoDelay="
+                + tcpNoDelay
+                + ", writeBufferWaterMark=["
+                + writeBufferLowWaterMark
+                + ", "
+                + writeBufferHighWaterMark
+                + "]"
+                + ", sslProvider="
+                + sslProvider
                 + '}';
     }
 
@@ -159,5 +329,18 @@ public class P2PConfig {
                 toHost(peer);
             }
         }
+
+        if (!"jdk".equals(sslProvider) && !"openssl".equals(sslProvider)) {
+            throw new IllegalArgumentException(
+                    " invalid ssl provider, sslProvider: " + sslProvider + ", jdk or openssl");
+        }
+
+        if (writeBufferLowWaterMark <= 0 || writeBufferHighWaterMark < writeBufferLowWaterMark) {
+            throw new IllegalArgumentException(
+                    " invalid write buffer water mark, low: "
+                            + writeBufferLowWaterMark
+                            + ", high: "
+                            + writeBufferHighWaterMark);
+        }
     }
 }
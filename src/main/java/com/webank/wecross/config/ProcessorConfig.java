@@ -1,16 +1,22 @@
 package com.webank.wecross.config;
 
+import com.moandjiezana.toml.Toml;
+import com.webank.wecross.p2p.BlockNumberProcessor;
 import com.webank.wecross.p2p.ConnectProcessor;
 import com.webank.wecross.p2p.DisconnectProcessor;
 import com.webank.wecross.p2p.HeartBeatProcessor;
+import com.webank.wecross.p2p.HelloProcessor;
 import com.webank.wecross.p2p.RequestProcessor;
 import com.webank.wecross.p2p.ResponseProcessor;
 import com.webank.wecross.p2p.netty.SeqMapper;
 import com.webank.wecross.peer.PeerManager;
 import com.webank.wecross.zone.ZoneManager;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.Resource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 @Configuration
 public class ProcessorConfig {
@@ -18,11 +24,19 @@ public class ProcessorConfig {
     @Resource SeqMapper seqMapper;
     @Resource PeerManager peerManager;
 
+    @Resource(name = "newToml")
+    Toml toml;
+
     @Bean
     public HeartBeatProcessor newHeartBeatProcessor() {
         return new HeartBeatProcessor();
     }
 
+    @Bean
+    public HelloProcessor newHelloProcessor() {
+        return new HelloProcessor();
+    }
+
     @Bean
     public ResponseProcessor newResponseProcessor() {
         ResponseProcessor resourceResponseProcessor = new ResponseProcessor();
@@ -35,10 +49,30 @@ public class ProcessorConfig {
         RequestProcessor resourceRequestProcessor = new RequestProcessor();
         resourceRequestProcessor.setPeerManager(peerManager);
         resourceRequestProcessor.setZoneManager(zoneManager);
+        resourceRequestProcessor.setBatchExecutor(newBatchExecutor());
 
         return resourceRequestProcessor;
     }
 
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService newBatchExecutor() {
+        // runs the requests of a batch from a peer in parallel
+        Long threadNum = toml.getLong("p2p.batchThreadNum", 64L);
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("p2p-batch-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(threadNum.intValue(), threadFactory);
+    }
+
+    @Bean
+    public BlockNumberProcessor newBlockNumberProcessor() {
+        BlockNumberProcessor blockNumberProcessor = new BlockNumberProcessor();
+        blockNumberProcessor.setPeerManager(peerManager);
+        blockNumberProcessor.setZoneManager(zoneManager);
+
+        return blockNumberProcessor;
+    }
+
     @Bean
     public ConnectProcessor newConnectProcessor() {
         ConnectProcessor connectProcessor = new ConnectProcessor();
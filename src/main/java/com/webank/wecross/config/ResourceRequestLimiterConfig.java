@@ -0,0 +1,52 @@
+package com.webank.wecross.config;
+
+import com.moandjiezana.toml.Toml;
+import com.webank.wecross.restserver.ResourceRequestLimiter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import javax.annotation.Resource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+@Configuration
+public class ResourceRequestLimiterConfig {
+    private Logger logger = LoggerFactory.getLogger(ResourceRequestLimiterConfig.class);
+
+    @Resource(name = "newToml")
+    Toml toml;
+
+    @Bean(destroyMethod = "stop")
+    public ResourceRequestLimiter newResourceRequestLimiter() {
+        System.out.println("Initializing ResourceRequestLimiter ...");
+
+        Map<String, ResourceRequestLimiter.Limit> limits =
+                new HashMap<String, ResourceRequestLimiter.Limit>();
+        List<Toml> rpcLimits = toml.getTables("rpcLimit");
+        if (rpcLimits != null) {
+            for (Toml rpcLimit : rpcLimits) {
+                ResourceRequestLimiter.Limit limit = new ResourceRequestLimiter.Limit();
+                limit.setMaxConcurrency(rpcLimit.getLong("maxConcurrency", 64L).intValue());
+                limit.setTimeout(rpcLimit.getLong("timeout", 30000L));
+
+                String path = rpcLimit.getString("path", ResourceRequestLimiter.DEFAULT_LIMIT);
+                limits.put(path, limit);
+                logger.info("Rpc limit of {}: {}", path, limit);
+            }
+        }
+
+        Long threadNum = toml.getLong("rpc.threadNum", 200L);
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("rpc-resource-");
+        threadFactory.setDaemon(true);
+
+        ResourceRequestLimiter resourceRequestLimiter = new ResourceRequestLimiter();
+        resourceRequestLimiter.setLimits(limits);
+        resourceRequestLimiter.setExecutor(
+                Executors.newFixedThreadPool(threadNum.intValue(), threadFactory));
+        return resourceRequestLimiter;
+    }
+}
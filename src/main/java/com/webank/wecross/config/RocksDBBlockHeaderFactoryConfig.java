@@ -2,7 +2,11 @@ package com.webank.wecross.config;
 
 import com.moandjiezana.toml.Toml;
 import com.webank.wecross.storage.BlockHeaderStorageFactory;
+import com.webank.wecross.storage.BlockHeaderWriter;
+import com.webank.wecross.storage.CachedBlockHeaderStorageFactory;
+import com.webank.wecross.storage.MappedBlockHeaderStorageFactory;
 import com.webank.wecross.storage.RocksDBBlockHeaderStorageFactory;
+import com.webank.wecross.storage.SharedRocksDBBlockHeaderStorageFactory;
 import javax.annotation.Resource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -12,15 +16,66 @@ public class RocksDBBlockHeaderFactoryConfig {
     @Resource(name = "newToml")
     Toml toml;
 
-    @Bean
+    @Bean(destroyMethod = "close")
     BlockHeaderStorageFactory newBlockHeaderStorageFactory() {
         System.out.println("Initializing BlockHeaderStorageFactory ...");
 
         String basePath = toml.getString("db.path", "db/");
 
-        RocksDBBlockHeaderStorageFactory rocksDBBlockHeaderStorageFactory =
-                new RocksDBBlockHeaderStorageFactory();
-        rocksDBBlockHeaderStorageFactory.setBasePath(basePath);
-        return rocksDBBlockHeaderStorageFactory;
+        BlockHeaderStorageFactory blockHeaderStorageFactory;
+        if ("mmap".equals(toml.getString("db.type", "rocksdb"))) {
+            // append-only memory mapped segment files instead of RocksDB
+            MappedBlockHeaderStorageFactory mappedFactory = new MappedBlockHeaderStorageFactory();
+            mappedFactory.setBasePath(basePath);
+            // pruned and closed segments stay mapped until gc
+            mappedFactory.setSegmentSize(
+                    toml.getLong("db.segmentSize", 64L * 1024 * 1024).intValue());
+            mappedFactory.setSyncWrites(toml.getBoolean("db.syncWrites", false));
+            blockHeaderStorageFactory = mappedFactory;
+        } else if (toml.getBoolean("db.shared", false)) {
+            // one db for all chains instead of one db per chain
+            SharedRocksDBBlockHeaderStorageFactory sharedFactory =
+                    new SharedRocksDBBlockHeaderStorageFactory();
+            sharedFactory.setBasePath(basePath);
+            sharedFactory.setBlockCacheSize(toml.getLong("db.blockCacheSize", 64L * 1024 * 1024));
+            sharedFactory.setWriteBufferSize(toml.getLong("db.writeBufferSize", 64L * 1024 * 1024));
+            sharedFactory.setBlockHeaderWriter(newBlockHeaderWriter());
+            blockHeaderStorageFactory = sharedFactory;
+        } else {
+            RocksDBBlockHeaderStorageFactory factory = new RocksDBBlockHeaderStorageFactory();
+            factory.setBasePath(basePath);
+            factory.setBlockHeaderWriter(newBlockHeaderWriter());
+            blockHeaderStorageFactory = factory;
+        }
+
+        // bytes of the block header caches of all chains together, each shrinks to an equal share
+        // when they are over it, pinned headers count but are never evicted, 0 disables them
+        long cacheSize = toml.getLong("db.blockHeaderCacheSize", 16L * 1024 * 1024);
+        if (cacheSize <= 0) {
+            return blockHeaderStorageFactory;
+        }
+
+        CachedBlockHeaderStorageFactory cachedBlockHeaderStorageFactory =
+                new CachedBlockHeaderStorageFactory(blockHeaderStorageFactory);
+        cachedBlockHeaderStorageFactory.setMaxCacheBytes(cacheSize);
+        cachedBlockHeaderStorageFactory.setPinnedBlockNum(
+                toml.getLong("db.pinnedBlockHeaderNum", 64L).intValue());
+        return cachedBlockHeaderStorageFactory;
+    }
+
+    // headers of all chains are written by one thread in group commits, stopped by the factory
+    private BlockHeaderWriter newBlockHeaderWriter() {
+        if (!toml.getBoolean("db.groupCommit", true)) {
+            return null;
+        }
+
+        BlockHeaderWriter blockHeaderWriter = new BlockHeaderWriter();
+        blockHeaderWriter.setFsyncPolicy(
+                BlockHeaderWriter.FsyncPolicy.valueOf(
+                        toml.getString("db.fsyncPolicy", "none").toUpperCase()));
+        blockHeaderWriter.setFsyncInterval(toml.getLong("db.fsyncInterval", 1000L));
+        blockHeaderWriter.setMaxGroupSize(toml.getLong("db.maxGroupSize", 256L).intValue());
+        blockHeaderWriter.start();
+        return blockHeaderWriter;
     }
 }
@@ -1,13 +1,22 @@
 package com.webank.wecross.config;
 
+import com.moandjiezana.toml.Toml;
+import com.webank.wecross.exception.WeCrossException;
+import com.webank.wecross.remote.balance.FailoverPolicy;
+import com.webank.wecross.remote.balance.LoadBalanceStrategies;
+import com.webank.wecross.remote.balance.LoadBalanceStrategy;
 import com.webank.wecross.storage.BlockHeaderStorageFactory;
 import com.webank.wecross.stub.StubManager;
+import com.webank.wecross.zone.ChainSyncEngine;
 import com.webank.wecross.zone.Zone;
 import com.webank.wecross.zone.ZoneManager;
+import io.netty.util.HashedWheelTimer;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Resource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 
 @Configuration
 public class ZoneManagerConfig {
@@ -18,14 +27,50 @@ public class ZoneManagerConfig {
 
     @Resource private BlockHeaderStorageFactory blockHeaderStorageFactory;
 
+    @Resource(name = "newBlockHeaderFetchExecutor")
+    private ExecutorService blockHeaderFetchExecutor;
+
+    @Resource private ChainSyncEngine chainSyncEngine;
+
+    @Resource(name = "newToml")
+    private Toml toml;
+
     @Bean
-    public ZoneManager newZoneManager() {
+    public ZoneManager newZoneManager() throws WeCrossException {
         System.out.println("Initializing ZoneManager ...");
 
         ZoneManager zoneManager = new ZoneManager();
         zoneManager.setZones(zones);
         zoneManager.setStubManager(stubManager);
         zoneManager.setBlockHeaderStorageFactory(blockHeaderStorageFactory);
+        zoneManager.setBlockHeaderFetchExecutor(blockHeaderFetchExecutor);
+        zoneManager.setSyncWindowSize(toml.getLong("chains.syncWindowSize", 16L).intValue());
+        zoneManager.setSyncBatchSize(toml.getLong("chains.syncBatchSize", 256L).intValue());
+        zoneManager.setSyncRangeSize(toml.getLong("chains.remoteSyncRangeSize", 100L).intValue());
+        zoneManager.setCoalesceCalls(toml.getBoolean("chains.coalesceCalls", true));
+        zoneManager.setCallCacheTTL(toml.getLong("chains.callCacheTTL", 0L));
+
+        String loadBalance = toml.getString("chains.loadBalance", "p2c");
+        LoadBalanceStrategy loadBalanceStrategy = LoadBalanceStrategies.get(loadBalance);
+        if (loadBalanceStrategy == null) {
+            throw new WeCrossException(
+                    WeCrossException.ErrorCode.UNEXPECTED_CONFIG,
+                    "Unknown chains.loadBalance: " + loadBalance);
+        }
+        zoneManager.setLoadBalanceStrategy(loadBalanceStrategy);
+
+        FailoverPolicy failoverPolicy = new FailoverPolicy();
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("failover-");
+        threadFactory.setDaemon(true);
+        failoverPolicy.setTimer(new HashedWheelTimer(threadFactory));
+        failoverPolicy.setMaxAttempts(toml.getLong("chains.maxAttempts", 3L).intValue());
+        failoverPolicy.setTimeout(toml.getLong("chains.requestTimeout", 10000L));
+        failoverPolicy.setAttemptTimeout(toml.getLong("chains.attemptTimeout", 3000L));
+        failoverPolicy.setHedgeCalls(toml.getBoolean("chains.hedgeCalls", false));
+        zoneManager.setFailoverPolicy(failoverPolicy);
+        zoneManager.setChainSyncEngine(chainSyncEngine);
+        zoneManager.registerLocalChainListeners();
+        zoneManager.startChainSync();
         return zoneManager;
     }
 }
@@ -3,6 +3,7 @@ package com.webank.wecross.config;
 import com.moandjiezana.toml.Toml;
 import com.webank.wecross.common.WeCrossDefault;
 import com.webank.wecross.exception.WeCrossException;
+import com.webank.wecross.resource.CallCoalescer;
 import com.webank.wecross.resource.ResourceBlockHeaderManager;
 import com.webank.wecross.storage.BlockHeaderStorageFactory;
 import com.webank.wecross.stub.Connection;
@@ -16,6 +17,7 @@ import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,6 +34,9 @@ public class ZonesConfig {
 
     @Resource BlockHeaderStorageFactory blockHeaderStorageFactory;
 
+    @Resource(name = "newBlockHeaderFetchExecutor")
+    ExecutorService blockHeaderFetchExecutor;
+
     @Bean
     public Map<String, Zone> newZoneMap() {
         System.out.println("Initializing ZoneMap ...");
@@ -132,6 +137,10 @@ public class ZonesConfig {
             Chain chain = new Chain(chainName);
             chain.setDriver(stubFactory.newDriver());
             chain.setBlockHeaderStorage(blockHeaderStorageFactory.newBlockHeaderStorage(blockPath));
+            chain.setFetchExecutor(blockHeaderFetchExecutor);
+            chain.setSyncWindowSize(toml.getLong("chains.syncWindowSize", 16L).intValue());
+            chain.setSyncBatchSize(toml.getLong("chains.syncBatchSize", 256L).intValue());
+            chain.setSyncRangeSize(toml.getLong("chains.syncRangeSize", 1L).intValue());
             for (ResourceInfo resourceInfo : resources) {
                 com.webank.wecross.resource.Resource resource =
                         new com.webank.wecross.resource.Resource();
@@ -145,6 +154,12 @@ public class ZonesConfig {
                 resourceBlockHeaderManager.setBlockHeaderStorage(chain.getBlockHeaderStorage());
                 resourceBlockHeaderManager.setChain(chain);
                 resource.setResourceBlockHeaderManager(resourceBlockHeaderManager);
+                if (toml.getBoolean("chains.coalesceCalls", true)) {
+                    CallCoalescer callCoalescer = new CallCoalescer();
+                    callCoalescer.setChain(chain);
+                    callCoalescer.setCacheTTL(toml.getLong("chains.callCacheTTL", 0L));
+                    resource.setCallCoalescer(callCoalescer);
+                }
 
                 chain.getResources().put(resourceInfo.getName(), resource);
                 logger.info(
@@ -156,8 +171,6 @@ public class ZonesConfig {
             }
             chain.addConnection(null, connection);
 
-            chain.start();
-            logger.info("Start block header sync: {}", zone + "." + chainName);
             stubMap.put(chainName, chain);
         }
 
@@ -20,6 +20,8 @@ public class WeCrossException extends java.lang.Exception {
         public static final int METHOD_ERROR = 204;
         public static final int DECODE_TRANSACTION_REQUEST_ERROR = 205;
         public static final int UNSUPPORTED_TYPE = 206;
+        public static final int RESOURCE_BUSY = 207;
+        public static final int REQUEST_TIMEOUT = 208;
 
         // other
         public static final int HTLC_ERROR = 301;
@@ -2,7 +2,10 @@ package com.webank.wecross.host;
 
 import com.webank.wecross.account.AccountManager;
 import com.webank.wecross.p2p.P2PMessage;
+import com.webank.wecross.p2p.netty.HandshakeStats;
+import com.webank.wecross.p2p.netty.InboundExecutor;
 import com.webank.wecross.p2p.netty.P2PService;
+import com.webank.wecross.p2p.netty.channel.handler.ChannelHandlerCallBack;
 import com.webank.wecross.peer.Peer;
 import com.webank.wecross.peer.PeerManager;
 import com.webank.wecross.peer.PeerSeqMessageData;
@@ -111,6 +114,43 @@ public class WeCrossHost {
     private void dumpStatus() {
         dumpChainsStatus();
         dumpActiveResources();
+        dumpInboundLanes();
+        dumpHandshakes();
+    }
+
+    private void dumpInboundLanes() {
+        ChannelHandlerCallBack channelHandlerCallBack = p2pService.getChannelHandlerCallBack();
+        if (channelHandlerCallBack == null
+                || channelHandlerCallBack.getInboundExecutor() == null) {
+            return;
+        }
+        InboundExecutor inboundExecutor = channelHandlerCallBack.getInboundExecutor();
+
+        String dumpStr = "Current p2p inbound lanes: ";
+        boolean first = true;
+        for (InboundExecutor.Lane lane : inboundExecutor.getLanes()) {
+            dumpStr += first ? "" : ", ";
+            first = false;
+            dumpStr += lane.toString();
+        }
+
+        dumpByTime(dumpStr);
+    }
+
+    private void dumpHandshakes() {
+        ChannelHandlerCallBack channelHandlerCallBack = p2pService.getChannelHandlerCallBack();
+        if (channelHandlerCallBack == null) {
+            return;
+        }
+        HandshakeStats handshakeStats = channelHandlerCallBack.getHandshakeStats();
+
+        String dumpStr = "Current p2p handshakes, failed: " + handshakeStats.getFailures();
+        for (Map.Entry<String, HandshakeStats.Record> entry :
+                handshakeStats.getRecords().entrySet()) {
+            dumpStr += ", [peer=" + entry.getKey() + "," + entry.getValue() + "]";
+        }
+
+        dumpByTime(dumpStr);
     }
 
     private void dumpChainsStatus() {
@@ -126,6 +166,12 @@ public class WeCrossHost {
                                 + entry.getKey()
                                 + ",blockNUmber="
                                 + entry.getValue().getBlockNumber()
+                                + ",syncRate="
+                                + String.format(
+                                        "%.1f",
+                                        entry.getValue().getSyncMetrics().getLastRoundRate())
+                                + "/s,lag="
+                                + entry.getValue().getSyncLag()
                                 + "]";
             }
         }
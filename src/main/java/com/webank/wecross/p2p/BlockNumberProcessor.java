@@ -0,0 +1,66 @@
+package com.webank.wecross.p2p;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.webank.wecross.p2p.codec.P2PCodecs;
+import com.webank.wecross.p2p.netty.common.Node;
+import com.webank.wecross.p2p.netty.message.processor.Processor;
+import com.webank.wecross.p2p.netty.message.proto.Message;
+import com.webank.wecross.peer.Peer;
+import com.webank.wecross.peer.PeerManager;
+import com.webank.wecross.zone.BlockNumberMessageData;
+import com.webank.wecross.zone.ZoneManager;
+import io.netty.channel.ChannelHandlerContext;
+import java.io.InputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class BlockNumberProcessor implements Processor {
+    private static final Logger logger = LoggerFactory.getLogger(BlockNumberProcessor.class);
+
+    private PeerManager peerManager;
+    private ZoneManager zoneManager;
+
+    @Override
+    public String name() {
+        return "BlockNumber";
+    }
+
+    @Override
+    public void process(ChannelHandlerContext ctx, Node node, Message message) {
+        try {
+            logger.trace(" receive block number, host: {}, message: {}", node, message);
+
+            InputStream content = message.getDataStream();
+            P2PMessage<BlockNumberMessageData> p2pMessage =
+                    P2PCodecs.detect(content)
+                            .decode(
+                                    content,
+                                    new TypeReference<P2PMessage<BlockNumberMessageData>>() {});
+
+            Peer peer = peerManager.getPeerInfo(node);
+            if (peer == null || p2pMessage.getData() == null) {
+                return;
+            }
+
+            zoneManager.onRemoteBlockNumber(peer, p2pMessage.getData());
+        } catch (Exception e) {
+            logger.error(" invalid format, host: {}, e: {}", node, e);
+        }
+    }
+
+    public PeerManager getPeerManager() {
+        return peerManager;
+    }
+
+    public void setPeerManager(PeerManager peerManager) {
+        this.peerManager = peerManager;
+    }
+
+    public ZoneManager getZoneManager() {
+        return zoneManager;
+    }
+
+    public void setZoneManager(ZoneManager zoneManager) {
+        this.zoneManager = zoneManager;
+    }
+}
@@ -21,6 +21,7 @@ public class DisconnectProcessor implements Processor {
     public void process(ChannelHandlerContext ctx, Node node, Message message) {
         Peer peer = peerManager.getPeerInfo(node);
         zoneManager.removeRemoteResources(peer, peer.getResourceInfos());
+        zoneManager.removeBlockNumberSubscriber(peer);
         peerManager.removePeerInfo(node);
     }
 
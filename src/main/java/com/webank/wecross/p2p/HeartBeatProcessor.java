@@ -16,6 +16,11 @@ public class HeartBeatProcessor implements Processor {
         return "HeartBeat";
     }
 
+    @Override
+    public boolean isBlocking() {
+        return false; // only logs
+    }
+
     @Override
     public void process(ChannelHandlerContext ctx, Node node, Message message) {
         // log with do nothing
@@ -0,0 +1,43 @@
+package com.webank.wecross.p2p;
+
+import com.webank.wecross.p2p.codec.P2PCodec;
+import com.webank.wecross.p2p.codec.P2PCodecs;
+import com.webank.wecross.p2p.netty.common.Node;
+import com.webank.wecross.p2p.netty.message.processor.Processor;
+import com.webank.wecross.p2p.netty.message.proto.Message;
+import com.webank.wecross.p2p.netty.message.serialize.MessageSerializer;
+import io.netty.channel.ChannelHandlerContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class HelloProcessor implements Processor {
+
+    private static final Logger logger = LoggerFactory.getLogger(HelloProcessor.class);
+
+    @Override
+    public String name() {
+        return "Hello";
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return false; // the codec is set before the next frames of the peer are handled
+    }
+
+    @Override
+    public void process(ChannelHandlerContext ctx, Node node, Message message) {
+        try {
+            // "<frame version> [codec,...]"
+            String[] fields = new String(message.getData(), "utf-8").trim().split(" ");
+            int version = Math.min(Message.MAX_VERSION, Integer.parseInt(fields[0]));
+            P2PCodec codec = fields.length > 1 ? P2PCodecs.negotiate(fields[1]) : P2PCodecs.JSON;
+
+            // all frame versions and codecs are always decoded, this only switches what we send
+            MessageSerializer.setVersion(ctx, version);
+            P2PCodecs.setCodec(ctx, codec);
+            logger.info(" frame version: {}, codec: {}, host: {}", version, codec.name(), node);
+        } catch (Exception e) {
+            logger.warn(" invalid hello, host: {}, e: {}", node, e);
+        }
+    }
+}
@@ -4,8 +4,12 @@ package com.webank.wecross.p2p;
 public interface MessageType {
     /** heart beat message */
     Short HEARTBEAT = 0x01;
+    /** frame version and codecs of the sender, sent once after connect, no response */
+    Short HELLO = 0x02;
     /** resource remote request */
     Short RESOURCE_REQUEST = 0x10;
     /** resource remote request */
     Short RESOURCE_RESPONSE = 0x11;
+    /** block number announcement of a chain, no response */
+    Short CHAIN_BLOCK_NUMBER = 0x20;
 }
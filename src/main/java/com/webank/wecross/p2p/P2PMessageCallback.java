@@ -3,7 +3,9 @@ package com.webank.wecross.p2p;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.webank.wecross.p2p.codec.P2PCodecs;
 import com.webank.wecross.p2p.engine.P2PResponse;
+import java.io.InputStream;
 
 public abstract class P2PMessageCallback<T> {
     private TypeReference<?> typeReference;
@@ -32,6 +34,17 @@ public abstract class P2PMessageCallback<T> {
         return p2PResponse;
     }
 
+    // the response is in the codec of the request, or JSON from older peers
+    public P2PResponse<Object> parseContent(InputStream content) throws Exception {
+        if (typeReference == null) {
+            throw new Exception("Callback message type has not been set");
+        }
+
+        P2PResponse<Object> p2PResponse =
+                (P2PResponse<Object>) P2PCodecs.detect(content).decode(content, typeReference);
+        return p2PResponse;
+    }
+
     @JsonIgnore
     public int getStatus() {
         return this.status;
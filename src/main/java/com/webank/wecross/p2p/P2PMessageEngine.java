@@ -9,6 +9,9 @@ public abstract class P2PMessageEngine {
     public abstract <T> void asyncSendMessage(
             Peer peer, P2PMessage<T> msg, P2PMessageCallback<?> callback);
 
+    /** send a one-way message of the given MessageType, engines not supporting it drop it */
+    public <T> void asyncSendNotification(Peer peer, Short type, P2PMessage<T> msg) {}
+
     protected <T> void checkP2PMessage(P2PMessage<T> msg) throws Exception {
         if (msg.getVersion().isEmpty()) {
             throw new Exception("message version is empty");
@@ -0,0 +1,113 @@
+package com.webank.wecross.p2p;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * read a P2PMessage in one pass, version, seq and method are streamed and data is bound once to
+ * the type routed by the method
+ */
+public class P2PMessageReader {
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    // method -> data type
+    private Map<String, JavaType> statusRoutes = new HashMap<String, JavaType>();
+    // last part of network/stub/resource/method -> data type
+    private Map<String, JavaType> resourceRoutes = new HashMap<String, JavaType>();
+
+    public void addStatusRoute(String method, Class<?> dataType) {
+        statusRoutes.put(method, objectMapper.constructType(dataType));
+    }
+
+    public void addResourceRoute(String method, Class<?> dataType) {
+        resourceRoutes.put(method, objectMapper.constructType(dataType));
+    }
+
+    /**
+     * the data type of method, null if the method is not routed
+     *
+     * @param method
+     * @return
+     */
+    public JavaType getDataType(String method) {
+        if (method == null) {
+            return null;
+        }
+
+        String r[] = method.split("/");
+        if (r.length == 1) {
+            return statusRoutes.get(r[0]);
+        } else if (r.length == 4) {
+            return resourceRoutes.get(r[3]);
+        }
+        return null;
+    }
+
+    /**
+     * data of unrouted methods is skipped and left null
+     *
+     * @param parser
+     * @return
+     * @throws IOException
+     */
+    public P2PMessage<Object> read(JsonParser parser) throws IOException {
+        P2PMessage<Object> p2pMessage = new P2PMessage<Object>();
+        TokenBuffer pendingData = null; // data seen before method
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expect an object, got: " + parser.getCurrentToken());
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+
+            switch (field) {
+                case "version":
+                    p2pMessage.setVersion(parser.getValueAsString());
+                    break;
+                case "seq":
+                    p2pMessage.setSeq(parser.getValueAsInt());
+                    break;
+                case "method":
+                    p2pMessage.setMethod(parser.getValueAsString());
+                    break;
+                case "data":
+                    if (p2pMessage.getMethod() == null) {
+                        pendingData = new TokenBuffer(parser);
+                        pendingData.copyCurrentStructure(parser);
+                    } else {
+                        p2pMessage.setData(readData(parser, p2pMessage.getMethod()));
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+                    break;
+            }
+        }
+
+        if (pendingData != null) {
+            p2pMessage.setData(readData(pendingData.asParser(), p2pMessage.getMethod()));
+        }
+
+        return p2pMessage;
+    }
+
+    private Object readData(JsonParser parser, String method) throws IOException {
+        JavaType dataType = getDataType(method);
+        if (dataType == null) {
+            if (parser.getCurrentToken() != null) {
+                parser.skipChildren();
+            }
+            return null;
+        }
+
+        return objectMapper.readValue(parser, dataType);
+    }
+}
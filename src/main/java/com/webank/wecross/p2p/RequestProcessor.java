@@ -1,9 +1,11 @@
 package com.webank.wecross.p2p;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.webank.wecross.common.NetworkQueryStatus;
 import com.webank.wecross.exception.WeCrossException;
+import com.webank.wecross.p2p.codec.P2PCodec;
+import com.webank.wecross.p2p.codec.P2PCodecs;
 import com.webank.wecross.p2p.engine.P2PResponse;
 import com.webank.wecross.p2p.netty.common.Node;
 import com.webank.wecross.p2p.netty.message.processor.Processor;
@@ -13,18 +15,31 @@ import com.webank.wecross.peer.Peer;
 import com.webank.wecross.peer.PeerInfoMessageData;
 import com.webank.wecross.peer.PeerManager;
 import com.webank.wecross.peer.PeerSeqMessageData;
+import com.webank.wecross.remote.BatchMessageData;
 import com.webank.wecross.resource.Resource;
 import com.webank.wecross.restserver.Versions;
 import com.webank.wecross.routine.RoutineManager;
 import com.webank.wecross.routine.htlc.HTLCManager;
+import com.webank.wecross.stub.BlockHeaders;
 import com.webank.wecross.stub.Path;
 import com.webank.wecross.stub.Request;
 import com.webank.wecross.stub.ResourceInfo;
 import com.webank.wecross.stub.Response;
+import com.webank.wecross.stub.StubQueryStatus;
+import com.webank.wecross.zone.BlockNumberMessageData;
+import com.webank.wecross.zone.BlockRangeMessageData;
+import com.webank.wecross.zone.Chain;
+import com.webank.wecross.zone.Zone;
 import com.webank.wecross.zone.ZoneManager;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,7 +50,17 @@ public class RequestProcessor implements Processor {
     private ZoneManager zoneManager;
     private P2PMessageEngine p2pEngine;
     private RoutineManager routineManager;
-    private ObjectMapper objectMapper = new ObjectMapper();
+    private ExecutorService batchExecutor; // runs the requests of a batch in parallel
+    private P2PMessageReader p2pMessageReader = new P2PMessageReader();
+
+    public RequestProcessor() {
+        // data types of the methods below, data of other methods is not parsed
+        p2pMessageReader.addStatusRoute("seq", PeerSeqMessageData.class);
+        p2pMessageReader.addStatusRoute("getBlockHeaders", BlockRangeMessageData.class);
+        p2pMessageReader.addStatusRoute("subscribeBlockNumber", BlockNumberMessageData.class);
+        p2pMessageReader.addStatusRoute("batch", BatchMessageData.class);
+        p2pMessageReader.addResourceRoute("transaction", Request.class);
+    }
 
     public PeerManager getPeerManager() {
         return peerManager;
@@ -69,23 +94,40 @@ public class RequestProcessor implements Processor {
         this.routineManager = routineManager;
     }
 
+    public ExecutorService getBatchExecutor() {
+        return batchExecutor;
+    }
+
+    public void setBatchExecutor(ExecutorService batchExecutor) {
+        this.batchExecutor = batchExecutor;
+    }
+
     @Override
     public String name() {
         return "RequestProcessor";
     }
 
+    @Override
+    public boolean isOrdered() {
+        return false; // transactions of a peer run in parallel, seq updates are ordered by seq
+    }
+
     @Override
     public void process(ChannelHandlerContext ctx, Node node, Message message) {
         try {
-            String content = new String(message.getData(), "utf-8");
+            // parsed once straight from the frame, data is bound to the type of the method
+            InputStream dataStream = message.getDataStream();
+            P2PCodec codec = P2PCodecs.detect(dataStream);
+            P2PMessage<Object> p2PMessage;
+            try (JsonParser parser = codec.createParser(dataStream)) {
+                p2PMessage = p2pMessageReader.read(parser);
+            }
 
             logger.debug(
-                    "  resource request message, host: {}, seq: {}, content: {}",
+                    "  resource request message, host: {}, seq: {}, method: {}",
                     node,
                     message.getSeq(),
-                    content);
-
-            P2PMessage<?> p2PMessage = objectMapper.readValue(content, P2PMessage.class);
+                    p2PMessage.getMethod());
 
             String method = p2PMessage.getMethod();
             String r[] = method.split("/");
@@ -95,10 +137,10 @@ public class RequestProcessor implements Processor {
             P2PResponse<Object> p2PResponse = new P2PResponse<>();
             if (r.length == 1) {
                 /** method */
-                p2PResponse = onStatusMessage(peerInfo, r[0], content);
+                p2PResponse = onStatusMessage(peerInfo, r[0], p2PMessage);
             } else if (r.length == 4) {
                 /** network/stub/resource/method */
-                p2PResponse = onTransactionMessage(r[0], r[1], r[2], r[3], content);
+                p2PResponse = onTransactionMessage(r[0], r[1], r[2], r[3], p2PMessage);
             } else {
                 // invalid paramter method
                 p2PResponse.setMessage(" invalid method paramter format");
@@ -110,23 +152,27 @@ public class RequestProcessor implements Processor {
                         " invalid method parameter, seq: {}, method: {}", message.getSeq(), method);
             }
 
-            if (p2PResponse.getData() != null) {
-                String responseContent = objectMapper.writeValueAsString(p2PResponse);
+            // errors are answered too, requesters tell an unsupported method from a lost request
+            if (p2PResponse.getData() != null
+                    || p2PResponse.getErrorCode() != NetworkQueryStatus.SUCCESS) {
+                // answer in the codec of the request, the requester understands it
+                byte[] responseContent = codec.encode(p2PResponse);
 
                 // send response
                 message.setType(MessageType.RESOURCE_RESPONSE);
-                message.setData(responseContent.getBytes());
+                message.setData(responseContent);
 
                 MessageSerializer serializer = new MessageSerializer();
                 ByteBuf byteBuf = ctx.alloc().buffer();
-                serializer.serialize(message, byteBuf);
+                serializer.serialize(message, byteBuf, MessageSerializer.getVersion(ctx));
                 ctx.writeAndFlush(byteBuf);
 
                 logger.debug(
-                        " resource request, host: {}, seq: {}, response content: {}",
+                        " resource request, host: {}, seq: {}, response codec: {}, length: {}",
                         node,
                         message.getSeq(),
-                        responseContent);
+                        codec.name(),
+                        responseContent.length);
             }
         } catch (Exception e) {
             logger.error(" invalid format, host: {}, e: {}", node, e);
@@ -134,25 +180,20 @@ public class RequestProcessor implements Processor {
     }
 
     public P2PResponse<Object> onStatusMessage(
-            Peer peerInfo, String method, String p2pRequestString) {
+            Peer peerInfo, String method, P2PMessage<Object> p2pRequest) {
 
         P2PResponse<Object> response = new P2PResponse<Object>();
         response.setVersion(Versions.currentVersion);
         response.setErrorCode(NetworkQueryStatus.SUCCESS);
         response.setMessage(NetworkQueryStatus.getStatusMessage(NetworkQueryStatus.SUCCESS));
 
-        logger.debug("request string: {}", p2pRequestString);
+        logger.debug("request method: {}, seq: {}", p2pRequest.getMethod(), p2pRequest.getSeq());
 
         try {
             switch (method) {
                 case "requestPeerInfo":
                     {
                         logger.debug("Receive requestPeerInfo from peer {}", method, peerInfo);
-                        P2PMessage<Object> p2pRequest =
-                                objectMapper.readValue(
-                                        p2pRequestString,
-                                        new TypeReference<P2PMessage<Object>>() {});
-
                         p2pRequest.checkP2PMessage(method);
 
                         Map<String, ResourceInfo> resources = zoneManager.getAllResourcesInfo(true);
@@ -170,11 +211,6 @@ public class RequestProcessor implements Processor {
                 case "seq":
                     {
                         logger.debug("Receive seq from peer:{}", peerInfo);
-                        P2PMessage<PeerSeqMessageData> p2pRequest =
-                                objectMapper.readValue(
-                                        p2pRequestString,
-                                        new TypeReference<P2PMessage<PeerSeqMessageData>>() {});
-
                         PeerSeqMessageData data = (PeerSeqMessageData) p2pRequest.getData();
                         if (data != null && p2pRequest.getMethod().equals("seq")) {
                             int currentSeq = data.getSeq();
@@ -202,35 +238,10 @@ public class RequestProcessor implements Processor {
                                                 try {
                                                     if (responseMsg != null
                                                             && responseMsg.getData() != null) {
-
-                                                        PeerInfoMessageData data =
+                                                        updatePeerInfo(
+                                                                peerInfo,
                                                                 (PeerInfoMessageData)
-                                                                        responseMsg.getData();
-                                                        int newSeq = data.getSeq();
-                                                        if (peerManager.hasPeerChanged(
-                                                                peerInfo.getNode(), newSeq)) {
-                                                            // compare and update
-                                                            Map<String, ResourceInfo> newResources =
-                                                                    data.getResources();
-                                                            logger.debug(
-                                                                    "Update peerInfo from {}, seq:{}, resource:{}",
-                                                                    peerInfo,
-                                                                    newSeq,
-                                                                    newResources);
-
-                                                            // update zonemanager
-                                                            zoneManager.removeRemoteResources(
-                                                                    peerInfo,
-                                                                    peerInfo.getResourceInfos());
-                                                            zoneManager.addRemoteResources(
-                                                                    peerInfo, newResources);
-                                                            peerInfo.setResources(
-                                                                    newSeq, newResources);
-                                                        } else {
-                                                            logger.debug(
-                                                                    "Peer info not changed, seq:{}",
-                                                                    newSeq);
-                                                        }
+                                                                        responseMsg.getData());
                                                     } else {
                                                         logger.warn(
                                                                 "Receive unrecognized seq message("
@@ -259,15 +270,79 @@ public class RequestProcessor implements Processor {
                             logger.warn("Receive unrecognized seq message from peer:" + peerInfo);
                         }
 
+                        break;
+                    }
+                case "getBlockHeaders":
+                    {
+                        p2pRequest.checkP2PMessage(method);
+
+                        BlockRangeMessageData data = (BlockRangeMessageData) p2pRequest.getData();
+                        logger.trace(
+                                "Receive getBlockHeaders from peer:{}, chain: {}.{}, range: [{}, {}]",
+                                peerInfo,
+                                data.getNetwork(),
+                                data.getChain(),
+                                data.getFromBlockNumber(),
+                                data.getToBlockNumber());
+
+                        // served from local storage only, empty if the chain is not found
+                        List<byte[]> blockHeaders = new ArrayList<byte[]>();
+                        Zone zone = zoneManager.getZone(data.getNetwork());
+                        Chain chain = zone == null ? null : zone.getChain(data.getChain());
+                        if (chain != null) {
+                            blockHeaders =
+                                    chain.readBlockHeaders(
+                                            data.getFromBlockNumber(), data.getToBlockNumber());
+                        }
+
+                        data.setToBlockNumber(data.getFromBlockNumber() + blockHeaders.size() - 1);
+                        data.setBlockHeaders(BlockHeaders.encode(blockHeaders));
+
+                        response.setSeq(p2pRequest.getSeq());
+                        response.setData(data);
+                        break;
+                    }
+                case "subscribeBlockNumber":
+                    {
+                        p2pRequest.checkP2PMessage(method);
+
+                        // no response, the current block number is announced instead
+                        zoneManager.onSubscribeBlockNumber(
+                                peerInfo, (BlockNumberMessageData) p2pRequest.getData());
+                        response.setSeq(p2pRequest.getSeq());
+                        break;
+                    }
+                case "batch":
+                    {
+                        p2pRequest.checkP2PMessage(method);
+
+                        // in parallel, the response carries the responses only, in order
+                        BatchMessageData data = (BatchMessageData) p2pRequest.getData();
+                        List<CompletableFuture<Response>> futures =
+                                new ArrayList<CompletableFuture<Response>>();
+                        for (int i = 0; i < data.getRequests().size(); ++i) {
+                            futures.add(
+                                    submitBatchTransaction(
+                                            data.getPaths().get(i), data.getRequests().get(i)));
+                        }
+
+                        List<Response> responses = new ArrayList<Response>();
+                        for (CompletableFuture<Response> future : futures) {
+                            responses.add(future.join());
+                        }
+                        logger.debug(
+                                "Batch of {} requests from peer {}", responses.size(), peerInfo);
+
+                        data.setPaths(null);
+                        data.setRequests(null);
+                        data.setResponses(responses);
+                        response.setSeq(p2pRequest.getSeq());
+                        response.setData(data);
                         break;
                     }
                 default:
                     {
                         logger.debug("request method: " + method);
-                        P2PMessage<Object> p2pRequest =
-                                objectMapper.readValue(
-                                        p2pRequestString,
-                                        new TypeReference<P2PMessage<Object>>() {});
                         response.setErrorCode(NetworkQueryStatus.METHOD_ERROR);
                         response.setSeq(p2pRequest.getSeq());
                         response.setMessage("Unsupported method: " + method);
@@ -290,8 +365,82 @@ public class RequestProcessor implements Processor {
         return response;
     }
 
+    // one transaction of a batch, its error is answered in its own response
+    private CompletableFuture<Response> submitBatchTransaction(String uri, Request request) {
+        if (batchExecutor != null) {
+            try {
+                return CompletableFuture.supplyAsync(
+                        () -> onBatchTransaction(uri, request), batchExecutor);
+            } catch (RejectedExecutionException e) {
+                logger.warn("Batch executor rejected request, run it inline");
+            }
+        }
+        return CompletableFuture.completedFuture(onBatchTransaction(uri, request));
+    }
+
+    private Response onBatchTransaction(String uri, Request request) {
+        try {
+            Path path = Path.decode(uri.replace("/", "."));
+            Resource resourceObj = zoneManager.getResource(path);
+            if (resourceObj == null) {
+                logger.warn("Unable to find resource: {}", path);
+                throw new Exception("Resource not found");
+            }
+
+            HTLCManager htlcManager = routineManager.getHtlcManager();
+            resourceObj = htlcManager.filterHTLCResource(zoneManager, path, resourceObj);
+            return resourceObj.onRemoteTransaction(request);
+        } catch (Exception e) {
+            logger.warn("Process batch request error: {}", e.getMessage());
+            Response response = new Response();
+            response.setErrorCode(StubQueryStatus.REMOTE_QUERY_FAILED);
+            response.setErrorMessage(e.getMessage());
+            return response;
+        }
+    }
+
+    /**
+     * apply the resources announced by a peer, the answers to its seq messages may come back in
+     * any order so only a seq newer than the applied one is taken
+     *
+     * @param peerInfo
+     * @param data
+     * @throws Exception
+     */
+    private void updatePeerInfo(Peer peerInfo, PeerInfoMessageData data) throws Exception {
+        int newSeq = data.getSeq();
+        synchronized (peerInfo) {
+            if (peerManager.getPeerInfo(peerInfo.getNode()) != peerInfo) {
+                logger.debug("Peer disconnected, ignore peerInfo, seq:{}", newSeq);
+                return;
+            }
+
+            if (newSeq <= peerInfo.getSeq()) {
+                logger.debug("Peer info not changed, seq:{}", newSeq);
+                return;
+            }
+
+            // compare and update
+            Map<String, ResourceInfo> newResources = data.getResources();
+            logger.debug(
+                    "Update peerInfo from {}, seq:{}, resource:{}",
+                    peerInfo,
+                    newSeq,
+                    newResources);
+
+            // update zonemanager
+            zoneManager.removeRemoteResources(peerInfo, peerInfo.getResourceInfos());
+            zoneManager.addRemoteResources(peerInfo, newResources);
+            peerInfo.setResources(newSeq, newResources);
+        }
+    }
+
     public P2PResponse<Object> onTransactionMessage(
-            String network, String chain, String resource, String method, String p2pRequestString) {
+            String network,
+            String chain,
+            String resource,
+            String method,
+            P2PMessage<Object> p2pRequest) {
         Path path = new Path();
         path.setNetwork(network);
         path.setChain(chain);
@@ -302,7 +451,7 @@ public class RequestProcessor implements Processor {
         p2pResponse.setErrorCode(NetworkQueryStatus.SUCCESS);
         p2pResponse.setMessage(NetworkQueryStatus.getStatusMessage(NetworkQueryStatus.SUCCESS));
 
-        logger.debug("request string: {}", p2pRequestString);
+        logger.debug("request method: {}, seq: {}", p2pRequest.getMethod(), p2pRequest.getSeq());
 
         try {
             Resource resourceObj = zoneManager.getResource(path);
@@ -318,20 +467,12 @@ public class RequestProcessor implements Processor {
                 case "transaction":
                     {
                         logger.debug("On remote transaction request");
-                        P2PMessage<Request> p2pRequest =
-                                objectMapper.readValue(
-                                        p2pRequestString,
-                                        new TypeReference<P2PMessage<Request>>() {});
-
                         p2pRequest.checkP2PMessage(method);
 
-                        P2PMessage<Request> request =
-                                objectMapper.readValue(
-                                        p2pRequestString,
-                                        new TypeReference<P2PMessage<Request>>() {});
-
                         Response response =
-                                (Response) resourceObj.onRemoteTransaction(request.getData());
+                                (Response)
+                                        resourceObj.onRemoteTransaction(
+                                                (Request) p2pRequest.getData());
 
                         p2pResponse.setData(response);
                         p2pResponse.setSeq(p2pRequest.getSeq());
@@ -339,10 +480,6 @@ public class RequestProcessor implements Processor {
                     }
                 default:
                     {
-                        P2PMessage<Object> p2pRequest =
-                                objectMapper.readValue(
-                                        p2pRequestString,
-                                        new TypeReference<P2PMessage<Object>>() {});
                         logger.warn("Unsupported method: {}", method);
                         p2pResponse.setErrorCode(NetworkQueryStatus.METHOD_ERROR);
                         p2pResponse.setMessage("Unsupported method: " + method);
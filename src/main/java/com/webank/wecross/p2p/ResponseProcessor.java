@@ -20,6 +20,11 @@ public class ResponseProcessor implements Processor {
         return "ResourceResponse";
     }
 
+    @Override
+    public boolean isOrdered() {
+        return false; // each response completes its own request
+    }
+
     private SeqMapper seqMapper;
 
     public SeqMapper getSeqMapper() {
@@ -33,11 +38,10 @@ public class ResponseProcessor implements Processor {
     @Override
     public void process(ChannelHandlerContext ctx, Node node, Message message) {
         try {
-            String content = new String(message.getData(), "utf-8");
-            logger.trace(" source response, message: {}, content: {}", message, content);
+            logger.trace(" source response, message: {}", message);
 
             ResponseCallBack callback =
-                    (ResponseCallBack) getSeqMapper().getAndRemove(message.getSeq());
+                    (ResponseCallBack) getSeqMapper().getAndRemove(ctx, message.getSeq());
             if (null == callback) {
                 throw new UnsupportedOperationException(
                         " not found callback, seq: " + message.getSeq());
@@ -46,9 +50,16 @@ public class ResponseProcessor implements Processor {
             // cancel timeout firsts
             callback.cancelTimer();
 
+            // the content is decoded by the callback straight from the frame
             Response response =
-                    Response.build(StatusCode.SUCCESS, "success", message.getSeq(), content);
-            callback.onResponse(response);
+                    Response.build(
+                            StatusCode.SUCCESS, "success", String.valueOf(message.getSeq()), null);
+            response.setContentBuf(message.getDataBuf());
+            try {
+                callback.onResponse(response);
+            } finally {
+                response.setContentBuf(null);
+            }
 
         } catch (Exception e) {
             logger.error(" e: {}", e);
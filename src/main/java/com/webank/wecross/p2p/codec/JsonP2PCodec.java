@@ -0,0 +1,38 @@
+package com.webank.wecross.p2p.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** JSON text, understood by every peer */
+public class JsonP2PCodec implements P2PCodec {
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    public String name() {
+        return "json";
+    }
+
+    // the fallback, anything not claimed by another codec is JSON
+    @Override
+    public boolean matches(byte[] head, int length) {
+        return true;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public JsonParser createParser(InputStream content) throws IOException {
+        return objectMapper.getFactory().createParser(content);
+    }
+
+    @Override
+    public <T> T decode(InputStream content, TypeReference<T> typeReference) throws IOException {
+        return objectMapper.readValue(content, typeReference);
+    }
+}
@@ -0,0 +1,31 @@
+package com.webank.wecross.p2p.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** encoding of P2PMessage and P2PResponse in the data of p2p messages */
+public interface P2PCodec {
+    /**
+     * the name announced to peers
+     *
+     * @return
+     */
+    String name();
+
+    /**
+     * check whether content starting with head was written by this codec
+     *
+     * @param head
+     * @param length
+     * @return
+     */
+    boolean matches(byte[] head, int length);
+
+    byte[] encode(Object value) throws IOException;
+
+    JsonParser createParser(InputStream content) throws IOException;
+
+    <T> T decode(InputStream content, TypeReference<T> typeReference) throws IOException;
+}
@@ -0,0 +1,98 @@
+package com.webank.wecross.p2p.codec;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.AttributeKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * codecs known to this host, the sender picks one the peer announced in its hello, the receiver
+ * recognizes it from the content, peers that never announce get JSON
+ */
+public class P2PCodecs {
+    public static final P2PCodec JSON = new JsonP2PCodec();
+    public static final P2PCodec SMILE = new SmileP2PCodec();
+
+    private static final int HEAD_LENGTH = 4;
+    private static final AttributeKey<P2PCodec> codecKey = AttributeKey.valueOf("p2pCodec");
+
+    // in order of preference, JSON last as it matches anything
+    private static List<P2PCodec> codecs = Arrays.asList(SMILE, JSON);
+
+    /**
+     * names of supported codecs, sent in the hello message
+     *
+     * @return
+     */
+    public static String announce() {
+        List<String> names = new ArrayList<String>();
+        for (P2PCodec codec : codecs) {
+            names.add(codec.name());
+        }
+        return String.join(",", names);
+    }
+
+    /**
+     * the most preferred codec the peer also supports
+     *
+     * @param peerCodecs codec names announced by the peer
+     * @return
+     */
+    public static P2PCodec negotiate(String peerCodecs) {
+        List<String> names = Arrays.asList(peerCodecs.split(","));
+        for (P2PCodec codec : codecs) {
+            if (names.contains(codec.name())) {
+                return codec;
+            }
+        }
+        return JSON;
+    }
+
+    public static P2PCodec getCodec(ChannelHandlerContext ctx) {
+        if (ctx == null) {
+            return JSON;
+        }
+
+        P2PCodec codec = ctx.channel().attr(codecKey).get();
+        return codec == null ? JSON : codec;
+    }
+
+    public static void setCodec(ChannelHandlerContext ctx, P2PCodec codec) {
+        ctx.channel().attr(codecKey).set(codec);
+    }
+
+    /**
+     * find the codec of the content, the stream is left at its start
+     *
+     * @param content must support mark
+     * @return
+     * @throws IOException
+     */
+    public static P2PCodec detect(InputStream content) throws IOException {
+        if (!content.markSupported()) {
+            return JSON;
+        }
+
+        byte[] head = new byte[HEAD_LENGTH];
+        content.mark(HEAD_LENGTH);
+        int length = 0;
+        while (length < HEAD_LENGTH) {
+            int read = content.read(head, length, HEAD_LENGTH - length);
+            if (read < 0) {
+                break;
+            }
+            length += read;
+        }
+        content.reset();
+
+        for (P2PCodec codec : codecs) {
+            if (codec.matches(head, length)) {
+                return codec;
+            }
+        }
+        return JSON;
+    }
+}
@@ -0,0 +1,50 @@
+package com.webank.wecross.p2p.codec;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.IOException;
+import java.io.InputStream;
+
+/** binary JSON, byte[] fields are written raw instead of base64 */
+public class SmileP2PCodec implements P2PCodec {
+    // every smile document starts with this header, JSON never starts with ':'
+    private static final byte[] header = {':', ')', '\n'};
+
+    private ObjectMapper objectMapper = new ObjectMapper(new SmileFactory());
+
+    @Override
+    public String name() {
+        return "smile";
+    }
+
+    @Override
+    public boolean matches(byte[] head, int length) {
+        if (length < header.length) {
+            return false;
+        }
+
+        for (int i = 0; i < header.length; ++i) {
+            if (head[i] != header[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public byte[] encode(Object value) throws IOException {
+        return objectMapper.writeValueAsBytes(value);
+    }
+
+    @Override
+    public JsonParser createParser(InputStream content) throws IOException {
+        return objectMapper.getFactory().createParser(content);
+    }
+
+    @Override
+    public <T> T decode(InputStream content, TypeReference<T> typeReference) throws IOException {
+        return objectMapper.readValue(content, typeReference);
+    }
+}
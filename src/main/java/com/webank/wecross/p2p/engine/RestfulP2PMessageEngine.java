@@ -1,24 +1,24 @@
 package com.webank.wecross.p2p.engine;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.webank.wecross.common.NetworkQueryStatus;
 import com.webank.wecross.p2p.MessageType;
 import com.webank.wecross.p2p.P2PMessage;
 import com.webank.wecross.p2p.P2PMessageCallback;
 import com.webank.wecross.p2p.P2PMessageEngine;
+import com.webank.wecross.p2p.codec.P2PCodec;
+import com.webank.wecross.p2p.codec.P2PCodecs;
 import com.webank.wecross.p2p.netty.P2PService;
 import com.webank.wecross.p2p.netty.request.Request;
 import com.webank.wecross.p2p.netty.response.Response;
 import com.webank.wecross.p2p.netty.response.ResponseCallBack;
 import com.webank.wecross.p2p.netty.response.StatusCode;
 import com.webank.wecross.peer.Peer;
-import java.io.IOException;
+import io.netty.channel.ChannelHandlerContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class RestfulP2PMessageEngine extends P2PMessageEngine {
     private Logger logger = LoggerFactory.getLogger(RestfulP2PMessageEngine.class);
-    private ObjectMapper objectMapper = new ObjectMapper();
 
     private P2PService p2PService;
 
@@ -30,6 +30,13 @@ public class RestfulP2PMessageEngine extends P2PMessageEngine {
         this.p2PService = p2PService;
     }
 
+    // the codec negotiated with the peer, JSON until its hello arrives
+    private P2PCodec getCodec(Peer peer) {
+        ChannelHandlerContext ctx =
+                getP2PService().getConnections().getChannelHandler(peer.getNode().getNodeID());
+        return P2PCodecs.getCodec(ctx);
+    }
+
     @Override
     public <T> void asyncSendMessage(Peer peer, P2PMessage<T> msg, P2PMessageCallback<?> callback) {
 
@@ -47,7 +54,7 @@ public class RestfulP2PMessageEngine extends P2PMessageEngine {
         Request request = new Request();
         request.setType(MessageType.RESOURCE_REQUEST);
         try {
-            request.setContent(objectMapper.writeValueAsString(msg));
+            request.setData(getCodec(peer).encode(msg));
         } catch (Exception e) {
             logger.error(" P2PMessage to json error: {}", e);
             executeCallback(callback, NetworkQueryStatus.INTERNAL_ERROR, e.getMessage(), null);
@@ -68,19 +75,37 @@ public class RestfulP2PMessageEngine extends P2PMessageEngine {
                                 logger.trace(" receive response: {}", response);
 
                                 if (callback != null) {
-                                    String content = response.getContent();
+                                    /** send request failed or request transfer failed */
+                                    if (response.getErrorCode() != StatusCode.SUCCESS) {
+                                        // StatusCode.UNREACHABLE, TIMEOUT or NOT_WRITABLE,
+                                        // callers may fail over
+                                        logger.warn("p2p error: {}", response.getErrorMessage());
+                                        executeCallback(
+                                                callback,
+                                                response.getErrorCode(),
+                                                response.getErrorMessage(),
+                                                null);
+                                        return;
+                                    }
+
                                     try {
-                                        /** send request failed or request transfer failed */
-                                        if (response.getErrorCode() != StatusCode.SUCCESS) {
-                                            throw new IOException(response.getErrorMessage());
-                                        }
 
                                         P2PResponse<Object> p2PResponse =
-                                                callback.parseContent(content);
+                                                callback.parseContent(
+                                                        response.getContentStream());
                                         /** remote execute return not ok */
                                         if (p2PResponse.getErrorCode()
                                                 != NetworkQueryStatus.SUCCESS) {
-                                            throw new IOException(p2PResponse.getMessage());
+                                            // e.g. METHOD_ERROR, the peer knows no such method
+                                            logger.warn(
+                                                    "p2p remote error: {}",
+                                                    p2PResponse.getMessage());
+                                            executeCallback(
+                                                    callback,
+                                                    p2PResponse.getErrorCode(),
+                                                    p2PResponse.getMessage(),
+                                                    null);
+                                            return;
                                         }
 
                                         executeCallback(
@@ -107,4 +132,40 @@ public class RestfulP2PMessageEngine extends P2PMessageEngine {
                             }
                         });
     }
+
+    @Override
+    public <T> void asyncSendNotification(Peer peer, Short type, P2PMessage<T> msg) {
+        try {
+            checkP2PMessage(msg);
+        } catch (Exception e) {
+            logger.error("asyncSendNotification error: {}", e);
+            return;
+        }
+
+        Request request = new Request();
+        request.setType(type);
+        request.setTimeout(0);
+        try {
+            request.setData(getCodec(peer).encode(msg));
+        } catch (Exception e) {
+            logger.error(" P2PMessage to json error: {}", e);
+            return;
+        }
+
+        getP2PService()
+                .asyncSendRequest(
+                        peer.getNode(),
+                        request,
+                        new ResponseCallBack() {
+                            @Override
+                            public void onResponse(Response response) {
+                                logger.trace(" send notification: {}", response);
+                            }
+
+                            @Override
+                            public boolean needOnResponse() {
+                                return false;
+                            }
+                        });
+    }
 }
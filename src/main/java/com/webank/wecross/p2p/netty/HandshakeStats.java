@@ -0,0 +1,81 @@
+package com.webank.wecross.p2p.netty;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** tls handshake times per peer, and how many of them resumed an earlier session */
+public class HandshakeStats {
+    private Map<String, Record> records = new ConcurrentHashMap<String, Record>();
+    private AtomicLong failures = new AtomicLong();
+
+    public static class Record {
+        private long handshakes = 0;
+        private long resumed = 0;
+        private long totalMillis = 0;
+        private long lastMillis = 0;
+
+        private synchronized void add(long millis, boolean resumed) {
+            ++handshakes;
+            if (resumed) {
+                ++this.resumed;
+            }
+            totalMillis += millis;
+            lastMillis = millis;
+        }
+
+        public synchronized long getHandshakes() {
+            return handshakes;
+        }
+
+        public synchronized long getResumed() {
+            return resumed;
+        }
+
+        public synchronized double getAverageMillis() {
+            return handshakes == 0 ? 0 : (double) totalMillis / handshakes;
+        }
+
+        public synchronized long getLastMillis() {
+            return lastMillis;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "[handshakes="
+                    + handshakes
+                    + ",resumed="
+                    + resumed
+                    + ",avg="
+                    + String.format("%.1f", getAverageMillis())
+                    + "ms,last="
+                    + lastMillis
+                    + "ms]";
+        }
+    }
+
+    /**
+     * @param nodeID the peer
+     * @param millis from connect to the end of the handshake
+     * @param resumed whether an earlier session was resumed
+     */
+    public void onHandshake(String nodeID, long millis, boolean resumed) {
+        records.computeIfAbsent(nodeID, k -> new Record()).add(millis, resumed);
+    }
+
+    public void onFailure() {
+        failures.incrementAndGet();
+    }
+
+    public Record getRecord(String nodeID) {
+        return records.get(nodeID);
+    }
+
+    public Map<String, Record> getRecords() {
+        return records;
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+}
@@ -0,0 +1,289 @@
+package com.webank.wecross.p2p.netty;
+
+import io.netty.channel.Channel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * runs inbound p2p messages in lanes by message type, each with its own threads and queue, so
+ * heartbeats and responses are not stuck behind remote transactions. Tasks given a key, the peer,
+ * run one at a time in order on the threads of the lane. A lane whose queue reaches its capacity
+ * stops reading from the channel that filled it until the queue is half drained, frames are never
+ * dropped
+ */
+public class InboundExecutor {
+    private static Logger logger = LoggerFactory.getLogger(InboundExecutor.class);
+
+    private Map<Short, Lane> lanes = new HashMap<Short, Lane>();
+    private Lane defaultLane;
+
+    public static class Lane {
+        private String name;
+        private int queueCapacity;
+        private ThreadPoolExecutor executor;
+        private Set<Channel> pausedChannels = ConcurrentHashMap.newKeySet();
+
+        // key => tasks waiting behind the running one of the key, guarded by itself
+        private Map<Object, Serial> serials = new HashMap<Object, Serial>();
+        private AtomicInteger serialDepth = new AtomicInteger();
+
+        private AtomicLong tasks = new AtomicLong();
+        private AtomicLong waitNanos = new AtomicLong();
+        private AtomicLong pauses = new AtomicLong();
+
+        public Lane(String name, int threadNum, int queueCapacity) {
+            this.name = name;
+            this.queueCapacity = queueCapacity;
+
+            // unbounded, frames already read when the channel pauses still need a place
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(name + "-");
+            threadFactory.setDaemon(true);
+            this.executor =
+                    new ThreadPoolExecutor(
+                            threadNum,
+                            threadNum,
+                            60L,
+                            TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<Runnable>(),
+                            threadFactory);
+        }
+
+        // runs the tasks of a key one after another on a single thread of the lane
+        private class Serial implements Runnable {
+            private Object key;
+            private Queue<Runnable> pending = new ArrayDeque<Runnable>();
+            private boolean running = false;
+
+            private Serial(Object key) {
+                this.key = key;
+            }
+
+            @Override
+            public void run() {
+                while (true) {
+                    Runnable task;
+                    synchronized (serials) {
+                        task = pending.poll();
+                        if (task == null) {
+                            running = false;
+                            serials.remove(key);
+                            return;
+                        }
+                    }
+
+                    serialDepth.decrementAndGet();
+                    try {
+                        task.run();
+                    } catch (RuntimeException e) {
+                        logger.error("Lane {} task of {} failed, e: {}", name, key, e);
+                    }
+                }
+            }
+        }
+
+        /**
+         * run the task of a message read from the channel, pause reading if the lane is full
+         *
+         * @param channel null for tasks not read from a channel
+         * @param task
+         * @throws RejectedExecutionException if the lane has stopped
+         */
+        public void execute(Channel channel, Runnable task) {
+            execute(channel, null, task);
+        }
+
+        /**
+         * run the task after the earlier tasks of the same key, tasks of other keys still run in
+         * parallel. Pause reading if the lane is full
+         *
+         * @param channel null for tasks not read from a channel
+         * @param key null for tasks run in any order
+         * @param task
+         * @throws RejectedExecutionException if the lane has stopped
+         */
+        public void execute(Channel channel, Object key, Runnable task) {
+            long enqueueTime = System.nanoTime();
+            Runnable timedTask =
+                    () -> {
+                        tasks.incrementAndGet();
+                        waitNanos.addAndGet(System.nanoTime() - enqueueTime);
+                        try {
+                            task.run();
+                        } finally {
+                            resumeIfDrained();
+                        }
+                    };
+
+            if (key == null) {
+                executor.execute(timedTask);
+            } else {
+                executeSerial(key, timedTask);
+            }
+
+            if (channel != null && getQueueDepth() >= queueCapacity) {
+                pause(channel);
+            }
+        }
+
+        private void executeSerial(Object key, Runnable task) {
+            Serial serial;
+            synchronized (serials) {
+                serial = serials.get(key);
+                if (serial == null) {
+                    serial = new Serial(key);
+                    serials.put(key, serial);
+                }
+                serial.pending.add(task);
+                serialDepth.incrementAndGet();
+
+                if (serial.running) {
+                    return; // runs after the task running now
+                }
+                serial.running = true;
+            }
+
+            try {
+                executor.execute(serial);
+            } catch (RejectedExecutionException e) {
+                synchronized (serials) {
+                    serials.remove(key);
+                    serialDepth.addAndGet(-serial.pending.size());
+                }
+                throw e;
+            }
+        }
+
+        private void pause(Channel channel) {
+            // stop reading before workers can find the channel and resume it
+            channel.config().setAutoRead(false);
+            if (pausedChannels.add(channel)) {
+                pauses.incrementAndGet();
+                logger.debug("Lane {} full, stop reading channel {}", name, channel);
+            }
+
+            // drained meanwhile, nothing else would resume it
+            resumeIfDrained();
+        }
+
+        private void resumeIfDrained() {
+            if (pausedChannels.isEmpty() || getQueueDepth() > queueCapacity / 2) {
+                return;
+            }
+
+            for (Channel channel : pausedChannels) {
+                if (pausedChannels.remove(channel)) {
+                    channel.config().setAutoRead(true);
+                    logger.debug("Lane {} drained, read channel {} again", name, channel);
+                }
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        // tasks waiting for a thread, in order behind a key or not
+        public int getQueueDepth() {
+            return executor.getQueue().size() + serialDepth.get();
+        }
+
+        public int getPausedChannels() {
+            return pausedChannels.size();
+        }
+
+        public long getPauses() {
+            return pauses.get();
+        }
+
+        public long getTasks() {
+            return tasks.get();
+        }
+
+        // average time tasks waited in the queue, ms
+        public double getAverageWaitMillis() {
+            long finished = tasks.get();
+            return finished == 0 ? 0 : waitNanos.get() / 1000000.0 / finished;
+        }
+
+        public void stop() {
+            executor.shutdown();
+        }
+
+        @Override
+        public String toString() {
+            return "[lane="
+                    + name
+                    + ",queue="
+                    + getQueueDepth()
+                    + ",wait="
+                    + String.format("%.1f", getAverageWaitMillis())
+                    + "ms,paused="
+                    + getPausedChannels()
+                    + "]";
+        }
+    }
+
+    public void setLane(short type, Lane lane) {
+        lanes.put(type, lane);
+    }
+
+    public Lane getLane(short type) {
+        Lane lane = lanes.get(type);
+        return lane == null ? defaultLane : lane;
+    }
+
+    public void execute(Channel channel, short type, Runnable task) {
+        getLane(type).execute(channel, task);
+    }
+
+    public void execute(Channel channel, short type, Object key, Runnable task) {
+        getLane(type).execute(channel, key, task);
+    }
+
+    public Collection<Lane> getLanes() {
+        List<Lane> all = new ArrayList<Lane>();
+        for (Lane lane : lanes.values()) {
+            if (!all.contains(lane)) {
+                all.add(lane);
+            }
+        }
+        if (defaultLane != null && !all.contains(defaultLane)) {
+            all.add(defaultLane);
+        }
+        return all;
+    }
+
+    public Lane getDefaultLane() {
+        return defaultLane;
+    }
+
+    public void setDefaultLane(Lane defaultLane) {
+        this.defaultLane = defaultLane;
+    }
+
+    public void stop() {
+        for (Lane lane : getLanes()) {
+            lane.stop();
+        }
+    }
+}
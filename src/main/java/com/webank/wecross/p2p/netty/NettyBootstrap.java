@@ -15,16 +15,14 @@ import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
-import io.netty.channel.ChannelOption;
-import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.SocketChannel;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.handler.flush.FlushConsolidationHandler;
 import io.netty.handler.logging.LogLevel;
 import io.netty.handler.logging.LoggingHandler;
 import io.netty.handler.ssl.ClientAuth;
+import io.netty.handler.ssl.OpenSsl;
+import io.netty.handler.ssl.OpenSslSessionContext;
 import io.netty.handler.ssl.SslContext;
 import io.netty.handler.ssl.SslContextBuilder;
 import io.netty.handler.ssl.SslHandler;
@@ -100,6 +98,13 @@ public class NettyBootstrap {
 
     private ScheduledExecutorService scheduledExecutorService = new ScheduledThreadPoolExecutor(1);
 
+    private NettyTransport transport;
+    private SslContext clientSslContext;
+
+    public NettyTransport getTransport() {
+        return transport;
+    }
+
     /**
      * init SslContext for p2p connection
      *
@@ -115,12 +120,20 @@ public class NettyBootstrap {
             org.springframework.core.io.Resource nodeKey)
             throws IOException {
 
-        SslContext sslCtx =
+        SslContextBuilder builder =
                 SslContextBuilder.forServer(nodeCrt.getInputStream(), nodeKey.getInputStream())
                         .trustManager(caCrt.getInputStream())
-                        .sslProvider(SslProvider.JDK)
-                        .clientAuth(ClientAuth.REQUIRE)
-                        .build();
+                        .sslProvider(getSslProvider())
+                        .clientAuth(ClientAuth.REQUIRE);
+        SslContext sslCtx = initSessions(builder).build();
+
+        // tickets let peers resume without the server keeping their sessions
+        if (config != null
+                && config.isSslSessionTickets()
+                && sslCtx.sessionContext() instanceof OpenSslSessionContext) {
+            // no keys, the native library generates and rotates them
+            ((OpenSslSessionContext) sslCtx.sessionContext()).setTicketKeys();
+        }
 
         return sslCtx;
     }
@@ -139,12 +152,40 @@ public class NettyBootstrap {
             org.springframework.core.io.Resource nodeCrt,
             org.springframework.core.io.Resource nodeKey)
             throws IOException {
-        return SslContextBuilder.forClient()
-                .trustManager(caCrt.getInputStream())
-                .keyManager(nodeCrt.getInputStream(), nodeKey.getInputStream())
-                .sslProvider(SslProvider.JDK)
-                .clientAuth(ClientAuth.REQUIRE)
-                .build();
+        SslContextBuilder builder =
+                SslContextBuilder.forClient()
+                        .trustManager(caCrt.getInputStream())
+                        .keyManager(nodeCrt.getInputStream(), nodeKey.getInputStream())
+                        .sslProvider(getSslProvider())
+                        .clientAuth(ClientAuth.REQUIRE);
+        return initSessions(builder).build();
+    }
+
+    private SslContextBuilder initSessions(SslContextBuilder builder) {
+        if (config != null && config.getSslSessionCacheSize() > 0) {
+            builder.sessionCacheSize(config.getSslSessionCacheSize());
+        }
+        if (config != null && config.getSslSessionTimeout() > 0) {
+            builder.sessionTimeout(config.getSslSessionTimeout());
+        }
+        return builder;
+    }
+
+    /**
+     * openssl if configured and netty-tcnative is loaded, jdk otherwise
+     *
+     * @return
+     */
+    public SslProvider getSslProvider() {
+        if (config == null || !"openssl".equals(config.getSslProvider())) {
+            return SslProvider.JDK;
+        }
+
+        if (!OpenSsl.isAvailable()) {
+            logger.warn(" openssl unavailable, use jdk, cause: {}", OpenSsl.unavailabilityCause());
+            return SslProvider.JDK;
+        }
+        return SslProvider.OPENSSL;
     }
 
     /**
@@ -162,6 +203,8 @@ public class NettyBootstrap {
 
         // check parameter first
         getConfig().validConfig();
+        transport = new NettyTransport(getConfig());
+        logger.info(" transport: {}", transport);
         // set connect peer nodes
         getConnections().setConfiguredPeers(getConfig().getConnectPeers());
 
@@ -172,20 +215,15 @@ public class NettyBootstrap {
 
     private void startListen() throws ExecutionException, InterruptedException, IOException {
 
-        EventLoopGroup bossGroup = new NioEventLoopGroup();
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
-
         P2PConfig config = getConfig();
 
         SslContext sslCtx =
                 initSslContextForServer(
                         config.getCaCert(), config.getSslCert(), config.getSslKey());
 
+        transport.initServer(serverBootstrap);
         serverBootstrap
-                .group(bossGroup, workerGroup)
-                .channel(NioServerSocketChannel.class)
-                .option(ChannelOption.SO_BACKLOG, 100)
-                .handler(new LoggingHandler(LogLevel.INFO))
+                .handler(new LoggingHandler(LogLevel.DEBUG))
                 .childHandler(
                         new ChannelInitializer<SocketChannel>() {
                             @Override
@@ -200,9 +238,10 @@ public class NettyBootstrap {
                                 sslHandler.setHandshakeTimeout(
                                         handShakeTimeoutMS, TimeUnit.MILLISECONDS);
 
+                                ch.pipeline().addLast(sslHandler);
+                                addFlushConsolidation(ch);
                                 ch.pipeline()
                                         .addLast(
-                                                sslHandler,
                                                 new LengthFieldBasedFrameDecoder(
                                                         Integer.MAX_VALUE, 0, 4, -4, 0),
                                                 new IdleStateHandler(
@@ -223,50 +262,78 @@ public class NettyBootstrap {
 
     private void startConnect() throws IOException {
 
-        // init netty
-        EventLoopGroup workerGroup = new NioEventLoopGroup();
-
-        bootstrap.group(workerGroup);
-        bootstrap.channel(NioSocketChannel.class);
-
         P2PConfig config = getConfig();
 
-        SslContext sslCtx =
+        // shares the worker threads of the server
+        transport.initClient(bootstrap);
+
+        clientSslContext =
                 initSslContextForClient(
                         config.getCaCert(), config.getSslCert(), config.getSslKey());
 
-        bootstrap.handler(
-                new ChannelInitializer<SocketChannel>() {
-                    @Override
-                    public void initChannel(SocketChannel ch) {
-                        /*
-                         * Each connection is fetched from the socketChannel, using the new handler connection information
-                         */
-                        ChannelHandler handler = new ChannelHandler();
-                        handler.setConnectToServer(true);
-                        handler.setChannelHandlerCallBack(getChannelHandlerCallBack());
-
-                        SslHandler sslHandler = sslCtx.newHandler(ch.alloc());
-                        sslHandler.setHandshakeTimeout(handShakeTimeoutMS, TimeUnit.MILLISECONDS);
-
-                        ch.pipeline()
-                                .addLast(
-                                        sslHandler,
-                                        new LengthFieldBasedFrameDecoder(
-                                                maxP2PMessageLength, 0, 4, -4, 0),
-                                        new IdleStateHandler(
-                                                connectionIdleTimeoutMS,
-                                                connectionIdleTimeoutMS,
-                                                connectionIdleTimeoutMS,
-                                                TimeUnit.MILLISECONDS),
-                                        handler);
-                    }
-                });
-
         // Connect all configured nodes
         logger.info(" start connect, config: {}", config);
     }
 
+    /**
+     * pipeline of a connection to the host, the engine knows the host so the session of the last
+     * connection to it can be resumed
+     *
+     * @param host
+     * @return
+     */
+    private ChannelInitializer<SocketChannel> newClientInitializer(Node host) {
+        return new ChannelInitializer<SocketChannel>() {
+            @Override
+            public void initChannel(SocketChannel ch) {
+                /*
+                 * Each connection is fetched from the socketChannel, using the new handler connection information
+                 */
+                ChannelHandler handler = new ChannelHandler();
+                handler.setConnectToServer(true);
+                handler.setChannelHandlerCallBack(getChannelHandlerCallBack());
+
+                SslHandler sslHandler =
+                        clientSslContext.newHandler(ch.alloc(), host.getHost(), host.getPort());
+                sslHandler.setHandshakeTimeout(handShakeTimeoutMS, TimeUnit.MILLISECONDS);
+
+                ch.pipeline().addLast(sslHandler);
+                addFlushConsolidation(ch);
+                ch.pipeline()
+                        .addLast(
+                                new LengthFieldBasedFrameDecoder(maxP2PMessageLength, 0, 4, -4, 0),
+                                new IdleStateHandler(
+                                        connectionIdleTimeoutMS,
+                                        connectionIdleTimeoutMS,
+                                        connectionIdleTimeoutMS,
+                                        TimeUnit.MILLISECONDS),
+                                handler);
+            }
+        };
+    }
+
+    /**
+     * flushes of the messages written to the channel reach the ssl handler in batches, one tls
+     * record and one syscall carry many messages. Flushed at the latest after the configured count
+     * or when the event loop runs the pending flush
+     *
+     * @param ch
+     */
+    private void addFlushConsolidation(SocketChannel ch) {
+        int flushConsolidation = getConfig().getFlushConsolidation();
+        if (flushConsolidation > 0) {
+            ch.pipeline().addLast(new FlushConsolidationHandler(flushConsolidation, true));
+        }
+    }
+
+    /** stop the period tasks and the event loops */
+    public void stop() {
+        scheduledExecutorService.shutdown();
+        if (transport != null) {
+            transport.stop();
+        }
+    }
+
     private void startPeriodTasks() {
         // heartbeat: 3 s
         scheduledExecutorService.scheduleAtFixedRate(
@@ -299,10 +366,14 @@ public class NettyBootstrap {
         List<ChannelHandlerContext> channelHandlers = getConnections().activeChannelHandlers();
         channelHandlers.forEach(
                 (ctx) -> {
+                    if (!ctx.channel().isWritable()) {
+                        return; // data to the peer is still pending, a heartbeat would wait behind
+                    }
+
                     Message message = Message.builder(MessageType.HEARTBEAT);
                     MessageSerializer serializer = new MessageSerializer();
                     ByteBuf byteBuf = ctx.alloc().buffer();
-                    serializer.serialize(message, byteBuf);
+                    serializer.serialize(message, byteBuf, MessageSerializer.getVersion(ctx));
                     ctx.writeAndFlush(byteBuf);
 
                     Node node = (Node) ctx.channel().attr(AttributeKey.valueOf("node")).get();
@@ -318,7 +389,10 @@ public class NettyBootstrap {
                 .forEach(
                         host -> {
                             ChannelFuture channelFuture =
-                                    bootstrap.connect(host.getHost(), host.getPort());
+                                    bootstrap
+                                            .clone()
+                                            .handler(newClientInitializer(host))
+                                            .connect(host.getHost(), host.getPort());
                             channelFuture.addListener(
                                     new ChannelFutureListener() {
                                         @Override
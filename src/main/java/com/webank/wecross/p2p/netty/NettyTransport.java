@@ -0,0 +1,132 @@
+package com.webank.wecross.p2p.netty;
+
+import com.webank.wecross.config.P2PConfig;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.WriteBufferWaterMark;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * sockets of p2p connections, native epoll on linux and nio elsewhere. One boss thread accepts,
+ * one worker group serves both accepted and connected channels, all of them share one pooled
+ * allocator
+ */
+public class NettyTransport {
+    private static Logger logger = LoggerFactory.getLogger(NettyTransport.class);
+
+    private P2PConfig config;
+    private boolean epoll;
+    private EventLoopGroup bossGroup;
+    private EventLoopGroup workerGroup;
+    private ByteBufAllocator allocator;
+
+    public NettyTransport(P2PConfig config) {
+        this.config = config;
+
+        epoll = config.isNativeTransport() && Epoll.isAvailable();
+        if (config.isNativeTransport() && !epoll) {
+            logger.info(
+                    " native epoll unavailable, use nio, cause: {}", Epoll.unavailabilityCause());
+        }
+
+        bossGroup = newEventLoopGroup(1, "p2p-boss");
+        // 0: twice the number of cores
+        workerGroup = newEventLoopGroup(config.getWorkerThreadNum(), "p2p-worker");
+        allocator = newAllocator();
+    }
+
+    private EventLoopGroup newEventLoopGroup(int threadNum, String name) {
+        DefaultThreadFactory threadFactory = new DefaultThreadFactory(name, true);
+        if (epoll) {
+            return new EpollEventLoopGroup(threadNum, threadFactory);
+        }
+        return new NioEventLoopGroup(threadNum, threadFactory);
+    }
+
+    private ByteBufAllocator newAllocator() {
+        int arenas = config.getAllocatorArenas();
+        int maxOrder = config.getAllocatorMaxOrder();
+        return new PooledByteBufAllocator(
+                config.isDirectBuffers(),
+                arenas > 0 ? arenas : PooledByteBufAllocator.defaultNumHeapArena(),
+                arenas > 0 ? arenas : PooledByteBufAllocator.defaultNumDirectArena(),
+                PooledByteBufAllocator.defaultPageSize(),
+                maxOrder > 0 ? maxOrder : PooledByteBufAllocator.defaultMaxOrder(),
+                PooledByteBufAllocator.defaultTinyCacheSize(),
+                PooledByteBufAllocator.defaultSmallCacheSize(),
+                PooledByteBufAllocator.defaultNormalCacheSize(),
+                PooledByteBufAllocator.defaultUseCacheForAllThreads());
+    }
+
+    public void initServer(ServerBootstrap serverBootstrap) {
+        serverBootstrap
+                .group(bossGroup, workerGroup)
+                .channel(epoll ? EpollServerSocketChannel.class : NioServerSocketChannel.class)
+                .option(ChannelOption.SO_BACKLOG, config.getBacklog())
+                .option(ChannelOption.ALLOCATOR, allocator);
+
+        serverBootstrap
+                .childOption(ChannelOption.ALLOCATOR, allocator)
+                .childOption(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                .childOption(ChannelOption.SO_KEEPALIVE, config.isKeepAlive())
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, newWaterMark());
+        if (config.getSendBufferSize() > 0) {
+            serverBootstrap.childOption(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        }
+        if (config.getReceiveBufferSize() > 0) {
+            serverBootstrap.childOption(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+    }
+
+    public void initClient(Bootstrap bootstrap) {
+        bootstrap
+                .group(workerGroup)
+                .channel(epoll ? EpollSocketChannel.class : NioSocketChannel.class)
+                .option(ChannelOption.ALLOCATOR, allocator)
+                .option(ChannelOption.TCP_NODELAY, config.isTcpNoDelay())
+                .option(ChannelOption.SO_KEEPALIVE, config.isKeepAlive())
+                .option(ChannelOption.WRITE_BUFFER_WATER_MARK, newWaterMark());
+        if (config.getSendBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_SNDBUF, config.getSendBufferSize());
+        }
+        if (config.getReceiveBufferSize() > 0) {
+            bootstrap.option(ChannelOption.SO_RCVBUF, config.getReceiveBufferSize());
+        }
+    }
+
+    private WriteBufferWaterMark newWaterMark() {
+        return new WriteBufferWaterMark(
+                config.getWriteBufferLowWaterMark(), config.getWriteBufferHighWaterMark());
+    }
+
+    public boolean isEpoll() {
+        return epoll;
+    }
+
+    public ByteBufAllocator getAllocator() {
+        return allocator;
+    }
+
+    public void stop() {
+        bossGroup.shutdownGracefully();
+        workerGroup.shutdownGracefully();
+    }
+
+    @Override
+    public String toString() {
+        return "[transport=" + (epoll ? "epoll" : "nio") + ",config=" + config + "]";
+    }
+}
@@ -15,8 +15,8 @@ import io.netty.util.Timeout;
 import io.netty.util.Timer;
 import io.netty.util.TimerTask;
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -89,42 +89,43 @@ public class P2PService {
      * @return
      */
     public Response sendRequest(Node node, Request request) {
-
-        class Callback extends ResponseCallBack {
-            public transient Response response;
-            public transient Semaphore semaphore = new Semaphore(1, true);
-
-            Callback() {
-                try {
-                    semaphore.acquire(1);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-
-            @Override
-            public void onResponse(Response response) {
-                this.response = response;
-                logger.debug(" callback: request response {}", response);
-                semaphore.release();
-            }
-
-            @Override
-            public boolean needOnResponse() {
-                return true;
-            }
-        }
-
-        Callback callback = new Callback();
-        asyncSendRequest(node, request, callback);
-
         try {
-            callback.semaphore.acquire(1);
+            return asyncSendRequest(node, request).get();
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn(" send request error: ", e.getCause());
         }
+        return null;
+    }
 
-        return callback.response;
+    /**
+     * completed with the response, or the error response on timeout and send failure
+     *
+     * @param node
+     * @param request
+     * @return
+     */
+    public CompletableFuture<Response> asyncSendRequest(Node node, Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        asyncSendRequest(
+                node,
+                request,
+                new ResponseCallBack() {
+                    @Override
+                    public void onResponse(Response response) {
+                        // the frame is released after onResponse, decode the content now
+                        response.getContent();
+                        logger.debug(" callback: request response {}", response);
+                        future.complete(response);
+                    }
+
+                    @Override
+                    public boolean needOnResponse() {
+                        return true;
+                    }
+                });
+        return future;
     }
 
     /**
@@ -133,7 +134,9 @@ public class P2PService {
      * @param callback
      */
     public void asyncSendRequest(Node node, Request request, ResponseCallBack callback) {
-        Message message = Message.builder(request.getType(), request.getContent());
+        Message message = Message.builder(request.getType());
+        message.setData(
+                request.getData() != null ? request.getData() : request.getContent().getBytes());
 
         callback.setMessage(message);
         callback.setSeqMapper(getSeqMapper());
@@ -150,9 +153,20 @@ public class P2PService {
 
         // select random nodes to send
         ChannelHandlerContext ctx = getConnections().getChannelHandler(nodeID);
+        if (ctx != null && ctx.channel().isActive() && !ctx.channel().isWritable()) {
+            // the peer reads slower than we send, do not grow its buffer past the high water mark
+            callback.sendFailed(StatusCode.NOT_WRITABLE, "node not writable");
+            return;
+        }
+
         if (ctx != null && ctx.channel().isActive()) {
             callback.setCtx(ctx);
-            getSeqMapper().add(message.getSeq(), callback);
+            message.setSeq(getSeqMapper().newSeq(ctx));
+
+            // one-way messages are never answered, do not keep their callbacks
+            if (callback.needOnResponse()) {
+                getSeqMapper().add(ctx, message.getSeq(), callback);
+            }
 
             if (request.getTimeout() > 0) {
 
@@ -186,7 +200,7 @@ public class P2PService {
 
             MessageSerializer serializer = new MessageSerializer();
             ByteBuf byteBuf = ctx.alloc().buffer();
-            serializer.serialize(message, byteBuf);
+            serializer.serialize(message, byteBuf, MessageSerializer.getVersion(ctx));
             ctx.writeAndFlush(byteBuf);
 
             logger.trace(" send request, host: {}, seq: {}", node, message.getSeq());
@@ -1,38 +1,72 @@
 package com.webank.wecross.p2p.netty;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.Attribute;
+import io.netty.util.AttributeKey;
+import io.netty.util.collection.LongObjectHashMap;
 import org.springframework.stereotype.Component;
 
-/** manage uniq sequence to callback object */
+/** manage uniq sequence to callback object, sequences are counted per connection */
 @Component
 public class SeqMapper {
-    /** sequence to callback object mapper */
-    private Map<String, Object> mapper = new ConcurrentHashMap<String, Object>();
+    private static final AttributeKey<PendingRequests> pendingRequestsKey =
+            AttributeKey.valueOf("pendingRequests");
 
-    public Map<String, Object> getMapper() {
-        return mapper;
+    /** sequence to callback object mapper of one connection */
+    private static class PendingRequests {
+        private long lastSeq = 0; // 0 is never used, it marks a message without seq
+        private LongObjectHashMap<Object> mapper = new LongObjectHashMap<Object>();
     }
 
-    public void setMapper(Map<String, Object> mapper) {
-        this.mapper = mapper;
+    private PendingRequests getPendingRequests(ChannelHandlerContext ctx) {
+        Attribute<PendingRequests> attribute = ctx.channel().attr(pendingRequestsKey);
+        PendingRequests pendingRequests = attribute.get();
+        if (pendingRequests == null) {
+            PendingRequests newPendingRequests = new PendingRequests();
+            pendingRequests = attribute.setIfAbsent(newPendingRequests);
+            if (pendingRequests == null) {
+                pendingRequests = newPendingRequests;
+            }
+        }
+        return pendingRequests;
     }
 
-    public Object get(String seq) {
-        return mapper.get(seq);
+    public long newSeq(ChannelHandlerContext ctx) {
+        PendingRequests pendingRequests = getPendingRequests(ctx);
+        synchronized (pendingRequests) {
+            return ++pendingRequests.lastSeq;
+        }
     }
 
-    public Object getAndRemove(String seq) {
-        Object object = mapper.get(seq);
-        mapper.remove(seq);
-        return object;
+    public Object get(ChannelHandlerContext ctx, long seq) {
+        PendingRequests pendingRequests = getPendingRequests(ctx);
+        synchronized (pendingRequests) {
+            return pendingRequests.mapper.get(seq);
+        }
     }
 
-    public void add(String seq, Object object) {
-        this.mapper.put(seq, object);
+    public Object getAndRemove(ChannelHandlerContext ctx, long seq) {
+        PendingRequests pendingRequests = getPendingRequests(ctx);
+        synchronized (pendingRequests) {
+            return pendingRequests.mapper.remove(seq);
+        }
     }
 
-    public void remove(String seq) {
-        mapper.remove(seq);
+    public void add(ChannelHandlerContext ctx, long seq, Object object) {
+        PendingRequests pendingRequests = getPendingRequests(ctx);
+        synchronized (pendingRequests) {
+            pendingRequests.mapper.put(seq, object);
+        }
+    }
+
+    public void remove(ChannelHandlerContext ctx, long seq) {
+        getAndRemove(ctx, seq);
+    }
+
+    public int size(ChannelHandlerContext ctx) {
+        PendingRequests pendingRequests = getPendingRequests(ctx);
+        synchronized (pendingRequests) {
+            return pendingRequests.mapper.size();
+        }
     }
 }
@@ -5,6 +5,7 @@ import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.channel.socket.SocketChannel;
+import io.netty.handler.ssl.SslHandler;
 import io.netty.handler.ssl.SslHandshakeCompletionEvent;
 import io.netty.handler.timeout.IdleStateEvent;
 import io.netty.util.AttributeKey;
@@ -58,6 +59,7 @@ public class ChannelHandler extends SimpleChannelInboundHandler<ByteBuf> {
                 logger.info(" handshake success, host: {}, ctx: {}", node, hashCode);
                 try {
                     getChannelHandlerCallBack().onConnect(ctx, getConnectToServer());
+                    recordHandshake(ctx);
                 } catch (Exception e1) {
                     logger.warn(
                             " handshake on connect exception, disconnect, host: {}, ctx: {}, cause: {}",
@@ -68,6 +70,7 @@ public class ChannelHandler extends SimpleChannelInboundHandler<ByteBuf> {
                     ctx.close();
                 }
             } else {
+                getChannelHandlerCallBack().getHandshakeStats().onFailure();
                 logger.warn(
                         " handshake failed, host: {}, message: {}, cause: {} ",
                         node,
@@ -82,9 +85,35 @@ public class ChannelHandler extends SimpleChannelInboundHandler<ByteBuf> {
         }
     }
 
+    /**
+     * time of the handshake since the channel became active, and whether it resumed a session
+     * created before that
+     *
+     * @param ctx
+     */
+    private void recordHandshake(ChannelHandlerContext ctx) {
+        Long start = (Long) ctx.channel().attr(AttributeKey.valueOf("handshakeStart")).get();
+        Node node = (Node) ctx.channel().attr(AttributeKey.valueOf("node")).get();
+        SslHandler sslHandler = ctx.pipeline().get(SslHandler.class);
+        if (start == null || node == null || sslHandler == null) {
+            return;
+        }
+
+        long millis = System.currentTimeMillis() - start;
+        // openssl sessions keep their creation time in seconds
+        long creationTime = sslHandler.engine().getSession().getCreationTime();
+        boolean resumed = creationTime + 1000 <= start;
+        getChannelHandlerCallBack()
+                .getHandshakeStats()
+                .onHandshake(node.getNodeID(), millis, resumed);
+
+        logger.debug(" handshake time: {}ms, resumed: {}, host: {}", millis, resumed, node);
+    }
+
     @Override
     public void channelActive(ChannelHandlerContext ctx) {
         int hashCode = System.identityHashCode(ctx);
+        ctx.channel().attr(AttributeKey.valueOf("handshakeStart")).set(System.currentTimeMillis());
         logger.trace(
                 " channelActive, node: {}:{}, ctx: {}",
                 ((SocketChannel) ctx.channel()).remoteAddress().getAddress().getHostAddress(),
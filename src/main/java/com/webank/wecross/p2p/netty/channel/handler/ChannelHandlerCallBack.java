@@ -1,20 +1,28 @@
 package com.webank.wecross.p2p.netty.channel.handler;
 
+import com.webank.wecross.p2p.MessageType;
+import com.webank.wecross.p2p.codec.P2PCodecs;
 import com.webank.wecross.p2p.netty.Connections;
+import com.webank.wecross.p2p.netty.HandshakeStats;
+import com.webank.wecross.p2p.netty.InboundExecutor;
 import com.webank.wecross.p2p.netty.common.Node;
 import com.webank.wecross.p2p.netty.message.MessageCallBack;
+import com.webank.wecross.p2p.netty.message.processor.Processor;
+import com.webank.wecross.p2p.netty.message.proto.Message;
+import com.webank.wecross.p2p.netty.message.serialize.MessageSerializer;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.ssl.SslHandler;
 import io.netty.util.AttributeKey;
 import java.security.Principal;
 import java.security.PublicKey;
+import java.util.concurrent.RejectedExecutionException;
 import javax.net.ssl.SSLPeerUnverifiedException;
 import javax.security.cert.X509Certificate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -22,10 +30,11 @@ public class ChannelHandlerCallBack {
 
     private static Logger logger = LoggerFactory.getLogger(ChannelHandlerCallBack.class);
 
-    private ThreadPoolTaskExecutor threadPool = null;
+    private InboundExecutor inboundExecutor = null; // null: run on the event loop
 
     private Connections connections;
     private MessageCallBack callBack;
+    private HandshakeStats handshakeStats = new HandshakeStats();
 
     public MessageCallBack getCallBack() {
         return callBack;
@@ -43,12 +52,20 @@ public class ChannelHandlerCallBack {
         this.connections = connections;
     }
 
-    public ThreadPoolTaskExecutor getThreadPool() {
-        return threadPool;
+    public HandshakeStats getHandshakeStats() {
+        return handshakeStats;
     }
 
-    public void setThreadPool(ThreadPoolTaskExecutor threadPool) {
-        this.threadPool = threadPool;
+    public void setHandshakeStats(HandshakeStats handshakeStats) {
+        this.handshakeStats = handshakeStats;
+    }
+
+    public InboundExecutor getInboundExecutor() {
+        return inboundExecutor;
+    }
+
+    public void setInboundExecutor(InboundExecutor inboundExecutor) {
+        this.inboundExecutor = inboundExecutor;
     }
 
     private String bytesToHex(byte[] hashInBytes) {
@@ -119,6 +136,7 @@ public class ChannelHandlerCallBack {
 
         logger.info("add new connections: {}, ctx: {}", node, hashCode);
         getConnections().addChannelHandler(node, ctx, connectToServer);
+        sendHello(ctx);
 
         logger.info(
                 " node {} connect success, nodeID: {}, ctx: {}",
@@ -126,17 +144,32 @@ public class ChannelHandlerCallBack {
                 node.getNodeID(),
                 System.identityHashCode(ctx));
 
-        if (threadPool == null) {
-            callBack.onConnect(ctx, node);
-        } else {
-            threadPool.execute(
-                    new Runnable() {
-                        @Override
-                        public void run() {
-                            callBack.onConnect(ctx, node);
-                        }
-                    });
-        }
+        execute(
+                null,
+                MessageCallBack.ON_CONNECT,
+                node,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        callBack.onConnect(ctx, node);
+                    }
+                });
+    }
+
+    /**
+     * tell the peer the highest frame version and the codecs we support, "2 smile,json", frames
+     * stay v1 and content stays JSON until its hello arrives
+     *
+     * @param ctx
+     */
+    private void sendHello(ChannelHandlerContext ctx) {
+        Message message =
+                Message.builder(
+                        MessageType.HELLO, Message.MAX_VERSION + " " + P2PCodecs.announce());
+        MessageSerializer serializer = new MessageSerializer();
+        ByteBuf byteBuf = ctx.alloc().buffer();
+        serializer.serialize(message, byteBuf);
+        ctx.writeAndFlush(byteBuf);
     }
 
     public void onDisconnect(ChannelHandlerContext ctx) {
@@ -156,35 +189,67 @@ public class ChannelHandlerCallBack {
                     System.identityHashCode(ctx));
         }
 
-        if (threadPool == null) {
-            callBack.onDisconnect(ctx, node);
-        } else {
-            threadPool.execute(
-                    new Runnable() {
-                        @Override
-                        public void run() {
-                            callBack.onDisconnect(ctx, node);
-                        }
-                    });
-        }
+        execute(
+                null,
+                MessageCallBack.ON_DISCONNECT,
+                node,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        callBack.onDisconnect(ctx, node);
+                    }
+                });
     }
 
     public void onMessage(ChannelHandlerContext ctx, ByteBuf message) {
-        /*
-         use thread pool first onMessage may block
-        */
         Node node = (Node) (ctx.channel().attr(AttributeKey.valueOf("node")).get());
 
-        if (threadPool == null) {
-            callBack.onMessage(ctx, node, message);
-        } else {
-            threadPool.execute(
+        try {
+            execute(
+                    ctx.channel(),
+                    peekType(message),
+                    node,
                     new Runnable() {
                         @Override
                         public void run() {
                             callBack.onMessage(ctx, node, message);
                         }
                     });
+        } catch (RejectedExecutionException e) {
+            logger.warn(" inbound executor stopped, drop message, host: {}", node);
+            message.release();
+        }
+    }
+
+    /**
+     * run the task of a message on the event loop if its processor never blocks, otherwise in the
+     * lane of the message, after the earlier messages of the peer if the processor is ordered
+     *
+     * @param channel
+     * @param type
+     * @param node
+     * @param task
+     */
+    private void execute(Channel channel, short type, Node node, Runnable task) {
+        Processor processor = callBack.getProcessor(type);
+        if (inboundExecutor == null || (processor != null && !processor.isBlocking())) {
+            task.run();
+            return;
+        }
+
+        Object key = null;
+        if (processor != null && processor.isOrdered() && node != null) {
+            key = node.getNodeID();
+        }
+        inboundExecutor.execute(channel, type, key, task);
+    }
+
+    // message type from the frame header, the lane of the message
+    private short peekType(ByteBuf message) {
+        if (message.readableBytes() < 6) {
+            return 0;
         }
+        short type = message.getShort(message.readerIndex() + 4);
+        return (short) (type & ~Message.VERSION_2_TYPE_FLAG);
     }
 }
@@ -62,10 +62,11 @@ public class MessageCallBack {
     public void onMessage(ChannelHandlerContext ctx, Node node, ByteBuf byteBuf) {
         Integer hashCode = System.identityHashCode(ctx);
 
+        Message message = null;
         try {
             /** The message header fields are first parsed to get message type, result */
             MessageSerializer messageSerializer = new MessageSerializer();
-            Message message = messageSerializer.deserialize(byteBuf);
+            message = messageSerializer.deserializeView(byteBuf);
 
             logger.trace(
                     " receive message seq: {}, type: {}, host: {}, ctx: {}",
@@ -90,6 +91,10 @@ public class MessageCallBack {
             logger.error(" invalid message, host: {}, ctx: {}, e: {}", node, hashCode, e);
 
         } finally {
+            // processors only read the data while processing, copy or retain it to keep it
+            if (message != null) {
+                message.release();
+            }
             byteBuf.release();
         }
     }
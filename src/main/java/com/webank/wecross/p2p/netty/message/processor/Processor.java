@@ -21,4 +21,24 @@ public interface Processor {
      * @param message
      */
     void process(ChannelHandlerContext ctx, Node node, Message message);
+
+    /**
+     * whether process may block, a processor that never blocks runs right on the event loop of the
+     * channel, without a thread switch
+     *
+     * @return
+     */
+    default boolean isBlocking() {
+        return true;
+    }
+
+    /**
+     * whether the messages of a peer must be processed one at a time in the order they arrived,
+     * only blocking processors are asked
+     *
+     * @return
+     */
+    default boolean isOrdered() {
+        return true;
+    }
 }
@@ -1,19 +1,28 @@
 package com.webank.wecross.p2p.netty.message.proto;
 
-import com.webank.wecross.p2p.netty.common.Utils;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.io.Serializable;
 
 /**
- * message proto =>
- * +----------------+---------------+--------------+-----------------+--------------------------------------------------+
- * | | | | | | | | length(4 Byte) | type(2 Byte) | seq(32 Byte)| result(4 Byte) | extend
- * fields(default None) | data( >= 0 Byte ) | | | | | | | |
- * +----------------+---------------+--------------+-----------------+--------------------------------------------------+
+ * message proto v1 =>
+ * +----------------+---------------+--------------+----------------+-------------------+
+ * | length(4 Byte) | type(2 Byte)  | seq(32 Byte) | result(4 Byte) | data( >= 0 Byte ) |
+ * +----------------+---------------+--------------+----------------+-------------------+
  *
- * <p>length: total length of this packet, including length field, so the value of length is: 4 + 2
- * + 32 + 4 + length(data) type: type of this packet, specific value reference P2PMessageType seq:
- * unique value that marks a request result: the status of the p2p message itself extend fields:
- * expand other fields as needed, default None, user can extend the protocol field. data: load data
+ * <p>message proto v2 =>
+ * +----------------+---------------+--------------+----------------+-------------------+
+ * | length(4 Byte) | type(2 Byte)  | seq(8 Byte)  | result(4 Byte) | data( >= 0 Byte ) |
+ * +----------------+---------------+--------------+----------------+-------------------+
+ *
+ * <p>length: total length of this packet, including length field type: type of this packet,
+ * specific value reference P2PMessageType, v2 packets have VERSION_2_TYPE_FLAG set seq: value that
+ * marks a request on a connection, 32 ASCII digits in v1, a big-endian long in v2 result: the
+ * status of the p2p message itself data: load data
+ *
+ * <p>v1 is sent until the peer announces v2 in its hello message, v1 peers ignore the hello
  */
 
 /** Structure of P2P message */
@@ -28,12 +37,24 @@ public class Message implements Serializable {
     public static final int RESULT_FIELD_LENGTH = 4;
     public static final int HEADER_LENGTH =
             LENGTH_FIELD_LENGTH + TYPE_FIELD_LENGTH + SEQ_FIELD_LENGTH + RESULT_FIELD_LENGTH;
+    public static final int SEQ_FIELD_LENGTH_V2 = 8;
+    public static final int HEADER_LENGTH_V2 =
+            LENGTH_FIELD_LENGTH + TYPE_FIELD_LENGTH + SEQ_FIELD_LENGTH_V2 + RESULT_FIELD_LENGTH;
+
+    // frame versions
+    public static final int VERSION_1 = 1;
+    public static final int VERSION_2 = 2;
+    public static final int MAX_VERSION = VERSION_2;
+    public static final short VERSION_2_TYPE_FLAG = 0x4000;
 
     protected Integer length = 0;
     protected Short type = 0;
-    protected String seq = Utils.newUUID();
+    protected long seq = 0;
+    protected byte[] legacySeq; // seq of a v1 packet as received, echoed back in v1 responses
     protected Integer result = 0;
     protected byte[] data = new byte[0];
+    // body of a received frame, data is copied from it only if asked for, see release()
+    protected transient ByteBuf dataBuf;
 
     public Integer getLength() {
         return length;
@@ -51,14 +72,22 @@ public class Message implements Serializable {
         this.type = type;
     }
 
-    public String getSeq() {
+    public long getSeq() {
         return seq;
     }
 
-    public void setSeq(String seq) {
+    public void setSeq(long seq) {
         this.seq = seq;
     }
 
+    public byte[] getLegacySeq() {
+        return legacySeq;
+    }
+
+    public void setLegacySeq(byte[] legacySeq) {
+        this.legacySeq = legacySeq;
+    }
+
     public Integer getResult() {
         return result;
     }
@@ -68,6 +97,10 @@ public class Message implements Serializable {
     }
 
     public byte[] getData() {
+        if (data == null && dataBuf != null) {
+            data = new byte[dataBuf.readableBytes()];
+            dataBuf.getBytes(dataBuf.readerIndex(), data);
+        }
         return data;
     }
 
@@ -76,6 +109,44 @@ public class Message implements Serializable {
         setLength(data.length + HEADER_LENGTH);
     }
 
+    public int getDataLength() {
+        return data != null ? data.length : (dataBuf != null ? dataBuf.readableBytes() : 0);
+    }
+
+    /**
+     * a view of the data without copying, valid until release()
+     *
+     * @return
+     */
+    public InputStream getDataStream() {
+        if (data == null && dataBuf != null) {
+            return new ByteBufInputStream(dataBuf.duplicate());
+        }
+        return new ByteArrayInputStream(getData());
+    }
+
+    public ByteBuf getDataBuf() {
+        return dataBuf;
+    }
+
+    /**
+     * take a retained buffer as data, the message owns it and frees it in release()
+     *
+     * @param dataBuf
+     */
+    public void setDataBuf(ByteBuf dataBuf) {
+        release();
+        this.dataBuf = dataBuf;
+        this.data = null;
+    }
+
+    public void release() {
+        if (dataBuf != null) {
+            dataBuf.release();
+            dataBuf = null;
+        }
+    }
+
     @Override
     public String toString() {
         return "Message{"
@@ -83,13 +154,12 @@ public class Message implements Serializable {
                 + length
                 + ", type="
                 + type
-                + ", seq='"
+                + ", seq="
                 + seq
-                + '\''
                 + ", result="
                 + result
                 + ", data.length="
-                + data.length
+                + getDataLength()
                 + '}';
     }
 
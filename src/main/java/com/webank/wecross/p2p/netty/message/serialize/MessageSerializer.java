@@ -2,36 +2,89 @@ package com.webank.wecross.p2p.netty.message.serialize;
 
 import com.webank.wecross.p2p.netty.message.proto.Message;
 import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.AttributeKey;
 import java.io.UnsupportedEncodingException;
 
 public class MessageSerializer {
+    /** frame version negotiated with the peer of a channel */
+    private static final AttributeKey<Integer> versionKey = AttributeKey.valueOf("frameVersion");
 
-    private void readHeader(Message message, ByteBuf in) throws UnsupportedEncodingException {
+    public static int getVersion(ChannelHandlerContext ctx) {
+        Integer version = ctx.channel().attr(versionKey).get();
+        return version == null ? Message.VERSION_1 : version;
+    }
+
+    public static void setVersion(ChannelHandlerContext ctx, int version) {
+        ctx.channel().attr(versionKey).set(version);
+    }
+
+    // v1 seq of our own requests are 32 ASCII digits, anything else (uuid of v1 peers) is 0
+    private static long parseLegacySeq(byte[] legacySeq) {
+        long seq = 0;
+        for (byte b : legacySeq) {
+            if (b < '0' || b > '9' || seq > (Long.MAX_VALUE - (b - '0')) / 10) {
+                return 0;
+            }
+            seq = seq * 10 + (b - '0');
+        }
+        return seq;
+    }
+
+    private static byte[] formatLegacySeq(long seq) {
+        byte[] legacySeq = new byte[Message.SEQ_FIELD_LENGTH];
+        for (int i = legacySeq.length - 1; i >= 0; --i) {
+            legacySeq[i] = (byte) ('0' + seq % 10);
+            seq /= 10;
+        }
+        return legacySeq;
+    }
+
+    private int readHeader(Message message, ByteBuf in) throws UnsupportedEncodingException {
         Integer length = in.readInt();
-        Short type = in.readShort();
+        short type = in.readShort();
 
-        byte[] dst = new byte[32];
-        in.readBytes(dst);
-        String seq = new String(dst, "utf-8");
+        int headerLength;
+        if ((type & Message.VERSION_2_TYPE_FLAG) != 0) {
+            type &= ~Message.VERSION_2_TYPE_FLAG;
+            message.setSeq(in.readLong());
+            headerLength = Message.HEADER_LENGTH_V2;
+        } else {
+            byte[] legacySeq = new byte[Message.SEQ_FIELD_LENGTH];
+            in.readBytes(legacySeq);
+            message.setLegacySeq(legacySeq);
+            message.setSeq(parseLegacySeq(legacySeq));
+            headerLength = Message.HEADER_LENGTH;
+        }
 
         Integer result = in.readInt();
 
         message.setLength(length);
         message.setType(type);
-        message.setSeq(seq);
         message.setResult(result);
+        return headerLength;
     }
 
-    private void readData(Message message, ByteBuf in) {
-        byte[] data = new byte[message.getLength() - Message.HEADER_LENGTH];
-        in.readBytes(data, 0, message.getLength() - Message.HEADER_LENGTH);
+    private void readData(Message message, ByteBuf in, int headerLength) {
+        byte[] data = new byte[message.getLength() - headerLength];
+        in.readBytes(data, 0, message.getLength() - headerLength);
         message.setData(data);
     }
 
-    private void writeHeader(Message message, ByteBuf out) {
-        out.writeInt(Message.HEADER_LENGTH + message.getData().length);
-        out.writeShort(message.getType());
-        out.writeBytes(message.getSeq().getBytes(), 0, 32);
+    private void writeHeader(Message message, ByteBuf out, int version) {
+        if (version >= Message.VERSION_2) {
+            out.writeInt(Message.HEADER_LENGTH_V2 + message.getData().length);
+            out.writeShort(message.getType() | Message.VERSION_2_TYPE_FLAG);
+            out.writeLong(message.getSeq());
+        } else {
+            out.writeInt(Message.HEADER_LENGTH + message.getData().length);
+            out.writeShort(message.getType());
+            if (message.getLegacySeq() != null) {
+                out.writeBytes(message.getLegacySeq(), 0, Message.SEQ_FIELD_LENGTH);
+            } else {
+                out.writeBytes(formatLegacySeq(message.getSeq()));
+            }
+        }
         out.writeInt(message.getResult());
     }
 
@@ -41,13 +94,31 @@ public class MessageSerializer {
 
     public Message deserialize(ByteBuf byteBuf) throws UnsupportedEncodingException {
         Message message = new Message();
-        readHeader(message, byteBuf);
-        readData(message, byteBuf);
+        int headerLength = readHeader(message, byteBuf);
+        readData(message, byteBuf, headerLength);
+        return message;
+    }
+
+    /**
+     * decode the header only, the data is a retained slice of byteBuf and is released by
+     * message.release()
+     *
+     * @param byteBuf
+     * @return
+     */
+    public Message deserializeView(ByteBuf byteBuf) throws UnsupportedEncodingException {
+        Message message = new Message();
+        int headerLength = readHeader(message, byteBuf);
+        message.setDataBuf(byteBuf.readRetainedSlice(message.getLength() - headerLength));
         return message;
     }
 
     public void serialize(Message message, ByteBuf byteBuf) {
-        writeHeader(message, byteBuf);
+        serialize(message, byteBuf, Message.VERSION_1);
+    }
+
+    public void serialize(Message message, ByteBuf byteBuf, int version) {
+        writeHeader(message, byteBuf, version);
         writeData(message, byteBuf);
     }
 }
@@ -3,6 +3,8 @@ package com.webank.wecross.p2p.netty.request;
 public class Request {
     private Short type;
     private String content;
+    /** encoded content, sent instead of content if set */
+    private byte[] data;
     /** timeout, default 60s */
     private Integer timeout = 60 * 1000;
 
@@ -14,6 +16,14 @@ public class Request {
         this.content = content;
     }
 
+    public byte[] getData() {
+        return data;
+    }
+
+    public void setData(byte[] data) {
+        this.data = data;
+    }
+
     public Integer getTimeout() {
         return timeout;
     }
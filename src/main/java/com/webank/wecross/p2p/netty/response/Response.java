@@ -1,10 +1,18 @@
 package com.webank.wecross.p2p.netty.response;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
 public class Response {
     private int errorCode;
     private String errorMessage;
     private String content;
     private String messageID;
+    // body of the response frame, only valid inside onResponse
+    private transient ByteBuf contentBuf;
 
     public static Response build(int errorCode, String errorMsg, String messageID, String content) {
 
@@ -34,9 +42,34 @@ public class Response {
     }
 
     public String getContent() {
+        if (content == null && contentBuf != null) {
+            content = contentBuf.toString(StandardCharsets.UTF_8);
+        }
         return content;
     }
 
+    /**
+     * the content without decoding it to a String, only valid inside onResponse
+     *
+     * @return
+     */
+    public InputStream getContentStream() {
+        if (content == null && contentBuf != null) {
+            return new ByteBufInputStream(contentBuf.duplicate());
+        }
+        return content == null
+                ? null
+                : new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ByteBuf getContentBuf() {
+        return contentBuf;
+    }
+
+    public void setContentBuf(ByteBuf contentBuf) {
+        this.contentBuf = contentBuf;
+    }
+
     public void setContent(String content) {
         this.content = content;
     }
@@ -58,7 +91,7 @@ public class Response {
                 + errorMessage
                 + '\''
                 + ", content='"
-                + content
+                + getContent()
                 + '\''
                 + ", messageID='"
                 + messageID
@@ -51,14 +51,18 @@ public abstract class ResponseCallBack {
                 errorMsg,
                 getMessage());
         try {
-            Response response = Response.build(errorCode, errorMsg, message.getSeq(), null);
+            Response response =
+                    Response.build(errorCode, errorMsg, String.valueOf(message.getSeq()), null);
             onResponse(response);
         } catch (Exception e) {
             logger.warn(" response timeout, seq: {}, e: {}", message.getSeq(), e);
         }
 
         cancelTimer();
-        getSeqMapper().remove(message.getSeq());
+        // not sent yet if there is no connection
+        if (getCtx() != null) {
+            getSeqMapper().remove(getCtx(), message.getSeq());
+        }
     }
 
     public Timeout getTimeout() {
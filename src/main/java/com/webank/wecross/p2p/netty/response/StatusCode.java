@@ -4,4 +4,5 @@ public interface StatusCode {
     int SUCCESS = 0;
     int UNREACHABLE = 101;
     int TIMEOUT = 102;
+    int NOT_WRITABLE = 103; // the outbound buffer of the peer is full, the request was not sent
 }
@@ -0,0 +1,36 @@
+package com.webank.wecross.remote;
+
+import com.webank.wecross.stub.Request;
+import com.webank.wecross.stub.Response;
+import java.util.List;
+
+// request and response data of p2p method batch, responses are in the order of requests
+public class BatchMessageData {
+    private List<String> paths; // zone/chain/resource of each request
+    private List<Request> requests;
+    private List<Response> responses; // only in response
+
+    public List<String> getPaths() {
+        return paths;
+    }
+
+    public void setPaths(List<String> paths) {
+        this.paths = paths;
+    }
+
+    public List<Request> getRequests() {
+        return requests;
+    }
+
+    public void setRequests(List<Request> requests) {
+        this.requests = requests;
+    }
+
+    public List<Response> getResponses() {
+        return responses;
+    }
+
+    public void setResponses(List<Response> responses) {
+        this.responses = responses;
+    }
+}
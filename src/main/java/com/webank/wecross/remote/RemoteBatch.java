@@ -0,0 +1,263 @@
+package com.webank.wecross.remote;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.webank.wecross.common.NetworkQueryStatus;
+import com.webank.wecross.p2p.P2PMessage;
+import com.webank.wecross.p2p.P2PMessageCallback;
+import com.webank.wecross.p2p.P2PMessageEngine;
+import com.webank.wecross.p2p.engine.P2PResponse;
+import com.webank.wecross.p2p.netty.response.StatusCode;
+import com.webank.wecross.peer.Peer;
+import com.webank.wecross.restserver.Versions;
+import com.webank.wecross.stub.Connection;
+import com.webank.wecross.stub.Request;
+import com.webank.wecross.stub.Response;
+import com.webank.wecross.stub.StubQueryStatus;
+import io.netty.util.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * transaction requests of a batch to the same peer, shipped in one p2p message once every item
+ * has sent its request or finished without one. Peers answering that the batch method is
+ * unsupported get them one by one, and if the batch never reached the peer each item is sent
+ * again through its fallback connection
+ */
+public class RemoteBatch {
+    private Logger logger = LoggerFactory.getLogger(RemoteBatch.class);
+
+    private Peer peer;
+    private P2PMessageEngine p2pEngine;
+    private Timer timer; // flushes a partial batch if items wait behind a full thread pool
+    private long lingerTime = 100; // ms
+
+    private int unsettledItems;
+    private boolean flushed = false;
+    private List<Item> items = new ArrayList<Item>();
+    private List<Request> requests = new ArrayList<Request>();
+    private List<Connection.Callback> callbacks = new ArrayList<Connection.Callback>();
+
+    /** connection of one batch item, its first request joins the batch */
+    public class Item extends RemoteConnection {
+        private boolean settled = false;
+        private Connection fallback; // null: sent to the peer of the batch again
+
+        private Item(RemoteConnection connection) {
+            setPeer(connection.getPeer());
+            setPath(connection.getPath());
+            setP2pEngine(connection.getP2pEngine());
+            setStats(connection.getStats());
+        }
+
+        @Override
+        public void asyncSend(Request request, Connection.Callback callback) {
+            add(this, request, callback);
+        }
+
+        private void sendDirectly(Request request, Connection.Callback callback) {
+            super.asyncSend(request, callback);
+        }
+
+        private void resend(Request request, Connection.Callback callback) {
+            if (fallback != null) {
+                fallback.asyncSend(request, callback);
+            } else {
+                sendDirectly(request, callback);
+            }
+        }
+
+        public Connection getFallback() {
+            return fallback;
+        }
+
+        public void setFallback(Connection fallback) {
+            this.fallback = fallback;
+        }
+
+        /** the item has finished, it sends nothing into the batch any more */
+        public void settle() {
+            boolean flush;
+            synchronized (RemoteBatch.this) {
+                flush = settleItem(this);
+            }
+
+            if (flush) {
+                flush();
+            }
+        }
+    }
+
+    public RemoteBatch(Peer peer, P2PMessageEngine p2pEngine, int size) {
+        this.peer = peer;
+        this.p2pEngine = p2pEngine;
+        this.unsettledItems = size;
+    }
+
+    public Item newItem(RemoteConnection connection) {
+        return new Item(connection);
+    }
+
+    // called with the lock held, true if the batch is complete
+    private boolean settleItem(Item item) {
+        if (!item.settled) {
+            item.settled = true;
+            --unsettledItems;
+        }
+        return unsettledItems == 0 && !flushed;
+    }
+
+    private void add(Item item, Request request, Connection.Callback callback) {
+        boolean direct = false;
+        boolean flush = false;
+        synchronized (this) {
+            if (flushed || item.settled) {
+                // late or second request of an item
+                direct = true;
+            } else {
+                if (requests.isEmpty() && timer != null) {
+                    timer.newTimeout(timeout -> flush(), lingerTime, TimeUnit.MILLISECONDS);
+                }
+
+                items.add(item);
+                requests.add(request);
+                callbacks.add(callback);
+                flush = settleItem(item);
+            }
+        }
+
+        if (direct) {
+            item.sendDirectly(request, callback);
+        } else if (flush) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        List<Item> batchItems;
+        List<Request> batchRequests;
+        List<Connection.Callback> batchCallbacks;
+        synchronized (this) {
+            if (flushed) {
+                return;
+            }
+            flushed = true;
+            batchItems = items;
+            batchRequests = requests;
+            batchCallbacks = callbacks;
+        }
+
+        if (batchRequests.size() <= 1) {
+            sendDirectly(batchItems, batchRequests, batchCallbacks);
+            return;
+        }
+
+        List<String> paths = new ArrayList<String>();
+        for (int i = 0; i < batchItems.size(); ++i) {
+            paths.add(batchItems.get(i).getPath());
+            batchRequests.get(i).setResourceInfo(null);
+        }
+
+        BatchMessageData data = new BatchMessageData();
+        data.setPaths(paths);
+        data.setRequests(batchRequests);
+
+        P2PMessage<BatchMessageData> p2pReq = new P2PMessage<BatchMessageData>();
+        p2pReq.setVersion(Versions.currentVersion);
+        p2pReq.setMethod("batch");
+        p2pReq.newSeq();
+        p2pReq.setData(data);
+
+        P2PMessageCallback<BatchMessageData> callback =
+                new P2PMessageCallback<BatchMessageData>() {
+                    @Override
+                    public void onResponse(
+                            int status, String message, P2PResponse<BatchMessageData> msg) {
+                        if (status == NetworkQueryStatus.METHOD_ERROR) {
+                            // nothing has run on the peer, it is safe to send them again
+                            logger.info("Peer {} does not support batch, send one by one", peer);
+                            sendDirectly(batchItems, batchRequests, batchCallbacks);
+                            return;
+                        }
+
+                        if (status == StatusCode.UNREACHABLE
+                                || status == StatusCode.NOT_WRITABLE) {
+                            logger.warn("Batch not sent to peer {}: {}, resend", peer, message);
+                            resend(batchItems, batchRequests, batchCallbacks);
+                            return;
+                        }
+
+                        if (msg == null
+                                || msg.getData() == null
+                                || msg.getData().getResponses() == null
+                                || msg.getData().getResponses().size() != batchRequests.size()) {
+                            // the requests may have run, transactions must not run twice
+                            logger.warn("Batch to peer {} failed: {}", peer, message);
+                            for (Connection.Callback batchCallback : batchCallbacks) {
+                                batchCallback.onResponse(
+                                        newErrorResponse("Call remote batch failed: " + message));
+                            }
+                            return;
+                        }
+
+                        List<Response> responses = msg.getData().getResponses();
+                        for (int i = 0; i < responses.size(); ++i) {
+                            batchCallbacks.get(i).onResponse(responses.get(i));
+                        }
+                    }
+                };
+        callback.setTypeReference(new TypeReference<P2PResponse<BatchMessageData>>() {});
+
+        logger.debug("Send batch of {} requests to peer {}", batchRequests.size(), peer);
+        try {
+            p2pEngine.asyncSendMessage(peer, p2pReq, callback);
+        } catch (Exception e) {
+            logger.warn("Send batch to peer {} exception", peer, e);
+            resend(batchItems, batchRequests, batchCallbacks);
+        }
+    }
+
+    private void sendDirectly(
+            List<Item> batchItems,
+            List<Request> batchRequests,
+            List<Connection.Callback> batchCallbacks) {
+        for (int i = 0; i < batchItems.size(); ++i) {
+            batchItems.get(i).sendDirectly(batchRequests.get(i), batchCallbacks.get(i));
+        }
+    }
+
+    // the batch has not reached the peer, nothing has run, every item may go elsewhere
+    private void resend(
+            List<Item> batchItems,
+            List<Request> batchRequests,
+            List<Connection.Callback> batchCallbacks) {
+        for (int i = 0; i < batchItems.size(); ++i) {
+            batchItems.get(i).resend(batchRequests.get(i), batchCallbacks.get(i));
+        }
+    }
+
+    private Response newErrorResponse(String errorMessage) {
+        Response response = new Response();
+        response.setErrorCode(StubQueryStatus.REMOTE_QUERY_FAILED);
+        response.setErrorMessage(errorMessage);
+        return response;
+    }
+
+    public Timer getTimer() {
+        return timer;
+    }
+
+    public void setTimer(Timer timer) {
+        this.timer = timer;
+    }
+
+    public long getLingerTime() {
+        return lingerTime;
+    }
+
+    public void setLingerTime(long lingerTime) {
+        this.lingerTime = lingerTime;
+    }
+}
@@ -1,53 +1,195 @@
 package com.webank.wecross.remote;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.webank.wecross.common.NetworkQueryStatus;
 import com.webank.wecross.p2p.P2PMessage;
+import com.webank.wecross.p2p.P2PMessageCallback;
 import com.webank.wecross.p2p.P2PMessageEngine;
+import com.webank.wecross.p2p.engine.P2PResponse;
+import com.webank.wecross.p2p.netty.response.StatusCode;
 import com.webank.wecross.peer.Peer;
+import com.webank.wecross.remote.balance.ConnectionStats;
 import com.webank.wecross.restserver.Versions;
 import com.webank.wecross.stub.Connection;
 import com.webank.wecross.stub.Request;
 import com.webank.wecross.stub.ResourceInfo;
 import com.webank.wecross.stub.Response;
 import com.webank.wecross.stub.StubQueryStatus;
+import com.webank.wecross.zone.BlockRangeMessageData;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class RemoteConnection implements Connection {
+    private static final long BLOCK_HEADERS_RETRY_INTERVAL = 60000; // ms
+
+    private Logger logger = LoggerFactory.getLogger(RemoteConnection.class);
     private Peer peer;
     private String path;
     private P2PMessageEngine p2pEngine;
+    private volatile boolean blockHeadersSupported = true;
+    private volatile long blockHeadersRetryTime = 0; // ms, backoff after a timeout
+    private ConnectionStats stats = new ConnectionStats(); // feeds load balancing of the peers
 
     @Override
     public Response send(Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        asyncSend(request, future::complete);
+
         try {
-            String errorHistory = "[";
-            try {
-                P2PMessage<Request> p2pReq = new P2PMessage<Request>();
-                p2pReq.setVersion(Versions.currentVersion);
-                p2pReq.setMethod(path.replace(".", "/") + "/transaction");
-                p2pReq.newSeq();
+            return future.get(10, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            return newErrorResponse("Call remote resource timeout");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return newErrorResponse("Call remote resource interrupted");
+        } catch (Exception e) {
+            return newErrorResponse("Call remote resource exception: " + e.getMessage());
+        }
+    }
+
+    /**
+     * response of a request with its p2p status, StatusCode.UNREACHABLE or NOT_WRITABLE if it was
+     * never sent
+     */
+    public interface StatusCallback {
+        void onResponse(int status, Response response);
+    }
+
+    @Override
+    public void asyncSend(Request request, Connection.Callback callback) {
+        asyncSend(request, (status, response) -> callback.onResponse(response));
+    }
+
+    public void asyncSend(Request request, StatusCallback callback) {
+        P2PMessage<Request> p2pReq = new P2PMessage<Request>();
+        p2pReq.setVersion(Versions.currentVersion);
+        p2pReq.setMethod(path.replace(".", "/") + "/transaction");
+        p2pReq.newSeq();
+
+        request.setResourceInfo(null);
+        p2pReq.setData(request);
+
+        // completed on the p2p response, timeout or send failure, nothing waits for it
+        long startTime = stats.onRequest();
+        P2PMessageCallback<Response> p2pCallback =
+                new P2PMessageCallback<Response>() {
+                    @Override
+                    public void onResponse(int status, String message, P2PResponse<Response> msg) {
+                        boolean success = msg != null && msg.getData() != null;
+                        stats.onResponse(startTime, success);
+                        if (!success) {
+                            logger.warn("Call peer {} error: {}", peer, message);
+                            callback.onResponse(
+                                    status == StatusCode.SUCCESS
+                                            ? NetworkQueryStatus.INTERNAL_ERROR
+                                            : status,
+                                    newErrorResponse("Call remote resource exception: " + message));
+                            return;
+                        }
+
+                        callback.onResponse(StatusCode.SUCCESS, msg.getData());
+                    }
+                };
+        p2pCallback.setTypeReference(new TypeReference<P2PResponse<Response>>() {});
+
+        try {
+            p2pEngine.asyncSendMessage(peer, p2pReq, p2pCallback);
+        } catch (Exception e) {
+            logger.warn("Send to peer {} exception", peer, e);
+            stats.onResponse(startTime, false);
+            callback.onResponse(
+                    StatusCode.UNREACHABLE,
+                    newErrorResponse("Call remote resource exception: " + e.getMessage()));
+        }
+    }
 
-                request.setResourceInfo(null);
-                p2pReq.setData(request);
+    private Response newErrorResponse(String errorMessage) {
+        Response response = new Response();
+        response.setErrorCode(StubQueryStatus.REMOTE_QUERY_FAILED);
+        response.setErrorMessage(errorMessage);
+        return response;
+    }
 
-                RemoteConnectionSemaphoreCallback callback =
-                        new RemoteConnectionSemaphoreCallback();
+    @Override
+    public byte[] getBlockHeaders(long fromBlockNumber, long toBlockNumber) {
+        if (!blockHeadersSupported || System.currentTimeMillis() < blockHeadersRetryTime) {
+            return null;
+        }
 
-                p2pEngine.asyncSendMessage(peer, p2pReq, callback);
+        try {
+            String[] sp = path.split("/");
+
+            BlockRangeMessageData data = new BlockRangeMessageData();
+            data.setNetwork(sp[0]);
+            data.setChain(sp[1]);
+            data.setFromBlockNumber(fromBlockNumber);
+            data.setToBlockNumber(toBlockNumber);
+
+            P2PMessage<BlockRangeMessageData> p2pReq = new P2PMessage<>();
+            p2pReq.setVersion(Versions.currentVersion);
+            p2pReq.setMethod("getBlockHeaders");
+            p2pReq.newSeq();
+            p2pReq.setData(data);
+
+            CompletableFuture<P2PResponse<BlockRangeMessageData>> future =
+                    new CompletableFuture<>();
+            P2PMessageCallback<BlockRangeMessageData> callback =
+                    new P2PMessageCallback<BlockRangeMessageData>() {
+                        @Override
+                        public void onResponse(
+                                int status,
+                                String message,
+                                P2PResponse<BlockRangeMessageData> msg) {
+                            // a remote error comes as the status without a response
+                            if (status == NetworkQueryStatus.METHOD_ERROR) {
+                                disableBlockHeaders();
+                            }
+                            future.complete(msg);
+                        }
+                    };
+            callback.setTypeReference(new TypeReference<P2PResponse<BlockRangeMessageData>>() {});
+
+            p2pEngine.asyncSendMessage(peer, p2pReq, callback);
+
+            P2PResponse<BlockRangeMessageData> response = future.get(10, TimeUnit.SECONDS);
+            if (response == null) {
+                return null;
+            }
 
-                return callback.getResponseData();
+            if (response.getErrorCode() == NetworkQueryStatus.METHOD_ERROR) {
+                disableBlockHeaders();
+                return null;
+            }
 
-            } catch (Exception e) {
-                errorHistory +=
-                        "{" + peer.toString() + ", exception:" + e.getLocalizedMessage() + "}";
+            if (response.getErrorCode() != NetworkQueryStatus.SUCCESS
+                    || response.getData() == null
+                    || response.getData().getBlockHeaders() == null) {
+                return null;
+            }
 
-                throw new Exception("Not an available peer to request: " + errorHistory + "]");
+            byte[] blockHeaders = response.getData().getBlockHeaders();
+            if (response.getData().getToBlockNumber() < fromBlockNumber) {
+                // peer has not synced to fromBlockNumber yet, fall back to single header fetching
+                return null;
             }
+            return blockHeaders;
+        } catch (TimeoutException e) {
+            // may be a busy peer or one that does not answer unknown methods, try again later
+            logger.warn("Get block headers from peer {} timeout", peer);
+            blockHeadersRetryTime = System.currentTimeMillis() + BLOCK_HEADERS_RETRY_INTERVAL;
         } catch (Exception e) {
-            Response response = new Response();
-            response.setErrorCode(StubQueryStatus.REMOTE_QUERY_FAILED);
-            response.setErrorMessage("Call remote resource exception: " + e.getMessage());
-            return response;
+            logger.warn("Get block headers from peer {} exception", peer, e);
         }
+        return null;
+    }
+
+    private void disableBlockHeaders() {
+        logger.info("Peer {} could not serve block headers in range", peer);
+        blockHeadersSupported = false;
     }
 
     @Override
@@ -71,6 +213,14 @@ public class RemoteConnection implements Connection {
         this.path = path;
     }
 
+    public ConnectionStats getStats() {
+        return stats;
+    }
+
+    public void setStats(ConnectionStats stats) {
+        this.stats = stats;
+    }
+
     public P2PMessageEngine getP2pEngine() {
         return p2pEngine;
     }
@@ -0,0 +1,170 @@
+package com.webank.wecross.remote.balance;
+
+import com.webank.wecross.peer.Peer;
+import com.webank.wecross.remote.RemoteConnection;
+import com.webank.wecross.stub.Connection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * connections of a chain or resource by peer, null for the local one. Updates copy the array,
+ * choosing reads it without locking or allocating
+ */
+public class ConnectionSelector {
+    private static final Candidate[] EMPTY = new Candidate[0];
+
+    private volatile Candidate[] candidates = EMPTY;
+    private LoadBalanceStrategy strategy = LoadBalanceStrategies.POWER_OF_TWO_CHOICES;
+    private long staleTimeout = 10000; // ms, peers not heard from for longer are picked last
+
+    public class Candidate {
+        private Peer peer;
+        private Connection connection;
+        private ConnectionStats stats;
+
+        private Candidate(Peer peer, Connection connection) {
+            this.peer = peer;
+            this.connection = connection;
+            this.stats =
+                    connection instanceof RemoteConnection
+                            ? ((RemoteConnection) connection).getStats()
+                            : new ConnectionStats();
+        }
+
+        public boolean isStale() {
+            return peer != null && peer.isTimeout(staleTimeout);
+        }
+
+        public int getOutstanding() {
+            return stats.getOutstanding() + (isStale() ? 1000000 : 0);
+        }
+
+        public double getLoad() {
+            return stats.getLoad() * (isStale() ? 1000000 : 1);
+        }
+
+        public Peer getPeer() {
+            return peer;
+        }
+
+        public Connection getConnection() {
+            return connection;
+        }
+
+        public ConnectionStats getStats() {
+            return stats;
+        }
+    }
+
+    public Connection choose() {
+        Candidate[] current = candidates;
+        if (current.length == 0) {
+            return null;
+        }
+
+        if (current.length == 1) {
+            return current[0].connection;
+        }
+        return current[strategy.choose(current)].connection;
+    }
+
+    /**
+     * choose among the connections not excluded, e.g. the ones a request has failed on
+     *
+     * @param excluded
+     * @return null if none is left
+     */
+    public Connection choose(List<Connection> excluded) {
+        if (excluded.isEmpty()) {
+            return choose();
+        }
+
+        Candidate[] current = candidates;
+        Candidate[] left = new Candidate[current.length];
+        int size = 0;
+        for (Candidate candidate : current) {
+            if (!excluded.contains(candidate.connection)) {
+                left[size++] = candidate;
+            }
+        }
+
+        if (size == 0) {
+            return null;
+        }
+
+        if (size == 1) {
+            return left[0].connection;
+        }
+        left = Arrays.copyOf(left, size);
+        return left[strategy.choose(left)].connection;
+    }
+
+    public synchronized void put(Peer peer, Connection connection) {
+        Candidate[] current = candidates;
+        int index = indexOf(current, peer);
+        Candidate[] updated;
+        if (index < 0) {
+            updated = Arrays.copyOf(current, current.length + 1);
+            index = current.length;
+        } else {
+            updated = current.clone();
+        }
+        updated[index] = new Candidate(peer, connection);
+        candidates = updated;
+    }
+
+    public synchronized void remove(Peer peer) {
+        Candidate[] current = candidates;
+        int index = indexOf(current, peer);
+        if (index < 0) {
+            return;
+        }
+
+        Candidate[] updated = new Candidate[current.length - 1];
+        System.arraycopy(current, 0, updated, 0, index);
+        System.arraycopy(current, index + 1, updated, index, updated.length - index);
+        candidates = updated;
+    }
+
+    public synchronized void clear() {
+        candidates = EMPTY;
+    }
+
+    public boolean contains(Peer peer) {
+        return indexOf(candidates, peer) >= 0;
+    }
+
+    public boolean isEmpty() {
+        return candidates.length == 0;
+    }
+
+    public int size() {
+        return candidates.length;
+    }
+
+    private int indexOf(Candidate[] current, Peer peer) {
+        for (int i = 0; i < current.length; ++i) {
+            if (Objects.equals(current[i].peer, peer)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public LoadBalanceStrategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(LoadBalanceStrategy strategy) {
+        this.strategy = strategy;
+    }
+
+    public long getStaleTimeout() {
+        return staleTimeout;
+    }
+
+    public void setStaleTimeout(long staleTimeout) {
+        this.staleTimeout = staleTimeout;
+    }
+}
@@ -0,0 +1,90 @@
+package com.webank.wecross.remote.balance;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** latency, error rate and requests in flight of a connection, fed by the requests sent on it */
+public class ConnectionStats {
+    private static final double DECAY = 0.2; // weight of the latest sample
+
+    private AtomicInteger outstanding = new AtomicInteger();
+    private volatile double latency = 0; // ms, EWMA
+    private volatile double latencyDeviation = 0; // ms, EWMA of the distance to latency
+    private volatile double errorRate = 0; // EWMA of failed requests, 0 to 1
+    private volatile long lastResponseTime = 0;
+    private boolean sampled = false;
+
+    /**
+     * a request is sent on the connection
+     *
+     * @return start time of the request
+     */
+    public long onRequest() {
+        outstanding.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * the request started at startTime is answered, or failed
+     *
+     * @param startTime
+     * @param success
+     */
+    public void onResponse(long startTime, boolean success) {
+        outstanding.decrementAndGet();
+        double elapsed = (System.nanoTime() - startTime) / 1000000.0;
+        synchronized (this) {
+            if (!sampled) {
+                latency = elapsed;
+                sampled = true;
+            } else {
+                latencyDeviation += DECAY * (Math.abs(elapsed - latency) - latencyDeviation);
+                latency += DECAY * (elapsed - latency);
+            }
+            errorRate += DECAY * ((success ? 0 : 1) - errorRate);
+        }
+        lastResponseTime = System.currentTimeMillis();
+    }
+
+    // expected cost of one more request, lower is better
+    public double getLoad() {
+        return (latency + 1) * (outstanding.get() + 1) / (1 - Math.min(errorRate, 0.99));
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public double getLatency() {
+        return latency;
+    }
+
+    /**
+     * estimated p95 latency, two mean deviations above the mean as for normally distributed
+     * latencies
+     *
+     * @return ms, 0 before any response
+     */
+    public double getLatencyP95() {
+        return latency + 2 * latencyDeviation;
+    }
+
+    public double getErrorRate() {
+        return errorRate;
+    }
+
+    public long getLastResponseTime() {
+        return lastResponseTime;
+    }
+
+    @Override
+    public String toString() {
+        return "ConnectionStats{"
+                + "outstanding="
+                + outstanding.get()
+                + ", latency="
+                + latency
+                + ", errorRate="
+                + errorRate
+                + '}';
+    }
+}
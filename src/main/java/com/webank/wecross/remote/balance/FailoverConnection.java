@@ -0,0 +1,235 @@
+package com.webank.wecross.remote.balance;
+
+import com.webank.wecross.p2p.netty.response.StatusCode;
+import com.webank.wecross.remote.RemoteConnection;
+import com.webank.wecross.stub.Connection;
+import com.webank.wecross.stub.Request;
+import com.webank.wecross.stub.ResourceInfo;
+import com.webank.wecross.stub.Response;
+import com.webank.wecross.stub.StubQueryStatus;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * connection of one request to a resource served by several peers. A request the chosen peer
+ * could not take is sent to the next best peer. Calls are also tried on the next peer when
+ * unanswered for the attempt timeout, or after the p95 latency of the peer if hedged, and the
+ * first answer wins. Transactions only fail over if they were never sent, as a timed out one may
+ * still be executed
+ */
+public class FailoverConnection implements Connection {
+    private Logger logger = LoggerFactory.getLogger(FailoverConnection.class);
+
+    private ConnectionSelector selector;
+    private FailoverPolicy policy;
+    private boolean idempotent; // true for calls, safe to send to more than one peer
+
+    public FailoverConnection(
+            ConnectionSelector selector, FailoverPolicy policy, boolean idempotent) {
+        this.selector = selector;
+        this.policy = policy;
+        this.idempotent = idempotent;
+    }
+
+    private class Attempt {
+        private boolean answered = false;
+        private boolean superseded = false; // the next attempt has been started for it
+    }
+
+    // one request over its attempts, guarded by its own lock
+    private class Exchange {
+        private Request request;
+        private Connection.Callback callback;
+        private List<Connection> tried = new ArrayList<Connection>();
+        private int inFlight = 0;
+        private boolean done = false;
+        private Response lastFailure;
+        private Timeout deadline;
+
+        private Exchange(Request request, Connection.Callback callback) {
+            this.request = request;
+            this.callback = callback;
+        }
+
+        private void start() {
+            Timer timer = policy.getTimer();
+            if (timer != null) {
+                Timeout timeout =
+                        timer.newTimeout(
+                                t -> finish(newErrorResponse("Call remote resource timeout")),
+                                policy.getTimeout(),
+                                TimeUnit.MILLISECONDS);
+                synchronized (this) {
+                    deadline = timeout;
+                }
+            }
+
+            if (!next()) {
+                finish(newErrorResponse("No connection to the resource"));
+            }
+        }
+
+        // send to the best peer not tried yet, false if none is left
+        private boolean next() {
+            Connection connection;
+            Attempt attempt = new Attempt();
+            synchronized (this) {
+                if (done || tried.size() >= policy.getMaxAttempts()) {
+                    return false;
+                }
+
+                connection = selector.choose(tried);
+                if (connection == null) {
+                    return false;
+                }
+                tried.add(connection);
+                ++inFlight;
+            }
+
+            if (!(connection instanceof RemoteConnection)) {
+                connection.asyncSend(
+                        request, response -> onResponse(attempt, StatusCode.SUCCESS, response));
+                return true;
+            }
+
+            RemoteConnection remoteConnection = (RemoteConnection) connection;
+            Timer timer = policy.getTimer();
+            if (idempotent && timer != null) {
+                timer.newTimeout(
+                        t -> onAttemptTimeout(attempt),
+                        getAttemptDelay(remoteConnection),
+                        TimeUnit.MILLISECONDS);
+            }
+            remoteConnection.asyncSend(
+                    request, (status, response) -> onResponse(attempt, status, response));
+            return true;
+        }
+
+        private long getAttemptDelay(RemoteConnection connection) {
+            long delay = policy.getAttemptTimeout();
+            double p95 = connection.getStats().getLatencyP95();
+            if (policy.isHedgeCalls() && p95 > 0) {
+                delay = Math.min(delay, Math.max(policy.getMinHedgeDelay(), (long) p95));
+            }
+            return delay;
+        }
+
+        private void onAttemptTimeout(Attempt attempt) {
+            synchronized (this) {
+                if (done || attempt.answered || attempt.superseded) {
+                    return;
+                }
+                attempt.superseded = true;
+            }
+            next();
+        }
+
+        private void onResponse(Attempt attempt, int status, Response response) {
+            boolean failover;
+            synchronized (this) {
+                --inFlight;
+                attempt.answered = true;
+                if (done) {
+                    return;
+                }
+
+                if (status == StatusCode.SUCCESS) {
+                    failover = false;
+                    lastFailure = null;
+                } else {
+                    lastFailure = response;
+                    failover = !attempt.superseded && (idempotent || !isSent(status));
+                    attempt.superseded = true;
+                }
+            }
+
+            if (status == StatusCode.SUCCESS) {
+                finish(response);
+                return;
+            }
+
+            if (failover && next()) {
+                logger.debug("Request failed with status {}, try the next peer", status);
+                return;
+            }
+
+            Response failure;
+            synchronized (this) {
+                if (inFlight > 0) {
+                    return; // wait for the other attempts
+                }
+                failure = lastFailure;
+            }
+            finish(failure);
+        }
+
+        private void finish(Response response) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                done = true;
+                if (deadline != null) {
+                    deadline.cancel();
+                }
+            }
+            callback.onResponse(response);
+        }
+    }
+
+    // whether the peer may have got the request
+    private static boolean isSent(int status) {
+        return status != StatusCode.UNREACHABLE && status != StatusCode.NOT_WRITABLE;
+    }
+
+    @Override
+    public Response send(Request request) {
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        asyncSend(request, future::complete);
+
+        try {
+            return future.get(policy.getTimeout(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return newErrorResponse("Call remote resource timeout");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return newErrorResponse("Call remote resource interrupted");
+        } catch (Exception e) {
+            return newErrorResponse("Call remote resource exception: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void asyncSend(Request request, Connection.Callback callback) {
+        new Exchange(request, callback).start();
+    }
+
+    @Override
+    public List<ResourceInfo> getResources() {
+        Connection connection = selector.choose();
+        return connection == null ? null : connection.getResources();
+    }
+
+    @Override
+    public byte[] getBlockHeaders(long fromBlockNumber, long toBlockNumber) {
+        Connection connection = selector.choose();
+        if (connection == null) {
+            return null;
+        }
+        return connection.getBlockHeaders(fromBlockNumber, toBlockNumber);
+    }
+
+    private Response newErrorResponse(String errorMessage) {
+        Response response = new Response();
+        response.setErrorCode(StubQueryStatus.REMOTE_QUERY_FAILED);
+        response.setErrorMessage(errorMessage);
+        return response;
+    }
+}
@@ -0,0 +1,77 @@
+package com.webank.wecross.remote.balance;
+
+import io.netty.util.Timer;
+
+/** how a request to a resource served by several peers tries more than one of them */
+public class FailoverPolicy {
+    private Timer timer; // null: no deadline, attempt timeout or hedging
+    private int maxAttempts = 3; // peers tried by one request
+    private long timeout = 10000; // ms, deadline of a request over all its attempts
+    private long attemptTimeout = 3000; // ms, a call unanswered this long is tried on another peer
+    private boolean hedgeCalls = false; // try calls on another peer after the p95 latency
+    private long minHedgeDelay = 10; // ms
+
+    public Timer getTimer() {
+        return timer;
+    }
+
+    public void setTimer(Timer timer) {
+        this.timer = timer;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public void setMaxAttempts(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    public long getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(long timeout) {
+        this.timeout = timeout;
+    }
+
+    public long getAttemptTimeout() {
+        return attemptTimeout;
+    }
+
+    public void setAttemptTimeout(long attemptTimeout) {
+        this.attemptTimeout = attemptTimeout;
+    }
+
+    public boolean isHedgeCalls() {
+        return hedgeCalls;
+    }
+
+    public void setHedgeCalls(boolean hedgeCalls) {
+        this.hedgeCalls = hedgeCalls;
+    }
+
+    public long getMinHedgeDelay() {
+        return minHedgeDelay;
+    }
+
+    public void setMinHedgeDelay(long minHedgeDelay) {
+        this.minHedgeDelay = minHedgeDelay;
+    }
+
+    @Override
+    public String toString() {
+        return "FailoverPolicy{"
+                + "maxAttempts="
+                + maxAttempts
+                + ", timeout="
+                + timeout
+                + ", attemptTimeout="
+                + attemptTimeout
+                + ", hedgeCalls="
+                + hedgeCalls
+                + ", minHedgeDelay="
+                + minHedgeDelay
+                + '}';
+    }
+}
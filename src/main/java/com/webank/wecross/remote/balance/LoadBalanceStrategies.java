@@ -0,0 +1,104 @@
+package com.webank.wecross.remote.balance;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/** built-in strategies, all stateless and shared */
+public class LoadBalanceStrategies {
+    public static final LoadBalanceStrategy RANDOM =
+            new LoadBalanceStrategy() {
+                @Override
+                public String name() {
+                    return "random";
+                }
+
+                @Override
+                public int choose(ConnectionSelector.Candidate[] candidates) {
+                    return ThreadLocalRandom.current().nextInt(candidates.length);
+                }
+            };
+
+    // fewest requests in flight, ties broken by a random start
+    public static final LoadBalanceStrategy LEAST_OUTSTANDING =
+            new LoadBalanceStrategy() {
+                @Override
+                public String name() {
+                    return "leastOutstanding";
+                }
+
+                @Override
+                public int choose(ConnectionSelector.Candidate[] candidates) {
+                    int start = ThreadLocalRandom.current().nextInt(candidates.length);
+                    int best = start;
+                    for (int i = 1; i < candidates.length; ++i) {
+                        int index = (start + i) % candidates.length;
+                        if (candidates[index].getOutstanding()
+                                < candidates[best].getOutstanding()) {
+                            best = index;
+                        }
+                    }
+                    return best;
+                }
+            };
+
+    // lowest EWMA latency weighted by requests in flight and error rate
+    public static final LoadBalanceStrategy EWMA =
+            new LoadBalanceStrategy() {
+                @Override
+                public String name() {
+                    return "ewma";
+                }
+
+                @Override
+                public int choose(ConnectionSelector.Candidate[] candidates) {
+                    int start = ThreadLocalRandom.current().nextInt(candidates.length);
+                    int best = start;
+                    for (int i = 1; i < candidates.length; ++i) {
+                        int index = (start + i) % candidates.length;
+                        if (candidates[index].getLoad() < candidates[best].getLoad()) {
+                            best = index;
+                        }
+                    }
+                    return best;
+                }
+            };
+
+    // the less loaded of two random candidates, avoids herding onto a single best one
+    public static final LoadBalanceStrategy POWER_OF_TWO_CHOICES =
+            new LoadBalanceStrategy() {
+                @Override
+                public String name() {
+                    return "p2c";
+                }
+
+                @Override
+                public int choose(ConnectionSelector.Candidate[] candidates) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    int first = random.nextInt(candidates.length);
+                    int second = random.nextInt(candidates.length - 1);
+                    if (second >= first) {
+                        ++second;
+                    }
+                    return candidates[second].getLoad() < candidates[first].getLoad()
+                            ? second
+                            : first;
+                }
+            };
+
+    private static LoadBalanceStrategy[] strategies =
+            new LoadBalanceStrategy[] {RANDOM, LEAST_OUTSTANDING, EWMA, POWER_OF_TWO_CHOICES};
+
+    /**
+     * strategy of the name, null if unknown
+     *
+     * @param name
+     * @return
+     */
+    public static LoadBalanceStrategy get(String name) {
+        for (LoadBalanceStrategy strategy : strategies) {
+            if (strategy.name().equals(name)) {
+                return strategy;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.webank.wecross.remote.balance;
+
+public interface LoadBalanceStrategy {
+    String name();
+
+    /**
+     * choose one of two or more candidates, must not allocate as it runs on every request
+     *
+     * @param candidates
+     * @return index of the chosen candidate
+     */
+    int choose(ConnectionSelector.Candidate[] candidates);
+}
@@ -0,0 +1,137 @@
+package com.webank.wecross.resource;
+
+import com.webank.wecross.stub.TransactionContext;
+import com.webank.wecross.stub.TransactionRequest;
+import com.webank.wecross.stub.TransactionResponse;
+import com.webank.wecross.zone.Chain;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * coalesces identical read calls of one resource: concurrent calls with the same account, method
+ * and args share one call in flight. With a cache TTL, successful results are also reused until
+ * they are older than the TTL or a new block of the chain is known
+ */
+public class CallCoalescer {
+    private Map<List<Object>, CompletableFuture<TransactionResponse>> flights =
+            new ConcurrentHashMap<List<Object>, CompletableFuture<TransactionResponse>>();
+    private Map<List<Object>, CachedResult> cache =
+            new ConcurrentHashMap<List<Object>, CachedResult>();
+    private Chain chain; // null: cached results only expire by TTL
+    private long cacheTTL = 0; // ms, 0: no cache
+    private int maxCacheSize = 10000;
+
+    private static class CachedResult {
+        private TransactionResponse response;
+        private long blockNumber;
+        private long expireTime;
+    }
+
+    public CompletableFuture<TransactionResponse> call(
+            TransactionContext<TransactionRequest> request,
+            Supplier<CompletableFuture<TransactionResponse>> caller) {
+        List<Object> key = newKey(request);
+        if (key == null) {
+            return caller.get();
+        }
+
+        long blockNumber = getBlockNumber();
+        if (cacheTTL > 0) {
+            CachedResult cached = cache.get(key);
+            if (cached != null) {
+                if (cached.blockNumber == blockNumber
+                        && System.currentTimeMillis() < cached.expireTime) {
+                    return CompletableFuture.completedFuture(cached.response);
+                }
+                cache.remove(key, cached);
+            }
+        }
+
+        CompletableFuture<TransactionResponse> future = new CompletableFuture<>();
+        CompletableFuture<TransactionResponse> flight = flights.putIfAbsent(key, future);
+        if (flight != null) {
+            return flight;
+        }
+
+        try {
+            caller.get()
+                    .whenComplete(
+                            (response, e) -> {
+                                flights.remove(key, future);
+                                if (e != null) {
+                                    future.completeExceptionally(e);
+                                } else {
+                                    cacheResult(key, response, blockNumber);
+                                    future.complete(response);
+                                }
+                            });
+        } catch (RuntimeException e) {
+            flights.remove(key, future);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private List<Object> newKey(TransactionContext<TransactionRequest> request) {
+        TransactionRequest data = request.getData();
+        if (data == null || data.getMethod() == null) {
+            return null;
+        }
+
+        String accountName = request.getAccount() == null ? null : request.getAccount().getName();
+        List<String> args = data.getArgs() == null ? null : Arrays.asList(data.getArgs());
+        return Arrays.asList(accountName, data.getMethod(), args);
+    }
+
+    private long getBlockNumber() {
+        return chain == null ? -1 : chain.getLatestBlockNumber();
+    }
+
+    private void cacheResult(List<Object> key, TransactionResponse response, long blockNumber) {
+        if (cacheTTL <= 0
+                || response == null
+                || response.getErrorCode() == null
+                || response.getErrorCode() != 0) {
+            return;
+        }
+
+        // results expire within a block anyway, start over rather than track the oldest
+        if (cache.size() >= maxCacheSize) {
+            cache.clear();
+        }
+
+        CachedResult cached = new CachedResult();
+        cached.response = response;
+        cached.blockNumber = blockNumber;
+        cached.expireTime = System.currentTimeMillis() + cacheTTL;
+        cache.put(key, cached);
+    }
+
+    public Chain getChain() {
+        return chain;
+    }
+
+    public void setChain(Chain chain) {
+        this.chain = chain;
+    }
+
+    public long getCacheTTL() {
+        return cacheTTL;
+    }
+
+    public void setCacheTTL(long cacheTTL) {
+        this.cacheTTL = cacheTTL;
+    }
+
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    public void setMaxCacheSize(int maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+    }
+}
@@ -1,6 +1,10 @@
 package com.webank.wecross.resource;
 
 import com.webank.wecross.peer.Peer;
+import com.webank.wecross.remote.balance.ConnectionSelector;
+import com.webank.wecross.remote.balance.FailoverConnection;
+import com.webank.wecross.remote.balance.FailoverPolicy;
+import com.webank.wecross.remote.balance.LoadBalanceStrategy;
 import com.webank.wecross.stub.Connection;
 import com.webank.wecross.stub.Driver;
 import com.webank.wecross.stub.Request;
@@ -9,19 +13,17 @@ import com.webank.wecross.stub.Response;
 import com.webank.wecross.stub.TransactionContext;
 import com.webank.wecross.stub.TransactionRequest;
 import com.webank.wecross.stub.TransactionResponse;
-import java.security.SecureRandom;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public class Resource {
     private String type;
     private Driver driver;
-    private Map<Peer, Connection> connections = new HashMap<Peer, Connection>();
+    private ConnectionSelector connections = new ConnectionSelector();
     private ResourceInfo resourceInfo;
     private ResourceBlockHeaderManager resourceBlockHeaderManager;
+    private CallCoalescer callCoalescer; // null: every call goes to the driver
+    private FailoverPolicy failoverPolicy; // null: a request tries one peer only
     boolean hasLocalConnection = false;
-    private Random random = new SecureRandom();
 
     public void addConnection(Peer peer, Connection connection) {
         if (!hasLocalConnection) {
@@ -45,20 +47,54 @@ public class Resource {
     }
 
     public Connection chooseConnection() {
-        if (connections.size() == 1) {
-            return (Connection) connections.values().toArray()[0];
-        } else {
-            int index = random.nextInt(connections.size());
-            return (Connection) connections.values().toArray()[index];
+        return connections.choose();
+    }
+
+    // connection of one request, failing over between peers if several serve the resource
+    public Connection chooseConnection(boolean idempotent) {
+        if (failoverPolicy == null || connections.size() < 2) {
+            return connections.choose();
         }
+        return new FailoverConnection(connections, failoverPolicy, idempotent);
     }
 
     public TransactionResponse call(TransactionContext<TransactionRequest> request) {
-        return driver.call(request, chooseConnection());
+        if (callCoalescer == null) {
+            return driver.call(request, chooseConnection(true));
+        }
+        return callCoalescer.call(request, () -> asyncCall(request, chooseConnection(true))).join();
     }
 
     public TransactionResponse sendTransaction(TransactionContext<TransactionRequest> request) {
-        return driver.sendTransaction(request, chooseConnection());
+        return driver.sendTransaction(request, chooseConnection(false));
+    }
+
+    public CompletableFuture<TransactionResponse> asyncCall(
+            TransactionContext<TransactionRequest> request) {
+        if (callCoalescer == null) {
+            return asyncCall(request, chooseConnection(true));
+        }
+        return callCoalescer.call(request, () -> asyncCall(request, chooseConnection(true)));
+    }
+
+    public CompletableFuture<TransactionResponse> asyncSendTransaction(
+            TransactionContext<TransactionRequest> request) {
+        return asyncSendTransaction(request, chooseConnection(false));
+    }
+
+    // through a given connection of this resource, e.g. one batching requests to a peer
+    public CompletableFuture<TransactionResponse> asyncCall(
+            TransactionContext<TransactionRequest> request, Connection connection) {
+        CompletableFuture<TransactionResponse> future = new CompletableFuture<>();
+        driver.asyncCall(request, connection, future::complete);
+        return future;
+    }
+
+    public CompletableFuture<TransactionResponse> asyncSendTransaction(
+            TransactionContext<TransactionRequest> request, Connection connection) {
+        CompletableFuture<TransactionResponse> future = new CompletableFuture<>();
+        driver.asyncSendTransaction(request, connection, future::complete);
+        return future;
     }
 
     public Response onRemoteTransaction(Request request) {
@@ -114,6 +150,26 @@ public class Resource {
         this.resourceBlockHeaderManager = resourceBlockHeaderManager;
     }
 
+    public CallCoalescer getCallCoalescer() {
+        return callCoalescer;
+    }
+
+    public void setCallCoalescer(CallCoalescer callCoalescer) {
+        this.callCoalescer = callCoalescer;
+    }
+
+    public void setLoadBalanceStrategy(LoadBalanceStrategy strategy) {
+        connections.setStrategy(strategy);
+    }
+
+    public FailoverPolicy getFailoverPolicy() {
+        return failoverPolicy;
+    }
+
+    public void setFailoverPolicy(FailoverPolicy failoverPolicy) {
+        this.failoverPolicy = failoverPolicy;
+    }
+
     public boolean isHasLocalConnection() {
         return hasLocalConnection;
     }
@@ -3,6 +3,7 @@ package com.webank.wecross.resource;
 import com.webank.wecross.storage.BlockHeaderStorage;
 import com.webank.wecross.stub.BlockHeaderManager;
 import com.webank.wecross.zone.Chain;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -10,6 +11,7 @@ public class ResourceBlockHeaderManager implements BlockHeaderManager {
     private Logger logger = LoggerFactory.getLogger(ResourceBlockHeaderManager.class);
     private BlockHeaderStorage blockHeaderStorage;
     private Chain chain;
+    private long waitTimeout = 30000; // ms
 
     @Override
     public long getBlockNumber() {
@@ -18,21 +20,30 @@ public class ResourceBlockHeaderManager implements BlockHeaderManager {
 
     @Override
     public byte[] getBlockHeader(long blockNumber) {
-        byte[] data = null;
         chain.fetchBlockHeaderByNumber(blockNumber);
 
-        while (data == null) {
-            data = blockHeaderStorage.readBlockHeader(blockNumber);
-            if (data != null) {
-                break;
-            }
+        byte[] data = blockHeaderStorage.readBlockHeader(blockNumber);
+        if (data != null) {
+            return data;
+        }
+
+        // pruned by the retention policy, ask the chain or a peer again
+        if (blockNumber < blockHeaderStorage.readRetainedBlockNumber()) {
+            // verified against the stored headers after it, null if it could not be
+            List<byte[]> blockHeaders = chain.fetchPrunedBlockHeaders(blockNumber, blockNumber);
+            return blockHeaders == null ? null : blockHeaders.get(0);
+        }
 
-            try {
-                Thread.sleep(100);
-            } catch (Exception e) {
-                logger.warn("Thread exception", e);
-                return null;
+        // fetching may be in progress by other threads, wait for its commit
+        try {
+            if (chain.waitBlockNumber(blockNumber, waitTimeout)) {
+                data = blockHeaderStorage.readBlockHeader(blockNumber);
+            } else {
+                logger.warn("Wait block header({}) timeout", blockNumber);
             }
+        } catch (InterruptedException e) {
+            logger.warn("Thread exception", e);
+            Thread.currentThread().interrupt();
         }
 
         return data;
@@ -53,4 +64,12 @@ public class ResourceBlockHeaderManager implements BlockHeaderManager {
     public void setChain(Chain chain) {
         this.chain = chain;
     }
+
+    public long getWaitTimeout() {
+        return waitTimeout;
+    }
+
+    public void setWaitTimeout(long waitTimeout) {
+        this.waitTimeout = waitTimeout;
+    }
 }
@@ -0,0 +1,139 @@
+package com.webank.wecross.restserver;
+
+import com.webank.wecross.exception.WeCrossException;
+import com.webank.wecross.stub.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+
+// bounds calls and transactions in flight per chain, so a slow chain can not starve the others
+public class ResourceRequestLimiter {
+    public static final String DEFAULT_LIMIT = "*";
+
+    public static class Limit {
+        private int maxConcurrency = 64; // requests in flight
+        private long timeout = 30000; // ms
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public void setMaxConcurrency(int maxConcurrency) {
+            this.maxConcurrency = maxConcurrency;
+        }
+
+        public long getTimeout() {
+            return timeout;
+        }
+
+        public void setTimeout(long timeout) {
+            this.timeout = timeout;
+        }
+
+        @Override
+        public String toString() {
+            return "Limit{" + "maxConcurrency=" + maxConcurrency + ", timeout=" + timeout + '}';
+        }
+    }
+
+    private Map<String, Limit> limits = new HashMap<String, Limit>(); // zone.chain -> limit
+    private Map<String, Semaphore> permits = new ConcurrentHashMap<String, Semaphore>();
+
+    // runs the requests off the servlet threads, drivers without async support block in it
+    private ExecutorService executor;
+
+    public void stop() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    private String getChainPath(Path path) {
+        return path.getNetwork() + "." + path.getChain();
+    }
+
+    public Limit getLimit(Path path) {
+        Limit limit = limits.get(getChainPath(path));
+        if (limit == null) {
+            limit = limits.get(DEFAULT_LIMIT);
+        }
+        return limit == null ? new Limit() : limit;
+    }
+
+    /**
+     * run task if the chain of path has a free permit, the permit is held until the future of
+     * task completes, even after the caller has timed out
+     *
+     * @param path
+     * @param task
+     * @return completed exceptionally if the chain is busy
+     */
+    public <T> CompletableFuture<T> submit(Path path, Supplier<CompletableFuture<T>> task) {
+        String chainPath = getChainPath(path);
+        Semaphore semaphore =
+                permits.computeIfAbsent(
+                        chainPath, key -> new Semaphore(getLimit(path).getMaxConcurrency()));
+
+        CompletableFuture<T> result = new CompletableFuture<T>();
+        if (!semaphore.tryAcquire()) {
+            result.completeExceptionally(
+                    new WeCrossException(
+                            WeCrossException.ErrorCode.RESOURCE_BUSY,
+                            "Too many requests in flight to " + chainPath));
+            return result;
+        }
+
+        Runnable runnable =
+                () -> {
+                    try {
+                        task.get()
+                                .whenComplete(
+                                        (value, e) -> {
+                                            semaphore.release();
+                                            if (e != null) {
+                                                result.completeExceptionally(e);
+                                            } else {
+                                                result.complete(value);
+                                            }
+                                        });
+                    } catch (Exception e) {
+                        semaphore.release();
+                        result.completeExceptionally(e);
+                    }
+                };
+
+        if (executor == null) {
+            runnable.run();
+            return result;
+        }
+
+        try {
+            executor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            semaphore.release();
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    public Map<String, Limit> getLimits() {
+        return limits;
+    }
+
+    public void setLimits(Map<String, Limit> limits) {
+        this.limits = limits;
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+}
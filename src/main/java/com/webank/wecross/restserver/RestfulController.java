@@ -6,16 +6,23 @@ import com.webank.wecross.account.AccountManager;
 import com.webank.wecross.common.NetworkQueryStatus;
 import com.webank.wecross.exception.WeCrossException;
 import com.webank.wecross.host.WeCrossHost;
+import com.webank.wecross.peer.Peer;
+import com.webank.wecross.remote.RemoteBatch;
+import com.webank.wecross.remote.RemoteConnection;
 import com.webank.wecross.resource.Resource;
 import com.webank.wecross.resource.ResourceDetail;
+import com.webank.wecross.restserver.request.BatchRequest;
 import com.webank.wecross.restserver.request.ResourceRequest;
 import com.webank.wecross.restserver.request.StateRequest;
 import com.webank.wecross.restserver.response.AccountResponse;
+import com.webank.wecross.restserver.response.BatchResponse;
 import com.webank.wecross.restserver.response.ResourceResponse;
 import com.webank.wecross.restserver.response.StateResponse;
 import com.webank.wecross.restserver.response.StubResponse;
 import com.webank.wecross.routine.htlc.HTLCManager;
+import com.webank.wecross.routine.htlc.HTLCResource;
 import com.webank.wecross.stub.Account;
+import com.webank.wecross.stub.Connection;
 import com.webank.wecross.stub.Path;
 import com.webank.wecross.stub.StubManager;
 import com.webank.wecross.stub.TransactionContext;
@@ -26,6 +33,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -33,12 +43,15 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
 
 @RestController
 public class RestfulController {
 
     @javax.annotation.Resource private WeCrossHost host;
 
+    @javax.annotation.Resource private ResourceRequestLimiter resourceRequestLimiter;
+
     private Logger logger = LoggerFactory.getLogger(RestfulController.class);
     private ObjectMapper objectMapper = new ObjectMapper();
 
@@ -162,7 +175,7 @@ public class RestfulController {
     }
 
     @RequestMapping(value = "/{network}/{stub}/{resource}/{method}", method = RequestMethod.GET)
-    public RestResponse<Object> handleResource(
+    public DeferredResult<RestResponse<Object>> handleResource(
             @PathVariable("network") String network,
             @PathVariable("stub") String stub,
             @PathVariable("resource") String resource,
@@ -175,7 +188,7 @@ public class RestfulController {
                 "/{network}/{stub}/{resource}/{method}",
             },
             method = RequestMethod.POST)
-    public RestResponse<Object> handleResource(
+    public DeferredResult<RestResponse<Object>> handleResource(
             @PathVariable("network") String network,
             @PathVariable("stub") String stub,
             @PathVariable("resource") String resource,
@@ -186,6 +199,23 @@ public class RestfulController {
         path.setChain(stub);
         path.setResource(resource);
 
+        // the servlet thread returns at once, call and sendTransaction complete it later
+        ResourceRequestLimiter.Limit limit = resourceRequestLimiter.getLimit(path);
+        DeferredResult<RestResponse<Object>> deferredResult =
+                new DeferredResult<RestResponse<Object>>(limit.getTimeout());
+        deferredResult.onTimeout(
+                () -> {
+                    logger.warn("Request timeout: {}, method: {}", path, method);
+                    RestResponse<Object> timeoutResponse = new RestResponse<Object>();
+                    timeoutResponse.setVersion(Versions.currentVersion);
+                    setErrorResponse(
+                            timeoutResponse,
+                            new WeCrossException(
+                                    WeCrossException.ErrorCode.REQUEST_TIMEOUT,
+                                    "Request timeout after " + limit.getTimeout() + "ms"));
+                    deferredResult.setResult(timeoutResponse);
+                });
+
         RestResponse<Object> restResponse = new RestResponse<Object>();
         restResponse.setVersion(Versions.currentVersion);
         restResponse.setErrorCode(NetworkQueryStatus.SUCCESS);
@@ -253,18 +283,20 @@ public class RestfulController {
                                 transactionRequest.toString(),
                                 accountName);
 
-                        TransactionResponse transactionResponse =
-                                (TransactionResponse)
-                                        resourceObj.call(
-                                                new TransactionContext<TransactionRequest>(
-                                                        transactionRequest,
-                                                        account,
-                                                        resourceObj.getResourceInfo(),
-                                                        resourceObj
-                                                                .getResourceBlockHeaderManager()));
-                        logger.trace("call response: {}", transactionResponse.toString());
-                        restResponse.setData(transactionResponse);
-                        break;
+                        TransactionContext<TransactionRequest> context =
+                                new TransactionContext<TransactionRequest>(
+                                        transactionRequest,
+                                        account,
+                                        resourceObj.getResourceInfo(),
+                                        resourceObj.getResourceBlockHeaderManager());
+                        Resource callResource = resourceObj;
+                        setResultOnComplete(
+                                deferredResult,
+                                restResponse,
+                                resourceRequestLimiter.submit(
+                                        path, () -> callResource.asyncCall(context)),
+                                method);
+                        return deferredResult;
                     }
                 case "sendTransaction":
                     {
@@ -289,19 +321,20 @@ public class RestfulController {
                                 transactionRequest.toString(),
                                 accountName);
 
-                        TransactionResponse transactionResponse =
-                                (TransactionResponse)
-                                        resourceObj.sendTransaction(
-                                                new TransactionContext<TransactionRequest>(
-                                                        transactionRequest,
-                                                        account,
-                                                        resourceObj.getResourceInfo(),
-                                                        resourceObj
-                                                                .getResourceBlockHeaderManager()));
-                        logger.trace(
-                                "sendTransaction response: {}", transactionResponse.toString());
-                        restResponse.setData(transactionResponse);
-                        break;
+                        TransactionContext<TransactionRequest> context =
+                                new TransactionContext<TransactionRequest>(
+                                        transactionRequest,
+                                        account,
+                                        resourceObj.getResourceInfo(),
+                                        resourceObj.getResourceBlockHeaderManager());
+                        Resource sendResource = resourceObj;
+                        setResultOnComplete(
+                                deferredResult,
+                                restResponse,
+                                resourceRequestLimiter.submit(
+                                        path, () -> sendResource.asyncSendTransaction(context)),
+                                method);
+                        return deferredResult;
                     }
                 default:
                     {
@@ -311,16 +344,271 @@ public class RestfulController {
                         break;
                     }
             }
-        } catch (WeCrossException e) {
-            logger.warn("Process request error", e);
-            restResponse.setErrorCode(NetworkQueryStatus.EXCEPTION_FLAG + e.getErrorCode());
-            restResponse.setMessage(e.getMessage());
         } catch (Exception e) {
             logger.warn("Process request error:", e);
-            restResponse.setErrorCode(NetworkQueryStatus.INTERNAL_ERROR);
-            restResponse.setMessage(e.getLocalizedMessage());
+            setErrorResponse(restResponse, e);
         }
 
-        return restResponse;
+        deferredResult.setResult(restResponse);
+        return deferredResult;
+    }
+
+    // one request of a batch, resolved before any is run
+    private static class BatchEntry {
+        private Path path;
+        private Resource resource;
+        private Account account;
+        private RemoteConnection connection; // set if it may be batched with other requests
+        private Exception error;
+    }
+
+    @RequestMapping(value = "/batch", method = RequestMethod.POST)
+    public DeferredResult<RestResponse<BatchResponse>> batch(
+            @RequestBody String restRequestString) {
+        RestResponse<BatchResponse> restResponse = new RestResponse<BatchResponse>();
+        restResponse.setVersion(Versions.currentVersion);
+        restResponse.setErrorCode(NetworkQueryStatus.SUCCESS);
+        restResponse.setMessage(NetworkQueryStatus.getStatusMessage(NetworkQueryStatus.SUCCESS));
+
+        logger.debug("request string: {}", restRequestString);
+
+        List<BatchRequest.Item> items;
+        try {
+            RestRequest<BatchRequest> restRequest =
+                    objectMapper.readValue(
+                            restRequestString, new TypeReference<RestRequest<BatchRequest>>() {});
+            restRequest.checkRestRequest("", "batch");
+            if (restRequest.getData() == null || restRequest.getData().getRequests() == null) {
+                throw new WeCrossException(
+                        WeCrossException.ErrorCode.FIELD_MISSING,
+                        "\"requests\" not found in request package");
+            }
+            items = restRequest.getData().getRequests();
+        } catch (Exception e) {
+            logger.warn("Process request error:", e);
+            setErrorResponse(restResponse, e);
+
+            DeferredResult<RestResponse<BatchResponse>> deferredResult =
+                    new DeferredResult<RestResponse<BatchResponse>>();
+            deferredResult.setResult(restResponse);
+            return deferredResult;
+        }
+
+        // resources and accounts are looked up once per batch
+        List<BatchEntry> entries = new ArrayList<BatchEntry>();
+        Map<Path, Resource> resources = new HashMap<Path, Resource>();
+        Map<String, Account> accounts = new HashMap<String, Account>();
+        Map<Peer, Integer> peerBatchSizes = new HashMap<Peer, Integer>();
+        long timeout = 0;
+        for (BatchRequest.Item item : items) {
+            BatchEntry entry = new BatchEntry();
+            entries.add(entry);
+            try {
+                entry.path = decodePath(item.getPath());
+                if (!"call".equals(item.getMethod())
+                        && !"sendTransaction".equals(item.getMethod())) {
+                    throw new WeCrossException(
+                            WeCrossException.ErrorCode.METHOD_ERROR,
+                            "Unsupported method: " + item.getMethod());
+                }
+
+                entry.resource = resources.get(entry.path);
+                if (entry.resource == null) {
+                    entry.resource = host.getResource(entry.path);
+                    if (entry.resource == null) {
+                        throw new WeCrossException(
+                                WeCrossException.ErrorCode.RESOURCE_ERROR, "Resource not found");
+                    }
+
+                    HTLCManager htlcManager = host.getRoutineManager().getHtlcManager();
+                    entry.resource =
+                            htlcManager.filterHTLCResource(
+                                    host.getZoneManager(), entry.path, entry.resource);
+                    resources.put(entry.path, entry.resource);
+                }
+
+                if (!accounts.containsKey(item.getAccountName())) {
+                    accounts.put(
+                            item.getAccountName(),
+                            host.getAccountManager().getAccount(item.getAccountName()));
+                }
+                entry.account = accounts.get(item.getAccountName());
+
+                ResourceRequestLimiter.Limit limit = resourceRequestLimiter.getLimit(entry.path);
+                timeout = Math.max(timeout, limit.getTimeout());
+
+                // HTLC resources check requests themselves, they are sent one by one
+                Connection connection = entry.resource.chooseConnection();
+                if (!(entry.resource instanceof HTLCResource)
+                        && connection instanceof RemoteConnection) {
+                    // the peer chosen here is the one the request is batched to
+                    entry.connection = (RemoteConnection) connection;
+                    Peer peer = entry.connection.getPeer();
+                    Integer size = peerBatchSizes.get(peer);
+                    peerBatchSizes.put(peer, size == null ? 1 : size + 1);
+                }
+            } catch (Exception e) {
+                entry.error = e;
+            }
+        }
+
+        List<CompletableFuture<TransactionResponse>> futures =
+                new ArrayList<CompletableFuture<TransactionResponse>>();
+        Map<Peer, RemoteBatch> remoteBatches = new HashMap<Peer, RemoteBatch>();
+        for (int i = 0; i < entries.size(); ++i) {
+            futures.add(
+                    submitBatchEntry(entries.get(i), items.get(i), peerBatchSizes, remoteBatches));
+        }
+        logger.debug(
+                "Batch of {} requests, {} resources, {} peers",
+                items.size(),
+                resources.size(),
+                remoteBatches.size());
+
+        DeferredResult<RestResponse<BatchResponse>> deferredResult =
+                new DeferredResult<RestResponse<BatchResponse>>(timeout > 0 ? timeout : null);
+        deferredResult.onTimeout(
+                () -> {
+                    logger.warn("Batch request timeout");
+                    deferredResult.setResult(newBatchResponse(restResponse, futures));
+                });
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .whenComplete(
+                        (value, e) ->
+                                deferredResult.setResult(newBatchResponse(restResponse, futures)));
+        return deferredResult;
+    }
+
+    private Path decodePath(String path) throws WeCrossException {
+        try {
+            return Path.decode(path);
+        } catch (Exception e) {
+            throw new WeCrossException(WeCrossException.ErrorCode.PATH_ERROR, e.getMessage());
+        }
+    }
+
+    private CompletableFuture<TransactionResponse> submitBatchEntry(
+            BatchEntry entry,
+            BatchRequest.Item item,
+            Map<Peer, Integer> peerBatchSizes,
+            Map<Peer, RemoteBatch> remoteBatches) {
+        if (entry.error != null) {
+            CompletableFuture<TransactionResponse> future =
+                    new CompletableFuture<TransactionResponse>();
+            future.completeExceptionally(entry.error);
+            return future;
+        }
+
+        Resource resource = entry.resource;
+        boolean call = "call".equals(item.getMethod());
+        TransactionContext<TransactionRequest> context =
+                new TransactionContext<TransactionRequest>(
+                        item.getData(),
+                        entry.account,
+                        resource.getResourceInfo(),
+                        resource.getResourceBlockHeaderManager());
+
+        if (entry.connection == null) {
+            return resourceRequestLimiter.submit(
+                    entry.path,
+                    () ->
+                            call
+                                    ? resource.asyncCall(context)
+                                    : resource.asyncSendTransaction(context));
+        }
+
+        Peer peer = entry.connection.getPeer();
+        RemoteBatch remoteBatch = remoteBatches.get(peer);
+        if (remoteBatch == null) {
+            remoteBatch =
+                    new RemoteBatch(
+                            peer, entry.connection.getP2pEngine(), peerBatchSizes.get(peer));
+            if (host.getP2pService() != null) {
+                remoteBatch.setTimer(host.getP2pService().getTimer());
+            }
+            remoteBatches.put(peer, remoteBatch);
+        }
+
+        // the request the driver sends through it joins the batch of the peer
+        RemoteBatch.Item connection = remoteBatch.newItem(entry.connection);
+        // requests of a batch that never reached the peer fail over like single requests
+        connection.setFallback(resource.chooseConnection(call));
+        Supplier<CompletableFuture<TransactionResponse>> task =
+                () ->
+                        call
+                                ? resource.asyncCall(context, connection)
+                                : resource.asyncSendTransaction(context, connection);
+        CompletableFuture<TransactionResponse> future =
+                resourceRequestLimiter.submit(entry.path, task);
+        future.whenComplete((value, e) -> connection.settle());
+        return future;
+    }
+
+    // requests not completed yet are reported as timeout
+    private RestResponse<BatchResponse> newBatchResponse(
+            RestResponse<BatchResponse> restResponse,
+            List<CompletableFuture<TransactionResponse>> futures) {
+        List<BatchResponse.Item> results = new ArrayList<BatchResponse.Item>();
+        for (CompletableFuture<TransactionResponse> future : futures) {
+            BatchResponse.Item result = new BatchResponse.Item();
+            if (!future.isDone()) {
+                result.setErrorCode(
+                        NetworkQueryStatus.EXCEPTION_FLAG
+                                + WeCrossException.ErrorCode.REQUEST_TIMEOUT);
+                result.setMessage("Request timeout");
+            } else {
+                try {
+                    result.setData(future.getNow(null));
+                    result.setErrorCode(NetworkQueryStatus.SUCCESS);
+                    result.setMessage(
+                            NetworkQueryStatus.getStatusMessage(NetworkQueryStatus.SUCCESS));
+                } catch (CompletionException e) {
+                    result.setErrorCode(getErrorCode(e.getCause()));
+                    result.setMessage(e.getCause().getMessage());
+                }
+            }
+            results.add(result);
+        }
+
+        BatchResponse batchResponse = new BatchResponse();
+        batchResponse.setResults(results);
+
+        RestResponse<BatchResponse> response = new RestResponse<BatchResponse>();
+        response.setVersion(restResponse.getVersion());
+        response.setErrorCode(restResponse.getErrorCode());
+        response.setMessage(restResponse.getMessage());
+        response.setData(batchResponse);
+        return response;
+    }
+
+    private void setResultOnComplete(
+            DeferredResult<RestResponse<Object>> deferredResult,
+            RestResponse<Object> restResponse,
+            CompletableFuture<TransactionResponse> future,
+            String method) {
+        future.whenComplete(
+                (transactionResponse, e) -> {
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        logger.warn("Process {} error:", method, cause);
+                        setErrorResponse(restResponse, cause);
+                    } else {
+                        logger.trace("{} response: {}", method, transactionResponse);
+                        restResponse.setData(transactionResponse);
+                    }
+                    deferredResult.setResult(restResponse);
+                });
+    }
+
+    private int getErrorCode(Throwable e) {
+        if (e instanceof WeCrossException) {
+            return NetworkQueryStatus.EXCEPTION_FLAG + ((WeCrossException) e).getErrorCode();
+        }
+        return NetworkQueryStatus.INTERNAL_ERROR;
+    }
+
+    private void setErrorResponse(RestResponse<?> restResponse, Throwable e) {
+        restResponse.setErrorCode(getErrorCode(e));
+        restResponse.setMessage(e.getLocalizedMessage());
     }
 }
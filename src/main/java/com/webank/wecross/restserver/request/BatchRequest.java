@@ -0,0 +1,55 @@
+package com.webank.wecross.restserver.request;
+
+import com.webank.wecross.stub.TransactionRequest;
+import java.util.List;
+
+public class BatchRequest {
+    public static class Item {
+        private String path; // zone.chain.resource
+        private String method; // call or sendTransaction
+        private String accountName;
+        private TransactionRequest data;
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public String getMethod() {
+            return method;
+        }
+
+        public void setMethod(String method) {
+            this.method = method;
+        }
+
+        public String getAccountName() {
+            return accountName;
+        }
+
+        public void setAccountName(String accountName) {
+            this.accountName = accountName;
+        }
+
+        public TransactionRequest getData() {
+            return data;
+        }
+
+        public void setData(TransactionRequest data) {
+            this.data = data;
+        }
+    }
+
+    private List<Item> requests;
+
+    public List<Item> getRequests() {
+        return requests;
+    }
+
+    public void setRequests(List<Item> requests) {
+        this.requests = requests;
+    }
+}
@@ -0,0 +1,47 @@
+package com.webank.wecross.restserver.response;
+
+import com.webank.wecross.stub.TransactionResponse;
+import java.util.List;
+
+public class BatchResponse {
+    // result of one request, errorCode and message as in RestResponse
+    public static class Item {
+        private int errorCode;
+        private String message;
+        private TransactionResponse data;
+
+        public int getErrorCode() {
+            return errorCode;
+        }
+
+        public void setErrorCode(int errorCode) {
+            this.errorCode = errorCode;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        public TransactionResponse getData() {
+            return data;
+        }
+
+        public void setData(TransactionResponse data) {
+            this.data = data;
+        }
+    }
+
+    private List<Item> results; // in the order of requests
+
+    public List<Item> getResults() {
+        return results;
+    }
+
+    public void setResults(List<Item> results) {
+        this.results = results;
+    }
+}
@@ -18,6 +18,7 @@ import com.webank.wecross.stub.Response;
 import com.webank.wecross.stub.TransactionContext;
 import com.webank.wecross.stub.TransactionRequest;
 import com.webank.wecross.stub.TransactionResponse;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -72,6 +73,27 @@ public class HTLCResource extends Resource {
         return getSelfResource().sendTransaction(request);
     }
 
+    @Override
+    public CompletableFuture<TransactionResponse> asyncCall(
+            TransactionContext<TransactionRequest> request) {
+        return getSelfResource().asyncCall(request);
+    }
+
+    @Override
+    public CompletableFuture<TransactionResponse> asyncSendTransaction(
+            TransactionContext<TransactionRequest> request) {
+        try {
+            handleSendTransactionRequest(request.getData());
+        } catch (WeCrossException e) {
+            TransactionResponse transactionResponse = new TransactionResponse();
+            transactionResponse.setErrorCode(e.getErrorCode());
+            transactionResponse.setErrorMessage(e.getMessage());
+            return CompletableFuture.completedFuture(transactionResponse);
+        }
+
+        return getSelfResource().asyncSendTransaction(request);
+    }
+
     public void handleSendTransactionRequest(TransactionRequest request) throws WeCrossException {
         if (request.getMethod().equals("unlock")) {
             verifyLock(request);
@@ -0,0 +1,61 @@
+package com.webank.wecross.storage;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+// bytes shared by block header caches. When they are over it together, each cache shrinks to an
+// equal share, so an idle chain gives back what a busy one needs. Pinned headers count against
+// it but are never evicted, they may take the caches over it
+public class BlockHeaderCacheBudget {
+    private long maxBytes;
+    private AtomicLong bytes = new AtomicLong(0);
+    private List<CachedBlockHeaderStorage> caches =
+            new CopyOnWriteArrayList<CachedBlockHeaderStorage>();
+
+    public BlockHeaderCacheBudget(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public void register(CachedBlockHeaderStorage cache) {
+        caches.add(cache);
+    }
+
+    public void unregister(CachedBlockHeaderStorage cache) {
+        caches.remove(cache);
+    }
+
+    public long getShare() {
+        return maxBytes / Math.max(1, caches.size());
+    }
+
+    public boolean isExceeded() {
+        return bytes.get() > maxBytes;
+    }
+
+    void add(long delta) {
+        bytes.addAndGet(delta);
+    }
+
+    // caches over their share shrink to it, called without holding the lock of any cache
+    public void rebalance() {
+        for (CachedBlockHeaderStorage cache : caches) {
+            if (!isExceeded()) {
+                return;
+            }
+            cache.shrink(getShare());
+        }
+    }
+
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+}
@@ -1,12 +1,48 @@
 package com.webank.wecross.storage;
 
+import com.webank.wecross.stub.BlockHeader;
+import com.webank.wecross.stub.Driver;
+import java.util.ArrayList;
+import java.util.List;
+
 // storage for one stub
 public interface BlockHeaderStorage {
     public long readBlockNumber();
 
     public byte[] readBlockHeader(long blockNumber);
 
+    // decoded header, storages caching decoded headers skip the driver
+    public default BlockHeader readDecodedBlockHeader(long blockNumber, Driver driver) {
+        byte[] blockHeader = readBlockHeader(blockNumber);
+        return blockHeader == null ? null : driver.decodeBlockHeader(blockHeader);
+    }
+
+    // stored block headers in [fromBlockNumber, toBlockNumber] in block order, stop at a gap
+    public default List<byte[]> readBlockHeaders(long fromBlockNumber, long toBlockNumber) {
+        List<byte[]> blockHeaders = new ArrayList<byte[]>();
+        for (long blockNumber = fromBlockNumber; blockNumber <= toBlockNumber; ++blockNumber) {
+            byte[] blockHeader = readBlockHeader(blockNumber);
+            if (blockHeader == null) {
+                break;
+            }
+            blockHeaders.add(blockHeader);
+        }
+        return blockHeaders;
+    }
+
     public void writeBlockHeader(long blockNumber, byte[] blockHeader);
 
+    // write blockHeaders[i] as block (startBlockNumber + i) atomically, the last one becomes tip,
+    // false if nothing is written
+    public boolean writeBlockHeaders(long startBlockNumber, List<byte[]> blockHeaders);
+
+    // headers below it may have been pruned, except checkpoints
+    public default long readRetainedBlockNumber() {
+        return 0;
+    }
+
+    // delete headers below toBlockNumber, keeping every checkpointInterval-th one if positive
+    public default void pruneBlockHeaders(long toBlockNumber, long checkpointInterval) {}
+
     public void close();
 }
@@ -2,4 +2,9 @@ package com.webank.wecross.storage;
 
 public interface BlockHeaderStorageFactory {
     public BlockHeaderStorage newBlockHeaderStorage(String path);
+
+    // delete stored block headers of a closed storage, if the factory supports it
+    public default void dropBlockHeaderStorage(String path) {}
+
+    public default void close() {}
 }
@@ -0,0 +1,284 @@
+package com.webank.wecross.storage;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBatch;
+import org.rocksdb.WriteOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// one writer thread for block headers of all chains, queued writes to the same db are committed
+// in one batch
+public class BlockHeaderWriter {
+    public enum FsyncPolicy {
+        NONE, // leave WAL syncing to the OS
+        ALWAYS, // sync the WAL on every group commit
+        INTERVAL // sync the WAL of written dbs every fsyncInterval
+    }
+
+    private Logger logger = LoggerFactory.getLogger(BlockHeaderWriter.class);
+
+    private BlockingQueue<WriteRequest> queue = new LinkedBlockingQueue<WriteRequest>();
+    private int maxGroupSize = 256; // write requests in one group
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.NONE;
+    private long fsyncInterval = 1000; // ms
+
+    private Thread thread;
+    private volatile boolean running = false;
+
+    // reused by the writer thread for every group
+    private WriteBatch writeBatch;
+    private WriteOptions writeOptions;
+    private Map<RocksDB, Boolean> unsyncedDBs = new IdentityHashMap<RocksDB, Boolean>();
+    private long lastSyncTime = 0;
+
+    private static class WriteRequest {
+        private RocksDBBlockHeaderStorage storage;
+        private long startBlockNumber;
+        private List<byte[]> blockHeaders; // null to release the storage
+        private CompletableFuture<Void> future = new CompletableFuture<Void>();
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+
+        writeBatch = new WriteBatch();
+        writeOptions = new WriteOptions();
+        writeOptions.setSync(fsyncPolicy == FsyncPolicy.ALWAYS);
+
+        running = true;
+        thread =
+                new Thread(
+                        new Runnable() {
+                            @Override
+                            public void run() {
+                                writeLoop();
+                            }
+                        },
+                        "block-header-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeBatch.close();
+        writeOptions.close();
+    }
+
+    public CompletableFuture<Void> submit(
+            RocksDBBlockHeaderStorage storage, long startBlockNumber, List<byte[]> blockHeaders) {
+        WriteRequest request = new WriteRequest();
+        request.storage = storage;
+        request.startBlockNumber = startBlockNumber;
+        request.blockHeaders = blockHeaders;
+
+        if (!enqueue(request)) {
+            request.future.completeExceptionally(
+                    new IllegalStateException("Block header writer is stopped"));
+        }
+        return request.future;
+    }
+
+    // with the lock of stop(), every queued request is drained before the writer thread exits
+    private synchronized boolean enqueue(WriteRequest request) {
+        if (!running) {
+            return false;
+        }
+
+        queue.add(request);
+        return true;
+    }
+
+    // returns when the headers are readable from the storage, false if they are not written
+    public boolean write(
+            RocksDBBlockHeaderStorage storage, long startBlockNumber, List<byte[]> blockHeaders) {
+        try {
+            submit(storage, startBlockNumber, blockHeaders).get();
+            return true;
+        } catch (InterruptedException e) {
+            logger.warn("Write block headers interrupted");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.error("Write block headers error", e.getCause());
+        }
+        return false;
+    }
+
+    // waits for the queued writes of storage and syncs its WAL, call before its db is closed
+    public void release(RocksDBBlockHeaderStorage storage) {
+        WriteRequest request = new WriteRequest();
+        request.storage = storage;
+        if (!enqueue(request)) {
+            return; // stopped, nothing refers to the db any more
+        }
+
+        try {
+            request.future.get();
+        } catch (InterruptedException e) {
+            logger.warn("Release block header storage interrupted");
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Release block header storage error", e.getCause());
+        }
+    }
+
+    private void writeLoop() {
+        List<WriteRequest> group = new ArrayList<WriteRequest>();
+        // drain the queue before exiting
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteRequest request = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (request != null) {
+                    group.add(request);
+                    queue.drainTo(group, maxGroupSize - 1);
+                    commit(group);
+                    group.clear();
+                }
+
+                if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+                    syncWal(false);
+                }
+            } catch (InterruptedException e) {
+                // stop() waits for the queue to drain, keep going
+            } catch (Exception e) {
+                logger.error("Block header writer error", e);
+            }
+        }
+
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            syncWal(true);
+        }
+    }
+
+    private void commit(List<WriteRequest> group) {
+        Map<RocksDB, List<WriteRequest>> groupByDB =
+                new IdentityHashMap<RocksDB, List<WriteRequest>>();
+        List<WriteRequest> releases = new ArrayList<WriteRequest>();
+        for (WriteRequest request : group) {
+            if (request.blockHeaders == null) {
+                releases.add(request);
+                continue;
+            }
+
+            List<WriteRequest> requests = groupByDB.get(request.storage.getRocksDB());
+            if (requests == null) {
+                requests = new ArrayList<WriteRequest>();
+                groupByDB.put(request.storage.getRocksDB(), requests);
+            }
+            requests.add(request);
+        }
+
+        for (Map.Entry<RocksDB, List<WriteRequest>> entry : groupByDB.entrySet()) {
+            List<WriteRequest> requests = entry.getValue();
+            try {
+                writeBatch.clear();
+                List<WriteRequest> batched = new ArrayList<WriteRequest>();
+                for (WriteRequest request : requests) {
+                    // a request failing alone, e.g. of a storage closed while queued, is left out
+                    // and the other chains of a shared db are still written
+                    writeBatch.setSavePoint();
+                    try {
+                        request.storage.putBlockHeaders(
+                                writeBatch, request.startBlockNumber, request.blockHeaders);
+                        batched.add(request);
+                    } catch (Exception e) {
+                        writeBatch.rollbackToSavePoint();
+                        request.future.completeExceptionally(e);
+                    }
+                }
+                if (writeBatch.count() > 0) {
+                    entry.getKey().write(writeOptions, writeBatch);
+                    if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+                        unsyncedDBs.put(entry.getKey(), Boolean.TRUE);
+                    }
+                }
+
+                for (WriteRequest request : batched) {
+                    request.future.complete(null);
+                }
+            } catch (Exception e) {
+                // completed requests are not changed
+                for (WriteRequest request : requests) {
+                    request.future.completeExceptionally(e);
+                }
+            }
+        }
+
+        // after the writes of the group, nothing refers to a released db afterwards
+        for (WriteRequest request : releases) {
+            RocksDB rocksDB = request.storage.getRocksDB();
+            if (unsyncedDBs.remove(rocksDB) != null) {
+                try {
+                    rocksDB.syncWal();
+                } catch (RocksDBException e) {
+                    logger.warn("Sync WAL error", e);
+                }
+            }
+            request.future.complete(null);
+        }
+    }
+
+    private void syncWal(boolean force) {
+        long now = System.currentTimeMillis();
+        if (unsyncedDBs.isEmpty() || (!force && now - lastSyncTime < fsyncInterval)) {
+            return;
+        }
+
+        Set<RocksDB> rocksDBs = unsyncedDBs.keySet();
+        for (RocksDB rocksDB : rocksDBs) {
+            try {
+                rocksDB.syncWal();
+            } catch (RocksDBException e) {
+                logger.warn("Sync WAL error", e);
+            }
+        }
+        unsyncedDBs.clear();
+        lastSyncTime = now;
+    }
+
+    public int getMaxGroupSize() {
+        return maxGroupSize;
+    }
+
+    public void setMaxGroupSize(int maxGroupSize) {
+        this.maxGroupSize = maxGroupSize;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public void setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+    }
+
+    public long getFsyncInterval() {
+        return fsyncInterval;
+    }
+
+    public void setFsyncInterval(long fsyncInterval) {
+        this.fsyncInterval = fsyncInterval;
+    }
+}
@@ -0,0 +1,288 @@
+package com.webank.wecross.storage;
+
+import com.webank.wecross.stub.BlockHeader;
+import com.webank.wecross.stub.Driver;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+// LRU cache of raw and decoded block headers in front of another storage, bounded by a byte
+// budget it may share with the caches of other chains
+public class CachedBlockHeaderStorage implements BlockHeaderStorage {
+    private static final long ENTRY_OVERHEAD = 64; // bytes, map entry and boxed key
+    private static final long DECODED_OVERHEAD = 256; // bytes, rough size of a BlockHeader
+
+    private BlockHeaderStorage blockHeaderStorage;
+    private BlockHeaderCacheBudget budget = new BlockHeaderCacheBudget(16 * 1024 * 1024);
+    private int pinnedBlockNum = 64; // latest headers never evicted
+
+    private LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+    private long cacheBytes = 0; // guarded by entries
+    private long tipBlockNumber = -1; // guarded by entries
+
+    private AtomicLong hits = new AtomicLong(0);
+    private AtomicLong misses = new AtomicLong(0);
+    private AtomicLong evictions = new AtomicLong(0);
+
+    private static class Entry {
+        private byte[] data;
+        private volatile BlockHeader blockHeader;
+
+        private Entry(byte[] data) {
+            this.data = data;
+        }
+
+        private long size() {
+            return ENTRY_OVERHEAD + data.length + (blockHeader == null ? 0 : DECODED_OVERHEAD);
+        }
+    }
+
+    public CachedBlockHeaderStorage(BlockHeaderStorage blockHeaderStorage) {
+        this.blockHeaderStorage = blockHeaderStorage;
+        budget.register(this);
+    }
+
+    @Override
+    public long readBlockNumber() {
+        return blockHeaderStorage.readBlockNumber();
+    }
+
+    @Override
+    public byte[] readBlockHeader(long blockNumber) {
+        Entry entry = getEntry(blockNumber);
+        return entry == null ? null : entry.data;
+    }
+
+    @Override
+    public BlockHeader readDecodedBlockHeader(long blockNumber, Driver driver) {
+        Entry entry = getEntry(blockNumber);
+        if (entry == null) {
+            return null;
+        }
+
+        BlockHeader blockHeader = entry.blockHeader;
+        if (blockHeader == null) {
+            blockHeader = driver.decodeBlockHeader(entry.data);
+            if (blockHeader != null) {
+                synchronized (entries) {
+                    if (entry.blockHeader == null && entries.get(blockNumber) == entry) {
+                        entry.blockHeader = blockHeader;
+                        addCacheBytes(DECODED_OVERHEAD);
+                        evict();
+                    }
+                }
+                budget.rebalance();
+            }
+        }
+        return blockHeader;
+    }
+
+    // ranges are mostly old headers served to peers, scan the storage without filling the cache
+    @Override
+    public List<byte[]> readBlockHeaders(long fromBlockNumber, long toBlockNumber) {
+        return blockHeaderStorage.readBlockHeaders(fromBlockNumber, toBlockNumber);
+    }
+
+    @Override
+    public void writeBlockHeader(long blockNumber, byte[] blockHeader) {
+        blockHeaderStorage.writeBlockHeader(blockNumber, blockHeader);
+        synchronized (entries) {
+            put(blockNumber, blockHeader);
+            tipBlockNumber = Math.max(tipBlockNumber, blockNumber);
+            evict();
+        }
+        budget.rebalance();
+    }
+
+    @Override
+    public boolean writeBlockHeaders(long startBlockNumber, List<byte[]> blockHeaders) {
+        // only headers in the storage are cached
+        if (!blockHeaderStorage.writeBlockHeaders(startBlockNumber, blockHeaders)) {
+            return false;
+        }
+
+        if (blockHeaders.isEmpty()) {
+            return true;
+        }
+
+        synchronized (entries) {
+            long blockNumber = startBlockNumber;
+            for (byte[] blockHeader : blockHeaders) {
+                put(blockNumber, blockHeader);
+                ++blockNumber;
+            }
+            tipBlockNumber = Math.max(tipBlockNumber, blockNumber - 1);
+            evict();
+        }
+        budget.rebalance();
+        return true;
+    }
+
+    @Override
+    public long readRetainedBlockNumber() {
+        return blockHeaderStorage.readRetainedBlockNumber();
+    }
+
+    @Override
+    public void pruneBlockHeaders(long toBlockNumber, long checkpointInterval) {
+        blockHeaderStorage.pruneBlockHeaders(toBlockNumber, checkpointInterval);
+
+        synchronized (entries) {
+            Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Entry> entry = iterator.next();
+                long blockNumber = entry.getKey();
+                if (blockNumber < toBlockNumber
+                        && (checkpointInterval <= 0 || blockNumber % checkpointInterval != 0)) {
+                    addCacheBytes(-entry.getValue().size());
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (entries) {
+            entries.clear();
+            addCacheBytes(-cacheBytes);
+        }
+        budget.unregister(this);
+        blockHeaderStorage.close();
+    }
+
+    private Entry getEntry(long blockNumber) {
+        synchronized (entries) {
+            Entry entry = entries.get(blockNumber);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return entry;
+            }
+        }
+
+        misses.incrementAndGet();
+        byte[] data = blockHeaderStorage.readBlockHeader(blockNumber);
+        if (data == null) {
+            return null;
+        }
+
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(blockNumber);
+            if (entry == null) {
+                entry = put(blockNumber, data);
+                evict();
+            }
+        }
+        budget.rebalance();
+        return entry;
+    }
+
+    // must hold entries
+    private Entry put(long blockNumber, byte[] data) {
+        Entry entry = new Entry(data);
+        Entry old = entries.put(blockNumber, entry);
+        if (old != null) {
+            addCacheBytes(-old.size());
+        }
+        addCacheBytes(entry.size());
+        return entry;
+    }
+
+    // must hold entries
+    private void addCacheBytes(long delta) {
+        cacheBytes += delta;
+        budget.add(delta);
+    }
+
+    // must hold entries
+    private void evict() {
+        evict(budget.getShare());
+    }
+
+    // called by the budget when the caches are over it
+    void shrink(long share) {
+        synchronized (entries) {
+            evict(share);
+        }
+    }
+
+    // must hold entries, drop least recently used headers except the pinned latest ones while the
+    // budget is exceeded and this cache is over its share, other caches shrink to theirs then
+    private void evict(long share) {
+        Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+        while (budget.isExceeded() && cacheBytes > share && iterator.hasNext()) {
+            Map.Entry<Long, Entry> entry = iterator.next();
+            if (entry.getKey() > tipBlockNumber - pinnedBlockNum) {
+                continue;
+            }
+
+            addCacheBytes(-entry.getValue().size());
+            iterator.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getCacheBytes() {
+        synchronized (entries) {
+            return cacheBytes;
+        }
+    }
+
+    public int getCacheSize() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public BlockHeaderStorage getBlockHeaderStorage() {
+        return blockHeaderStorage;
+    }
+
+    public BlockHeaderCacheBudget getBudget() {
+        return budget;
+    }
+
+    // set before the cache is used
+    public void setBudget(BlockHeaderCacheBudget budget) {
+        this.budget.unregister(this);
+        this.budget = budget;
+        budget.register(this);
+    }
+
+    public int getPinnedBlockNum() {
+        return pinnedBlockNum;
+    }
+
+    public void setPinnedBlockNum(int pinnedBlockNum) {
+        this.pinnedBlockNum = pinnedBlockNum;
+    }
+
+    @Override
+    public String toString() {
+        return "CachedBlockHeaderStorage{"
+                + "hits="
+                + hits
+                + ", misses="
+                + misses
+                + ", evictions="
+                + evictions
+                + ", cacheBytes="
+                + getCacheBytes()
+                + "}";
+    }
+}
@@ -0,0 +1,53 @@
+package com.webank.wecross.storage;
+
+// wraps storages of another factory with a CachedBlockHeaderStorage each, all of them share one
+// byte budget
+public class CachedBlockHeaderStorageFactory implements BlockHeaderStorageFactory {
+    private BlockHeaderStorageFactory blockHeaderStorageFactory;
+    private BlockHeaderCacheBudget budget = new BlockHeaderCacheBudget(16 * 1024 * 1024);
+    private int pinnedBlockNum = 64;
+
+    public CachedBlockHeaderStorageFactory(BlockHeaderStorageFactory blockHeaderStorageFactory) {
+        this.blockHeaderStorageFactory = blockHeaderStorageFactory;
+    }
+
+    @Override
+    public BlockHeaderStorage newBlockHeaderStorage(String path) {
+        CachedBlockHeaderStorage cachedBlockHeaderStorage =
+                new CachedBlockHeaderStorage(
+                        blockHeaderStorageFactory.newBlockHeaderStorage(path));
+        cachedBlockHeaderStorage.setBudget(budget);
+        cachedBlockHeaderStorage.setPinnedBlockNum(pinnedBlockNum);
+        return cachedBlockHeaderStorage;
+    }
+
+    @Override
+    public void dropBlockHeaderStorage(String path) {
+        blockHeaderStorageFactory.dropBlockHeaderStorage(path);
+    }
+
+    @Override
+    public void close() {
+        blockHeaderStorageFactory.close();
+    }
+
+    public long getMaxCacheBytes() {
+        return budget.getMaxBytes();
+    }
+
+    public void setMaxCacheBytes(long maxCacheBytes) {
+        budget.setMaxBytes(maxCacheBytes);
+    }
+
+    public long getCacheBytes() {
+        return budget.getBytes();
+    }
+
+    public int getPinnedBlockNum() {
+        return pinnedBlockNum;
+    }
+
+    public void setPinnedBlockNum(int pinnedBlockNum) {
+        this.pinnedBlockNum = pinnedBlockNum;
+    }
+}
@@ -0,0 +1,330 @@
+package com.webank.wecross.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.CRC32;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// block headers of one chain appended to memory mapped segment files, located by offset arrays
+// record: length(4) blockNumber(8) crc32(4) data(length)
+public class MappedBlockHeaderStorage implements BlockHeaderStorage {
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    private Logger logger = LoggerFactory.getLogger(MappedBlockHeaderStorage.class);
+
+    private File dir;
+    private int segmentSize = 64 * 1024 * 1024;
+    private boolean syncWrites = false; // force mapped pages to disk on each write
+
+    private List<Segment> segments = new CopyOnWriteArrayList<Segment>();
+    private volatile long tipBlockNumber = -1;
+    private volatile boolean closed = false;
+
+    private static class Segment {
+        private long firstBlockNumber;
+        private File file;
+        private MappedByteBuffer buffer; // stays valid after the channel is closed
+        private volatile int[] offsets = new int[1024];
+        private int count = 0; // guarded by the writer
+        private int writePosition = 0; // guarded by the writer
+
+        private long lastBlockNumber() {
+            return firstBlockNumber + count - 1;
+        }
+    }
+
+    public MappedBlockHeaderStorage(File dir) {
+        this.dir = dir;
+    }
+
+    // scan segments, drop a torn tail left by a crash
+    public synchronized void open() throws IOException {
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+
+        File[] files = dir.listFiles((d, name) -> name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) {
+            throw new IOException("Could not list segments in " + dir);
+        }
+        Arrays.sort(files);
+
+        boolean truncated = false;
+        for (File file : files) {
+            if (truncated) {
+                logger.warn("Delete segment after a broken record: {}", file);
+                file.delete();
+                continue;
+            }
+
+            String name = file.getName();
+            long firstBlockNumber =
+                    Long.valueOf(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            if (!segments.isEmpty() && firstBlockNumber != tipBlockNumber + 1) {
+                logger.warn("Delete discontinuous segment: {}", file);
+                file.delete();
+                truncated = true;
+                continue;
+            }
+
+            Segment segment = mapSegment(file, firstBlockNumber, (int) file.length());
+            truncated = !recover(segment);
+            segments.add(segment);
+            if (segment.count > 0) {
+                tipBlockNumber = segment.lastBlockNumber();
+            }
+        }
+    }
+
+    private Segment mapSegment(File file, long firstBlockNumber, int size) throws IOException {
+        Segment segment = new Segment();
+        segment.firstBlockNumber = firstBlockNumber;
+        segment.file = file;
+        try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+                FileChannel channel = randomAccessFile.getChannel()) {
+            segment.buffer =
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, segmentSize));
+        }
+        return segment;
+    }
+
+    // returns false if a broken record was found and cleared
+    private boolean recover(Segment segment) {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        CRC32 crc32 = new CRC32();
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int position = buffer.position();
+            int length = buffer.getInt();
+            long blockNumber = buffer.getLong();
+            int crc = buffer.getInt();
+            if (length == 0 && blockNumber == 0 && crc == 0) {
+                return true;
+            }
+
+            if (length < 0
+                    || length > buffer.remaining()
+                    || blockNumber != segment.firstBlockNumber + segment.count) {
+                clearTail(segment, position);
+                return false;
+            }
+
+            byte[] data = new byte[length];
+            buffer.get(data);
+            crc32.reset();
+            crc32.update(data);
+            if ((int) crc32.getValue() != crc) {
+                clearTail(segment, position);
+                return false;
+            }
+
+            addOffset(segment, position);
+            segment.writePosition = buffer.position();
+        }
+        return true;
+    }
+
+    private void clearTail(Segment segment, int position) {
+        logger.warn(
+                "Truncate broken tail of {} at {}, last block: {}",
+                segment.file,
+                position,
+                segment.lastBlockNumber());
+
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(position);
+        byte[] zeros = new byte[4096];
+        while (buffer.hasRemaining()) {
+            buffer.put(zeros, 0, Math.min(zeros.length, buffer.remaining()));
+        }
+        segment.buffer.force();
+        segment.writePosition = position;
+    }
+
+    private void addOffset(Segment segment, int position) {
+        int[] offsets = segment.offsets;
+        if (segment.count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        offsets[segment.count] = position;
+        segment.offsets = offsets;
+        ++segment.count;
+    }
+
+    private Segment findSegment(long blockNumber) {
+        List<Segment> current = segments;
+        int low = 0;
+        int high = current.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            Segment segment = current.get(middle);
+            if (blockNumber < segment.firstBlockNumber) {
+                high = middle - 1;
+            } else if (blockNumber > segment.lastBlockNumber()) {
+                low = middle + 1;
+            } else {
+                return segment;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public long readBlockNumber() {
+        return tipBlockNumber;
+    }
+
+    @Override
+    public byte[] readBlockHeader(long blockNumber) {
+        if (closed || blockNumber < 0 || blockNumber > tipBlockNumber) {
+            return null;
+        }
+
+        Segment segment = findSegment(blockNumber);
+        if (segment == null) {
+            return null;
+        }
+
+        int position = segment.offsets[(int) (blockNumber - segment.firstBlockNumber)];
+        ByteBuffer buffer = segment.buffer.duplicate();
+        byte[] data = new byte[buffer.getInt(position)];
+        buffer.position(position + RECORD_HEADER_SIZE);
+        buffer.get(data);
+        return data;
+    }
+
+    @Override
+    public void writeBlockHeader(long blockNumber, byte[] blockHeader) {
+        writeBlockHeaders(blockNumber, Collections.singletonList(blockHeader));
+    }
+
+    // appends only, the tip moves after all records are in place
+    @Override
+    public synchronized boolean writeBlockHeaders(
+            long startBlockNumber, List<byte[]> blockHeaders) {
+        if (closed) {
+            logger.warn("Write block headers error: storage has been closed");
+            return false;
+        }
+
+        if (blockHeaders.isEmpty()) {
+            return true;
+        }
+
+        if (!segments.isEmpty() && startBlockNumber != tipBlockNumber + 1) {
+            logger.error(
+                    "Write block headers error: not appending, start: {} tip: {}",
+                    startBlockNumber,
+                    tipBlockNumber);
+            return false;
+        }
+
+        try {
+            CRC32 crc32 = new CRC32();
+            List<Segment> touched = new ArrayList<Segment>();
+            long blockNumber = startBlockNumber;
+            for (byte[] blockHeader : blockHeaders) {
+                int recordSize = RECORD_HEADER_SIZE + blockHeader.length;
+                Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+                if (segment == null
+                        || segment.buffer.capacity() - segment.writePosition < recordSize) {
+                    segment = newSegment(blockNumber, recordSize);
+                }
+
+                crc32.reset();
+                crc32.update(blockHeader);
+
+                ByteBuffer buffer = segment.buffer.duplicate();
+                buffer.position(segment.writePosition);
+                buffer.putInt(blockHeader.length);
+                buffer.putLong(blockNumber);
+                buffer.putInt((int) crc32.getValue());
+                buffer.put(blockHeader);
+
+                addOffset(segment, segment.writePosition);
+                segment.writePosition = buffer.position();
+                if (!touched.contains(segment)) {
+                    touched.add(segment);
+                }
+                ++blockNumber;
+            }
+
+            if (syncWrites) {
+                for (Segment segment : touched) {
+                    segment.buffer.force();
+                }
+            }
+            tipBlockNumber = blockNumber - 1;
+            return true;
+        } catch (IOException e) {
+            logger.error("Write block headers error", e);
+        }
+        return false;
+    }
+
+    private Segment newSegment(long firstBlockNumber, int recordSize) throws IOException {
+        File file = new File(dir, String.format("%020d", firstBlockNumber) + SEGMENT_SUFFIX);
+        Segment segment = mapSegment(file, firstBlockNumber, recordSize);
+        segments.add(segment);
+        return segment;
+    }
+
+    @Override
+    public long readRetainedBlockNumber() {
+        return segments.isEmpty() ? 0 : segments.get(0).firstBlockNumber;
+    }
+
+    // whole segments are deleted, checkpoints would keep every segment so they are not supported.
+    // Readers hold no lock, so a deleted segment is not unmapped, its mapping goes with gc
+    @Override
+    public synchronized void pruneBlockHeaders(long toBlockNumber, long checkpointInterval) {
+        if (checkpointInterval > 0) {
+            logger.warn("Checkpoints are not supported by mapped storage, skip pruning");
+            return;
+        }
+
+        // the last segment is always kept for appending
+        while (segments.size() > 1 && segments.get(0).lastBlockNumber() < toBlockNumber) {
+            Segment segment = segments.remove(0);
+            if (!segment.file.delete()) {
+                logger.warn("Delete segment failed: {}", segment.file);
+            }
+        }
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public boolean isSyncWrites() {
+        return syncWrites;
+    }
+
+    public void setSyncWrites(boolean syncWrites) {
+        this.syncWrites = syncWrites;
+    }
+
+    // segments stay mapped until gc, like pruned ones
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Segment segment : segments) {
+            segment.buffer.force();
+        }
+        segments.clear();
+    }
+}
@@ -0,0 +1,55 @@
+package com.webank.wecross.storage;
+
+import java.io.File;
+import java.io.IOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class MappedBlockHeaderStorageFactory implements BlockHeaderStorageFactory {
+    private Logger logger = LoggerFactory.getLogger(MappedBlockHeaderStorageFactory.class);
+    private String basePath;
+    private int segmentSize = 64 * 1024 * 1024;
+    private boolean syncWrites = false;
+
+    @Override
+    public BlockHeaderStorage newBlockHeaderStorage(String path) {
+        MappedBlockHeaderStorage mappedBlockHeaderStorage =
+                new MappedBlockHeaderStorage(new File(basePath + "/" + path + "/headers"));
+        mappedBlockHeaderStorage.setSegmentSize(segmentSize);
+        mappedBlockHeaderStorage.setSyncWrites(syncWrites);
+        try {
+            mappedBlockHeaderStorage.open();
+        } catch (IOException e) {
+            logger.error("Open mapped block header storage failed, path: {}", path, e);
+
+            // a storage without its segments would look empty and fail every write
+            mappedBlockHeaderStorage.close();
+            throw new IllegalStateException("Open block header storage " + path + " failed", e);
+        }
+        return mappedBlockHeaderStorage;
+    }
+
+    public String getBasePath() {
+        return basePath;
+    }
+
+    public void setBasePath(String basePath) {
+        this.basePath = basePath;
+    }
+
+    public int getSegmentSize() {
+        return segmentSize;
+    }
+
+    public void setSegmentSize(int segmentSize) {
+        this.segmentSize = segmentSize;
+    }
+
+    public boolean isSyncWrites() {
+        return syncWrites;
+    }
+
+    public void setSyncWrites(boolean syncWrites) {
+        this.syncWrites = syncWrites;
+    }
+}
@@ -1,22 +1,52 @@
 package com.webank.wecross.storage;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ReadOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.RocksIterator;
+import org.rocksdb.Slice;
 import org.rocksdb.WriteBatch;
 import org.rocksdb.WriteOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+// block headers of one chain in a column family, keyed by 8 bytes big-endian block number
 public class RocksDBBlockHeaderStorage implements BlockHeaderStorage {
-    private boolean dbClosed = false;
+    public static final int FORMAT_VERSION = 2;
+    public static final int KEY_LENGTH = 8;
 
-    private RocksDB rocksDB;
+    // meta keys sort after every block key
+    private static final byte[] tipKey = encodeBlockNumber(-1);
+    private static final byte[] versionKey = encodeBlockNumber(-2);
+    private static final byte[] retainedKey = encodeBlockNumber(-3);
+
+    // layout of format version 1, in the default column family
+    private static final String legacyNumberKey = "number";
+    private static final String legacyBlockKeyPrefix = "block_";
+    private static final int migrateBatchSize = 1000;
+
+    private volatile boolean dbClosed = false;
 
-    private static final String numberKey = "number";
-    private static final String blockKeyPrefix = "block_";
+    private RocksDB rocksDB;
+    private ColumnFamilyHandle columnFamilyHandle;
+    private boolean ownRocksDB = true; // false if the db and column family belong to the factory
+    private BlockHeaderWriter blockHeaderWriter; // group commits, null to write on the caller
 
     private Logger logger = LoggerFactory.getLogger(RocksDBBlockHeaderStorage.class);
 
+    public static byte[] encodeBlockNumber(long blockNumber) {
+        return ByteBuffer.allocate(KEY_LENGTH).putLong(blockNumber).array();
+    }
+
+    public static long decodeBlockNumber(byte[] key) {
+        return ByteBuffer.wrap(key).getLong();
+    }
+
     @Override
     public long readBlockNumber() {
         if (dbClosed == true) {
@@ -25,11 +55,9 @@ public class RocksDBBlockHeaderStorage implements BlockHeaderStorage {
         }
 
         try {
-            byte[] blockNumberBytes = rocksDB.get(numberKey.getBytes());
+            byte[] blockNumberBytes = rocksDB.get(columnFamilyHandle, tipKey);
             if (blockNumberBytes != null) {
-                String blockNumberStr = new String(blockNumberBytes);
-                long blockNumber = Long.valueOf(blockNumberStr);
-                return blockNumber;
+                return decodeBlockNumber(blockNumberBytes);
             } else {
                 return -1;
             }
@@ -46,35 +74,214 @@ public class RocksDBBlockHeaderStorage implements BlockHeaderStorage {
             return null;
         }
 
-        String key = "block_" + String.valueOf(blockNumber);
-
         try {
-            return rocksDB.get(key.getBytes());
+            return rocksDB.get(columnFamilyHandle, encodeBlockNumber(blockNumber));
         } catch (RocksDBException e) {
             logger.error("RocksDB read error", e);
         }
         return null;
     }
 
+    // keys sort by block number, so a range is one sequential scan
+    @Override
+    public List<byte[]> readBlockHeaders(long fromBlockNumber, long toBlockNumber) {
+        List<byte[]> blockHeaders = new ArrayList<byte[]>();
+        if (dbClosed == true) {
+            logger.warn("Read RocksDB error: RocksDB has been closed");
+            return blockHeaders;
+        }
+
+        if (fromBlockNumber < 0 || toBlockNumber < fromBlockNumber) {
+            return blockHeaders;
+        }
+
+        try (Slice upperBound = new Slice(encodeBlockNumber(toBlockNumber + 1));
+                ReadOptions readOptions = new ReadOptions().setIterateUpperBound(upperBound);
+                RocksIterator iterator = rocksDB.newIterator(columnFamilyHandle, readOptions)) {
+            long expected = fromBlockNumber;
+            for (iterator.seek(encodeBlockNumber(fromBlockNumber));
+                    iterator.isValid();
+                    iterator.next()) {
+                // stop at the first missing block
+                if (decodeBlockNumber(iterator.key()) != expected) {
+                    break;
+                }
+                blockHeaders.add(iterator.value());
+                ++expected;
+            }
+            iterator.status();
+        } catch (RocksDBException e) {
+            logger.error("RocksDB read error", e);
+        }
+        return blockHeaders;
+    }
+
     @Override
     public void writeBlockHeader(long blockNumber, byte[] blockHeader) {
+        writeBlockHeaders(blockNumber, Collections.singletonList(blockHeader));
+    }
+
+    @Override
+    public boolean writeBlockHeaders(long startBlockNumber, List<byte[]> blockHeaders) {
         if (dbClosed == true) {
             logger.warn("Write RocksDB error: RocksDB has been closed");
-            return;
+            return false;
+        }
+
+        if (blockHeaders.isEmpty()) {
+            return true;
+        }
+
+        if (blockHeaderWriter != null) {
+            return blockHeaderWriter.write(this, startBlockNumber, blockHeaders);
+        }
+
+        try (WriteBatch writeBatch = new WriteBatch();
+                WriteOptions writeOptions = new WriteOptions()) {
+            putBlockHeaders(writeBatch, startBlockNumber, blockHeaders);
+            rocksDB.write(writeOptions, writeBatch);
+            return true;
+        } catch (RocksDBException e) {
+            logger.error("RocksDB write error", e);
+        }
+        return false;
+    }
+
+    // block headers and the new tip, in the same batch so they are visible together
+    void putBlockHeaders(WriteBatch writeBatch, long startBlockNumber, List<byte[]> blockHeaders)
+            throws RocksDBException {
+        if (dbClosed == true) {
+            throw new RocksDBException("RocksDB has been closed");
         }
 
-        String key = blockKeyPrefix + String.valueOf(blockNumber);
+        long blockNumber = startBlockNumber;
+        for (byte[] blockHeader : blockHeaders) {
+            writeBatch.put(columnFamilyHandle, encodeBlockNumber(blockNumber), blockHeader);
+            ++blockNumber;
+        }
+        writeBatch.put(columnFamilyHandle, tipKey, encodeBlockNumber(blockNumber - 1));
+    }
+
+    @Override
+    public long readRetainedBlockNumber() {
+        if (dbClosed == true) {
+            logger.warn("Read RocksDB error: RocksDB has been closed");
+            return 0;
+        }
 
         try {
-            WriteBatch writeBatch = new WriteBatch();
-            writeBatch.put(numberKey.getBytes(), String.valueOf(blockNumber).getBytes());
-            writeBatch.put(key.getBytes(), blockHeader);
+            byte[] retainedBytes = rocksDB.get(columnFamilyHandle, retainedKey);
+            return retainedBytes == null ? 0 : decodeBlockNumber(retainedBytes);
+        } catch (RocksDBException e) {
+            logger.error("Read RocksDB error", e);
+        }
+        return 0;
+    }
 
-            WriteOptions writeOptions = new WriteOptions();
+    // range deletes between checkpoints, then compact the range to drop data and tombstones
+    @Override
+    public void pruneBlockHeaders(long toBlockNumber, long checkpointInterval) {
+        if (dbClosed == true) {
+            logger.warn("Write RocksDB error: RocksDB has been closed");
+            return;
+        }
 
+        long fromBlockNumber = readRetainedBlockNumber();
+        if (toBlockNumber <= fromBlockNumber) {
+            return;
+        }
+
+        try (WriteBatch writeBatch = new WriteBatch();
+                WriteOptions writeOptions = new WriteOptions()) {
+            if (checkpointInterval <= 0) {
+                writeBatch.deleteRange(
+                        columnFamilyHandle,
+                        encodeBlockNumber(fromBlockNumber),
+                        encodeBlockNumber(toBlockNumber));
+            } else if (checkpointInterval > 1) {
+                long start = fromBlockNumber;
+                while (start < toBlockNumber) {
+                    if (start % checkpointInterval == 0) {
+                        ++start;
+                        continue;
+                    }
+
+                    long end =
+                            Math.min(
+                                    toBlockNumber,
+                                    (start / checkpointInterval + 1) * checkpointInterval);
+                    writeBatch.deleteRange(
+                            columnFamilyHandle, encodeBlockNumber(start), encodeBlockNumber(end));
+                    start = end;
+                }
+            }
+            writeBatch.put(columnFamilyHandle, retainedKey, encodeBlockNumber(toBlockNumber));
             rocksDB.write(writeOptions, writeBatch);
+
+            rocksDB.compactRange(
+                    columnFamilyHandle,
+                    encodeBlockNumber(fromBlockNumber),
+                    encodeBlockNumber(toBlockNumber));
         } catch (RocksDBException e) {
-            logger.error("RocksDB write error", e);
+            logger.error("RocksDB prune error", e);
+        }
+    }
+
+    // move block headers of format version 1 into the column family, safe to rerun after a crash
+    public void migrate() throws RocksDBException {
+        byte[] versionBytes = rocksDB.get(columnFamilyHandle, versionKey);
+        if (versionBytes != null) {
+            int version = ByteBuffer.wrap(versionBytes).getInt();
+            if (version > FORMAT_VERSION) {
+                throw new RocksDBException("Unsupported block header storage version: " + version);
+            }
+            return;
+        }
+
+        ColumnFamilyHandle legacyHandle = rocksDB.getDefaultColumnFamily();
+        byte[] legacyNumberBytes = rocksDB.get(legacyHandle, legacyNumberKey.getBytes());
+
+        try (WriteOptions writeOptions = new WriteOptions()) {
+            if (legacyNumberBytes != null && rocksDB.get(columnFamilyHandle, tipKey) == null) {
+                long legacyNumber = Long.valueOf(new String(legacyNumberBytes));
+                logger.info(
+                        "Migrate {} block headers to version {}", legacyNumber + 1, FORMAT_VERSION);
+
+                try (WriteBatch writeBatch = new WriteBatch()) {
+                    for (long blockNumber = 0; blockNumber <= legacyNumber; ++blockNumber) {
+                        byte[] legacyKey = (legacyBlockKeyPrefix + blockNumber).getBytes();
+                        byte[] blockHeader = rocksDB.get(legacyHandle, legacyKey);
+                        if (blockHeader != null) {
+                            writeBatch.put(
+                                    columnFamilyHandle,
+                                    encodeBlockNumber(blockNumber),
+                                    blockHeader);
+                        }
+
+                        if (writeBatch.count() >= migrateBatchSize) {
+                            rocksDB.write(writeOptions, writeBatch);
+                            writeBatch.clear();
+                        }
+                    }
+                    // the tip is written last, a crash before it restarts the migration
+                    writeBatch.put(columnFamilyHandle, tipKey, encodeBlockNumber(legacyNumber));
+                    rocksDB.write(writeOptions, writeBatch);
+                }
+            }
+
+            try (WriteBatch writeBatch = new WriteBatch()) {
+                if (legacyNumberBytes != null) {
+                    // '`' follows '_', so the range covers every legacy block key
+                    writeBatch.deleteRange(
+                            legacyHandle, legacyBlockKeyPrefix.getBytes(), "block`".getBytes());
+                    writeBatch.delete(legacyHandle, legacyNumberKey.getBytes());
+                }
+                writeBatch.put(
+                        columnFamilyHandle,
+                        versionKey,
+                        ByteBuffer.allocate(4).putInt(FORMAT_VERSION).array());
+                rocksDB.write(writeOptions, writeBatch);
+            }
         }
     }
 
@@ -87,9 +294,41 @@ public class RocksDBBlockHeaderStorage implements BlockHeaderStorage {
         this.dbClosed = false;
     }
 
+    public ColumnFamilyHandle getColumnFamilyHandle() {
+        return columnFamilyHandle;
+    }
+
+    public void setColumnFamilyHandle(ColumnFamilyHandle columnFamilyHandle) {
+        this.columnFamilyHandle = columnFamilyHandle;
+    }
+
+    public boolean isOwnRocksDB() {
+        return ownRocksDB;
+    }
+
+    public void setOwnRocksDB(boolean ownRocksDB) {
+        this.ownRocksDB = ownRocksDB;
+    }
+
+    public BlockHeaderWriter getBlockHeaderWriter() {
+        return blockHeaderWriter;
+    }
+
+    public void setBlockHeaderWriter(BlockHeaderWriter blockHeaderWriter) {
+        this.blockHeaderWriter = blockHeaderWriter;
+    }
+
     @Override
     public void close() {
         dbClosed = true;
-        rocksDB.close();
+        // queued writes fail from now on, the writer must be done with the db before it closes
+        if (blockHeaderWriter != null) {
+            blockHeaderWriter.release(this);
+        }
+
+        if (ownRocksDB) {
+            columnFamilyHandle.close();
+            rocksDB.close();
+        }
     }
 }
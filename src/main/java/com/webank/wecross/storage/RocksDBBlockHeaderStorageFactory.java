@@ -1,7 +1,15 @@
 package com.webank.wecross.storage;
 
 import java.io.File;
-import org.rocksdb.Options;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
 import org.slf4j.Logger;
@@ -10,35 +18,89 @@ import org.slf4j.LoggerFactory;
 public class RocksDBBlockHeaderStorageFactory implements BlockHeaderStorageFactory {
     private Logger logger = LoggerFactory.getLogger(RocksDBBlockHeaderStorageFactory.class);
     private String basePath;
+    private BlockHeaderWriter blockHeaderWriter; // shared by all chains, null to write directly
+
+    // shared by the dbs of all chains, closed with the factory
+    private DBOptions options;
+    private BloomFilter bloomFilter;
+    private BlockBasedTableConfig tableConfig;
+    private ColumnFamilyOptions columnFamilyOptions;
 
     public RocksDBBlockHeaderStorageFactory() {
         RocksDB.loadLibrary();
-    }
 
-    @Override
-    public BlockHeaderStorage newBlockHeaderStorage(String path) {
-        RocksDBBlockHeaderStorage rocksDBBlockHeaderStorage = new RocksDBBlockHeaderStorage();
-        Options options = new Options();
+        options = new DBOptions();
         options.setCreateIfMissing(true);
         options.setCreateMissingColumnFamilies(true);
 
+        bloomFilter = new BloomFilter(10, false);
+        tableConfig = newBlockHeaderTableConfig(bloomFilter);
+        columnFamilyOptions = new ColumnFamilyOptions();
+        columnFamilyOptions.setTableFormatConfig(tableConfig);
+    }
+
+    public static final String blockHeaderColumnFamily = "block_headers";
+
+    @Override
+    public BlockHeaderStorage newBlockHeaderStorage(String path) {
         String dbPath = basePath + "/" + path;
+        File dir = new File(dbPath);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        } else if (!dir.isDirectory()) {
+            logger.error("File {} exists and isn't dir", dbPath);
+            throw new IllegalStateException("Block header storage path is not a dir: " + dbPath);
+        }
+
+        List<ColumnFamilyDescriptor> columnFamilyDescriptors =
+                Arrays.asList(
+                        new ColumnFamilyDescriptor(RocksDB.DEFAULT_COLUMN_FAMILY),
+                        new ColumnFamilyDescriptor(
+                                blockHeaderColumnFamily.getBytes(), columnFamilyOptions));
+        List<ColumnFamilyHandle> columnFamilyHandles = new ArrayList<ColumnFamilyHandle>();
+
+        RocksDB rocksDB = null;
         try {
-            File dir = new File(dbPath);
-            if (!dir.exists()) {
-                dir.mkdirs();
-            } else {
-                if (!dir.isDirectory()) {
-                    logger.error("File {} exists and isn't dir", dbPath);
-                }
-            }
+            rocksDB = RocksDB.open(options, dbPath, columnFamilyDescriptors, columnFamilyHandles);
 
-            RocksDB rocksDB = RocksDB.open(options, dbPath);
+            RocksDBBlockHeaderStorage rocksDBBlockHeaderStorage = new RocksDBBlockHeaderStorage();
             rocksDBBlockHeaderStorage.setRocksDB(rocksDB);
+            rocksDBBlockHeaderStorage.setColumnFamilyHandle(columnFamilyHandles.get(1));
+            rocksDBBlockHeaderStorage.setBlockHeaderWriter(blockHeaderWriter);
+            rocksDBBlockHeaderStorage.migrate();
+            return rocksDBBlockHeaderStorage;
         } catch (RocksDBException e) {
-            logger.error("RocksDB open failed", e);
+            logger.error("RocksDB open failed, path: {}", dbPath, e);
+
+            // a storage without its db would lose every header written to it
+            for (ColumnFamilyHandle columnFamilyHandle : columnFamilyHandles) {
+                columnFamilyHandle.close();
+            }
+            if (rocksDB != null) {
+                rocksDB.close();
+            }
+            throw new IllegalStateException("Open block header storage " + dbPath + " failed", e);
         }
-        return rocksDBBlockHeaderStorage;
+    }
+
+    @Override
+    public void close() {
+        if (blockHeaderWriter != null) {
+            blockHeaderWriter.stop();
+        }
+
+        columnFamilyOptions.close();
+        bloomFilter.close();
+        options.close();
+    }
+
+    // block keys are fixed 8 bytes and read whole, filter on the whole key so point reads of
+    // absent blocks skip data blocks
+    public static BlockBasedTableConfig newBlockHeaderTableConfig(BloomFilter bloomFilter) {
+        BlockBasedTableConfig tableConfig = new BlockBasedTableConfig();
+        tableConfig.setFilterPolicy(bloomFilter);
+        tableConfig.setWholeKeyFiltering(true);
+        return tableConfig;
     }
 
     public String getBasePath() {
@@ -48,4 +110,12 @@ public class RocksDBBlockHeaderStorageFactory implements BlockHeaderStorageFacto
     public void setBasePath(String basePath) {
         this.basePath = basePath;
     }
+
+    public BlockHeaderWriter getBlockHeaderWriter() {
+        return blockHeaderWriter;
+    }
+
+    public void setBlockHeaderWriter(BlockHeaderWriter blockHeaderWriter) {
+        this.blockHeaderWriter = blockHeaderWriter;
+    }
 }
@@ -0,0 +1,218 @@
+package com.webank.wecross.storage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.BloomFilter;
+import org.rocksdb.ColumnFamilyDescriptor;
+import org.rocksdb.ColumnFamilyHandle;
+import org.rocksdb.ColumnFamilyOptions;
+import org.rocksdb.DBOptions;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+import org.rocksdb.RocksDBException;
+import org.rocksdb.WriteBufferManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// one RocksDB for all chains, each chain in its own column family, block cache and memtable
+// memory are shared and bounded
+public class SharedRocksDBBlockHeaderStorageFactory implements BlockHeaderStorageFactory {
+    private Logger logger = LoggerFactory.getLogger(SharedRocksDBBlockHeaderStorageFactory.class);
+
+    private static final String columnFamilyPrefix = "block_headers.";
+
+    private String basePath;
+    private BlockHeaderWriter blockHeaderWriter; // shared by all chains, null to write directly
+    private long blockCacheSize = 64 * 1024 * 1024;
+    private long writeBufferSize = 64 * 1024 * 1024; // all memtables of all chains
+
+    private RocksDB rocksDB;
+    private LRUCache blockCache;
+    private WriteBufferManager writeBufferManager;
+    private BloomFilter bloomFilter;
+    private ColumnFamilyOptions columnFamilyOptions;
+    private DBOptions options;
+    private Map<String, ColumnFamilyHandle> columnFamilyHandles =
+            new HashMap<String, ColumnFamilyHandle>();
+
+    public SharedRocksDBBlockHeaderStorageFactory() {
+        RocksDB.loadLibrary();
+    }
+
+    private void open() throws RocksDBException {
+        String dbPath = basePath + "/shared";
+        File dir = new File(dbPath);
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+
+        blockCache = new LRUCache(blockCacheSize);
+        writeBufferManager = new WriteBufferManager(writeBufferSize, blockCache);
+
+        bloomFilter = new BloomFilter(10, false);
+        BlockBasedTableConfig tableConfig =
+                RocksDBBlockHeaderStorageFactory.newBlockHeaderTableConfig(bloomFilter);
+        tableConfig.setBlockCache(blockCache);
+        columnFamilyOptions = new ColumnFamilyOptions();
+        columnFamilyOptions.setTableFormatConfig(tableConfig);
+
+        options = new DBOptions();
+        options.setCreateIfMissing(true);
+        options.setCreateMissingColumnFamilies(true);
+        options.setWriteBufferManager(writeBufferManager);
+
+        // every existing column family has to be opened
+        List<byte[]> names = new ArrayList<byte[]>();
+        if (new File(dbPath, "CURRENT").exists()) {
+            try (Options listOptions = new Options()) {
+                names.addAll(RocksDB.listColumnFamilies(listOptions, dbPath));
+            }
+        }
+        if (names.isEmpty()) {
+            names.add(RocksDB.DEFAULT_COLUMN_FAMILY);
+        }
+
+        List<ColumnFamilyDescriptor> descriptors = new ArrayList<ColumnFamilyDescriptor>();
+        for (byte[] name : names) {
+            if (Arrays.equals(name, RocksDB.DEFAULT_COLUMN_FAMILY)) {
+                descriptors.add(new ColumnFamilyDescriptor(name));
+            } else {
+                descriptors.add(new ColumnFamilyDescriptor(name, columnFamilyOptions));
+            }
+        }
+
+        List<ColumnFamilyHandle> handles = new ArrayList<ColumnFamilyHandle>();
+        rocksDB = RocksDB.open(options, dbPath, descriptors, handles);
+        for (int i = 0; i < descriptors.size(); ++i) {
+            String name = new String(descriptors.get(i).getName());
+            if (name.startsWith(columnFamilyPrefix)) {
+                columnFamilyHandles.put(name, handles.get(i));
+            }
+        }
+
+        logger.info(
+                "Open shared RocksDB: {}, column families: {}", dbPath, columnFamilyHandles.size());
+    }
+
+    // after the db is closed or failed to open
+    private void closeOptions() {
+        columnFamilyOptions.close();
+        bloomFilter.close();
+        options.close();
+        writeBufferManager.close();
+        blockCache.close();
+    }
+
+    @Override
+    public synchronized BlockHeaderStorage newBlockHeaderStorage(String path) {
+        RocksDBBlockHeaderStorage rocksDBBlockHeaderStorage = new RocksDBBlockHeaderStorage();
+        String name = columnFamilyPrefix + path;
+        try {
+            if (rocksDB == null) {
+                try {
+                    open();
+                } catch (RocksDBException e) {
+                    closeOptions();
+                    throw e;
+                }
+            }
+
+            ColumnFamilyHandle columnFamilyHandle = columnFamilyHandles.get(name);
+            if (columnFamilyHandle == null) {
+                columnFamilyHandle =
+                        rocksDB.createColumnFamily(
+                                new ColumnFamilyDescriptor(name.getBytes(), columnFamilyOptions));
+                columnFamilyHandles.put(name, columnFamilyHandle);
+                logger.info("Create column family: {}", name);
+            }
+
+            rocksDBBlockHeaderStorage.setRocksDB(rocksDB);
+            rocksDBBlockHeaderStorage.setColumnFamilyHandle(columnFamilyHandle);
+            rocksDBBlockHeaderStorage.setOwnRocksDB(false);
+            rocksDBBlockHeaderStorage.setBlockHeaderWriter(blockHeaderWriter);
+            rocksDBBlockHeaderStorage.migrate();
+        } catch (RocksDBException e) {
+            logger.error("RocksDB open failed, column family: {}", name, e);
+            // a storage without its column family would lose every header written to it
+            throw new IllegalStateException("Open block header storage " + name + " failed", e);
+        }
+        return rocksDBBlockHeaderStorage;
+    }
+
+    @Override
+    public synchronized void dropBlockHeaderStorage(String path) {
+        String name = columnFamilyPrefix + path;
+        ColumnFamilyHandle columnFamilyHandle = columnFamilyHandles.remove(name);
+        if (columnFamilyHandle == null) {
+            return;
+        }
+
+        try {
+            rocksDB.dropColumnFamily(columnFamilyHandle);
+            logger.info("Drop column family: {}", name);
+        } catch (RocksDBException e) {
+            logger.error("Drop column family {} failed", name, e);
+        } finally {
+            columnFamilyHandle.close();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        // pending writes go to the db before it is closed
+        if (blockHeaderWriter != null) {
+            blockHeaderWriter.stop();
+        }
+
+        if (rocksDB == null) {
+            return;
+        }
+
+        for (ColumnFamilyHandle columnFamilyHandle : columnFamilyHandles.values()) {
+            columnFamilyHandle.close();
+        }
+        columnFamilyHandles.clear();
+        rocksDB.close();
+        rocksDB = null;
+
+        closeOptions();
+    }
+
+    public String getBasePath() {
+        return basePath;
+    }
+
+    public void setBasePath(String basePath) {
+        this.basePath = basePath;
+    }
+
+    public long getBlockCacheSize() {
+        return blockCacheSize;
+    }
+
+    public void setBlockCacheSize(long blockCacheSize) {
+        this.blockCacheSize = blockCacheSize;
+    }
+
+    public long getWriteBufferSize() {
+        return writeBufferSize;
+    }
+
+    public void setWriteBufferSize(long writeBufferSize) {
+        this.writeBufferSize = writeBufferSize;
+    }
+
+    public BlockHeaderWriter getBlockHeaderWriter() {
+        return blockHeaderWriter;
+    }
+
+    public void setBlockHeaderWriter(BlockHeaderWriter blockHeaderWriter) {
+        this.blockHeaderWriter = blockHeaderWriter;
+    }
+}
@@ -0,0 +1,45 @@
+package com.webank.wecross.stub;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Length-prefixed batch of encoded block headers: count(4) + [length(4) + header]... */
+public class BlockHeaders {
+    public static byte[] encode(List<byte[]> blockHeaders) {
+        int size = 4;
+        for (byte[] blockHeader : blockHeaders) {
+            size += 4 + blockHeader.length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(blockHeaders.size());
+        for (byte[] blockHeader : blockHeaders) {
+            buffer.putInt(blockHeader.length);
+            buffer.put(blockHeader);
+        }
+        return buffer.array();
+    }
+
+    public static List<byte[]> decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        int count = buffer.getInt();
+        // each entry takes at least its 4 bytes length
+        if (count < 0 || count > buffer.remaining() / 4) {
+            throw new IllegalArgumentException("Invalid block header count: " + count);
+        }
+
+        List<byte[]> blockHeaders = new ArrayList<byte[]>(count);
+        for (int i = 0; i < count; ++i) {
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IllegalArgumentException("Invalid block header length: " + length);
+            }
+
+            byte[] blockHeader = new byte[length];
+            buffer.get(blockHeader);
+            blockHeaders.add(blockHeader);
+        }
+        return blockHeaders;
+    }
+}
@@ -3,6 +3,10 @@ package com.webank.wecross.stub;
 import java.util.List;
 
 public interface Connection {
+    interface Callback {
+        void onResponse(Response response);
+    }
+
     /**
      * send request to blockchain
      *
@@ -11,10 +15,33 @@ public interface Connection {
      */
     Response send(Request request);
 
+    /**
+     * send request to blockchain without waiting for the response, callback is called exactly once.
+     * Connections that wait for the response in send should override this
+     *
+     * @param request
+     * @param callback
+     */
+    default void asyncSend(Request request, Callback callback) {
+        callback.onResponse(send(request));
+    }
+
     /**
      * get resources name
      *
      * @return resources
      */
     List<ResourceInfo> getResources();
+
+    /**
+     * get encoded block headers in [fromBlockNumber, toBlockNumber] with one request, may return
+     * less headers than requested
+     *
+     * @param fromBlockNumber
+     * @param toBlockNumber
+     * @return BlockHeaders encoded batch, null if not supported
+     */
+    default byte[] getBlockHeaders(long fromBlockNumber, long toBlockNumber) {
+        return null;
+    }
 }
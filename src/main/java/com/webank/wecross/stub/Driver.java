@@ -1,6 +1,13 @@
 package com.webank.wecross.stub;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface Driver {
+    interface Callback {
+        void onTransactionResponse(TransactionResponse transactionResponse);
+    }
+
     /**
      * Decode an encoded transaction request binary data.
      *
@@ -43,6 +50,35 @@ public interface Driver {
     public TransactionResponse sendTransaction(
             TransactionContext<TransactionRequest> request, Connection connection);
 
+    /**
+     * Call without blocking the caller, drivers should override this with Connection.asyncSend
+     *
+     * @param request the transaction request
+     * @param connection
+     * @param callback called exactly once with the transaction response
+     */
+    public default void asyncCall(
+            TransactionContext<TransactionRequest> request,
+            Connection connection,
+            Callback callback) {
+        callback.onTransactionResponse(call(request, connection));
+    }
+
+    /**
+     * Send transaction without blocking the caller, drivers should override this with
+     * Connection.asyncSend
+     *
+     * @param request the transaction request
+     * @param connection
+     * @param callback called exactly once with the transaction response
+     */
+    public default void asyncSendTransaction(
+            TransactionContext<TransactionRequest> request,
+            Connection connection,
+            Callback callback) {
+        callback.onTransactionResponse(sendTransaction(request, connection));
+    }
+
     /**
      * Get block number
      *
@@ -58,6 +94,36 @@ public interface Driver {
      */
     public byte[] getBlockHeader(long blockNumber, Connection connection);
 
+    /**
+     * Get block headers in [fromBlockNumber, toBlockNumber], fall back to getBlockHeader one by
+     * one if the connection could not serve a range
+     *
+     * @param fromBlockNumber
+     * @param toBlockNumber
+     * @return BlockHeaders encoded batch of the leading headers got, null if none
+     */
+    public default byte[] getBlockHeaders(
+            long fromBlockNumber, long toBlockNumber, Connection connection) {
+        byte[] data = connection.getBlockHeaders(fromBlockNumber, toBlockNumber);
+        if (data != null) {
+            return data;
+        }
+
+        List<byte[]> blockHeaders = new ArrayList<byte[]>();
+        for (long blockNumber = fromBlockNumber; blockNumber <= toBlockNumber; ++blockNumber) {
+            byte[] blockHeader = getBlockHeader(blockNumber, connection);
+            if (blockHeader == null) {
+                break;
+            }
+            blockHeaders.add(blockHeader);
+        }
+
+        if (blockHeaders.isEmpty()) {
+            return null;
+        }
+        return BlockHeaders.encode(blockHeaders);
+    }
+
     /**
      * Get verified transaction info of the Chain
      *
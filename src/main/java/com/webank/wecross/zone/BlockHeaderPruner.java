@@ -0,0 +1,149 @@
+package com.webank.wecross.zone;
+
+import com.webank.wecross.storage.BlockHeaderStorage;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+// prunes block headers of all chains in the background by their retention policies
+public class BlockHeaderPruner {
+    public static final String DEFAULT_POLICY = "*";
+
+    private Logger logger = LoggerFactory.getLogger(BlockHeaderPruner.class);
+
+    private ZoneManager zoneManager;
+    private Map<String, BlockHeaderRetentionPolicy> policies =
+            new HashMap<String, BlockHeaderRetentionPolicy>(); // by zone.chain
+    private long pruneInterval = 60000; // ms
+    private ScheduledExecutorService scheduler;
+
+    // (time, tip block number) samples of each chain, block headers carry no timestamp
+    private Map<String, Deque<long[]>> tipHistories = new HashMap<String, Deque<long[]>>();
+
+    public synchronized void start() {
+        if (scheduler != null || policies.isEmpty()) {
+            return;
+        }
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("block-pruner-");
+        threadFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        scheduler.scheduleWithFixedDelay(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            pruneOnce(System.currentTimeMillis());
+                        } catch (Exception e) {
+                            logger.error("Prune block headers error", e);
+                        }
+                    }
+                },
+                pruneInterval,
+                pruneInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    public synchronized void pruneOnce(long now) {
+        Map<String, Chain> chains = zoneManager.getAllChains();
+        tipHistories.keySet().retainAll(chains.keySet());
+
+        for (Map.Entry<String, Chain> entry : chains.entrySet()) {
+            BlockHeaderRetentionPolicy policy = getPolicy(entry.getKey());
+            if (policy != null && policy.isEnabled()) {
+                prune(entry.getKey(), entry.getValue(), policy, now);
+            }
+        }
+    }
+
+    // waits for a prune in progress, the chain is no longer in the zone manager when called
+    public synchronized void unregister(String path) {
+        tipHistories.remove(path);
+    }
+
+    public BlockHeaderRetentionPolicy getPolicy(String path) {
+        BlockHeaderRetentionPolicy policy = policies.get(path);
+        return policy != null ? policy : policies.get(DEFAULT_POLICY);
+    }
+
+    private void prune(String path, Chain chain, BlockHeaderRetentionPolicy policy, long now) {
+        BlockHeaderStorage blockHeaderStorage = chain.getBlockHeaderStorage();
+        long tipBlockNumber = blockHeaderStorage.readBlockNumber();
+
+        long blockNumberBeforeKeepSeconds = -1;
+        if (policy.getKeepSeconds() > 0) {
+            Deque<long[]> history = tipHistories.get(path);
+            if (history == null) {
+                history = new ArrayDeque<long[]>();
+                tipHistories.put(path, history);
+            }
+            history.addLast(new long[] {now, tipBlockNumber});
+
+            // the latest sample older than keepSeconds bounds the blocks to prune
+            long deadline = now - policy.getKeepSeconds() * 1000;
+            while (history.size() > 1) {
+                long[] oldest = history.removeFirst();
+                if (history.peekFirst()[0] > deadline) {
+                    history.addFirst(oldest);
+                    break;
+                }
+            }
+            if (history.peekFirst()[0] <= deadline) {
+                blockNumberBeforeKeepSeconds = history.peekFirst()[1];
+            }
+        }
+
+        long prunableBlockNumber =
+                policy.prunableBlockNumber(tipBlockNumber, blockNumberBeforeKeepSeconds);
+        long retainedBlockNumber = blockHeaderStorage.readRetainedBlockNumber();
+        if (prunableBlockNumber <= retainedBlockNumber) {
+            return;
+        }
+
+        blockHeaderStorage.pruneBlockHeaders(prunableBlockNumber, policy.getCheckpointInterval());
+        logger.info(
+                "Prune block headers of {}: [{}, {}), policy: {}",
+                path,
+                retainedBlockNumber,
+                prunableBlockNumber,
+                policy);
+    }
+
+    public ZoneManager getZoneManager() {
+        return zoneManager;
+    }
+
+    public void setZoneManager(ZoneManager zoneManager) {
+        this.zoneManager = zoneManager;
+    }
+
+    public Map<String, BlockHeaderRetentionPolicy> getPolicies() {
+        return policies;
+    }
+
+    public void setPolicies(Map<String, BlockHeaderRetentionPolicy> policies) {
+        this.policies = policies;
+    }
+
+    public long getPruneInterval() {
+        return pruneInterval;
+    }
+
+    public void setPruneInterval(long pruneInterval) {
+        this.pruneInterval = pruneInterval;
+    }
+}
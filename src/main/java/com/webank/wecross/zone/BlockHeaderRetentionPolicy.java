@@ -0,0 +1,64 @@
+package com.webank.wecross.zone;
+
+// which block headers of a chain to keep, a header is pruned if no rule keeps it
+public class BlockHeaderRetentionPolicy {
+    private long keepBlocks = 0; // keep the latest blocks, 0 keeps all
+    private long keepSeconds = 0; // keep blocks committed within it, 0 keeps all
+    private long checkpointInterval = 0; // keep every checkpointInterval-th block, 0 keeps none
+
+    public boolean isEnabled() {
+        return keepBlocks > 0 || keepSeconds > 0;
+    }
+
+    // headers below the returned block number may be pruned, the tip is always kept
+    public long prunableBlockNumber(long tipBlockNumber, long blockNumberBeforeKeepSeconds) {
+        if (!isEnabled() || tipBlockNumber < 0) {
+            return 0;
+        }
+
+        long prunable = tipBlockNumber;
+        if (keepBlocks > 0) {
+            prunable = Math.min(prunable, tipBlockNumber - keepBlocks + 1);
+        }
+        if (keepSeconds > 0) {
+            prunable = Math.min(prunable, blockNumberBeforeKeepSeconds + 1);
+        }
+        return Math.max(0, prunable);
+    }
+
+    public long getKeepBlocks() {
+        return keepBlocks;
+    }
+
+    public void setKeepBlocks(long keepBlocks) {
+        this.keepBlocks = keepBlocks;
+    }
+
+    public long getKeepSeconds() {
+        return keepSeconds;
+    }
+
+    public void setKeepSeconds(long keepSeconds) {
+        this.keepSeconds = keepSeconds;
+    }
+
+    public long getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    public void setCheckpointInterval(long checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    @Override
+    public String toString() {
+        return "BlockHeaderRetentionPolicy{"
+                + "keepBlocks="
+                + keepBlocks
+                + ", keepSeconds="
+                + keepSeconds
+                + ", checkpointInterval="
+                + checkpointInterval
+                + '}';
+    }
+}
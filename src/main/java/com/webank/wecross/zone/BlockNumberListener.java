@@ -0,0 +1,6 @@
+package com.webank.wecross.zone;
+
+// notified after a chain with local connection committed new block headers
+public interface BlockNumberListener {
+    void onBlockNumber(Chain chain, long blockNumber);
+}
@@ -0,0 +1,32 @@
+package com.webank.wecross.zone;
+
+// data of p2p subscribeBlockNumber request and CHAIN_BLOCK_NUMBER announcement
+public class BlockNumberMessageData {
+    private String network;
+    private String chain;
+    private long blockNumber = -1;
+
+    public String getNetwork() {
+        return network;
+    }
+
+    public void setNetwork(String network) {
+        this.network = network;
+    }
+
+    public String getChain() {
+        return chain;
+    }
+
+    public void setChain(String chain) {
+        this.chain = chain;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public void setBlockNumber(long blockNumber) {
+        this.blockNumber = blockNumber;
+    }
+}
@@ -0,0 +1,50 @@
+package com.webank.wecross.zone;
+
+// request and response data of p2p method getBlockHeaders
+public class BlockRangeMessageData {
+    private String network;
+    private String chain;
+    private long fromBlockNumber;
+    private long toBlockNumber;
+    private byte[] blockHeaders; // BlockHeaders encoded, only in response
+
+    public String getNetwork() {
+        return network;
+    }
+
+    public void setNetwork(String network) {
+        this.network = network;
+    }
+
+    public String getChain() {
+        return chain;
+    }
+
+    public void setChain(String chain) {
+        this.chain = chain;
+    }
+
+    public long getFromBlockNumber() {
+        return fromBlockNumber;
+    }
+
+    public void setFromBlockNumber(long fromBlockNumber) {
+        this.fromBlockNumber = fromBlockNumber;
+    }
+
+    public long getToBlockNumber() {
+        return toBlockNumber;
+    }
+
+    public void setToBlockNumber(long toBlockNumber) {
+        this.toBlockNumber = toBlockNumber;
+    }
+
+    public byte[] getBlockHeaders() {
+        return blockHeaders;
+    }
+
+    public void setBlockHeaders(byte[] blockHeaders) {
+        this.blockHeaders = blockHeaders;
+    }
+}
@@ -1,82 +1,138 @@
 package com.webank.wecross.zone;
 
 import com.webank.wecross.peer.Peer;
+import com.webank.wecross.remote.balance.ConnectionSelector;
+import com.webank.wecross.remote.balance.LoadBalanceStrategy;
 import com.webank.wecross.resource.Resource;
 import com.webank.wecross.storage.BlockHeaderStorage;
 import com.webank.wecross.stub.BlockHeader;
+import com.webank.wecross.stub.BlockHeaders;
 import com.webank.wecross.stub.Connection;
 import com.webank.wecross.stub.Driver;
-import java.security.SecureRandom;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.locks.ReentrantLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class Chain {
+    public static final int MAX_BLOCK_HEADERS_PER_REQUEST = 1000;
+
     private String name;
     private Logger logger = LoggerFactory.getLogger(Chain.class);
-    private Map<Peer, Connection> connections = new HashMap<Peer, Connection>();
+    private ConnectionSelector connections = new ConnectionSelector();
     boolean hasLocalConnection = false;
     private Map<String, Resource> resources = new HashMap<String, Resource>();
     private Driver driver;
     private BlockHeaderStorage blockHeaderStorage;
-    private Thread blockSyncThread;
-    private AtomicBoolean running = new AtomicBoolean(false);
-    private Random random = new SecureRandom();
-    private BlockHeader localBlockHeader;
+    private volatile BlockHeader localBlockHeader;
+    private ReentrantLock syncLock = new ReentrantLock();
+    private ExecutorService fetchExecutor; // null: fetch on the sync thread
+    private int syncWindowSize = 1; // max block header fetches in flight
+    private int syncBatchSize = 1; // max block headers committed in one write
+    private int syncRangeSize = 1; // block headers requested by one fetch
+    private ChainSyncMetrics syncMetrics = new ChainSyncMetrics();
+    private volatile long announcedBlockNumber = -1;
+    private volatile long triedBlockNumber = -1; // last announced block number synced to
+    private volatile long targetBlockNumber = -1;
+    private Object commitSignal = new Object();
+    private Set<Peer> blockNumberSubscribers = ConcurrentHashMap.newKeySet();
+    private BlockNumberListener blockNumberListener;
+
+    public enum SyncStatus {
+        UP_TO_DATE,
+        PROGRESSED,
+        FAILED
+    }
 
     public Chain(String name) {
         this.name = name;
     }
 
-    public void start() {
-        if (!running.get()) {
-            running.set(true);
+    // one sync round driven by ChainSyncEngine: sync to the announced block number if new,
+    // otherwise poll the block number of the chain
+    public SyncStatus sync() {
+        long announced = announcedBlockNumber;
+        if (localBlockHeader == null) {
+            loadLocalBlockHeader();
+        }
 
-            blockSyncThread =
-                    new Thread(
-                            new Runnable() {
-                                @Override
-                                public void run() {
-                                    loadLocalBlockHeader();
-                                    logger.trace("Block header sync thread started");
-                                    while (running.get()) {
-                                        try {
-                                            Thread.sleep(1000);
+        if (announced > localBlockHeader.getNumber() && announced != triedBlockNumber) {
+            triedBlockNumber = announced;
+            return fetchBlockHeaderByNumber(announced);
+        }
 
-                                            fetchBlockHeader();
-                                        } catch (Exception e) {
-                                            logger.warn("Get block header exception", e);
-                                        }
-                                    }
-                                }
-                            });
+        return fetchBlockHeader();
+    }
 
-            blockSyncThread.start();
+    // called when a peer announces its block number of this chain
+    public void onAnnouncedBlockNumber(long blockNumber) {
+        synchronized (this) {
+            if (blockNumber > announcedBlockNumber) {
+                announcedBlockNumber = blockNumber;
+            }
         }
+        updateTargetBlockNumber(blockNumber);
     }
 
-    public void stop() {
-        if (running.get()) {
-            running.set(false);
-            try {
-                logger.trace("Stoping block header sync thread...");
-                blockSyncThread.interrupt();
-                blockSyncThread.join();
-                logger.trace("Block header sync thread stopped");
-            } catch (Exception e) {
-                logger.error("Thread interrupt", e);
+    public boolean hasNewAnnouncedBlockNumber() {
+        long announced = announcedBlockNumber;
+        BlockHeader blockHeader = localBlockHeader;
+        return announced != triedBlockNumber
+                && (blockHeader == null || announced > blockHeader.getNumber());
+    }
+
+    // blocks known to exist on the chain but not synced yet
+    public long getSyncLag() {
+        BlockHeader blockHeader = localBlockHeader;
+        long localBlockNumber = blockHeader == null ? -1 : blockHeader.getNumber();
+        return Math.max(0, targetBlockNumber - localBlockNumber);
+    }
+
+    private void updateTargetBlockNumber(long blockNumber) {
+        synchronized (this) {
+            if (blockNumber > targetBlockNumber) {
+                targetBlockNumber = blockNumber;
             }
         }
     }
 
-    public void fetchBlockHeader() {
+    // wait until block blockNumber committed, return false if timeout
+    public boolean waitBlockNumber(long blockNumber, long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        synchronized (commitSignal) {
+            while (localBlockHeader == null || localBlockHeader.getNumber() < blockNumber) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                commitSignal.wait(remaining);
+            }
+        }
+        return true;
+    }
+
+    public SyncStatus fetchBlockHeader() {
         Connection connection = chooseConnection();
 
         logger.trace("Fetch block header: {}", connection);
-        if (connection != null) {
+        if (connection == null) {
+            return SyncStatus.FAILED;
+        } else {
+            if (localBlockHeader == null) {
+                loadLocalBlockHeader();
+            }
 
             long remoteBlockNumber = driver.getBlockNumber(connection);
 
@@ -87,74 +143,336 @@ public class Chain {
                         "Remote blockNumber({}), remote router access failed.",
                         localBlockNumber,
                         remoteBlockNumber);
-                return;
+                return SyncStatus.FAILED;
             } else if (remoteBlockNumber < localBlockNumber) {
                 logger.error(
                         "Local blockNumber({}) is bigger than remote blockNumber({}), please remove ./db carefully and try again.",
                         localBlockNumber,
                         remoteBlockNumber);
-                return;
+                return SyncStatus.FAILED;
             } else if (remoteBlockNumber == localBlockNumber) {
                 logger.trace(
                         "Chain({}) blockNumber({}) is up to date", this.name, remoteBlockNumber);
+                return SyncStatus.UP_TO_DATE;
             } else {
-                fetchBlockHeaderByNumber(remoteBlockNumber);
+                updateTargetBlockNumber(remoteBlockNumber);
+                return fetchBlockHeaderByNumber(remoteBlockNumber);
             }
         }
     }
 
-    public void fetchBlockHeaderByNumber(long number) {
-        long localBlockNumber = localBlockHeader.getNumber();
-        if (number <= localBlockNumber) {
-            return;
+    public SyncStatus fetchBlockHeaderByNumber(long number) {
+        BlockHeader blockHeader = localBlockHeader;
+        if (blockHeader != null && number <= blockHeader.getNumber()) {
+            return SyncStatus.UP_TO_DATE;
         }
-        synchronized (this) {
-            localBlockNumber = localBlockHeader.getNumber();
+
+        syncLock.lock();
+        try {
+            if (localBlockHeader == null) {
+                loadLocalBlockHeader();
+            }
+
+            long localBlockNumber = localBlockHeader.getNumber();
             if (number <= localBlockNumber) {
-                return;
+                return SyncStatus.UP_TO_DATE;
             }
 
-            String localBlockHash = localBlockHeader.getHash();
             Connection connection = chooseConnection();
+            if (connection == null) {
+                return SyncStatus.FAILED;
+            }
 
-            for (long blockNumber = localBlockNumber + 1; blockNumber <= number; ++blockNumber) {
-                byte[] blockBytes = driver.getBlockHeader(blockNumber, connection);
-                if (blockBytes == null) {
+            long committedBlocks = syncBlockHeaders(localBlockNumber + 1, number, connection);
+            return committedBlocks > 0 ? SyncStatus.PROGRESSED : SyncStatus.FAILED;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // keep syncWindowSize range fetches in flight, verify in order and commit every syncBatchSize
+    private long syncBlockHeaders(long from, long to, Connection connection) {
+        long startTime = System.currentTimeMillis();
+        long committedBlocks = 0;
+
+        Deque<Future<List<byte[]>>> fetching = new ArrayDeque<Future<List<byte[]>>>();
+        Deque<Long> fetchingEnds = new ArrayDeque<Long>();
+        long nextFetchNumber = from;
+        long blockNumber = from;
+        long batchStartNumber = from;
+        List<byte[]> batch = new ArrayList<byte[]>();
+        BlockHeader lastBlockHeader = localBlockHeader;
+        int rangeSize = Math.max(Math.min(syncRangeSize, MAX_BLOCK_HEADERS_PER_REQUEST), 1);
+
+        try {
+            while (blockNumber <= to) {
+                while (nextFetchNumber <= to && fetching.size() < Math.max(syncWindowSize, 1)) {
+                    long rangeEnd = Math.min(to, nextFetchNumber + rangeSize - 1);
+                    fetching.addLast(asyncFetchBlockHeaders(nextFetchNumber, rangeEnd, connection));
+                    fetchingEnds.addLast(rangeEnd);
+                    nextFetchNumber = rangeEnd + 1;
+                }
+
+                long rangeEnd = fetchingEnds.pollFirst();
+                List<byte[]> blockHeaders = waitBlockHeaders(fetching.pollFirst(), blockNumber);
+                if (blockHeaders == null || blockHeaders.isEmpty()) {
+                    syncMetrics.onFetchFailed();
                     logger.error(
                             "Could not get block header, please start the router which has chain({})",
                             name);
                     break;
                 }
 
-                BlockHeader blockHeader = driver.decodeBlockHeader(blockBytes);
-                if (localBlockNumber >= 0) {
-                    if (blockHeader.getNumber() != localBlockHeader.getNumber() + 1
-                            || !blockHeader.getPrevHash().equals(localBlockHeader.getHash())) {
-                        logger.error(
-                                "Fetched block couldn't be the next block, localBlockNumber: {} localBlockHash: {} fetchedBlockNumber: {} fetchedBlockPrevHash: {}, please check the router which has chain({}) is the same chain?",
-                                localBlockNumber,
-                                localBlockHash,
-                                blockHeader.getNumber(),
-                                blockHeader.getPrevHash(),
-                                name);
+                boolean verified = true;
+                for (byte[] blockBytes : blockHeaders) {
+                    if (blockNumber > rangeEnd) {
+                        break;
+                    }
+                    syncMetrics.onFetched();
+
+                    BlockHeader blockHeader = driver.decodeBlockHeader(blockBytes);
+                    if (!isNextBlockHeader(lastBlockHeader, blockHeader)) {
+                        verified = false;
                         break;
                     }
+
+                    batch.add(blockBytes);
+                    lastBlockHeader = blockHeader;
+                    ++blockNumber;
+
+                    if (batch.size() >= syncBatchSize) {
+                        if (!commitBlockHeaders(batchStartNumber, batch, lastBlockHeader)) {
+                            // not stored, the next round syncs from the local tip again
+                            batch.clear();
+                            verified = false;
+                            break;
+                        }
+                        committedBlocks += batch.size();
+                        batchStartNumber += batch.size();
+                        batch = new ArrayList<byte[]>();
+                    }
                 }
 
-                blockHeaderStorage.writeBlockHeader(blockNumber, blockBytes);
-                localBlockHeader = blockHeader; // Must update header after write in db
+                if (!verified || blockNumber <= rangeEnd) {
+                    // broken or short range, later ranges could not be linked, retry next round
+                    break;
+                }
+            }
 
-                logger.debug("Commit blockHeader: {}", localBlockHeader.toString());
+            if (!batch.isEmpty() && commitBlockHeaders(batchStartNumber, batch, lastBlockHeader)) {
+                committedBlocks += batch.size();
             }
+        } finally {
+            for (Future<List<byte[]>> future : fetching) {
+                future.cancel(true);
+            }
+
+            syncMetrics.onRoundFinished(committedBlocks, System.currentTimeMillis() - startTime);
+        }
+        return committedBlocks;
+    }
+
+    private boolean isNextBlockHeader(BlockHeader lastBlockHeader, BlockHeader blockHeader) {
+        if (lastBlockHeader.getNumber() < 0) {
+            return blockHeader != null;
+        }
+
+        if (blockHeader == null
+                || blockHeader.getNumber() != lastBlockHeader.getNumber() + 1
+                || !lastBlockHeader.getHash().equals(blockHeader.getPrevHash())) {
+            logger.error(
+                    "Fetched block couldn't be the next block, localBlockNumber: {} localBlockHash: {} fetchedBlockNumber: {} fetchedBlockPrevHash: {}, please check the router which has chain({}) is the same chain?",
+                    lastBlockHeader.getNumber(),
+                    lastBlockHeader.getHash(),
+                    blockHeader == null ? null : blockHeader.getNumber(),
+                    blockHeader == null ? null : blockHeader.getPrevHash(),
+                    name);
+            return false;
         }
+        return true;
+    }
+
+    private Future<List<byte[]>> asyncFetchBlockHeaders(
+            long fromBlockNumber, long toBlockNumber, Connection connection) {
+        Callable<List<byte[]>> fetchTask =
+                new Callable<List<byte[]>>() {
+                    @Override
+                    public List<byte[]> call() throws Exception {
+                        byte[] data =
+                                driver.getBlockHeaders(fromBlockNumber, toBlockNumber, connection);
+                        if (data == null) {
+                            return null;
+                        }
+                        return BlockHeaders.decode(data);
+                    }
+                };
+
+        if (fetchExecutor == null) {
+            CompletableFuture<List<byte[]>> future = new CompletableFuture<List<byte[]>>();
+            try {
+                future.complete(fetchTask.call());
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+
+        return fetchExecutor.submit(fetchTask);
+    }
+
+    private List<byte[]> waitBlockHeaders(Future<List<byte[]>> future, long blockNumber) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            logger.warn("Fetch block header interrupted, chain: {}", name);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            logger.warn("Fetch block header({}) exception, chain: {}", blockNumber, name, e);
+        }
+        return null;
+    }
+
+    // false if the storage failed, the local tip stays where it is
+    private boolean commitBlockHeaders(
+            long startBlockNumber, List<byte[]> blockHeaders, BlockHeader lastBlockHeader) {
+        if (!blockHeaderStorage.writeBlockHeaders(startBlockNumber, blockHeaders)) {
+            syncMetrics.onCommitFailed();
+            logger.error(
+                    "Commit {} blockHeaders from {} failed, chain: {}",
+                    blockHeaders.size(),
+                    startBlockNumber,
+                    name);
+            return false;
+        }
+
+        synchronized (commitSignal) {
+            localBlockHeader = lastBlockHeader; // Must update header after write in db
+            commitSignal.notifyAll();
+        }
+        syncMetrics.onCommitted(blockHeaders.size());
+
+        if (hasLocalConnection && blockNumberListener != null) {
+            blockNumberListener.onBlockNumber(this, lastBlockHeader.getNumber());
+        }
+
+        logger.debug(
+                "Commit {} blockHeaders, last: {}",
+                blockHeaders.size(),
+                lastBlockHeader.toString());
+        return true;
     }
 
     public long getBlockNumber() {
         return blockHeaderStorage.readBlockNumber();
     }
 
+    // newest block number known of the chain, synced or not
+    public long getLatestBlockNumber() {
+        BlockHeader blockHeader = localBlockHeader;
+        long localBlockNumber = blockHeader == null ? -1 : blockHeader.getNumber();
+        return Math.max(targetBlockNumber, localBlockNumber);
+    }
+
+    // read block headers in [fromBlockNumber, toBlockNumber], stop at the local tip, pruned ones
+    // of a local chain are fetched from the chain again
+    public List<byte[]> readBlockHeaders(long fromBlockNumber, long toBlockNumber) {
+        if (fromBlockNumber < 0) {
+            return new ArrayList<byte[]>();
+        }
+
+        long end =
+                Math.min(
+                        Math.min(toBlockNumber, blockHeaderStorage.readBlockNumber()),
+                        fromBlockNumber + MAX_BLOCK_HEADERS_PER_REQUEST - 1);
+        long retainedBlockNumber = blockHeaderStorage.readRetainedBlockNumber();
+
+        // not forwarded for remote chains, two routers both pruned could forward to each other
+        if (fromBlockNumber >= retainedBlockNumber || !hasLocalConnection) {
+            return blockHeaderStorage.readBlockHeaders(fromBlockNumber, end);
+        }
+
+        long prunedEnd = Math.min(end, retainedBlockNumber - 1);
+        List<byte[]> blockHeaders = fetchPrunedBlockHeaders(fromBlockNumber, prunedEnd);
+        if (blockHeaders == null) {
+            return new ArrayList<byte[]>();
+        }
+        if (end > prunedEnd) {
+            blockHeaders.addAll(blockHeaderStorage.readBlockHeaders(prunedEnd + 1, end));
+        }
+        return blockHeaders;
+    }
+
+    // block headers pruned from the storage, got from a connection of the chain and linked by
+    // hash to the next header still stored, a retained or checkpointed one. Null if they could
+    // not be fetched or verified
+    public List<byte[]> fetchPrunedBlockHeaders(long fromBlockNumber, long toBlockNumber) {
+        Connection connection = chooseConnection();
+        if (connection == null) {
+            return null;
+        }
+
+        long anchorNumber = findStoredBlockNumber(toBlockNumber + 1, fromBlockNumber);
+        BlockHeader anchor =
+                anchorNumber < 0
+                        ? null
+                        : blockHeaderStorage.readDecodedBlockHeader(anchorNumber, driver);
+        if (anchor == null) {
+            logger.warn(
+                    "Pruned block headers [{}, {}] of {} could not be verified, no header after",
+                    fromBlockNumber,
+                    toBlockNumber,
+                    name);
+            return null;
+        }
+
+        // the headers up to the anchor are needed to link the range to it
+        byte[] data = driver.getBlockHeaders(fromBlockNumber, anchorNumber - 1, connection);
+        List<byte[]> blockHeaders = data == null ? null : BlockHeaders.decode(data);
+        if (blockHeaders == null || blockHeaders.size() != anchorNumber - fromBlockNumber) {
+            logger.warn(
+                    "Fetch pruned block headers [{}, {}] of {} failed",
+                    fromBlockNumber,
+                    anchorNumber - 1,
+                    name);
+            return null;
+        }
+
+        BlockHeader blockHeader = driver.decodeBlockHeader(blockHeaders.get(0));
+        if (blockHeader == null || blockHeader.getNumber() != fromBlockNumber) {
+            logger.error("Fetched pruned block header is not {}, chain: {}", fromBlockNumber, name);
+            return null;
+        }
+        for (int i = 1; i <= blockHeaders.size(); ++i) {
+            BlockHeader nextBlockHeader =
+                    i < blockHeaders.size()
+                            ? driver.decodeBlockHeader(blockHeaders.get(i))
+                            : anchor;
+            if (!isNextBlockHeader(blockHeader, nextBlockHeader)) {
+                return null;
+            }
+            blockHeader = nextBlockHeader;
+        }
+
+        return new ArrayList<byte[]>(
+                blockHeaders.subList(0, (int) (toBlockNumber - fromBlockNumber + 1)));
+    }
+
+    // first block number from blockNumber on still in the storage, -1 if not found before the
+    // range from fromBlockNumber grows over MAX_BLOCK_HEADERS_PER_REQUEST
+    private long findStoredBlockNumber(long blockNumber, long fromBlockNumber) {
+        long retainedBlockNumber = blockHeaderStorage.readRetainedBlockNumber();
+        long maxBlockNumber = fromBlockNumber + MAX_BLOCK_HEADERS_PER_REQUEST;
+        for (long number = blockNumber; number <= maxBlockNumber; ++number) {
+            if (number >= retainedBlockNumber
+                    || blockHeaderStorage.readBlockHeader(number) != null) {
+                return number <= blockHeaderStorage.readBlockNumber() ? number : -1;
+            }
+        }
+        return -1;
+    }
+
     public BlockHeader getBlockHeader(int blockNumber) {
-        return driver.decodeBlockHeader(blockHeaderStorage.readBlockHeader(blockNumber));
+        return blockHeaderStorage.readDecodedBlockHeader(blockNumber, driver);
     }
 
     public void putBlockHeader(int blockNumber, byte[] blockHeader) {
@@ -177,18 +495,29 @@ public class Chain {
         }
     }
 
+    public boolean hasConnection(Peer peer) {
+        return connections.contains(peer);
+    }
+
+    public boolean isHasLocalConnection() {
+        return hasLocalConnection;
+    }
+
     public Connection chooseConnection() {
         if (connections.isEmpty()) {
             logger.warn("Empty connections");
             return null;
         }
 
-        if (connections.size() == 1) {
-            return (Connection) connections.values().toArray()[0];
-        } else {
-            int index = random.nextInt(connections.size());
-            return (Connection) connections.values().toArray()[index];
-        }
+        return connections.choose();
+    }
+
+    public void setLoadBalanceStrategy(LoadBalanceStrategy strategy) {
+        connections.setStrategy(strategy);
+    }
+
+    public String getName() {
+        return name;
     }
 
     public Map<String, Resource> getResources() {
@@ -219,16 +548,77 @@ public class Chain {
         this.blockHeaderStorage = blockHeaderStorage;
     }
 
+    public ExecutorService getFetchExecutor() {
+        return fetchExecutor;
+    }
+
+    public void setFetchExecutor(ExecutorService fetchExecutor) {
+        this.fetchExecutor = fetchExecutor;
+    }
+
+    public int getSyncWindowSize() {
+        return syncWindowSize;
+    }
+
+    public void setSyncWindowSize(int syncWindowSize) {
+        this.syncWindowSize = syncWindowSize;
+    }
+
+    public int getSyncBatchSize() {
+        return syncBatchSize;
+    }
+
+    public void setSyncBatchSize(int syncBatchSize) {
+        this.syncBatchSize = syncBatchSize;
+    }
+
+    public int getSyncRangeSize() {
+        return syncRangeSize;
+    }
+
+    public void setSyncRangeSize(int syncRangeSize) {
+        this.syncRangeSize = syncRangeSize;
+    }
+
+    public Set<Peer> getBlockNumberSubscribers() {
+        return blockNumberSubscribers;
+    }
+
+    public void addBlockNumberSubscriber(Peer peer) {
+        blockNumberSubscribers.add(peer);
+    }
+
+    public void removeBlockNumberSubscriber(Peer peer) {
+        blockNumberSubscribers.remove(peer);
+    }
+
+    public BlockNumberListener getBlockNumberListener() {
+        return blockNumberListener;
+    }
+
+    public void setBlockNumberListener(BlockNumberListener blockNumberListener) {
+        this.blockNumberListener = blockNumberListener;
+    }
+
+    public ChainSyncMetrics getSyncMetrics() {
+        return syncMetrics;
+    }
+
     private void loadLocalBlockHeader() {
-        long localBlockNumber = blockHeaderStorage.readBlockNumber();
-        if (localBlockNumber < 0) {
-            BlockHeader beforeGenesisBlockHeader = new BlockHeader();
-            beforeGenesisBlockHeader.setNumber(-1);
-            beforeGenesisBlockHeader.setHash("");
-            localBlockHeader = beforeGenesisBlockHeader;
-        } else {
-            byte[] blockHeaderBytes = blockHeaderStorage.readBlockHeader(localBlockNumber);
-            localBlockHeader = driver.decodeBlockHeader(blockHeaderBytes);
+        syncLock.lock();
+        try {
+            long localBlockNumber = blockHeaderStorage.readBlockNumber();
+            if (localBlockNumber < 0) {
+                BlockHeader beforeGenesisBlockHeader = new BlockHeader();
+                beforeGenesisBlockHeader.setNumber(-1);
+                beforeGenesisBlockHeader.setHash("");
+                localBlockHeader = beforeGenesisBlockHeader;
+            } else {
+                localBlockHeader =
+                        blockHeaderStorage.readDecodedBlockHeader(localBlockNumber, driver);
+            }
+        } finally {
+            syncLock.unlock();
         }
     }
 }
@@ -0,0 +1,244 @@
+package com.webank.wecross.zone;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+// drives block header sync of all chains with a scheduler and a bounded worker pool
+public class ChainSyncEngine {
+    private Logger logger = LoggerFactory.getLogger(ChainSyncEngine.class);
+
+    private Map<Chain, ChainSyncState> states = new ConcurrentHashMap<Chain, ChainSyncState>();
+    private ScheduledExecutorService scheduler;
+    private ExecutorService syncExecutor;
+
+    private int syncWorkerNum = 4; // chains synced at the same time
+    private long tickInterval = 100; // ms
+    private long localSyncInterval = 1000; // ms, polling the chain itself
+    private long remoteSyncInterval = 30000; // ms, polling peers when no block number announced
+    private long maxBackoff = 60000; // ms, longest delay of a stalled or unreachable chain
+
+    public static class ChainSyncState {
+        private volatile long nextSyncTime = 0;
+        private volatile int failures = 0;
+        private volatile Future<?> future;
+        private ReentrantLock roundLock = new ReentrantLock();
+
+        public long getNextSyncTime() {
+            return nextSyncTime;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public boolean isRunning() {
+            Future<?> current = future;
+            return current != null && !current.isDone();
+        }
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+
+        CustomizableThreadFactory workerFactory = new CustomizableThreadFactory("chain-sync-");
+        workerFactory.setDaemon(true);
+        syncExecutor = Executors.newFixedThreadPool(syncWorkerNum, workerFactory);
+
+        CustomizableThreadFactory schedulerFactory =
+                new CustomizableThreadFactory("chain-sync-scheduler-");
+        schedulerFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(schedulerFactory);
+        scheduler.scheduleWithFixedDelay(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            tick();
+                        } catch (Exception e) {
+                            logger.error("Chain sync tick error", e);
+                        }
+                    }
+                },
+                0,
+                tickInterval,
+                TimeUnit.MILLISECONDS);
+
+        logger.info("Chain sync engine started, workers: {}", syncWorkerNum);
+    }
+
+    public synchronized void stop() {
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdownNow();
+        syncExecutor.shutdownNow();
+        scheduler = null;
+        syncExecutor = null;
+    }
+
+    public void register(Chain chain) {
+        if (states.putIfAbsent(chain, new ChainSyncState()) == null) {
+            logger.info("Start block header sync: {}", chain.getName());
+        }
+    }
+
+    // stop syncing the chain, waits for its running round so its storage can be closed
+    public void unregister(Chain chain) {
+        ChainSyncState state = states.remove(chain);
+        if (state == null) {
+            return;
+        }
+
+        Future<?> future = state.future;
+        if (future != null) {
+            future.cancel(true);
+        }
+
+        state.roundLock.lock();
+        state.roundLock.unlock();
+        logger.info("Stop block header sync: {}", chain.getName());
+    }
+
+    // sync the chain on the next tick, e.g. when a peer announces a new block number
+    public void wakeup(Chain chain) {
+        ChainSyncState state = states.get(chain);
+        if (state != null) {
+            state.failures = 0;
+            state.nextSyncTime = 0;
+        }
+    }
+
+    public ChainSyncState getSyncState(Chain chain) {
+        return states.get(chain);
+    }
+
+    private void tick() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Chain, ChainSyncState> entry : states.entrySet()) {
+            Chain chain = entry.getKey();
+            ChainSyncState state = entry.getValue();
+
+            if (state.isRunning()) {
+                continue;
+            }
+
+            if (now < state.nextSyncTime && !chain.hasNewAnnouncedBlockNumber()) {
+                continue;
+            }
+
+            try {
+                state.future =
+                        syncExecutor.submit(
+                                new Runnable() {
+                                    @Override
+                                    public void run() {
+                                        syncRound(chain, state);
+                                    }
+                                });
+            } catch (RejectedExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    private void syncRound(Chain chain, ChainSyncState state) {
+        state.roundLock.lock();
+        try {
+            if (!states.containsKey(chain)) {
+                return;
+            }
+
+            Chain.SyncStatus status;
+            try {
+                status = chain.sync();
+            } catch (Exception e) {
+                logger.warn("Sync block header of {} error", chain.getName(), e);
+                status = Chain.SyncStatus.FAILED;
+            }
+
+            long interval =
+                    chain.isHasLocalConnection() ? localSyncInterval : remoteSyncInterval;
+            switch (status) {
+                case PROGRESSED:
+                case UP_TO_DATE:
+                    // keep going on the next tick while known blocks are still missing
+                    state.failures = 0;
+                    state.nextSyncTime =
+                            chain.getSyncLag() > 0 ? 0 : System.currentTimeMillis() + interval;
+                    break;
+                default:
+                    state.failures = Math.min(state.failures + 1, 30);
+                    state.nextSyncTime = System.currentTimeMillis() + backoff(interval, state);
+                    logger.debug(
+                            "Sync block header of {} failed {} times, lag: {}",
+                            chain.getName(),
+                            state.failures,
+                            chain.getSyncLag());
+                    break;
+            }
+        } finally {
+            state.roundLock.unlock();
+        }
+    }
+
+    private long backoff(long interval, ChainSyncState state) {
+        long delay = Math.max(interval, tickInterval);
+        for (int i = 0; i < state.failures && delay < maxBackoff; ++i) {
+            delay *= 2;
+        }
+        return Math.min(delay, Math.max(maxBackoff, interval));
+    }
+
+    public int getSyncWorkerNum() {
+        return syncWorkerNum;
+    }
+
+    public void setSyncWorkerNum(int syncWorkerNum) {
+        this.syncWorkerNum = syncWorkerNum;
+    }
+
+    public long getTickInterval() {
+        return tickInterval;
+    }
+
+    public void setTickInterval(long tickInterval) {
+        this.tickInterval = tickInterval;
+    }
+
+    public long getLocalSyncInterval() {
+        return localSyncInterval;
+    }
+
+    public void setLocalSyncInterval(long localSyncInterval) {
+        this.localSyncInterval = localSyncInterval;
+    }
+
+    public long getRemoteSyncInterval() {
+        return remoteSyncInterval;
+    }
+
+    public void setRemoteSyncInterval(long remoteSyncInterval) {
+        this.remoteSyncInterval = remoteSyncInterval;
+    }
+
+    public long getMaxBackoff() {
+        return maxBackoff;
+    }
+
+    public void setMaxBackoff(long maxBackoff) {
+        this.maxBackoff = maxBackoff;
+    }
+}
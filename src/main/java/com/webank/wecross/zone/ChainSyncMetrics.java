@@ -0,0 +1,92 @@
+package com.webank.wecross.zone;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// block header sync counters of one chain
+public class ChainSyncMetrics {
+    private AtomicLong fetchedBlocks = new AtomicLong(0);
+    private AtomicLong committedBlocks = new AtomicLong(0);
+    private AtomicLong commitBatches = new AtomicLong(0);
+    private AtomicLong fetchFailures = new AtomicLong(0);
+    private AtomicLong commitFailures = new AtomicLong(0);
+
+    private volatile long lastRoundBlocks = 0;
+    private volatile long lastRoundMillis = 0;
+
+    public void onFetched() {
+        fetchedBlocks.incrementAndGet();
+    }
+
+    public void onFetchFailed() {
+        fetchFailures.incrementAndGet();
+    }
+
+    public void onCommitted(int blocks) {
+        committedBlocks.addAndGet(blocks);
+        commitBatches.incrementAndGet();
+    }
+
+    public void onCommitFailed() {
+        commitFailures.incrementAndGet();
+    }
+
+    public void onRoundFinished(long blocks, long millis) {
+        lastRoundBlocks = blocks;
+        lastRoundMillis = millis;
+    }
+
+    public long getFetchedBlocks() {
+        return fetchedBlocks.get();
+    }
+
+    public long getCommittedBlocks() {
+        return committedBlocks.get();
+    }
+
+    public long getCommitBatches() {
+        return commitBatches.get();
+    }
+
+    public long getFetchFailures() {
+        return fetchFailures.get();
+    }
+
+    public long getCommitFailures() {
+        return commitFailures.get();
+    }
+
+    public long getLastRoundBlocks() {
+        return lastRoundBlocks;
+    }
+
+    public long getLastRoundMillis() {
+        return lastRoundMillis;
+    }
+
+    // blocks per second of the last sync round
+    public double getLastRoundRate() {
+        long millis = lastRoundMillis;
+        if (millis <= 0) {
+            return lastRoundBlocks;
+        }
+        return lastRoundBlocks * 1000.0 / millis;
+    }
+
+    @Override
+    public String toString() {
+        return "ChainSyncMetrics{"
+                + "fetchedBlocks="
+                + fetchedBlocks
+                + ", committedBlocks="
+                + committedBlocks
+                + ", commitBatches="
+                + commitBatches
+                + ", fetchFailures="
+                + fetchFailures
+                + ", commitFailures="
+                + commitFailures
+                + ", lastRoundRate="
+                + String.format("%.1f", getLastRoundRate())
+                + "/s}";
+    }
+}
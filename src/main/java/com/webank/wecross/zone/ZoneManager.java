@@ -1,11 +1,17 @@
 package com.webank.wecross.zone;
 
 import com.webank.wecross.exception.WeCrossException;
+import com.webank.wecross.p2p.MessageType;
+import com.webank.wecross.p2p.P2PMessage;
 import com.webank.wecross.p2p.P2PMessageEngine;
 import com.webank.wecross.peer.Peer;
 import com.webank.wecross.remote.RemoteConnection;
+import com.webank.wecross.remote.balance.FailoverPolicy;
+import com.webank.wecross.remote.balance.LoadBalanceStrategy;
+import com.webank.wecross.resource.CallCoalescer;
 import com.webank.wecross.resource.Resource;
 import com.webank.wecross.resource.ResourceBlockHeaderManager;
+import com.webank.wecross.restserver.Versions;
 import com.webank.wecross.storage.BlockHeaderStorageFactory;
 import com.webank.wecross.stub.Driver;
 import com.webank.wecross.stub.Path;
@@ -14,6 +20,7 @@ import com.webank.wecross.stub.StubManager;
 import com.webank.wecross.utils.core.PathUtils;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -26,8 +33,20 @@ public class ZoneManager {
     private Logger logger = LoggerFactory.getLogger(ZoneManager.class);
     private P2PMessageEngine p2pEngine;
     private ReadWriteLock lock = new ReentrantReadWriteLock();
+    // taken before lock, a removed chain is closed before a chain of its path is opened again
+    private Object storageLock = new Object();
     private StubManager stubManager;
     BlockHeaderStorageFactory blockHeaderStorageFactory;
+    private ExecutorService blockHeaderFetchExecutor;
+    private int syncWindowSize = 1;
+    private int syncBatchSize = 1;
+    private int syncRangeSize = 1;
+    private ChainSyncEngine chainSyncEngine;
+    private BlockHeaderPruner blockHeaderPruner;
+    private boolean coalesceCalls = false; // share identical concurrent calls of a resource
+    private long callCacheTTL = 0; // ms, reuse call results within a block, 0: no cache
+    private LoadBalanceStrategy loadBalanceStrategy; // null: the default of chains and resources
+    private FailoverPolicy failoverPolicy; // null: requests to remote resources try one peer
 
     public Resource getResource(Path path) {
         lock.readLock().lock();
@@ -80,12 +99,39 @@ public class ZoneManager {
         this.zones = zones;
     }
 
+    // snapshot of all chains by zone.chain
+    public Map<String, Chain> getAllChains() {
+        Map<String, Chain> chains = new HashMap<String, Chain>();
+
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Zone> zoneEntry : zones.entrySet()) {
+                for (Map.Entry<String, Chain> chainEntry :
+                        zoneEntry.getValue().getChains().entrySet()) {
+                    chains.put(
+                            zoneEntry.getKey() + "." + chainEntry.getKey(), chainEntry.getValue());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return chains;
+    }
+
     public int getSeq() {
         return seq.intValue();
     }
 
     public void addRemoteResources(Peer peer, Map<String, ResourceInfo> resources)
             throws Exception {
+        synchronized (storageLock) {
+            addRemoteResourcesLocked(peer, resources);
+        }
+    }
+
+    private void addRemoteResourcesLocked(Peer peer, Map<String, ResourceInfo> resources)
+            throws Exception {
         lock.writeLock().lock();
         try {
             for (Map.Entry<String, ResourceInfo> entry : resources.entrySet()) {
@@ -133,12 +179,23 @@ public class ZoneManager {
                     String blockPath = path.getNetwork() + "." + path.getChain();
                     chain.setBlockHeaderStorage(
                             blockHeaderStorageFactory.newBlockHeaderStorage(blockPath));
+                    chain.setFetchExecutor(blockHeaderFetchExecutor);
+                    chain.setSyncWindowSize(syncWindowSize);
+                    chain.setSyncBatchSize(syncBatchSize);
+                    chain.setSyncRangeSize(syncRangeSize);
+                    if (loadBalanceStrategy != null) {
+                        chain.setLoadBalanceStrategy(loadBalanceStrategy);
+                    }
                     chain.addConnection(peer, remoteConnection);
-                    chain.start();
-
-                    logger.info("Start block header sync: {}", blockPath);
 
                     zone.getChains().put(path.getChain(), chain);
+                    if (chainSyncEngine != null) {
+                        chainSyncEngine.register(chain);
+                    }
+                    subscribeBlockNumber(peer, path.getNetwork(), path.getChain());
+                } else if (!chain.hasConnection(peer)) {
+                    chain.addConnection(peer, remoteConnection);
+                    subscribeBlockNumber(peer, path.getNetwork(), path.getChain());
                 } else {
                     chain.addConnection(peer, remoteConnection);
                 }
@@ -155,6 +212,16 @@ public class ZoneManager {
 
                     resource.setResourceBlockHeaderManager(resourceBlockHeaderManager);
                     resource.setResourceInfo(resourceInfo);
+                    if (loadBalanceStrategy != null) {
+                        resource.setLoadBalanceStrategy(loadBalanceStrategy);
+                    }
+                    resource.setFailoverPolicy(failoverPolicy);
+                    if (coalesceCalls) {
+                        CallCoalescer callCoalescer = new CallCoalescer();
+                        callCoalescer.setChain(chain);
+                        callCoalescer.setCacheTTL(callCacheTTL);
+                        resource.setCallCoalescer(callCoalescer);
+                    }
 
                     chain.getResources().put(path.getResource(), resource);
                 }
@@ -175,6 +242,7 @@ public class ZoneManager {
     }
 
     public void removeRemoteResources(Peer peer, Map<String, ResourceInfo> resources) {
+        Map<String, Chain> removedChains = new HashMap<String, Chain>(); // by zone.chain
         lock.writeLock().lock();
         try {
             for (Map.Entry<String, ResourceInfo> entry : resources.entrySet()) {
@@ -215,14 +283,7 @@ public class ZoneManager {
                 }
 
                 if (chain.getResources().isEmpty()) {
-                    chain.stop();
-                    if (chain.getBlockHeaderStorage() != null) {
-                        chain.getBlockHeaderStorage().close();
-                    }
-                    logger.info(
-                            "Stop block header sync: {}",
-                            path.getNetwork() + "." + path.getChain());
-
+                    removedChains.put(path.getNetwork() + "." + path.getChain(), chain);
                     zone.getChains().remove(path.getChain());
                 }
 
@@ -233,6 +294,161 @@ public class ZoneManager {
         } finally {
             lock.writeLock().unlock();
         }
+
+        if (removedChains.isEmpty()) {
+            return;
+        }
+
+        // waits for a sync round and pending writes of the chains, readers are not blocked by it
+        synchronized (storageLock) {
+            for (Map.Entry<String, Chain> entry : removedChains.entrySet()) {
+                Chain chain = entry.getValue();
+                if (chainSyncEngine != null) {
+                    chainSyncEngine.unregister(chain);
+                }
+                if (blockHeaderPruner != null) {
+                    blockHeaderPruner.unregister(entry.getKey());
+                }
+                if (chain.getBlockHeaderStorage() != null) {
+                    chain.getBlockHeaderStorage().close();
+                    blockHeaderStorageFactory.dropBlockHeaderStorage(entry.getKey());
+                }
+            }
+        }
+    }
+
+    // register loaded chains to the sync engine and start it
+    public void startChainSync() {
+        lock.readLock().lock();
+        try {
+            for (Zone zone : zones.values()) {
+                for (Chain chain : zone.getChains().values()) {
+                    chainSyncEngine.register(chain);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        chainSyncEngine.start();
+    }
+
+    // announce block number of local chains to subscribed peers
+    public void registerLocalChainListeners() {
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Zone> zoneEntry : zones.entrySet()) {
+                String network = zoneEntry.getKey();
+                for (Chain localChain : zoneEntry.getValue().getChains().values()) {
+                    if (!localChain.isHasLocalConnection()) {
+                        continue;
+                    }
+
+                    localChain.setBlockNumberListener(
+                            new BlockNumberListener() {
+                                @Override
+                                public void onBlockNumber(Chain chain, long blockNumber) {
+                                    for (Peer peer : chain.getBlockNumberSubscribers()) {
+                                        announceBlockNumber(peer, network, chain, blockNumber);
+                                    }
+                                }
+                            });
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void subscribeBlockNumber(Peer peer, String network, String chainName) {
+        if (p2pEngine == null) {
+            return;
+        }
+
+        BlockNumberMessageData data = new BlockNumberMessageData();
+        data.setNetwork(network);
+        data.setChain(chainName);
+
+        P2PMessage<BlockNumberMessageData> msg = new P2PMessage<>();
+        msg.newSeq();
+        msg.setVersion(Versions.currentVersion);
+        msg.setMethod("subscribeBlockNumber");
+        msg.setData(data);
+
+        logger.debug("Subscribe block number of {}.{} from peer: {}", network, chainName, peer);
+        p2pEngine.asyncSendMessage(peer, msg, null);
+    }
+
+    public void onSubscribeBlockNumber(Peer peer, BlockNumberMessageData data) {
+        Zone zone = getZone(data.getNetwork());
+        Chain chain = zone == null ? null : zone.getChain(data.getChain());
+        if (chain == null || !chain.isHasLocalConnection()) {
+            logger.debug(
+                    "Ignore block number subscription of {}.{} from peer: {}",
+                    data.getNetwork(),
+                    data.getChain(),
+                    peer);
+            return;
+        }
+
+        chain.addBlockNumberSubscriber(peer);
+
+        // let the subscriber start syncing without waiting for the next block
+        long blockNumber = chain.getBlockNumber();
+        if (blockNumber >= 0) {
+            announceBlockNumber(peer, data.getNetwork(), chain, blockNumber);
+        }
+    }
+
+    public void onRemoteBlockNumber(Peer peer, BlockNumberMessageData data) {
+        Zone zone = getZone(data.getNetwork());
+        Chain chain = zone == null ? null : zone.getChain(data.getChain());
+        if (chain == null || chain.isHasLocalConnection() || !chain.hasConnection(peer)) {
+            return;
+        }
+
+        logger.trace(
+                "Receive block number({}) of {}.{} from peer: {}",
+                data.getBlockNumber(),
+                data.getNetwork(),
+                data.getChain(),
+                peer);
+        chain.onAnnouncedBlockNumber(data.getBlockNumber());
+        if (chainSyncEngine != null) {
+            chainSyncEngine.wakeup(chain);
+        }
+    }
+
+    public void removeBlockNumberSubscriber(Peer peer) {
+        lock.readLock().lock();
+        try {
+            for (Zone zone : zones.values()) {
+                for (Chain chain : zone.getChains().values()) {
+                    chain.removeBlockNumberSubscriber(peer);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void announceBlockNumber(Peer peer, String network, Chain chain, long blockNumber) {
+        if (p2pEngine == null) {
+            return;
+        }
+
+        BlockNumberMessageData data = new BlockNumberMessageData();
+        data.setNetwork(network);
+        data.setChain(chain.getName());
+        data.setBlockNumber(blockNumber);
+
+        P2PMessage<BlockNumberMessageData> msg = new P2PMessage<>();
+        msg.newSeq();
+        msg.setVersion(Versions.currentVersion);
+        msg.setMethod("blockNumber");
+        msg.setData(data);
+
+        p2pEngine.asyncSendNotification(peer, MessageType.CHAIN_BLOCK_NUMBER, msg);
     }
 
     public Map<String, Resource> getAllResources(boolean ignoreRemote) {
@@ -319,4 +535,84 @@ public class ZoneManager {
     public void setBlockHeaderStorageFactory(BlockHeaderStorageFactory blockHeaderStorageFactory) {
         this.blockHeaderStorageFactory = blockHeaderStorageFactory;
     }
+
+    public ExecutorService getBlockHeaderFetchExecutor() {
+        return blockHeaderFetchExecutor;
+    }
+
+    public void setBlockHeaderFetchExecutor(ExecutorService blockHeaderFetchExecutor) {
+        this.blockHeaderFetchExecutor = blockHeaderFetchExecutor;
+    }
+
+    public int getSyncWindowSize() {
+        return syncWindowSize;
+    }
+
+    public void setSyncWindowSize(int syncWindowSize) {
+        this.syncWindowSize = syncWindowSize;
+    }
+
+    public int getSyncBatchSize() {
+        return syncBatchSize;
+    }
+
+    public void setSyncBatchSize(int syncBatchSize) {
+        this.syncBatchSize = syncBatchSize;
+    }
+
+    public int getSyncRangeSize() {
+        return syncRangeSize;
+    }
+
+    public void setSyncRangeSize(int syncRangeSize) {
+        this.syncRangeSize = syncRangeSize;
+    }
+
+    public ChainSyncEngine getChainSyncEngine() {
+        return chainSyncEngine;
+    }
+
+    public void setChainSyncEngine(ChainSyncEngine chainSyncEngine) {
+        this.chainSyncEngine = chainSyncEngine;
+    }
+
+    public BlockHeaderPruner getBlockHeaderPruner() {
+        return blockHeaderPruner;
+    }
+
+    public void setBlockHeaderPruner(BlockHeaderPruner blockHeaderPruner) {
+        this.blockHeaderPruner = blockHeaderPruner;
+    }
+
+    public boolean isCoalesceCalls() {
+        return coalesceCalls;
+    }
+
+    public void setCoalesceCalls(boolean coalesceCalls) {
+        this.coalesceCalls = coalesceCalls;
+    }
+
+    public long getCallCacheTTL() {
+        return callCacheTTL;
+    }
+
+    public void setCallCacheTTL(long callCacheTTL) {
+        this.callCacheTTL = callCacheTTL;
+    }
+
+    public LoadBalanceStrategy getLoadBalanceStrategy() {
+        return loadBalanceStrategy;
+    }
+
+    public void setLoadBalanceStrategy(LoadBalanceStrategy loadBalanceStrategy) {
+        this.loadBalanceStrategy = loadBalanceStrategy;
+    }
+
+    public FailoverPolicy getFailoverPolicy() {
+        return failoverPolicy;
+    }
+
+    public void setFailoverPolicy(FailoverPolicy failoverPolicy) {
+        this.failoverPolicy = failoverPolicy;
+    }
 }
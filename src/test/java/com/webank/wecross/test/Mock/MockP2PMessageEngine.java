@@ -23,6 +23,11 @@ public class MockP2PMessageEngine extends P2PMessageEngine {
             checkCallback(callback);
 
             P2PResponse response = filter.checkAndResponse(msg);
+            if (response != null && response.getErrorCode() != 0) {
+                // remote errors reach the callback as the status, like RestfulP2PMessageEngine
+                executeCallback(callback, response.getErrorCode(), response.getMessage(), null);
+                return;
+            }
 
             executeCallback(callback, 0, "Success", response);
         } catch (Exception e) {
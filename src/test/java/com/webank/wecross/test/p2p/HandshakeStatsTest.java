@@ -0,0 +1,36 @@
+package com.webank.wecross.test.p2p;
+
+import com.webank.wecross.config.P2PConfig;
+import com.webank.wecross.p2p.netty.HandshakeStats;
+import com.webank.wecross.p2p.netty.NettyBootstrap;
+import io.netty.handler.ssl.SslProvider;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HandshakeStatsTest {
+    @Test
+    public void statsTest() {
+        HandshakeStats handshakeStats = new HandshakeStats();
+        handshakeStats.onHandshake("peer0", 30, false);
+        handshakeStats.onHandshake("peer0", 10, true);
+        handshakeStats.onFailure();
+
+        HandshakeStats.Record record = handshakeStats.getRecord("peer0");
+        Assert.assertEquals(2, record.getHandshakes());
+        Assert.assertEquals(1, record.getResumed());
+        Assert.assertEquals(20.0, record.getAverageMillis(), 0.001);
+        Assert.assertEquals(10, record.getLastMillis());
+        Assert.assertNull(handshakeStats.getRecord("peer1"));
+        Assert.assertEquals(1, handshakeStats.getFailures());
+    }
+
+    @Test
+    public void sslProviderTest() {
+        NettyBootstrap nettyBootstrap = new NettyBootstrap();
+        Assert.assertEquals(SslProvider.JDK, nettyBootstrap.getSslProvider());
+
+        P2PConfig config = new P2PConfig();
+        nettyBootstrap.setConfig(config);
+        Assert.assertEquals(SslProvider.JDK, nettyBootstrap.getSslProvider());
+    }
+}
@@ -0,0 +1,129 @@
+package com.webank.wecross.test.p2p;
+
+import com.webank.wecross.p2p.MessageType;
+import com.webank.wecross.p2p.netty.InboundExecutor;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class InboundExecutorTest {
+    @Test
+    public void laneTest() throws Exception {
+        InboundExecutor.Lane control = new InboundExecutor.Lane("test-control", 1, 10);
+        InboundExecutor.Lane request = new InboundExecutor.Lane("test-request", 1, 10);
+        InboundExecutor inboundExecutor = new InboundExecutor();
+        inboundExecutor.setLane(MessageType.HEARTBEAT, control);
+        inboundExecutor.setDefaultLane(request);
+
+        // a busy request lane does not hold back heartbeats
+        CountDownLatch blocked = new CountDownLatch(1);
+        inboundExecutor.execute(null, MessageType.RESOURCE_REQUEST, () -> await(blocked));
+        CountDownLatch heartbeat = new CountDownLatch(1);
+        inboundExecutor.execute(null, MessageType.HEARTBEAT, heartbeat::countDown);
+        Assert.assertTrue(heartbeat.await(5, TimeUnit.SECONDS));
+
+        blocked.countDown();
+        inboundExecutor.stop();
+    }
+
+    @Test
+    public void backpressureTest() throws Exception {
+        ChannelConfig config = Mockito.mock(ChannelConfig.class);
+        Channel channel = Mockito.mock(Channel.class);
+        Mockito.when(channel.config()).thenReturn(config);
+
+        InboundExecutor.Lane lane = new InboundExecutor.Lane("test-lane", 1, 2);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(4);
+        for (int i = 0; i < 4; ++i) {
+            lane.execute(
+                    channel,
+                    () -> {
+                        await(blocked);
+                        finished.countDown();
+                    });
+        }
+
+        // the queue is full, reading stops but nothing is dropped
+        Mockito.verify(config, Mockito.atLeastOnce()).setAutoRead(false);
+        Mockito.verify(config, Mockito.never()).setAutoRead(true);
+        Assert.assertEquals(1, lane.getPausedChannels());
+
+        blocked.countDown();
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        Mockito.verify(config, Mockito.timeout(5000)).setAutoRead(true);
+        Assert.assertEquals(0, lane.getPausedChannels());
+        Assert.assertEquals(4, lane.getTasks());
+        lane.stop();
+    }
+
+    @Test
+    public void orderedTest() throws Exception {
+        InboundExecutor.Lane lane = new InboundExecutor.Lane("test-ordered", 8, 1000);
+        List<Integer> peer0 = Collections.synchronizedList(new ArrayList<Integer>());
+        List<Integer> peer1 = Collections.synchronizedList(new ArrayList<Integer>());
+        CountDownLatch finished = new CountDownLatch(200);
+        for (int i = 0; i < 100; ++i) {
+            int index = i;
+            lane.execute(
+                    null,
+                    "peer0",
+                    () -> {
+                        peer0.add(index);
+                        finished.countDown();
+                    });
+            lane.execute(
+                    null,
+                    "peer1",
+                    () -> {
+                        peer1.add(index);
+                        finished.countDown();
+                    });
+        }
+
+        // messages of a peer are processed in the order they arrived
+        Assert.assertTrue(finished.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; ++i) {
+            Assert.assertEquals(i, peer0.get(i).intValue());
+            Assert.assertEquals(i, peer1.get(i).intValue());
+        }
+        Assert.assertEquals(0, lane.getQueueDepth());
+        lane.stop();
+    }
+
+    @Test
+    public void orderedBlockedTest() throws Exception {
+        InboundExecutor.Lane lane = new InboundExecutor.Lane("test-ordered", 2, 1000);
+
+        // a blocked peer holds back its own messages only
+        CountDownLatch blocked = new CountDownLatch(1);
+        lane.execute(null, "slow", () -> await(blocked));
+        CountDownLatch queued = new CountDownLatch(1);
+        lane.execute(null, "slow", queued::countDown);
+        CountDownLatch other = new CountDownLatch(1);
+        lane.execute(null, "fast", other::countDown);
+
+        Assert.assertTrue(other.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, queued.getCount());
+        Assert.assertEquals(1, lane.getQueueDepth());
+
+        blocked.countDown();
+        Assert.assertTrue(queued.await(5, TimeUnit.SECONDS));
+        lane.stop();
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.webank.wecross.test.p2p;
+
+import com.webank.wecross.p2p.netty.message.proto.Message;
+import com.webank.wecross.p2p.netty.message.serialize.MessageSerializer;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MessageSerializerTest {
+    private Message roundTrip(Message message, int version, int expectedLength)
+            throws Exception {
+        MessageSerializer serializer = new MessageSerializer();
+        ByteBuf byteBuf = Unpooled.buffer();
+        serializer.serialize(message, byteBuf, version);
+        Assert.assertEquals(expectedLength, byteBuf.readableBytes());
+
+        Message decoded = serializer.deserialize(byteBuf);
+        byteBuf.release();
+        Assert.assertEquals(message.getType(), decoded.getType());
+        Assert.assertEquals(message.getResult(), decoded.getResult());
+        Assert.assertArrayEquals(message.getData(), decoded.getData());
+        return decoded;
+    }
+
+    @Test
+    public void testVersion2() throws Exception {
+        Message message = Message.builder((short) 0x10, "hello");
+        message.setSeq(Long.MAX_VALUE);
+
+        Message decoded = roundTrip(message, Message.VERSION_2, Message.HEADER_LENGTH_V2 + 5);
+        Assert.assertEquals(Long.MAX_VALUE, decoded.getSeq());
+        Assert.assertNull(decoded.getLegacySeq());
+    }
+
+    @Test
+    public void testVersion1() throws Exception {
+        Message message = Message.builder((short) 0x10, "hello");
+        message.setSeq(12345);
+
+        Message decoded = roundTrip(message, Message.VERSION_1, Message.HEADER_LENGTH + 5);
+        Assert.assertEquals(12345, decoded.getSeq());
+
+        // uuid seq of a v1 peer is echoed back as is
+        byte[] uuid = "0123456789abcdef0123456789abcdef".getBytes();
+        message.setLegacySeq(uuid);
+        decoded = roundTrip(message, Message.VERSION_1, Message.HEADER_LENGTH + 5);
+        Assert.assertEquals(0, decoded.getSeq());
+        Assert.assertArrayEquals(uuid, decoded.getLegacySeq());
+    }
+
+    @Test
+    public void testDeserializeView() throws Exception {
+        Message message = Message.builder((short) 0x11, "{\"seq\":1}");
+        message.setSeq(1);
+
+        MessageSerializer serializer = new MessageSerializer();
+        ByteBuf byteBuf = Unpooled.buffer();
+        serializer.serialize(message, byteBuf, Message.VERSION_2);
+
+        Message decoded = serializer.deserializeView(byteBuf);
+        byteBuf.release();
+        // the data slice keeps the frame alive until the message is released
+        Assert.assertEquals(1, byteBuf.refCnt());
+        Assert.assertEquals(message.getData().length, decoded.getDataLength());
+
+        byte[] streamed = new byte[decoded.getDataLength()];
+        Assert.assertEquals(streamed.length, decoded.getDataStream().read(streamed));
+        Assert.assertArrayEquals(message.getData(), streamed);
+        Assert.assertArrayEquals(message.getData(), decoded.getData());
+
+        decoded.release();
+        Assert.assertEquals(0, byteBuf.refCnt());
+    }
+}
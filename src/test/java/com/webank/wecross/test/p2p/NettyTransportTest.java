@@ -0,0 +1,44 @@
+package com.webank.wecross.test.p2p;
+
+import com.webank.wecross.config.P2PConfig;
+import com.webank.wecross.p2p.netty.NettyTransport;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.springframework.core.io.Resource;
+
+public class NettyTransportTest {
+    @Test
+    public void nioTest() {
+        P2PConfig config = new P2PConfig();
+        config.setNativeTransport(false);
+        config.setDirectBuffers(false);
+
+        NettyTransport transport = new NettyTransport(config);
+        Assert.assertFalse(transport.isEpoll());
+        Assert.assertTrue(transport.getAllocator() instanceof PooledByteBufAllocator);
+
+        ByteBuf byteBuf = transport.getAllocator().buffer();
+        Assert.assertFalse(byteBuf.isDirect());
+        byteBuf.release();
+
+        transport.initClient(new Bootstrap());
+        transport.stop();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void waterMarkTest() {
+        P2PConfig config = new P2PConfig();
+        config.setListenIP("127.0.0.1");
+        config.setListenPort(25500);
+        config.setCaCert(Mockito.mock(Resource.class));
+        config.setSslCert(Mockito.mock(Resource.class));
+        config.setSslKey(Mockito.mock(Resource.class));
+        config.setWriteBufferLowWaterMark(64 * 1024);
+        config.setWriteBufferHighWaterMark(32 * 1024);
+        config.validConfig();
+    }
+}
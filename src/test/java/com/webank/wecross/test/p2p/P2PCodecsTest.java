@@ -0,0 +1,66 @@
+package com.webank.wecross.test.p2p;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.webank.wecross.p2p.P2PMessage;
+import com.webank.wecross.p2p.codec.P2PCodec;
+import com.webank.wecross.p2p.codec.P2PCodecs;
+import com.webank.wecross.stub.Request;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class P2PCodecsTest {
+    private P2PMessage<Request> newMessage(byte[] payload) {
+        Request request = new Request();
+        request.setData(payload);
+
+        P2PMessage<Request> message = new P2PMessage<Request>();
+        message.setSeq(100);
+        message.setVersion("1");
+        message.setMethod("payment/bcos/HelloWorld/transaction");
+        message.setData(request);
+        return message;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        byte[] payload = new byte[4096];
+        for (int i = 0; i < payload.length; ++i) {
+            payload[i] = (byte) i;
+        }
+
+        int jsonLength = 0;
+        int smileLength = 0;
+        for (P2PCodec codec : new P2PCodec[] {P2PCodecs.JSON, P2PCodecs.SMILE}) {
+            byte[] encoded = codec.encode(newMessage(payload));
+            if (codec == P2PCodecs.JSON) {
+                jsonLength = encoded.length;
+            } else {
+                smileLength = encoded.length;
+            }
+
+            // the receiver finds the codec from the content
+            InputStream content = new ByteArrayInputStream(encoded);
+            Assert.assertSame(codec, P2PCodecs.detect(content));
+
+            P2PMessage<Request> decoded =
+                    P2PCodecs.detect(content)
+                            .decode(content, new TypeReference<P2PMessage<Request>>() {});
+            Assert.assertEquals(100, decoded.getSeq());
+            Assert.assertArrayEquals(payload, decoded.getData().getData());
+        }
+
+        // raw bytes instead of base64
+        Assert.assertTrue(smileLength < jsonLength);
+    }
+
+    @Test
+    public void testNegotiate() {
+        Assert.assertSame(P2PCodecs.SMILE, P2PCodecs.negotiate(P2PCodecs.announce()));
+        Assert.assertSame(P2PCodecs.SMILE, P2PCodecs.negotiate("json,smile"));
+        Assert.assertSame(P2PCodecs.JSON, P2PCodecs.negotiate("json"));
+        Assert.assertSame(P2PCodecs.JSON, P2PCodecs.negotiate("cbor"));
+        Assert.assertSame(P2PCodecs.JSON, P2PCodecs.getCodec(null));
+    }
+}
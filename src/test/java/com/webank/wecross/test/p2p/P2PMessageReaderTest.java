@@ -0,0 +1,61 @@
+package com.webank.wecross.test.p2p;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.webank.wecross.p2p.P2PMessage;
+import com.webank.wecross.p2p.P2PMessageReader;
+import com.webank.wecross.p2p.codec.P2PCodec;
+import com.webank.wecross.p2p.codec.P2PCodecs;
+import com.webank.wecross.stub.Request;
+import java.io.ByteArrayInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class P2PMessageReaderTest {
+    private P2PMessage<Object> read(P2PCodec codec, byte[] content) throws Exception {
+        P2PMessageReader reader = new P2PMessageReader();
+        reader.addResourceRoute("transaction", Request.class);
+        try (JsonParser parser = codec.createParser(new ByteArrayInputStream(content))) {
+            return reader.read(parser);
+        }
+    }
+
+    @Test
+    public void testRoutedData() throws Exception {
+        Request request = new Request();
+        request.setData(new byte[] {1, 2, 3});
+
+        P2PMessage<Request> message = new P2PMessage<Request>();
+        message.setSeq(100);
+        message.setVersion("1");
+        message.setMethod("payment/bcos/HelloWorld/transaction");
+        message.setData(request);
+
+        for (P2PCodec codec : new P2PCodec[] {P2PCodecs.JSON, P2PCodecs.SMILE}) {
+            P2PMessage<Object> decoded = read(codec, codec.encode(message));
+            Assert.assertEquals(100, decoded.getSeq());
+            Assert.assertEquals("1", decoded.getVersion());
+            Assert.assertArrayEquals(
+                    new byte[] {1, 2, 3}, ((Request) decoded.getData()).getData());
+        }
+    }
+
+    @Test
+    public void testDataBeforeMethod() throws Exception {
+        String content =
+                "{\"data\":{\"type\":1,\"data\":\"AQID\"},\"extra\":[1,{\"a\":2}],"
+                        + "\"seq\":7,\"method\":\"payment/bcos/HelloWorld/transaction\"}";
+        P2PMessage<Object> decoded = read(P2PCodecs.JSON, content.getBytes());
+        Assert.assertEquals(7, decoded.getSeq());
+        Assert.assertEquals(1, ((Request) decoded.getData()).getType());
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, ((Request) decoded.getData()).getData());
+    }
+
+    @Test
+    public void testUnroutedData() throws Exception {
+        String content = "{\"version\":\"1\",\"seq\":8,\"method\":\"unknown\",\"data\":{\"a\":1}}";
+        P2PMessage<Object> decoded = read(P2PCodecs.JSON, content.getBytes());
+        Assert.assertEquals(8, decoded.getSeq());
+        Assert.assertEquals("unknown", decoded.getMethod());
+        Assert.assertNull(decoded.getData());
+    }
+}
@@ -0,0 +1,45 @@
+package com.webank.wecross.test.p2p;
+
+import com.webank.wecross.p2p.MessageType;
+import com.webank.wecross.p2p.netty.NettyBootstrap;
+import com.webank.wecross.p2p.netty.P2PService;
+import com.webank.wecross.p2p.netty.SeqMapper;
+import com.webank.wecross.p2p.netty.common.Node;
+import com.webank.wecross.p2p.netty.request.Request;
+import com.webank.wecross.p2p.netty.response.Response;
+import com.webank.wecross.p2p.netty.response.StatusCode;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class P2PServiceTest {
+    @Test
+    public void notWritableTest() throws Exception {
+        Channel channel = Mockito.mock(Channel.class);
+        Mockito.when(channel.isActive()).thenReturn(true);
+        Mockito.when(channel.isWritable()).thenReturn(false);
+        ChannelHandlerContext ctx = Mockito.mock(ChannelHandlerContext.class);
+        Mockito.when(ctx.channel()).thenReturn(channel);
+
+        NettyBootstrap nettyBootstrap = new NettyBootstrap();
+        nettyBootstrap.getConnections().getNodeID2ChannelHandler().put("peer", ctx);
+        P2PService p2pService = new P2PService();
+        p2pService.setInitializer(nettyBootstrap);
+        p2pService.setSeqMapper(new SeqMapper());
+
+        Request request = new Request();
+        request.setType(MessageType.RESOURCE_REQUEST);
+        request.setContent("{}");
+
+        // the buffer of a slow peer does not grow, the request fails at once
+        Response response =
+                p2pService
+                        .asyncSendRequest(new Node("peer", "127.0.0.1", 25500), request)
+                        .get(5, TimeUnit.SECONDS);
+        Assert.assertEquals(StatusCode.NOT_WRITABLE, response.getErrorCode());
+        Mockito.verify(ctx, Mockito.never()).writeAndFlush(Mockito.any());
+    }
+}
@@ -0,0 +1,85 @@
+package com.webank.wecross.test.remote;
+
+import com.webank.wecross.p2p.netty.common.Node;
+import com.webank.wecross.peer.Peer;
+import com.webank.wecross.remote.RemoteConnection;
+import com.webank.wecross.remote.balance.ConnectionSelector;
+import com.webank.wecross.remote.balance.LoadBalanceStrategies;
+import com.webank.wecross.remote.balance.LoadBalanceStrategy;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConnectionSelectorTest {
+    private RemoteConnection newRemoteConnection(Peer peer) {
+        RemoteConnection connection = new RemoteConnection();
+        connection.setPeer(peer);
+        return connection;
+    }
+
+    @Test
+    public void putAndRemoveTest() {
+        ConnectionSelector selector = new ConnectionSelector();
+        Assert.assertNull(selector.choose());
+
+        Peer peer0 = new Peer(new Node("0", "", 0));
+        Peer peer1 = new Peer(new Node("1", "", 0));
+        RemoteConnection connection0 = newRemoteConnection(peer0);
+        selector.put(peer0, connection0);
+        selector.put(peer1, newRemoteConnection(peer1));
+        selector.put(peer0, connection0);
+        Assert.assertEquals(2, selector.size());
+        Assert.assertTrue(selector.contains(peer1));
+
+        selector.remove(peer1);
+        Assert.assertFalse(selector.contains(peer1));
+        Assert.assertSame(connection0, selector.choose());
+    }
+
+    private void assertAvoidsLoaded(LoadBalanceStrategy strategy) {
+        ConnectionSelector selector = new ConnectionSelector();
+        selector.setStrategy(strategy);
+
+        Peer busyPeer = new Peer(new Node("busy", "", 0));
+        Peer idlePeer = new Peer(new Node("idle", "", 0));
+        RemoteConnection busy = newRemoteConnection(busyPeer);
+        RemoteConnection idle = newRemoteConnection(idlePeer);
+        selector.put(busyPeer, busy);
+        selector.put(idlePeer, idle);
+
+        for (int i = 0; i < 10; ++i) {
+            busy.getStats().onRequest();
+        }
+        for (int i = 0; i < 100; ++i) {
+            Assert.assertSame(strategy.name(), idle, selector.choose());
+        }
+    }
+
+    @Test
+    public void strategyTest() {
+        assertAvoidsLoaded(LoadBalanceStrategies.LEAST_OUTSTANDING);
+        assertAvoidsLoaded(LoadBalanceStrategies.EWMA);
+        assertAvoidsLoaded(LoadBalanceStrategies.POWER_OF_TWO_CHOICES);
+
+        Assert.assertSame(LoadBalanceStrategies.EWMA, LoadBalanceStrategies.get("ewma"));
+        Assert.assertNull(LoadBalanceStrategies.get("unknown"));
+    }
+
+    @Test
+    public void errorRateTest() {
+        ConnectionSelector selector = new ConnectionSelector();
+        selector.setStrategy(LoadBalanceStrategies.EWMA);
+
+        Peer failingPeer = new Peer(new Node("failing", "", 0));
+        Peer healthyPeer = new Peer(new Node("healthy", "", 0));
+        RemoteConnection failing = newRemoteConnection(failingPeer);
+        RemoteConnection healthy = newRemoteConnection(healthyPeer);
+        selector.put(failingPeer, failing);
+        selector.put(healthyPeer, healthy);
+
+        for (int i = 0; i < 10; ++i) {
+            failing.getStats().onResponse(failing.getStats().onRequest(), false);
+            healthy.getStats().onResponse(healthy.getStats().onRequest(), true);
+        }
+        Assert.assertSame(healthy, selector.choose());
+    }
+}
@@ -0,0 +1,145 @@
+package com.webank.wecross.test.remote;
+
+import com.webank.wecross.p2p.P2PMessage;
+import com.webank.wecross.p2p.P2PMessageCallback;
+import com.webank.wecross.p2p.P2PMessageEngine;
+import com.webank.wecross.p2p.engine.P2PResponse;
+import com.webank.wecross.p2p.netty.common.Node;
+import com.webank.wecross.p2p.netty.response.StatusCode;
+import com.webank.wecross.peer.Peer;
+import com.webank.wecross.remote.RemoteConnection;
+import com.webank.wecross.remote.balance.ConnectionSelector;
+import com.webank.wecross.remote.balance.FailoverConnection;
+import com.webank.wecross.remote.balance.FailoverPolicy;
+import com.webank.wecross.remote.balance.LoadBalanceStrategy;
+import com.webank.wecross.stub.Request;
+import com.webank.wecross.stub.Response;
+import com.webank.wecross.stub.StubQueryStatus;
+import io.netty.util.HashedWheelTimer;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FailoverConnectionTest {
+    private static final int SILENT = -1; // never answers
+
+    private HashedWheelTimer timer = new HashedWheelTimer();
+    private AtomicInteger sent = new AtomicInteger();
+
+    @After
+    public void stop() {
+        timer.stop();
+    }
+
+    // the first peer put is always tried first
+    private LoadBalanceStrategy inOrder =
+            new LoadBalanceStrategy() {
+                @Override
+                public String name() {
+                    return "inOrder";
+                }
+
+                @Override
+                public int choose(ConnectionSelector.Candidate[] candidates) {
+                    return 0;
+                }
+            };
+
+    private RemoteConnection newRemoteConnection(String name, int status) {
+        P2PMessageEngine engine =
+                new P2PMessageEngine() {
+                    @Override
+                    public <T> void asyncSendMessage(
+                            Peer peer, P2PMessage<T> msg, P2PMessageCallback<?> callback) {
+                        sent.incrementAndGet();
+                        if (status == SILENT) {
+                            return;
+                        }
+
+                        P2PResponse<Response> p2pResponse = null;
+                        if (status == StatusCode.SUCCESS) {
+                            Response response = new Response();
+                            response.setErrorMessage(name);
+                            p2pResponse = new P2PResponse<Response>();
+                            p2pResponse.setData(response);
+                        }
+                        executeCallback(callback, status, name, p2pResponse);
+                    }
+                };
+
+        RemoteConnection connection = new RemoteConnection();
+        connection.setPeer(new Peer(new Node(name, "", 0)));
+        connection.setPath("payment.bcos.HelloWorld");
+        connection.setP2pEngine(engine);
+        return connection;
+    }
+
+    private FailoverConnection newFailoverConnection(
+            boolean idempotent, RemoteConnection... connections) {
+        ConnectionSelector selector = new ConnectionSelector();
+        selector.setStrategy(inOrder);
+        for (RemoteConnection connection : connections) {
+            selector.put(connection.getPeer(), connection);
+        }
+
+        FailoverPolicy policy = new FailoverPolicy();
+        policy.setTimer(timer);
+        policy.setTimeout(1000);
+        policy.setAttemptTimeout(50);
+        return new FailoverConnection(selector, policy, idempotent);
+    }
+
+    @Test
+    public void unreachableTest() {
+        FailoverConnection connection =
+                newFailoverConnection(
+                        false,
+                        newRemoteConnection("down", StatusCode.UNREACHABLE),
+                        newRemoteConnection("up", StatusCode.SUCCESS));
+
+        Assert.assertEquals("up", connection.send(new Request()).getErrorMessage());
+        Assert.assertEquals(2, sent.get());
+    }
+
+    @Test
+    public void transactionTimeoutTest() {
+        // a timed out transaction may have been executed, it is not sent again
+        FailoverConnection connection =
+                newFailoverConnection(
+                        false,
+                        newRemoteConnection("slow", StatusCode.TIMEOUT),
+                        newRemoteConnection("up", StatusCode.SUCCESS));
+
+        Response response = connection.send(new Request());
+        Assert.assertEquals(StubQueryStatus.REMOTE_QUERY_FAILED, response.getErrorCode());
+        Assert.assertEquals(1, sent.get());
+    }
+
+    @Test
+    public void callTimeoutTest() {
+        FailoverConnection connection =
+                newFailoverConnection(
+                        true,
+                        newRemoteConnection("silent", SILENT),
+                        newRemoteConnection("up", StatusCode.SUCCESS));
+
+        Assert.assertEquals("up", connection.send(new Request()).getErrorMessage());
+        Assert.assertEquals(2, sent.get());
+    }
+
+    @Test
+    public void deadlineTest() {
+        FailoverConnection connection =
+                newFailoverConnection(
+                        true,
+                        newRemoteConnection("silent0", SILENT),
+                        newRemoteConnection("silent1", SILENT));
+
+        long start = System.currentTimeMillis();
+        Response response = connection.send(new Request());
+        Assert.assertEquals(StubQueryStatus.REMOTE_QUERY_FAILED, response.getErrorCode());
+        Assert.assertTrue(System.currentTimeMillis() - start < 2000);
+        Assert.assertEquals(2, sent.get());
+    }
+}
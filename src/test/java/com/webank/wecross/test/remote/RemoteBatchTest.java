@@ -0,0 +1,169 @@
+package com.webank.wecross.test.remote;
+
+import com.webank.wecross.common.NetworkQueryStatus;
+import com.webank.wecross.p2p.P2PMessage;
+import com.webank.wecross.p2p.P2PMessageCallback;
+import com.webank.wecross.p2p.P2PMessageEngine;
+import com.webank.wecross.p2p.engine.P2PResponse;
+import com.webank.wecross.p2p.netty.common.Node;
+import com.webank.wecross.p2p.netty.response.StatusCode;
+import com.webank.wecross.peer.Peer;
+import com.webank.wecross.remote.BatchMessageData;
+import com.webank.wecross.remote.RemoteBatch;
+import com.webank.wecross.remote.RemoteConnection;
+import com.webank.wecross.stub.Connection;
+import com.webank.wecross.stub.Request;
+import com.webank.wecross.stub.Response;
+import com.webank.wecross.stub.StubQueryStatus;
+import com.webank.wecross.test.Mock.MockP2PMessageEngine;
+import com.webank.wecross.test.Mock.P2PEngineMessageFilter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RemoteBatchTest {
+    private AtomicInteger batchMessages = new AtomicInteger();
+    private AtomicInteger singleMessages = new AtomicInteger();
+    private Connection fallback; // of the batch items
+
+    private Response newResponse(Request request) {
+        Response response = new Response();
+        response.setData(request.getData());
+        return response;
+    }
+
+    private RemoteConnection newRemoteConnection(boolean batchSupported) {
+        P2PEngineMessageFilter filter =
+                new P2PEngineMessageFilter() {
+                    @Override
+                    public P2PResponse handle1(P2PMessage msg) {
+                        Assert.assertEquals("batch", msg.getMethod());
+                        batchMessages.incrementAndGet();
+                        if (!batchSupported) {
+                            // what RequestProcessor answers for unknown methods
+                            P2PResponse<Object> p2pResponse = new P2PResponse<>();
+                            p2pResponse.setErrorCode(NetworkQueryStatus.METHOD_ERROR);
+                            p2pResponse.setMessage("Unsupported method: batch");
+                            return p2pResponse;
+                        }
+
+                        BatchMessageData data = (BatchMessageData) msg.getData();
+                        List<Response> responses = new ArrayList<Response>();
+                        for (Request request : data.getRequests()) {
+                            responses.add(newResponse(request));
+                        }
+                        data.setResponses(responses);
+
+                        P2PResponse<BatchMessageData> p2pResponse = new P2PResponse<>();
+                        p2pResponse.setData(data);
+                        return p2pResponse;
+                    }
+
+                    @Override
+                    public P2PResponse handle4(P2PMessage msg) {
+                        singleMessages.incrementAndGet();
+                        P2PResponse<Response> p2pResponse = new P2PResponse<>();
+                        p2pResponse.setData(newResponse((Request) msg.getData()));
+                        return p2pResponse;
+                    }
+                };
+
+        RemoteConnection connection = new RemoteConnection();
+        connection.setPeer(new Peer(new Node("", "", 0)));
+        connection.setPath("payment/bcos/HelloWorld");
+        connection.setP2pEngine(new MockP2PMessageEngine(filter));
+        return connection;
+    }
+
+    private List<CompletableFuture<Response>> sendBatch(RemoteConnection connection, int size) {
+        RemoteBatch remoteBatch =
+                new RemoteBatch(connection.getPeer(), connection.getP2pEngine(), size);
+        List<CompletableFuture<Response>> futures = new ArrayList<CompletableFuture<Response>>();
+        for (int i = 0; i < size; ++i) {
+            RemoteBatch.Item item = remoteBatch.newItem(connection);
+            item.setFallback(fallback);
+            Request request = new Request();
+            request.setData(new byte[] {(byte) i});
+
+            CompletableFuture<Response> future = new CompletableFuture<Response>();
+            item.asyncSend(request, future::complete);
+            future.whenComplete((response, e) -> item.settle());
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    @Test
+    public void batchTest() throws Exception {
+        List<CompletableFuture<Response>> futures = sendBatch(newRemoteConnection(true), 3);
+        for (int i = 0; i < futures.size(); ++i) {
+            Assert.assertArrayEquals(new byte[] {(byte) i}, futures.get(i).get().getData());
+        }
+
+        Assert.assertEquals(1, batchMessages.get());
+        Assert.assertEquals(0, singleMessages.get());
+    }
+
+    @Test
+    public void batchUnsupportedTest() throws Exception {
+        List<CompletableFuture<Response>> futures = sendBatch(newRemoteConnection(false), 3);
+        for (int i = 0; i < futures.size(); ++i) {
+            Assert.assertArrayEquals(new byte[] {(byte) i}, futures.get(i).get().getData());
+        }
+
+        // peers answering the method is unsupported get the requests one by one
+        Assert.assertEquals(1, batchMessages.get());
+        Assert.assertEquals(3, singleMessages.get());
+    }
+
+    @Test
+    public void batchUnreachableTest() throws Exception {
+        // the batch never reached the peer, the items go to their fallback connections
+        RemoteConnection connection = newRemoteConnection(true);
+        connection.setP2pEngine(
+                new P2PMessageEngine() {
+                    @Override
+                    public <T> void asyncSendMessage(
+                            Peer peer, P2PMessage<T> msg, P2PMessageCallback<?> callback) {
+                        batchMessages.incrementAndGet();
+                        executeCallback(callback, StatusCode.UNREACHABLE, "unreachable", null);
+                    }
+                });
+        fallback = newRemoteConnection(true);
+
+        List<CompletableFuture<Response>> futures = sendBatch(connection, 3);
+        for (int i = 0; i < futures.size(); ++i) {
+            Assert.assertArrayEquals(new byte[] {(byte) i}, futures.get(i).get().getData());
+        }
+
+        Assert.assertEquals(1, batchMessages.get());
+        Assert.assertEquals(3, singleMessages.get());
+    }
+
+    @Test
+    public void batchNoResponseTest() throws Exception {
+        // peers that never answer unknown methods time out, the requests may have run
+        RemoteConnection connection = newRemoteConnection(true);
+        connection.setP2pEngine(
+                new P2PMessageEngine() {
+                    @Override
+                    public <T> void asyncSendMessage(
+                            Peer peer, P2PMessage<T> msg, P2PMessageCallback<?> callback) {
+                        batchMessages.incrementAndGet();
+                        executeCallback(callback, StatusCode.TIMEOUT, "timeout", null);
+                    }
+                });
+
+        List<CompletableFuture<Response>> futures = sendBatch(connection, 3);
+        for (CompletableFuture<Response> future : futures) {
+            Assert.assertEquals(StubQueryStatus.REMOTE_QUERY_FAILED, future.get().getErrorCode());
+        }
+
+        // nothing is sent again, transactions must not run twice
+        Assert.assertEquals(1, batchMessages.get());
+        Assert.assertEquals(0, singleMessages.get());
+    }
+}
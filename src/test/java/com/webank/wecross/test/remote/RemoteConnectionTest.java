@@ -0,0 +1,114 @@
+package com.webank.wecross.test.remote;
+
+import com.webank.wecross.common.NetworkQueryStatus;
+import com.webank.wecross.p2p.P2PMessage;
+import com.webank.wecross.p2p.engine.P2PResponse;
+import com.webank.wecross.p2p.netty.common.Node;
+import com.webank.wecross.peer.Peer;
+import com.webank.wecross.remote.RemoteConnection;
+import com.webank.wecross.stub.Request;
+import com.webank.wecross.stub.Response;
+import com.webank.wecross.stub.StubQueryStatus;
+import com.webank.wecross.test.Mock.MockP2PMessageEngine;
+import com.webank.wecross.test.Mock.P2PEngineMessageFilter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RemoteConnectionTest {
+    private RemoteConnection newRemoteConnection(P2PEngineMessageFilter filter) {
+        RemoteConnection connection = new RemoteConnection();
+        connection.setPeer(new Peer(new Node("", "", 0)));
+        connection.setPath("payment.bcos.HelloWorld");
+        connection.setP2pEngine(new MockP2PMessageEngine(filter));
+        return connection;
+    }
+
+    @Test
+    public void asyncSendTest() throws Exception {
+        RemoteConnection connection =
+                newRemoteConnection(
+                        new P2PEngineMessageFilter() {
+                            @Override
+                            public P2PResponse handle1(P2PMessage msg) {
+                                return null;
+                            }
+
+                            @Override
+                            public P2PResponse handle4(P2PMessage msg) {
+                                Assert.assertEquals(
+                                        "payment/bcos/HelloWorld/transaction", msg.getMethod());
+
+                                Response response = new Response();
+                                response.setErrorCode(StubQueryStatus.SUCCESS);
+                                response.setData(((Request) msg.getData()).getData());
+
+                                P2PResponse<Response> p2pResponse = new P2PResponse<Response>();
+                                p2pResponse.setData(response);
+                                return p2pResponse;
+                            }
+                        });
+
+        Request request = new Request();
+        request.setData(new byte[] {1, 2, 3});
+
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        connection.asyncSend(request, future::complete);
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, future.get().getData());
+
+        // the blocking form waits on the same path
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, connection.send(request).getData());
+    }
+
+    @Test
+    public void asyncSendErrorTest() throws Exception {
+        RemoteConnection connection =
+                newRemoteConnection(
+                        new P2PEngineMessageFilter() {
+                            @Override
+                            public P2PResponse handle1(P2PMessage msg) {
+                                return null;
+                            }
+
+                            @Override
+                            public P2PResponse handle4(P2PMessage msg) {
+                                throw new RuntimeException("peer error");
+                            }
+                        });
+
+        CompletableFuture<Response> future = new CompletableFuture<>();
+        connection.asyncSend(new Request(), future::complete);
+        Assert.assertEquals(StubQueryStatus.REMOTE_QUERY_FAILED, future.get().getErrorCode());
+    }
+
+    @Test
+    public void getBlockHeadersUnsupportedTest() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        RemoteConnection connection =
+                newRemoteConnection(
+                        new P2PEngineMessageFilter() {
+                            @Override
+                            public P2PResponse handle1(P2PMessage msg) {
+                                Assert.assertEquals("getBlockHeaders", msg.getMethod());
+                                calls.incrementAndGet();
+
+                                P2PResponse<Object> p2pResponse = new P2PResponse<Object>();
+                                p2pResponse.setErrorCode(NetworkQueryStatus.METHOD_ERROR);
+                                p2pResponse.setMessage("Unsupported method");
+                                return p2pResponse;
+                            }
+
+                            @Override
+                            public P2PResponse handle4(P2PMessage msg) {
+                                return null;
+                            }
+                        });
+        connection.setPath("payment/bcos/HelloWorld");
+
+        // a peer answering the method is unsupported is not asked again
+        Assert.assertNull(connection.getBlockHeaders(0, 9));
+        Assert.assertNull(connection.getBlockHeaders(0, 9));
+        Assert.assertEquals(1, calls.get());
+    }
+}
@@ -0,0 +1,91 @@
+package com.webank.wecross.test.resource;
+
+import com.webank.wecross.resource.CallCoalescer;
+import com.webank.wecross.stub.TransactionContext;
+import com.webank.wecross.stub.TransactionRequest;
+import com.webank.wecross.stub.TransactionResponse;
+import com.webank.wecross.zone.Chain;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class CallCoalescerTest {
+    private AtomicInteger calls = new AtomicInteger();
+
+    private TransactionContext<TransactionRequest> newContext(String arg) {
+        TransactionRequest request = new TransactionRequest("get", new String[] {arg});
+        return new TransactionContext<TransactionRequest>(request, null, null, null);
+    }
+
+    private CompletableFuture<TransactionResponse> call(
+            CallCoalescer callCoalescer,
+            String arg,
+            CompletableFuture<TransactionResponse> result) {
+        return callCoalescer.call(
+                newContext(arg),
+                () -> {
+                    calls.incrementAndGet();
+                    return result;
+                });
+    }
+
+    private TransactionResponse newResponse() {
+        TransactionResponse response = new TransactionResponse();
+        response.setErrorCode(0);
+        return response;
+    }
+
+    @Test
+    public void singleFlightTest() throws Exception {
+        CallCoalescer callCoalescer = new CallCoalescer();
+        CompletableFuture<TransactionResponse> result = new CompletableFuture<>();
+
+        CompletableFuture<TransactionResponse> first = call(callCoalescer, "a", result);
+        CompletableFuture<TransactionResponse> second = call(callCoalescer, "a", result);
+        CompletableFuture<TransactionResponse> other = call(callCoalescer, "b", result);
+        Assert.assertEquals(2, calls.get());
+
+        TransactionResponse response = newResponse();
+        result.complete(response);
+        Assert.assertSame(response, first.get());
+        Assert.assertSame(response, second.get());
+        Assert.assertSame(response, other.get());
+
+        // no cache, finished calls are not shared
+        call(callCoalescer, "a", CompletableFuture.completedFuture(newResponse()));
+        Assert.assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void cacheTest() throws Exception {
+        Chain chain = Mockito.mock(Chain.class);
+        Mockito.when(chain.getLatestBlockNumber()).thenReturn(10L);
+
+        CallCoalescer callCoalescer = new CallCoalescer();
+        callCoalescer.setChain(chain);
+        callCoalescer.setCacheTTL(60000);
+
+        TransactionResponse response = newResponse();
+        call(callCoalescer, "a", CompletableFuture.completedFuture(response));
+        Assert.assertSame(
+                response,
+                call(callCoalescer, "a", CompletableFuture.completedFuture(newResponse())).get());
+        Assert.assertEquals(1, calls.get());
+
+        // a new block expires the cached result
+        Mockito.when(chain.getLatestBlockNumber()).thenReturn(11L);
+        Assert.assertNotSame(
+                response,
+                call(callCoalescer, "a", CompletableFuture.completedFuture(newResponse())).get());
+        Assert.assertEquals(2, calls.get());
+
+        // failed calls are not cached
+        TransactionResponse failed = new TransactionResponse();
+        failed.setErrorCode(1);
+        call(callCoalescer, "b", CompletableFuture.completedFuture(failed));
+        call(callCoalescer, "b", CompletableFuture.completedFuture(failed));
+        Assert.assertEquals(4, calls.get());
+    }
+}
@@ -0,0 +1,60 @@
+package com.webank.wecross.test.restserver;
+
+import com.webank.wecross.exception.WeCrossException;
+import com.webank.wecross.restserver.ResourceRequestLimiter;
+import com.webank.wecross.stub.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResourceRequestLimiterTest {
+    private Path newPath(String chain) {
+        Path path = new Path();
+        path.setNetwork("payment");
+        path.setChain(chain);
+        path.setResource("HelloWorld");
+        return path;
+    }
+
+    @Test
+    public void limitPerChainTest() throws Exception {
+        ResourceRequestLimiter.Limit limit = new ResourceRequestLimiter.Limit();
+        limit.setMaxConcurrency(1);
+        Map<String, ResourceRequestLimiter.Limit> limits =
+                new HashMap<String, ResourceRequestLimiter.Limit>();
+        limits.put("payment.slow", limit);
+
+        ResourceRequestLimiter limiter = new ResourceRequestLimiter();
+        limiter.setLimits(limits);
+
+        Path slowPath = newPath("slow");
+        CompletableFuture<String> slowRequest = new CompletableFuture<String>();
+        CompletableFuture<String> first = limiter.submit(slowPath, () -> slowRequest);
+
+        // the slow chain is full, other chains are not affected
+        CompletableFuture<String> second =
+                limiter.submit(slowPath, () -> CompletableFuture.completedFuture("second"));
+        try {
+            second.get();
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertEquals(
+                    WeCrossException.ErrorCode.RESOURCE_BUSY,
+                    ((WeCrossException) e.getCause()).getErrorCode().intValue());
+        }
+        Assert.assertEquals(
+                "other",
+                limiter.submit(newPath("fast"), () -> CompletableFuture.completedFuture("other"))
+                        .get());
+
+        // the permit is back once the slow request completes
+        slowRequest.complete("first");
+        Assert.assertEquals("first", first.get());
+        Assert.assertEquals(
+                "third",
+                limiter.submit(slowPath, () -> CompletableFuture.completedFuture("third")).get());
+    }
+}
@@ -1,15 +1,18 @@
 package com.webank.wecross.test.restserver;
 
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.webank.wecross.account.AccountManager;
 import com.webank.wecross.host.WeCrossHost;
 import com.webank.wecross.resource.Resource;
+import com.webank.wecross.restserver.ResourceRequestLimiter;
 import com.webank.wecross.restserver.RestRequest;
 import com.webank.wecross.restserver.RestfulController;
 import com.webank.wecross.routine.RoutineManager;
@@ -21,6 +24,7 @@ import com.webank.wecross.stub.TransactionRequest;
 import com.webank.wecross.stub.TransactionResponse;
 import com.webank.wecross.zone.ZoneManager;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 import org.junit.After;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -31,11 +35,15 @@ import org.junit.runner.RunWith;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Bean;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 // To run with: gradle test --tests RestfulServiceTest
 
@@ -53,6 +61,22 @@ public class RestfulControllerTest {
     @MockBean(name = "newWeCrossHost")
     private WeCrossHost weCrossHost;
 
+    @TestConfiguration
+    static class ResourceRequestLimiterTestConfig {
+        @Bean
+        public ResourceRequestLimiter newResourceRequestLimiter() {
+            return new ResourceRequestLimiter();
+        }
+    }
+
+    // resource requests are answered asynchronously
+    private ResultActions performAsync(MockHttpServletRequestBuilder requestBuilder)
+            throws Exception {
+        MvcResult mvcResult =
+                mockMvc.perform(requestBuilder).andExpect(request().asyncStarted()).andReturn();
+        return mockMvc.perform(asyncDispatch(mvcResult));
+    }
+
     @Test
     public void okTest() throws Exception {
         try {
@@ -103,8 +127,7 @@ public class RestfulControllerTest {
                     .thenReturn(mokcResource);
 
             MvcResult rsp =
-                    this.mockMvc
-                            .perform(get("/test-network/test-stub/test-resource/status"))
+                    performAsync(get("/test-network/test-stub/test-resource/status"))
                             .andDo(print())
                             .andExpect(status().isOk())
                             .andReturn();
@@ -137,8 +160,7 @@ public class RestfulControllerTest {
                     .thenReturn(resource);
 
             MvcResult rsp =
-                    this.mockMvc
-                            .perform(get("/test-network/test-stub/test-resource/detail"))
+                    performAsync(get("/test-network/test-stub/test-resource/detail"))
                             .andDo(print())
                             .andExpect(status().isOk())
                             .andReturn();
@@ -280,7 +302,8 @@ public class RestfulControllerTest {
             transactionResponse.setHash("010157f4");
 
             Resource resource = Mockito.mock(Resource.class);
-            Mockito.when(resource.call(Mockito.any())).thenReturn(transactionResponse);
+            Mockito.when(resource.asyncCall(Mockito.any()))
+                    .thenReturn(CompletableFuture.completedFuture(transactionResponse));
 
             Mockito.when(weCrossHost.getResource(Mockito.isA(Path.class))).thenReturn(resource);
             Mockito.when(
@@ -302,8 +325,7 @@ public class RestfulControllerTest {
             request.getData().setArgs(new String[] {});
 
             MvcResult rsp =
-                    this.mockMvc
-                            .perform(
+                    performAsync(
                                     post("/test-network/test-stub/test-resource/call")
                                             .contentType(MediaType.APPLICATION_JSON)
                                             .content(objectMapper.writeValueAsString(request)))
@@ -341,7 +363,8 @@ public class RestfulControllerTest {
             transactionResponse.setHash("010157f4");
 
             Resource resource = Mockito.mock(Resource.class);
-            Mockito.when(resource.sendTransaction(Mockito.any())).thenReturn(transactionResponse);
+            Mockito.when(resource.asyncSendTransaction(Mockito.any()))
+                    .thenReturn(CompletableFuture.completedFuture(transactionResponse));
 
             Mockito.when(weCrossHost.getResource(Mockito.isA(Path.class))).thenReturn(resource);
             Mockito.when(
@@ -364,8 +387,7 @@ public class RestfulControllerTest {
             request.getData().setArgs(new String[] {"aaaaa"});
 
             MvcResult rsp =
-                    this.mockMvc
-                            .perform(
+                    performAsync(
                                     post("/test-network/test-stub/test-resource/sendTransaction")
                                             .contentType(MediaType.APPLICATION_JSON)
                                             .content(objectMapper.writeValueAsString(request)))
@@ -388,6 +410,65 @@ public class RestfulControllerTest {
         }
     }
 
+    @Test
+    public void batchTest() throws Exception {
+        try {
+            AccountManager mockAccountManager = Mockito.mock(AccountManager.class);
+            Mockito.when(weCrossHost.getAccountManager()).thenReturn(mockAccountManager);
+            HTLCManager mockHTLCManager = Mockito.mock(HTLCManager.class);
+            RoutineManager mockRoutineManager = Mockito.mock(RoutineManager.class);
+            Mockito.when(weCrossHost.getRoutineManager()).thenReturn(mockRoutineManager);
+            Mockito.when(mockRoutineManager.getHtlcManager()).thenReturn(mockHTLCManager);
+            TransactionResponse transactionResponse = new TransactionResponse();
+            transactionResponse.setErrorCode(0);
+            transactionResponse.setHash("010157f4");
+
+            Resource resource = Mockito.mock(Resource.class);
+            Mockito.when(resource.asyncCall(Mockito.any()))
+                    .thenReturn(CompletableFuture.completedFuture(transactionResponse));
+
+            Mockito.when(weCrossHost.getResource(Mockito.isA(Path.class))).thenReturn(resource);
+            Mockito.when(
+                            mockHTLCManager.filterHTLCResource(
+                                    Mockito.any(),
+                                    Mockito.isA(Path.class),
+                                    Mockito.isA(Resource.class)))
+                    .thenReturn(resource);
+
+            String json =
+                    "{\n"
+                            + "\"version\":\"1\",\n"
+                            + "\"path\":\"\",\n"
+                            + "\"method\":\"batch\",\n"
+                            + "\"data\": {\"requests\": [\n"
+                            + "{\"path\":\"test-network.test-stub.test-resource\",\n"
+                            + "\"method\":\"call\",\"accountName\":\"demo\",\n"
+                            + "\"data\":{\"method\":\"get\",\"args\":[]}},\n"
+                            + "{\"path\":\"bad-path\",\"method\":\"call\",\n"
+                            + "\"data\":{\"method\":\"get\",\"args\":[]}}\n"
+                            + "]}\n"
+                            + "}";
+
+            MvcResult rsp =
+                    performAsync(
+                                    post("/batch")
+                                            .contentType(MediaType.APPLICATION_JSON)
+                                            .content(json))
+                            .andDo(print())
+                            .andExpect(status().isOk())
+                            .andExpect(jsonPath("$.errorCode").value(0))
+                            .andExpect(jsonPath("$.data.results[0].errorCode").value(0))
+                            .andExpect(jsonPath("$.data.results[0].data.hash").value("010157f4"))
+                            .andExpect(jsonPath("$.data.results[1].errorCode").value(10202))
+                            .andReturn();
+
+            String result = rsp.getResponse().getContentAsString();
+            System.out.println("####Respond: " + result);
+        } catch (Exception e) {
+            Assert.assertTrue(e.getMessage(), false);
+        }
+    }
+
     @Test
     public void exceptionTest() {
         try {
@@ -419,8 +500,7 @@ public class RestfulControllerTest {
                             + "}";
 
             MvcResult rsp =
-                    this.mockMvc
-                            .perform(
+                    performAsync(
                                     post("/test-network/test-stub/test-resource/notExistMethod")
                                             .contentType(MediaType.APPLICATION_JSON)
                                             .content(json))
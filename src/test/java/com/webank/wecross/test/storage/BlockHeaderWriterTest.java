@@ -0,0 +1,142 @@
+package com.webank.wecross.test.storage;
+
+import com.webank.wecross.storage.BlockHeaderStorage;
+import com.webank.wecross.storage.BlockHeaderWriter;
+import com.webank.wecross.storage.RocksDBBlockHeaderStorage;
+import com.webank.wecross.storage.RocksDBBlockHeaderStorageFactory;
+import com.webank.wecross.storage.SharedRocksDBBlockHeaderStorageFactory;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BlockHeaderWriterTest {
+    @Test
+    public void testGroupCommit() throws Exception {
+        File dir = Files.createTempDirectory("block-header-writer").toFile();
+        dir.deleteOnExit();
+
+        BlockHeaderWriter blockHeaderWriter = new BlockHeaderWriter();
+        blockHeaderWriter.setFsyncPolicy(BlockHeaderWriter.FsyncPolicy.INTERVAL);
+        blockHeaderWriter.setFsyncInterval(10);
+        blockHeaderWriter.start();
+
+        SharedRocksDBBlockHeaderStorageFactory factory =
+                new SharedRocksDBBlockHeaderStorageFactory();
+        factory.setBasePath(dir.getAbsolutePath());
+        factory.setBlockCacheSize(1024 * 1024);
+        factory.setWriteBufferSize(1024 * 1024);
+        factory.setBlockHeaderWriter(blockHeaderWriter);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int i = 0; i < 4; ++i) {
+                String path = "payment.chain" + i;
+                BlockHeaderStorage storage = factory.newBlockHeaderStorage(path);
+                futures.add(
+                        executor.submit(
+                                () -> {
+                                    for (int j = 0; j < 100; ++j) {
+                                        byte[] blockHeader = (path + ":" + j).getBytes();
+                                        Assert.assertTrue(
+                                                storage.writeBlockHeaders(
+                                                        j, Arrays.asList(blockHeader)));
+                                        // acknowledged writes are readable at once
+                                        Assert.assertEquals(j, storage.readBlockNumber());
+                                        Assert.assertArrayEquals(
+                                                blockHeader, storage.readBlockHeader(j));
+                                    }
+                                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            factory.close();
+        }
+
+        // writes after stop fail instead of hanging
+        Assert.assertTrue(
+                blockHeaderWriter
+                        .submit(null, 0, Arrays.asList(new byte[0]))
+                        .isCompletedExceptionally());
+    }
+
+    @Test
+    public void testReleaseOnClose() throws Exception {
+        File dir = Files.createTempDirectory("block-header-writer").toFile();
+        dir.deleteOnExit();
+
+        BlockHeaderWriter blockHeaderWriter = new BlockHeaderWriter();
+        blockHeaderWriter.setFsyncPolicy(BlockHeaderWriter.FsyncPolicy.INTERVAL);
+        blockHeaderWriter.setFsyncInterval(60000);
+        blockHeaderWriter.start();
+
+        RocksDBBlockHeaderStorageFactory factory = new RocksDBBlockHeaderStorageFactory();
+        factory.setBasePath(dir.getAbsolutePath());
+        factory.setBlockHeaderWriter(blockHeaderWriter);
+        try {
+            // the db has unsynced writes when it is closed, the writer must let it go first
+            BlockHeaderStorage storage = factory.newBlockHeaderStorage("payment.bcos");
+            Assert.assertTrue(storage.writeBlockHeaders(0, Arrays.asList("bcos:0".getBytes())));
+            storage.close();
+            Assert.assertFalse(storage.writeBlockHeaders(1, Arrays.asList("bcos:1".getBytes())));
+
+            BlockHeaderStorage reopened = factory.newBlockHeaderStorage("payment.bcos");
+            Assert.assertEquals(0, reopened.readBlockNumber());
+            Assert.assertTrue(reopened.writeBlockHeaders(1, Arrays.asList("bcos:1".getBytes())));
+            reopened.close();
+        } finally {
+            factory.close();
+        }
+    }
+
+    @Test
+    public void testClosedStorageInGroup() throws Exception {
+        File dir = Files.createTempDirectory("block-header-writer").toFile();
+        dir.deleteOnExit();
+
+        BlockHeaderWriter blockHeaderWriter = new BlockHeaderWriter();
+        blockHeaderWriter.start();
+
+        SharedRocksDBBlockHeaderStorageFactory factory =
+                new SharedRocksDBBlockHeaderStorageFactory();
+        factory.setBasePath(dir.getAbsolutePath());
+        factory.setBlockHeaderWriter(blockHeaderWriter);
+        try {
+            RocksDBBlockHeaderStorage removed =
+                    (RocksDBBlockHeaderStorage) factory.newBlockHeaderStorage("payment.removed");
+            RocksDBBlockHeaderStorage bcos =
+                    (RocksDBBlockHeaderStorage) factory.newBlockHeaderStorage("payment.bcos");
+            removed.close();
+
+            // both go to the same db, the write of the closed storage fails alone
+            CompletableFuture<Void> removedFuture =
+                    blockHeaderWriter.submit(removed, 0, Arrays.asList("removed:0".getBytes()));
+            CompletableFuture<Void> bcosFuture =
+                    blockHeaderWriter.submit(bcos, 0, Arrays.asList("bcos:0".getBytes()));
+            try {
+                removedFuture.get();
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertNotNull(e.getCause());
+            }
+            bcosFuture.get();
+            Assert.assertEquals(0, bcos.readBlockNumber());
+            Assert.assertArrayEquals("bcos:0".getBytes(), bcos.readBlockHeader(0));
+        } finally {
+            factory.close();
+        }
+    }
+}
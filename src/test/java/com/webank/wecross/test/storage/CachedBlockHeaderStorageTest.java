@@ -0,0 +1,151 @@
+package com.webank.wecross.test.storage;
+
+import com.webank.wecross.storage.BlockHeaderCacheBudget;
+import com.webank.wecross.storage.BlockHeaderStorage;
+import com.webank.wecross.storage.BlockHeaderStorageFactory;
+import com.webank.wecross.storage.CachedBlockHeaderStorage;
+import com.webank.wecross.storage.CachedBlockHeaderStorageFactory;
+import com.webank.wecross.stub.BlockHeader;
+import com.webank.wecross.stub.Driver;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class CachedBlockHeaderStorageTest {
+    private List<byte[]> newBlockHeaders(long from, long to) {
+        List<byte[]> blockHeaders = new ArrayList<byte[]>();
+        for (long blockNumber = from; blockNumber <= to; ++blockNumber) {
+            blockHeaders.add(("Block:" + blockNumber).getBytes());
+        }
+        return blockHeaders;
+    }
+
+    @Test
+    public void testReadThrough() {
+        BlockHeaderStorage blockHeaderStorage = Mockito.mock(BlockHeaderStorage.class);
+        Mockito.when(blockHeaderStorage.readBlockHeader(Mockito.anyLong()))
+                .thenAnswer(
+                        new Answer<byte[]>() {
+                            @Override
+                            public byte[] answer(InvocationOnMock invocation) throws Throwable {
+                                long blockNumber = invocation.getArgument(0);
+                                return ("Block:" + blockNumber).getBytes();
+                            }
+                        });
+
+        CachedBlockHeaderStorage cachedBlockHeaderStorage =
+                new CachedBlockHeaderStorage(blockHeaderStorage);
+        Assert.assertArrayEquals("Block:5".getBytes(), cachedBlockHeaderStorage.readBlockHeader(5));
+        Assert.assertArrayEquals("Block:5".getBytes(), cachedBlockHeaderStorage.readBlockHeader(5));
+
+        Mockito.verify(blockHeaderStorage, Mockito.times(1)).readBlockHeader(5);
+        Assert.assertEquals(1, cachedBlockHeaderStorage.getHits());
+        Assert.assertEquals(1, cachedBlockHeaderStorage.getMisses());
+    }
+
+    @Test
+    public void testDecodedBlockHeader() {
+        BlockHeaderStorage blockHeaderStorage = Mockito.mock(BlockHeaderStorage.class);
+        Driver driver = Mockito.mock(Driver.class);
+        Mockito.when(driver.decodeBlockHeader(Mockito.any()))
+                .thenAnswer(
+                        new Answer<BlockHeader>() {
+                            @Override
+                            public BlockHeader answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                byte[] data = invocation.getArgument(0);
+                                BlockHeader blockHeader = new BlockHeader();
+                                blockHeader.setNumber(
+                                        Long.valueOf(
+                                                new String(data).substring("Block:".length())));
+                                return blockHeader;
+                            }
+                        });
+
+        Mockito.when(blockHeaderStorage.writeBlockHeaders(Mockito.anyLong(), Mockito.any()))
+                .thenReturn(true);
+
+        CachedBlockHeaderStorage cachedBlockHeaderStorage =
+                new CachedBlockHeaderStorage(blockHeaderStorage);
+        cachedBlockHeaderStorage.writeBlockHeaders(0, newBlockHeaders(0, 9));
+
+        for (int i = 0; i < 3; ++i) {
+            BlockHeader blockHeader = cachedBlockHeaderStorage.readDecodedBlockHeader(9, driver);
+            Assert.assertEquals(9, blockHeader.getNumber());
+        }
+
+        // written headers are served from memory and decoded once
+        Mockito.verify(blockHeaderStorage, Mockito.never()).readBlockHeader(Mockito.anyLong());
+        Mockito.verify(driver, Mockito.times(1)).decodeBlockHeader(Mockito.any());
+        Assert.assertEquals(0, cachedBlockHeaderStorage.getMisses());
+    }
+
+    @Test
+    public void testEvictionKeepsPinnedBlockHeaders() {
+        BlockHeaderStorage blockHeaderStorage = Mockito.mock(BlockHeaderStorage.class);
+        Mockito.when(blockHeaderStorage.writeBlockHeaders(Mockito.anyLong(), Mockito.any()))
+                .thenReturn(true);
+
+        CachedBlockHeaderStorage cachedBlockHeaderStorage =
+                new CachedBlockHeaderStorage(blockHeaderStorage);
+        cachedBlockHeaderStorage.setBudget(new BlockHeaderCacheBudget(1));
+        cachedBlockHeaderStorage.setPinnedBlockNum(10);
+        cachedBlockHeaderStorage.writeBlockHeaders(0, newBlockHeaders(0, 99));
+
+        Assert.assertEquals(10, cachedBlockHeaderStorage.getCacheSize());
+        Assert.assertEquals(90, cachedBlockHeaderStorage.getEvictions());
+        for (long blockNumber = 90; blockNumber < 100; ++blockNumber) {
+            Assert.assertNotNull(cachedBlockHeaderStorage.readBlockHeader(blockNumber));
+        }
+        Assert.assertEquals(10, cachedBlockHeaderStorage.getHits());
+        Mockito.verify(blockHeaderStorage, Mockito.never()).readBlockHeader(Mockito.anyLong());
+    }
+
+    @Test
+    public void testSharedCacheBytes() {
+        BlockHeaderStorageFactory blockHeaderStorageFactory =
+                Mockito.mock(BlockHeaderStorageFactory.class);
+        Mockito.when(blockHeaderStorageFactory.newBlockHeaderStorage(Mockito.anyString()))
+                .thenAnswer(
+                        invocation -> {
+                            BlockHeaderStorage blockHeaderStorage =
+                                    Mockito.mock(BlockHeaderStorage.class);
+                            Mockito.when(
+                                            blockHeaderStorage.writeBlockHeaders(
+                                                    Mockito.anyLong(), Mockito.any()))
+                                    .thenReturn(true);
+                            return blockHeaderStorage;
+                        });
+
+        CachedBlockHeaderStorageFactory cachedBlockHeaderStorageFactory =
+                new CachedBlockHeaderStorageFactory(blockHeaderStorageFactory);
+        cachedBlockHeaderStorageFactory.setMaxCacheBytes(2048);
+        cachedBlockHeaderStorageFactory.setPinnedBlockNum(0);
+
+        CachedBlockHeaderStorage payment =
+                (CachedBlockHeaderStorage)
+                        cachedBlockHeaderStorageFactory.newBlockHeaderStorage("payment.bcos");
+        CachedBlockHeaderStorage bill =
+                (CachedBlockHeaderStorage)
+                        cachedBlockHeaderStorageFactory.newBlockHeaderStorage("bill.bcos");
+        payment.writeBlockHeaders(0, newBlockHeaders(0, 19));
+        Assert.assertEquals(0, payment.getEvictions());
+
+        // the first chain gives back what is over its share once the second one needs it
+        bill.writeBlockHeaders(0, newBlockHeaders(0, 19));
+        Assert.assertTrue(payment.getEvictions() > 0);
+        Assert.assertTrue(payment.getCacheBytes() <= 1024);
+        Assert.assertTrue(bill.getCacheBytes() <= 1024);
+        Assert.assertTrue(cachedBlockHeaderStorageFactory.getCacheBytes() <= 2048);
+        Assert.assertEquals(
+                payment.getCacheBytes() + bill.getCacheBytes(),
+                cachedBlockHeaderStorageFactory.getCacheBytes());
+
+        payment.close();
+        Assert.assertEquals(bill.getCacheBytes(), cachedBlockHeaderStorageFactory.getCacheBytes());
+    }
+}
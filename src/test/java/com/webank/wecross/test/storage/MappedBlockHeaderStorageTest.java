@@ -0,0 +1,123 @@
+package com.webank.wecross.test.storage;
+
+import com.webank.wecross.storage.MappedBlockHeaderStorage;
+import com.webank.wecross.storage.MappedBlockHeaderStorageFactory;
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MappedBlockHeaderStorageTest {
+    private MappedBlockHeaderStorage newStorage(File dir) throws Exception {
+        MappedBlockHeaderStorage mappedBlockHeaderStorage = new MappedBlockHeaderStorage(dir);
+        mappedBlockHeaderStorage.setSegmentSize(1024);
+        mappedBlockHeaderStorage.open();
+        return mappedBlockHeaderStorage;
+    }
+
+    private List<byte[]> newBlockHeaders(long from, long to) {
+        List<byte[]> blockHeaders = new ArrayList<byte[]>();
+        for (long blockNumber = from; blockNumber <= to; ++blockNumber) {
+            blockHeaders.add(("Block:" + blockNumber).getBytes());
+        }
+        return blockHeaders;
+    }
+
+    @Test
+    public void testOpenFailed() throws Exception {
+        File dir = Files.createTempDirectory("mapped-block-header-storage").toFile();
+        dir.deleteOnExit();
+        new File(dir, "payment.bcos").mkdirs();
+        new File(dir, "payment.bcos/headers").createNewFile();
+
+        MappedBlockHeaderStorageFactory factory = new MappedBlockHeaderStorageFactory();
+        factory.setBasePath(dir.getAbsolutePath());
+        try {
+            factory.newBlockHeaderStorage("payment.bcos");
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("payment.bcos"));
+        }
+    }
+
+    @Test
+    public void testAppendAndReopen() throws Exception {
+        File dir = Files.createTempDirectory("mapped-block-header-storage").toFile();
+        dir.deleteOnExit();
+
+        MappedBlockHeaderStorage mappedBlockHeaderStorage = newStorage(dir);
+        Assert.assertEquals(-1, mappedBlockHeaderStorage.readBlockNumber());
+
+        // about 40 records per 1k segment, spans several segments
+        mappedBlockHeaderStorage.writeBlockHeaders(0, newBlockHeaders(0, 199));
+        mappedBlockHeaderStorage.writeBlockHeader(200, "Block:200".getBytes());
+        Assert.assertTrue(dir.listFiles().length > 1);
+
+        // only appending is allowed
+        mappedBlockHeaderStorage.writeBlockHeader(100, "Block:x".getBytes());
+        Assert.assertArrayEquals("Block:100".getBytes(), mappedBlockHeaderStorage.readBlockHeader(100));
+        mappedBlockHeaderStorage.close();
+
+        mappedBlockHeaderStorage = newStorage(dir);
+        Assert.assertEquals(200, mappedBlockHeaderStorage.readBlockNumber());
+        for (long blockNumber = 0; blockNumber <= 200; ++blockNumber) {
+            Assert.assertArrayEquals(
+                    ("Block:" + blockNumber).getBytes(),
+                    mappedBlockHeaderStorage.readBlockHeader(blockNumber));
+        }
+        Assert.assertNull(mappedBlockHeaderStorage.readBlockHeader(201));
+        Assert.assertEquals(51, mappedBlockHeaderStorage.readBlockHeaders(150, 250).size());
+        mappedBlockHeaderStorage.close();
+    }
+
+    @Test
+    public void testRecoverBrokenTail() throws Exception {
+        File dir = Files.createTempDirectory("mapped-block-header-storage").toFile();
+        dir.deleteOnExit();
+
+        MappedBlockHeaderStorage mappedBlockHeaderStorage = newStorage(dir);
+        mappedBlockHeaderStorage.writeBlockHeaders(0, newBlockHeaders(0, 9));
+        mappedBlockHeaderStorage.close();
+
+        // corrupt the data of the last record as a torn write would
+        File segment = dir.listFiles()[0];
+        int recordSize = 16 + "Block:9".length();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(10 * recordSize - 1);
+            file.write('x');
+        }
+
+        mappedBlockHeaderStorage = newStorage(dir);
+        Assert.assertEquals(8, mappedBlockHeaderStorage.readBlockNumber());
+        Assert.assertNull(mappedBlockHeaderStorage.readBlockHeader(9));
+
+        // appending continues after the recovered tip
+        mappedBlockHeaderStorage.writeBlockHeader(9, "Block:9".getBytes());
+        Assert.assertArrayEquals("Block:9".getBytes(), mappedBlockHeaderStorage.readBlockHeader(9));
+        mappedBlockHeaderStorage.close();
+    }
+
+    @Test
+    public void testPruneSegments() throws Exception {
+        File dir = Files.createTempDirectory("mapped-block-header-storage").toFile();
+        dir.deleteOnExit();
+
+        MappedBlockHeaderStorage mappedBlockHeaderStorage = newStorage(dir);
+        mappedBlockHeaderStorage.writeBlockHeaders(0, newBlockHeaders(0, 199));
+        mappedBlockHeaderStorage.pruneBlockHeaders(100, 0);
+
+        long retainedBlockNumber = mappedBlockHeaderStorage.readRetainedBlockNumber();
+        Assert.assertTrue(retainedBlockNumber > 0 && retainedBlockNumber <= 100);
+        Assert.assertNull(mappedBlockHeaderStorage.readBlockHeader(retainedBlockNumber - 1));
+        Assert.assertNotNull(mappedBlockHeaderStorage.readBlockHeader(retainedBlockNumber));
+        mappedBlockHeaderStorage.close();
+
+        mappedBlockHeaderStorage = newStorage(dir);
+        Assert.assertEquals(retainedBlockNumber, mappedBlockHeaderStorage.readRetainedBlockNumber());
+        Assert.assertEquals(199, mappedBlockHeaderStorage.readBlockNumber());
+        mappedBlockHeaderStorage.close();
+    }
+}
@@ -0,0 +1,153 @@
+package com.webank.wecross.test.storage;
+
+import com.webank.wecross.storage.BlockHeaderStorage;
+import com.webank.wecross.storage.RocksDBBlockHeaderStorage;
+import com.webank.wecross.storage.RocksDBBlockHeaderStorageFactory;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.rocksdb.Options;
+import org.rocksdb.RocksDB;
+
+public class RocksDBBlockHeaderStorageTest {
+    private String newBasePath() throws Exception {
+        File dir = Files.createTempDirectory("block-header-storage").toFile();
+        dir.deleteOnExit();
+        return dir.getAbsolutePath();
+    }
+
+    @Test
+    public void testKeyOrder() {
+        long[] blockNumbers = {0, 9, 10, 255, 256, 100000, Long.MAX_VALUE};
+        for (int i = 0; i < blockNumbers.length; ++i) {
+            byte[] key = RocksDBBlockHeaderStorage.encodeBlockNumber(blockNumbers[i]);
+            Assert.assertEquals(RocksDBBlockHeaderStorage.KEY_LENGTH, key.length);
+            Assert.assertEquals(blockNumbers[i], RocksDBBlockHeaderStorage.decodeBlockNumber(key));
+
+            if (i > 0) {
+                byte[] prevKey = RocksDBBlockHeaderStorage.encodeBlockNumber(blockNumbers[i - 1]);
+                Assert.assertTrue(compareUnsigned(prevKey, key) < 0);
+            }
+        }
+    }
+
+    @Test
+    public void testRangeRead() throws Exception {
+        RocksDBBlockHeaderStorageFactory factory = new RocksDBBlockHeaderStorageFactory();
+        factory.setBasePath(newBasePath());
+
+        BlockHeaderStorage blockHeaderStorage = factory.newBlockHeaderStorage("payment.bcos");
+        try {
+            List<byte[]> blockHeaders = new ArrayList<byte[]>();
+            for (int blockNumber = 0; blockNumber < 20; ++blockNumber) {
+                blockHeaders.add(("Block:" + blockNumber).getBytes());
+            }
+            blockHeaderStorage.writeBlockHeaders(0, blockHeaders);
+
+            Assert.assertEquals(19, blockHeaderStorage.readBlockNumber());
+            List<byte[]> range = blockHeaderStorage.readBlockHeaders(8, 12);
+            Assert.assertEquals(5, range.size());
+            for (int i = 0; i < range.size(); ++i) {
+                Assert.assertArrayEquals(("Block:" + (8 + i)).getBytes(), range.get(i));
+            }
+
+            // the range stops at the tip
+            Assert.assertEquals(2, blockHeaderStorage.readBlockHeaders(18, 30).size());
+        } finally {
+            blockHeaderStorage.close();
+        }
+    }
+
+    @Test
+    public void testPrune() throws Exception {
+        RocksDBBlockHeaderStorageFactory factory = new RocksDBBlockHeaderStorageFactory();
+        factory.setBasePath(newBasePath());
+
+        BlockHeaderStorage blockHeaderStorage = factory.newBlockHeaderStorage("payment.bcos");
+        try {
+            List<byte[]> blockHeaders = new ArrayList<byte[]>();
+            for (int blockNumber = 0; blockNumber < 100; ++blockNumber) {
+                blockHeaders.add(("Block:" + blockNumber).getBytes());
+            }
+            blockHeaderStorage.writeBlockHeaders(0, blockHeaders);
+
+            blockHeaderStorage.pruneBlockHeaders(50, 10);
+            Assert.assertEquals(50, blockHeaderStorage.readRetainedBlockNumber());
+            Assert.assertEquals(99, blockHeaderStorage.readBlockNumber());
+            for (int blockNumber = 0; blockNumber < 100; ++blockNumber) {
+                boolean kept = blockNumber >= 50 || blockNumber % 10 == 0;
+                Assert.assertEquals(kept, blockHeaderStorage.readBlockHeader(blockNumber) != null);
+            }
+
+            // pruning again only covers the new range, without checkpoints
+            blockHeaderStorage.pruneBlockHeaders(60, 0);
+            Assert.assertNotNull(blockHeaderStorage.readBlockHeader(40));
+            Assert.assertNull(blockHeaderStorage.readBlockHeader(50));
+            Assert.assertEquals(40, blockHeaderStorage.readBlockHeaders(60, 99).size());
+        } finally {
+            blockHeaderStorage.close();
+        }
+    }
+
+    @Test
+    public void testMigrateLegacyLayout() throws Exception {
+        String basePath = newBasePath();
+        RocksDB.loadLibrary();
+
+        try (Options options = new Options().setCreateIfMissing(true);
+                RocksDB legacyDB = RocksDB.open(options, basePath + "/payment.bcos")) {
+            for (int blockNumber = 0; blockNumber <= 12; ++blockNumber) {
+                legacyDB.put(
+                        ("block_" + blockNumber).getBytes(), ("Block:" + blockNumber).getBytes());
+            }
+            legacyDB.put("number".getBytes(), "12".getBytes());
+        }
+
+        RocksDBBlockHeaderStorageFactory factory = new RocksDBBlockHeaderStorageFactory();
+        factory.setBasePath(basePath);
+
+        BlockHeaderStorage blockHeaderStorage = factory.newBlockHeaderStorage("payment.bcos");
+        try {
+            Assert.assertEquals(12, blockHeaderStorage.readBlockNumber());
+            Assert.assertArrayEquals("Block:10".getBytes(), blockHeaderStorage.readBlockHeader(10));
+            Assert.assertEquals(13, blockHeaderStorage.readBlockHeaders(0, 12).size());
+
+            RocksDB rocksDB = ((RocksDBBlockHeaderStorage) blockHeaderStorage).getRocksDB();
+            Assert.assertNull(rocksDB.get("number".getBytes()));
+            Assert.assertNull(rocksDB.get("block_10".getBytes()));
+        } finally {
+            blockHeaderStorage.close();
+        }
+    }
+
+    @Test
+    public void testOpenFailed() throws Exception {
+        RocksDBBlockHeaderStorageFactory factory = new RocksDBBlockHeaderStorageFactory();
+        factory.setBasePath(newBasePath());
+
+        BlockHeaderStorage blockHeaderStorage = factory.newBlockHeaderStorage("payment.bcos");
+        try {
+            // the db is locked by the open storage
+            factory.newBlockHeaderStorage("payment.bcos");
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertTrue(e.getMessage().contains("payment.bcos"));
+        } finally {
+            blockHeaderStorage.close();
+            factory.close();
+        }
+    }
+
+    private int compareUnsigned(byte[] a, byte[] b) {
+        for (int i = 0; i < Math.min(a.length, b.length); ++i) {
+            int diff = (a[i] & 0xff) - (b[i] & 0xff);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return a.length - b.length;
+    }
+}
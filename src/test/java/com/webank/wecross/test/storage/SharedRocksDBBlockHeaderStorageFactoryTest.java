@@ -0,0 +1,56 @@
+package com.webank.wecross.test.storage;
+
+import com.webank.wecross.storage.BlockHeaderStorage;
+import com.webank.wecross.storage.SharedRocksDBBlockHeaderStorageFactory;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SharedRocksDBBlockHeaderStorageFactoryTest {
+    private SharedRocksDBBlockHeaderStorageFactory newFactory(String basePath) {
+        SharedRocksDBBlockHeaderStorageFactory factory =
+                new SharedRocksDBBlockHeaderStorageFactory();
+        factory.setBasePath(basePath);
+        factory.setBlockCacheSize(1024 * 1024);
+        factory.setWriteBufferSize(1024 * 1024);
+        return factory;
+    }
+
+    @Test
+    public void testColumnFamilyPerChain() throws Exception {
+        File dir = Files.createTempDirectory("shared-block-header-storage").toFile();
+        dir.deleteOnExit();
+
+        SharedRocksDBBlockHeaderStorageFactory factory = newFactory(dir.getAbsolutePath());
+        try {
+            BlockHeaderStorage bcos = factory.newBlockHeaderStorage("payment.bcos");
+            BlockHeaderStorage fabric = factory.newBlockHeaderStorage("payment.fabric");
+
+            bcos.writeBlockHeaders(0, Arrays.asList("bcos:0".getBytes(), "bcos:1".getBytes()));
+            fabric.writeBlockHeaders(0, Arrays.asList("fabric:0".getBytes()));
+
+            Assert.assertEquals(1, bcos.readBlockNumber());
+            Assert.assertEquals(0, fabric.readBlockNumber());
+            Assert.assertArrayEquals("fabric:0".getBytes(), fabric.readBlockHeader(0));
+
+            // a removed chain drops its column family, others stay
+            fabric.close();
+            factory.dropBlockHeaderStorage("payment.fabric");
+            bcos.close();
+        } finally {
+            factory.close();
+        }
+
+        factory = newFactory(dir.getAbsolutePath());
+        try {
+            BlockHeaderStorage bcos = factory.newBlockHeaderStorage("payment.bcos");
+            Assert.assertArrayEquals("bcos:1".getBytes(), bcos.readBlockHeader(1));
+            BlockHeaderStorage fabric = factory.newBlockHeaderStorage("payment.fabric");
+            Assert.assertEquals(-1, fabric.readBlockNumber());
+        } finally {
+            factory.close();
+        }
+    }
+}
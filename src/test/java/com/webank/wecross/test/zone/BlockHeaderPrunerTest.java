@@ -0,0 +1,109 @@
+package com.webank.wecross.test.zone;
+
+import com.webank.wecross.storage.BlockHeaderStorage;
+import com.webank.wecross.zone.BlockHeaderPruner;
+import com.webank.wecross.zone.BlockHeaderRetentionPolicy;
+import com.webank.wecross.zone.Chain;
+import com.webank.wecross.zone.ZoneManager;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class BlockHeaderPrunerTest {
+    private BlockHeaderStorage blockHeaderStorage;
+    private long tipBlockNumber;
+
+    private BlockHeaderPruner newPruner(BlockHeaderRetentionPolicy policy) {
+        blockHeaderStorage = Mockito.mock(BlockHeaderStorage.class);
+        Mockito.when(blockHeaderStorage.readBlockNumber()).thenAnswer(invocation -> tipBlockNumber);
+
+        Chain chain = new Chain("bcos");
+        chain.setBlockHeaderStorage(blockHeaderStorage);
+
+        Map<String, Chain> chains = new HashMap<String, Chain>();
+        chains.put("payment.bcos", chain);
+        ZoneManager zoneManager = Mockito.mock(ZoneManager.class);
+        Mockito.when(zoneManager.getAllChains()).thenReturn(chains);
+
+        Map<String, BlockHeaderRetentionPolicy> policies =
+                new HashMap<String, BlockHeaderRetentionPolicy>();
+        policies.put(BlockHeaderPruner.DEFAULT_POLICY, policy);
+
+        BlockHeaderPruner blockHeaderPruner = new BlockHeaderPruner();
+        blockHeaderPruner.setZoneManager(zoneManager);
+        blockHeaderPruner.setPolicies(policies);
+        return blockHeaderPruner;
+    }
+
+    @Test
+    public void testPrunableBlockNumber() {
+        BlockHeaderRetentionPolicy policy = new BlockHeaderRetentionPolicy();
+        Assert.assertFalse(policy.isEnabled());
+        Assert.assertEquals(0, policy.prunableBlockNumber(1000, 900));
+
+        policy.setKeepBlocks(100);
+        Assert.assertEquals(901, policy.prunableBlockNumber(1000, -1));
+        Assert.assertEquals(0, policy.prunableBlockNumber(50, -1));
+
+        // blocks kept by any rule are kept
+        policy.setKeepSeconds(60);
+        Assert.assertEquals(0, policy.prunableBlockNumber(1000, -1));
+        Assert.assertEquals(501, policy.prunableBlockNumber(1000, 500));
+        Assert.assertEquals(901, policy.prunableBlockNumber(1000, 950));
+
+        // the tip is always kept
+        policy.setKeepBlocks(0);
+        Assert.assertEquals(1000, policy.prunableBlockNumber(1000, 1000));
+    }
+
+    @Test
+    public void testPruneKeepBlocks() {
+        BlockHeaderRetentionPolicy policy = new BlockHeaderRetentionPolicy();
+        policy.setKeepBlocks(100);
+        policy.setCheckpointInterval(10);
+
+        BlockHeaderPruner blockHeaderPruner = newPruner(policy);
+        tipBlockNumber = 1000;
+        blockHeaderPruner.pruneOnce(System.currentTimeMillis());
+
+        Mockito.verify(blockHeaderStorage).pruneBlockHeaders(901, 10);
+    }
+
+    @Test
+    public void testPruneKeepSeconds() {
+        BlockHeaderRetentionPolicy policy = new BlockHeaderRetentionPolicy();
+        policy.setKeepSeconds(60);
+
+        BlockHeaderPruner blockHeaderPruner = newPruner(policy);
+        tipBlockNumber = 100;
+        blockHeaderPruner.pruneOnce(0);
+        tipBlockNumber = 200;
+        blockHeaderPruner.pruneOnce(30000);
+        Mockito.verify(blockHeaderStorage, Mockito.never())
+                .pruneBlockHeaders(Mockito.anyLong(), Mockito.anyLong());
+
+        // blocks up to 100 were committed more than 60s ago
+        tipBlockNumber = 300;
+        blockHeaderPruner.pruneOnce(70000);
+        Mockito.verify(blockHeaderStorage).pruneBlockHeaders(101, 0);
+    }
+
+    @Test
+    public void testUnregister() {
+        BlockHeaderRetentionPolicy policy = new BlockHeaderRetentionPolicy();
+        policy.setKeepSeconds(60);
+
+        BlockHeaderPruner blockHeaderPruner = newPruner(policy);
+        tipBlockNumber = 100;
+        blockHeaderPruner.pruneOnce(0);
+
+        // the history of a removed chain is dropped with it
+        blockHeaderPruner.unregister("payment.bcos");
+        tipBlockNumber = 300;
+        blockHeaderPruner.pruneOnce(70000);
+        Mockito.verify(blockHeaderStorage, Mockito.never())
+                .pruneBlockHeaders(Mockito.anyLong(), Mockito.anyLong());
+    }
+}
@@ -0,0 +1,135 @@
+package com.webank.wecross.test.zone;
+
+import com.webank.wecross.p2p.netty.common.Node;
+import com.webank.wecross.peer.Peer;
+import com.webank.wecross.storage.BlockHeaderStorage;
+import com.webank.wecross.stub.BlockHeader;
+import com.webank.wecross.stub.Connection;
+import com.webank.wecross.stub.Driver;
+import com.webank.wecross.zone.Chain;
+import com.webank.wecross.zone.ChainSyncEngine;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ChainSyncEngineTest {
+    private BlockHeaderStorage mockBlockHeaderStorage() {
+        BlockHeaderStorage blockHeaderStorage = Mockito.spy(BlockHeaderStorage.class);
+        Mockito.when(blockHeaderStorage.readBlockNumber()).thenReturn((long) -1);
+        Mockito.when(blockHeaderStorage.writeBlockHeaders(Mockito.anyLong(), Mockito.any()))
+                .thenReturn(true);
+        return blockHeaderStorage;
+    }
+
+    private Driver mockDriver(long remoteBlockNumber) {
+        Driver driver = Mockito.spy(Driver.class);
+        Mockito.when(driver.getBlockNumber(Mockito.any())).thenReturn(remoteBlockNumber);
+        Mockito.when(driver.getBlockHeader(Mockito.anyLong(), Mockito.any()))
+                .thenAnswer(
+                        new Answer<byte[]>() {
+                            @Override
+                            public byte[] answer(InvocationOnMock invocation) throws Throwable {
+                                long blockNumber = invocation.getArgument(0);
+                                return ("Block:" + blockNumber).getBytes();
+                            }
+                        });
+        Mockito.when(driver.decodeBlockHeader(Mockito.any()))
+                .thenAnswer(
+                        new Answer<BlockHeader>() {
+                            @Override
+                            public BlockHeader answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                byte[] data = invocation.getArgument(0);
+                                long blockNumber =
+                                        Long.valueOf(new String(data).substring("Block:".length()));
+
+                                BlockHeader blockHeader = new BlockHeader();
+                                blockHeader.setNumber(blockNumber);
+                                blockHeader.setHash("hash" + blockNumber);
+                                blockHeader.setPrevHash("hash" + (blockNumber - 1));
+                                return blockHeader;
+                            }
+                        });
+        return driver;
+    }
+
+    @Test
+    public void testAnnouncedBlockNumber() throws Exception {
+        // the peer can not tell its block number, sync relies on announcements
+        Driver driver = mockDriver(-1);
+
+        Chain chain = new Chain("MockChain");
+        chain.setBlockHeaderStorage(mockBlockHeaderStorage());
+        chain.setDriver(driver);
+        chain.addConnection(new Peer(new Node("", "", 0)), Mockito.mock(Connection.class));
+
+        ChainSyncEngine chainSyncEngine = new ChainSyncEngine();
+        chainSyncEngine.setTickInterval(10);
+        chainSyncEngine.setRemoteSyncInterval(60000);
+        chainSyncEngine.register(chain);
+        chainSyncEngine.start();
+        try {
+            chain.onAnnouncedBlockNumber(10);
+            chainSyncEngine.wakeup(chain);
+            Assert.assertTrue(chain.waitBlockNumber(10, 5000));
+            Assert.assertFalse(chain.waitBlockNumber(11, 100));
+            Assert.assertEquals(0, chain.getSyncLag());
+
+            // remote chains are polled once, then not before the fallback interval
+            Mockito.verify(driver, Mockito.atMost(1)).getBlockNumber(Mockito.any());
+        } finally {
+            chainSyncEngine.stop();
+        }
+    }
+
+    @Test
+    public void testUnreachableChainBackoff() throws Exception {
+        Chain chain = Mockito.spy(new Chain("MockChain"));
+        chain.setBlockHeaderStorage(mockBlockHeaderStorage());
+        chain.setDriver(mockDriver(100));
+
+        ChainSyncEngine chainSyncEngine = new ChainSyncEngine();
+        chainSyncEngine.setTickInterval(10);
+        chainSyncEngine.setRemoteSyncInterval(50);
+        chainSyncEngine.setMaxBackoff(400);
+        chainSyncEngine.register(chain);
+        chainSyncEngine.start();
+        try {
+            Thread.sleep(1000);
+
+            // no connection, retried at 50, 100, 200, 400, 400... ms instead of every 50 ms
+            ChainSyncEngine.ChainSyncState state = chainSyncEngine.getSyncState(chain);
+            Assert.assertTrue(state.getFailures() >= 2);
+            Assert.assertTrue(state.getNextSyncTime() - System.currentTimeMillis() <= 400);
+            Mockito.verify(chain, Mockito.atMost(10)).sync();
+
+            chainSyncEngine.unregister(chain);
+            Assert.assertNull(chainSyncEngine.getSyncState(chain));
+        } finally {
+            chainSyncEngine.stop();
+        }
+    }
+
+    @Test
+    public void testLocalChainSync() throws Exception {
+        Chain chain = new Chain("MockChain");
+        chain.setBlockHeaderStorage(mockBlockHeaderStorage());
+        chain.setDriver(mockDriver(20));
+        chain.setSyncBatchSize(5);
+        chain.addConnection(null, Mockito.mock(Connection.class));
+
+        ChainSyncEngine chainSyncEngine = new ChainSyncEngine();
+        chainSyncEngine.setTickInterval(10);
+        chainSyncEngine.register(chain);
+        chainSyncEngine.start();
+        try {
+            Assert.assertTrue(chain.waitBlockNumber(20, 5000));
+            Assert.assertEquals(0, chain.getSyncLag());
+        } finally {
+            chainSyncEngine.stop();
+        }
+    }
+}
@@ -1,8 +1,17 @@
 package com.webank.wecross.test.zone;
 
 import com.webank.wecross.storage.BlockHeaderStorage;
+import com.webank.wecross.stub.BlockHeader;
+import com.webank.wecross.stub.BlockHeaders;
+import com.webank.wecross.stub.Connection;
 import com.webank.wecross.stub.Driver;
+import com.webank.wecross.zone.BlockNumberListener;
 import com.webank.wecross.zone.Chain;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
@@ -12,35 +21,50 @@ import org.mockito.stubbing.Answer;
 public class ChainTest {
     private long localBlockNumber;
     private long remoteBlockNumber;
+    private long brokenBlockNumber;
+    private int commitTimes;
+    private long failedBlockNumber = -1; // writes of it fail while writeFailures is positive
+    private int writeFailures;
 
-    @Test
-    public void testFetchBlockHeader() {
-        localBlockNumber = (long) -1;
-        remoteBlockNumber = (long) 100;
-
+    private BlockHeaderStorage mockBlockHeaderStorage() {
         BlockHeaderStorage blockHeaderStorage = Mockito.spy(BlockHeaderStorage.class);
         Mockito.doAnswer(
                         new Answer<Object>() {
                             @Override
                             public Object answer(InvocationOnMock invocation) throws Throwable {
                                 long blockNumber = invocation.getArgument(0);
-                                byte[] blockHeader = invocation.getArgument(1);
+                                List<byte[]> blockHeaders = invocation.getArgument(1);
+                                if (writeFailures > 0
+                                        && blockNumber <= failedBlockNumber
+                                        && failedBlockNumber < blockNumber + blockHeaders.size()) {
+                                    --writeFailures;
+                                    return false;
+                                }
+
 
-                                Assert.assertTrue(blockNumber < remoteBlockNumber);
-                                Assert.assertArrayEquals(
-                                        blockHeader,
-                                        ("Block:" + String.valueOf(blockNumber)).getBytes());
+                                Assert.assertEquals(localBlockNumber + 1, blockNumber);
+                                for (byte[] blockHeader : blockHeaders) {
+                                    Assert.assertTrue(blockNumber <= remoteBlockNumber);
+                                    Assert.assertArrayEquals(
+                                            blockHeader,
+                                            ("Block:" + String.valueOf(blockNumber)).getBytes());
+                                    ++blockNumber;
+                                }
 
-                                localBlockNumber = blockNumber;
+                                localBlockNumber = blockNumber - 1;
+                                ++commitTimes;
 
-                                return null;
+                                return true;
                             }
                         })
                 .when(blockHeaderStorage)
-                .writeBlockHeader(Mockito.anyLong(), Mockito.any());
+                .writeBlockHeaders(Mockito.anyLong(), Mockito.any());
 
         Mockito.when(blockHeaderStorage.readBlockNumber()).thenReturn(localBlockNumber);
+        return blockHeaderStorage;
+    }
 
+    private Driver mockDriver(boolean sequential) {
         Driver driver = Mockito.spy(Driver.class);
         Mockito.when(driver.getBlockNumber(Mockito.any())).thenReturn(remoteBlockNumber);
         Mockito.when(driver.getBlockHeader(Mockito.anyLong(), Mockito.any()))
@@ -50,7 +74,9 @@ public class ChainTest {
                             public byte[] answer(InvocationOnMock invocation) throws Throwable {
                                 long blockNumber = invocation.getArgument(0);
 
-                                Assert.assertEquals(localBlockNumber + 1, blockNumber);
+                                if (sequential) {
+                                    Assert.assertEquals(localBlockNumber + 1, blockNumber);
+                                }
                                 Assert.assertTrue(blockNumber <= remoteBlockNumber);
 
                                 String blockHeader = "Block:" + String.valueOf(blockNumber);
@@ -58,11 +84,284 @@ public class ChainTest {
                                 return blockHeader.getBytes();
                             }
                         });
+        Mockito.when(driver.decodeBlockHeader(Mockito.any()))
+                .thenAnswer(
+                        new Answer<BlockHeader>() {
+                            @Override
+                            public BlockHeader answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                byte[] data = invocation.getArgument(0);
+                                long blockNumber =
+                                        Long.valueOf(new String(data).substring("Block:".length()));
+
+                                BlockHeader blockHeader = new BlockHeader();
+                                blockHeader.setNumber(blockNumber);
+                                blockHeader.setHash("hash" + blockNumber);
+                                if (blockNumber == brokenBlockNumber) {
+                                    blockHeader.setPrevHash("unknown");
+                                } else {
+                                    blockHeader.setPrevHash("hash" + (blockNumber - 1));
+                                }
+                                return blockHeader;
+                            }
+                        });
+        return driver;
+    }
+
+    @Test
+    public void testFetchBlockHeader() {
+        localBlockNumber = (long) -1;
+        remoteBlockNumber = (long) 100;
+        brokenBlockNumber = (long) -1;
+        commitTimes = 0;
+
+        Chain chain = new Chain("MockChain");
+        chain.setBlockHeaderStorage(mockBlockHeaderStorage());
+        chain.setDriver(mockDriver(true));
+        chain.addConnection(null, Mockito.mock(Connection.class));
+        chain.fetchBlockHeader();
+
+        Assert.assertEquals(remoteBlockNumber, localBlockNumber);
+        Assert.assertEquals(101, commitTimes);
+    }
+
+    @Test
+    public void testPipelinedFetchBlockHeader() {
+        localBlockNumber = (long) -1;
+        remoteBlockNumber = (long) 100;
+        brokenBlockNumber = (long) -1;
+        commitTimes = 0;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            Chain chain = new Chain("MockChain");
+            chain.setBlockHeaderStorage(mockBlockHeaderStorage());
+            chain.setDriver(mockDriver(false));
+            chain.setFetchExecutor(executorService);
+            chain.setSyncWindowSize(8);
+            chain.setSyncBatchSize(10);
+            chain.addConnection(null, Mockito.mock(Connection.class));
+            chain.fetchBlockHeader();
+
+            Assert.assertEquals(remoteBlockNumber, localBlockNumber);
+            Assert.assertEquals(11, commitTimes);
+            Assert.assertEquals(101, chain.getSyncMetrics().getCommittedBlocks());
+            Assert.assertEquals(11, chain.getSyncMetrics().getCommitBatches());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testPipelinedFetchBrokenBlockHeader() {
+        localBlockNumber = (long) -1;
+        remoteBlockNumber = (long) 100;
+        brokenBlockNumber = (long) 50;
+        commitTimes = 0;
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            Chain chain = new Chain("MockChain");
+            chain.setBlockHeaderStorage(mockBlockHeaderStorage());
+            chain.setDriver(mockDriver(false));
+            chain.setFetchExecutor(executorService);
+            chain.setSyncWindowSize(8);
+            chain.setSyncBatchSize(30);
+            chain.addConnection(null, Mockito.mock(Connection.class));
+            chain.fetchBlockHeader();
+
+            // verified blocks before the broken one are still committed
+            Assert.assertEquals(brokenBlockNumber - 1, localBlockNumber);
+            Assert.assertEquals(2, commitTimes);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testCommitFailed() {
+        localBlockNumber = (long) -1;
+        remoteBlockNumber = (long) 100;
+        brokenBlockNumber = (long) -1;
+        failedBlockNumber = (long) 55;
+        writeFailures = 1;
+        commitTimes = 0;
+
+        Chain chain = new Chain("MockChain");
+        chain.setBlockHeaderStorage(mockBlockHeaderStorage());
+        chain.setDriver(mockDriver(false));
+        chain.setSyncBatchSize(10);
+        chain.addConnection(null, Mockito.mock(Connection.class));
+
+        // the round stops at the failed batch, the local tip is not moved past the storage
+        chain.fetchBlockHeader();
+        Assert.assertEquals(49, localBlockNumber);
+        Assert.assertEquals(remoteBlockNumber - 49, chain.getSyncLag());
+        Assert.assertEquals(1, chain.getSyncMetrics().getCommitFailures());
+
+        // the next round syncs from the local tip again
+        chain.fetchBlockHeader();
+        Assert.assertEquals(remoteBlockNumber, localBlockNumber);
+        Assert.assertEquals(11, commitTimes);
+    }
+
+    @Test
+    public void testRangeFetchBlockHeader() {
+        localBlockNumber = (long) -1;
+        remoteBlockNumber = (long) 100;
+        brokenBlockNumber = (long) -1;
+        commitTimes = 0;
+
+        Connection connection = Mockito.mock(Connection.class);
+        Mockito.when(connection.getBlockHeaders(Mockito.anyLong(), Mockito.anyLong()))
+                .thenAnswer(
+                        new Answer<byte[]>() {
+                            @Override
+                            public byte[] answer(InvocationOnMock invocation) throws Throwable {
+                                long from = invocation.getArgument(0);
+                                long to = invocation.getArgument(1);
+
+                                Assert.assertTrue(to - from < 10);
+                                List<byte[]> blockHeaders = new ArrayList<byte[]>();
+                                for (long blockNumber = from; blockNumber <= to; ++blockNumber) {
+                                    blockHeaders.add(("Block:" + blockNumber).getBytes());
+                                }
+                                return BlockHeaders.encode(blockHeaders);
+                            }
+                        });
+
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            Driver driver = mockDriver(false);
+
+            Chain chain = new Chain("MockChain");
+            chain.setBlockHeaderStorage(mockBlockHeaderStorage());
+            chain.setDriver(driver);
+            chain.setFetchExecutor(executorService);
+            chain.setSyncWindowSize(4);
+            chain.setSyncBatchSize(25);
+            chain.setSyncRangeSize(10);
+            chain.addConnection(null, connection);
+            chain.fetchBlockHeader();
+
+            Assert.assertEquals(remoteBlockNumber, localBlockNumber);
+            Assert.assertEquals(5, commitTimes);
+            Mockito.verify(connection, Mockito.times(11))
+                    .getBlockHeaders(Mockito.anyLong(), Mockito.anyLong());
+            Mockito.verify(driver, Mockito.never())
+                    .getBlockHeader(Mockito.anyLong(), Mockito.any());
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFetchPrunedBlockHeaders() {
+        remoteBlockNumber = (long) 100;
+        brokenBlockNumber = (long) -1;
+
+        // blocks below 50 are pruned except checkpoints every 10 blocks
+        BlockHeaderStorage blockHeaderStorage = Mockito.spy(BlockHeaderStorage.class);
+        Mockito.when(blockHeaderStorage.readBlockNumber()).thenReturn(remoteBlockNumber);
+        Mockito.when(blockHeaderStorage.readRetainedBlockNumber()).thenReturn((long) 50);
+        Mockito.when(blockHeaderStorage.readBlockHeader(Mockito.anyLong()))
+                .thenAnswer(
+                        new Answer<byte[]>() {
+                            @Override
+                            public byte[] answer(InvocationOnMock invocation) throws Throwable {
+                                long blockNumber = invocation.getArgument(0);
+                                if (blockNumber < 0 || blockNumber > remoteBlockNumber) {
+                                    return null;
+                                }
+                                if (blockNumber < 50 && blockNumber % 10 != 0) {
+                                    return null;
+                                }
+                                return ("Block:" + blockNumber).getBytes();
+                            }
+                        });
+        Mockito.when(blockHeaderStorage.readBlockHeaders(Mockito.anyLong(), Mockito.anyLong()))
+                .thenAnswer(
+                        new Answer<List<byte[]>>() {
+                            @Override
+                            public List<byte[]> answer(InvocationOnMock invocation)
+                                    throws Throwable {
+                                long from = invocation.getArgument(0);
+                                long to = invocation.getArgument(1);
+                                List<byte[]> blockHeaders = new ArrayList<byte[]>();
+                                for (long blockNumber = from; blockNumber <= to; ++blockNumber) {
+                                    blockHeaders.add(("Block:" + blockNumber).getBytes());
+                                }
+                                return blockHeaders;
+                            }
+                        });
 
         Chain chain = new Chain("MockChain");
         chain.setBlockHeaderStorage(blockHeaderStorage);
-        chain.setDriver(driver);
-        chain.addConnection(null, null);
+        chain.setDriver(mockDriver(false));
+        chain.addConnection(null, Mockito.mock(Connection.class));
+
+        // linked to the checkpoint 30
+        List<byte[]> blockHeaders = chain.readBlockHeaders(25, 27);
+        Assert.assertEquals(3, blockHeaders.size());
+        Assert.assertArrayEquals("Block:25".getBytes(), blockHeaders.get(0));
+
+        // linked to the retained 50, the rest is read from the storage
+        blockHeaders = chain.readBlockHeaders(45, 55);
+        Assert.assertEquals(11, blockHeaders.size());
+        Assert.assertArrayEquals("Block:55".getBytes(), blockHeaders.get(10));
+
+        // a header between the range and the checkpoint does not link
+        brokenBlockNumber = (long) 28;
+        Assert.assertNull(chain.fetchPrunedBlockHeaders(25, 25));
+        Assert.assertTrue(chain.readBlockHeaders(25, 27).isEmpty());
+    }
+
+    @Test
+    public void testBlockHeadersCodec() {
+        List<byte[]> blockHeaders = new ArrayList<byte[]>();
+        blockHeaders.add("Block:0".getBytes());
+        blockHeaders.add(new byte[0]);
+        blockHeaders.add("Block:2".getBytes());
+
+        List<byte[]> decoded = BlockHeaders.decode(BlockHeaders.encode(blockHeaders));
+        Assert.assertEquals(3, decoded.size());
+        for (int i = 0; i < blockHeaders.size(); ++i) {
+            Assert.assertArrayEquals(blockHeaders.get(i), decoded.get(i));
+        }
+
+        // a count the data could not hold is rejected before allocating
+        try {
+            BlockHeaders.decode(new byte[] {0x7f, -1, -1, -1, 0, 0, 0, 0});
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            Assert.assertTrue(e.getMessage().contains("count"));
+        }
+    }
+
+    @Test
+    public void testLocalBlockNumberListener() {
+        localBlockNumber = (long) -1;
+        remoteBlockNumber = (long) 100;
+        brokenBlockNumber = (long) -1;
+        commitTimes = 0;
+
+        AtomicLong announced = new AtomicLong(-1);
+
+        Chain chain = new Chain("MockChain");
+        chain.setBlockHeaderStorage(mockBlockHeaderStorage());
+        chain.setDriver(mockDriver(false));
+        chain.setSyncBatchSize(50);
+        chain.addConnection(null, Mockito.mock(Connection.class));
+        chain.setBlockNumberListener(
+                new BlockNumberListener() {
+                    @Override
+                    public void onBlockNumber(Chain chain, long blockNumber) {
+                        Assert.assertTrue(blockNumber > announced.get());
+                        announced.set(blockNumber);
+                    }
+                });
         chain.fetchBlockHeader();
+
+        Assert.assertEquals(remoteBlockNumber, announced.get());
     }
 }